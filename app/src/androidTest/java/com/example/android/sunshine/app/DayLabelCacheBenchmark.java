@@ -0,0 +1,66 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.app;
+
+import android.test.AndroidTestCase;
+import android.util.Log;
+
+/**
+ * Formatting two weeks of rows with the helpers as they were before {@link DayLabelCache},
+ * against the cache.  Results are logged as ns/op.
+ */
+public class DayLabelCacheBenchmark extends AndroidTestCase {
+
+    public static final String LOG_TAG = DayLabelCacheBenchmark.class.getSimpleName();
+
+    private static final long DAY_IN_MILLIS = 1000 * 60 * 60 * 24;
+    private static final int DAYS = 14;
+
+    // JMH-style run shape: warm up first, then measure a number of fixed-size iterations.
+    private static final int WARMUP_ITERATIONS = 5;
+    private static final int MEASUREMENT_ITERATIONS = 10;
+    private static final int OPERATIONS_PER_ITERATION = 10000;
+
+    public void testFormattingCost() {
+        long now = System.currentTimeMillis();
+        long legacy = measure(now, true);
+        long cached = measure(now, false);
+        Log.i(LOG_TAG, "getFriendlyDayString: uncached " + legacy + " ns/op, cached "
+                + cached + " ns/op");
+    }
+
+    private long measure(long now, boolean legacy) {
+        int sink = 0;
+        long best = Long.MAX_VALUE;
+        int iterations = WARMUP_ITERATIONS + MEASUREMENT_ITERATIONS;
+        for (int iteration = 0; iteration < iterations; iteration++) {
+            long start = System.nanoTime();
+            for (int i = 0; i < OPERATIONS_PER_ITERATION; i++) {
+                long date = now + (i % DAYS) * DAY_IN_MILLIS;
+                String label = legacy
+                        ? TestDayLabelCache.legacyFriendlyDayString(mContext, date, i % DAYS == 0)
+                        : Utility.getFriendlyDayString(mContext, date, i % DAYS == 0);
+                sink += label.length();
+            }
+            long perOp = (System.nanoTime() - start) / OPERATIONS_PER_ITERATION;
+            if (iteration >= WARMUP_ITERATIONS) {
+                best = Math.min(best, perOp);
+            }
+        }
+        assertTrue(sink > 0);
+        return best;
+    }
+}
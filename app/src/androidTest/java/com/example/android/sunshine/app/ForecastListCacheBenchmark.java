@@ -0,0 +1,77 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.app;
+
+import android.net.Uri;
+import android.test.AndroidTestCase;
+import android.util.Log;
+
+import com.example.android.sunshine.app.data.WeatherContract;
+
+/**
+ * Loading the forecast list again, as a loader created after a rotation does, from the
+ * provider against from the cache.  Results are logged in us per load.
+ */
+public class ForecastListCacheBenchmark extends AndroidTestCase {
+    private static final String LOG_TAG = ForecastListCacheBenchmark.class.getSimpleName();
+
+    private static final int ITERATIONS = 50;
+
+    private long mToday;
+    private Uri mUri;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        TestForecastListCache.deleteAllRecords(mContext);
+        ForecastListCache.clear();
+        mToday = WeatherContract.normalizeDate(System.currentTimeMillis());
+        mUri = ForecastFragment.buildForecastUri(TestForecastListCache.TEST_LOCATION,
+                System.currentTimeMillis());
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        TestForecastListCache.deleteAllRecords(mContext);
+        ForecastListCache.clear();
+        super.tearDown();
+    }
+
+    private ForecastListLoader createLoader() {
+        return new ForecastListLoader(mContext, mUri, ForecastFragment.FORECAST_COLUMNS,
+                TestForecastListCache.SORT_ORDER);
+    }
+
+    public void testReloadCost() {
+        TestForecastListCache.insertForecast(mContext, mToday);
+        long queried = Long.MAX_VALUE;
+        long cached = Long.MAX_VALUE;
+        for (int i = 0; i < ITERATIONS; i++) {
+            ForecastListCache.clear();
+            long start = System.nanoTime();
+            createLoader().loadInBackground();
+            queried = Math.min(queried, System.nanoTime() - start);
+
+            start = System.nanoTime();
+            ForecastListSnapshot snapshot = createLoader().loadInBackground();
+            cached = Math.min(cached, System.nanoTime() - start);
+            assertEquals(TestForecastListCache.DAYS, snapshot.getCount());
+        }
+
+        Log.i(LOG_TAG, "Reloading the forecast list: query " + queried / 1000 + " us, cache "
+                + cached / 1000 + " us");
+    }
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.app;
+
+import android.database.Cursor;
+import android.test.AndroidTestCase;
+import android.util.Log;
+
+import com.example.android.sunshine.app.data.WeatherContract;
+
+/**
+ * Reading the values bound to every row, and the date looked up on a click, from the cursor
+ * as the adapter used to against reading them from the snapshot.  Results are logged as ns
+ * per row.
+ */
+public class ForecastListSnapshotBenchmark extends AndroidTestCase {
+    private static final String LOG_TAG = ForecastListSnapshotBenchmark.class.getSimpleName();
+
+    private static final int DAYS = TestForecastListSnapshot.DAYS;
+    private static final int PASSES = 2000;
+
+    public void testBindCost() {
+        Cursor cursor = TestForecastListSnapshot.createCursor(DAYS);
+        ForecastListSnapshot snapshot = ForecastListSnapshot.fromCursor(cursor);
+
+        double sink = 0;
+        long start = System.nanoTime();
+        for (int pass = 0; pass < PASSES; pass++) {
+            for (int i = 0; i < DAYS; i++) {
+                cursor.moveToPosition(i);
+                sink += cursor.getInt(ForecastFragment.COL_WEATHER_CONDITION_ID)
+                        + cursor.getLong(ForecastFragment.COL_WEATHER_DATE)
+                        + cursor.getDouble(ForecastFragment.COL_WEATHER_MAX_TEMP)
+                        + cursor.getDouble(ForecastFragment.COL_WEATHER_MIN_TEMP)
+                        + cursor.getLong(cursor.getColumnIndex(
+                                WeatherContract.WeatherEntry.COLUMN_DATE));
+            }
+        }
+        long cursorNanos = (System.nanoTime() - start) / (PASSES * DAYS);
+
+        start = System.nanoTime();
+        for (int pass = 0; pass < PASSES; pass++) {
+            for (int i = 0; i < DAYS; i++) {
+                sink += snapshot.getWeatherId(i)
+                        + snapshot.getDate(i)
+                        + snapshot.getHigh(i)
+                        + snapshot.getLow(i)
+                        + snapshot.getDate(i);
+            }
+        }
+        long snapshotNanos = (System.nanoTime() - start) / (PASSES * DAYS);
+        cursor.close();
+
+        Log.i(LOG_TAG, "Row bind: cursor " + cursorNanos + " ns, snapshot " + snapshotNanos
+                + " ns (" + sink + ")");
+    }
+}
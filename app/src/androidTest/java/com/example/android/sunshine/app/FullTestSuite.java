@@ -15,15 +15,34 @@
  */
 package com.example.android.sunshine.app;
 
+import android.test.suitebuilder.TestMethod;
 import android.test.suitebuilder.TestSuiteBuilder;
 
+import com.android.internal.util.Predicate;
+
 import junit.framework.Test;
 import junit.framework.TestSuite;
 
 public class FullTestSuite extends TestSuite {
+
+    // Benchmarks only log their timings, so they are left to BenchmarkSuite
+    static final Predicate<TestMethod> IS_BENCHMARK = new Predicate<TestMethod>() {
+        @Override
+        public boolean apply(TestMethod method) {
+            return method.getEnclosingClass().getSimpleName().endsWith("Benchmark");
+        }
+    };
+
     public static Test suite() {
         return new TestSuiteBuilder(FullTestSuite.class)
-                .includeAllPackagesUnderHere().build();
+                .includeAllPackagesUnderHere()
+                .addRequirements(new Predicate<TestMethod>() {
+                    @Override
+                    public boolean apply(TestMethod method) {
+                        return !IS_BENCHMARK.apply(method);
+                    }
+                })
+                .build();
     }
 
     public FullTestSuite() {
@@ -0,0 +1,115 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.app;
+
+import android.support.v4.util.LongSparseArray;
+import android.support.v7.widget.RecyclerView;
+import android.test.AndroidTestCase;
+import android.util.Log;
+import android.util.SparseBooleanArray;
+import android.widget.AbsListView;
+
+import com.example.android.sunshine.app.TestItemChoiceManager.IdAdapter;
+
+/**
+ * Confirming the checked positions of 1k and 10k item lists after items were inserted at the
+ * top, with every tenth item checked, against the LongSparseArray and windowed search it
+ * replaced.  Results are logged in us per data change.
+ */
+public class ItemChoiceManagerBenchmark extends AndroidTestCase {
+    private static final String LOG_TAG = ItemChoiceManagerBenchmark.class.getSimpleName();
+
+    private static final int CHECK_POSITION_SEARCH_DISTANCE = 20;
+    private static final int SHIFT = 15;
+    private static final int CHECKED_EVERY = 10;
+    private static final int ITERATIONS = 50;
+
+    public void testConfirmCost() {
+        confirmCost(1000);
+        confirmCost(10000);
+    }
+
+    private void confirmCost(int count) {
+        long[] before = TestItemChoiceManager.createIds(count, 0);
+        long[] after = TestItemChoiceManager.createIds(count, SHIFT);
+        IdAdapter adapter = new IdAdapter(before);
+        ItemChoiceManager manager = new ItemChoiceManager(adapter);
+        manager.setChoiceMode(AbsListView.CHOICE_MODE_MULTIPLE);
+        // The checked items pushed off the end are dropped
+        int remaining = (count - SHIFT + CHECKED_EVERY - 1) / CHECKED_EVERY;
+
+        long legacy = Long.MAX_VALUE;
+        long indexed = Long.MAX_VALUE;
+        for (int i = 0; i < ITERATIONS; i++) {
+            LongSparseArray<Integer> checkedIds = new LongSparseArray<Integer>();
+            SparseBooleanArray checkStates = new SparseBooleanArray();
+            for (int position = 0; position < count; position += CHECKED_EVERY) {
+                checkedIds.put(before[position], position);
+            }
+            adapter.mIds = after;
+            long start = System.nanoTime();
+            legacyConfirm(adapter, checkStates, checkedIds, count);
+            legacy = Math.min(legacy, System.nanoTime() - start);
+            assertEquals(remaining, checkedIds.size());
+
+            adapter.mIds = before;
+            manager.clearSelections();
+            for (int position = 0; position < count; position += CHECKED_EVERY) {
+                manager.mCheckedIdStates.put(before[position], position);
+            }
+            adapter.mIds = after;
+            start = System.nanoTime();
+            manager.confirmCheckedPositionsById();
+            indexed = Math.min(indexed, System.nanoTime() - start);
+            assertTrue(manager.isItemChecked(SHIFT));
+            assertEquals(remaining, manager.mCheckedIdStates.size());
+        }
+
+        Log.i(LOG_TAG, "Confirming " + count + " items: windowed search " + legacy / 1000
+                + " us, id index " + indexed / 1000 + " us");
+    }
+
+    // ItemChoiceManager.confirmCheckedPositionsById before the id index
+    private static void legacyConfirm(RecyclerView.Adapter adapter, SparseBooleanArray checkStates,
+            LongSparseArray<Integer> checkedIdStates, int oldItemCount) {
+        checkStates.clear();
+        for (int checkedIndex = 0; checkedIndex < checkedIdStates.size(); checkedIndex++) {
+            final long id = checkedIdStates.keyAt(checkedIndex);
+            final int lastPos = checkedIdStates.valueAt(checkedIndex);
+
+            final long lastPosId = adapter.getItemId(lastPos);
+            if (id != lastPosId) {
+                final int start = Math.max(0, lastPos - CHECK_POSITION_SEARCH_DISTANCE);
+                final int end = Math.min(lastPos + CHECK_POSITION_SEARCH_DISTANCE, oldItemCount);
+                boolean found = false;
+                for (int searchPos = start; searchPos < end; searchPos++) {
+                    if (id == adapter.getItemId(searchPos)) {
+                        found = true;
+                        checkStates.put(searchPos, true);
+                        checkedIdStates.setValueAt(checkedIndex, searchPos);
+                        break;
+                    }
+                }
+                if (!found) {
+                    checkedIdStates.delete(id);
+                    checkedIndex--;
+                }
+            } else {
+                checkStates.put(lastPos, true);
+            }
+        }
+    }
+}
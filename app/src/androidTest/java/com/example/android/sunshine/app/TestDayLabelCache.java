@@ -0,0 +1,147 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.app;
+
+import android.content.Context;
+import android.content.Intent;
+import android.test.AndroidTestCase;
+import android.text.format.Time;
+
+import java.text.SimpleDateFormat;
+import java.util.TimeZone;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class TestDayLabelCache extends AndroidTestCase {
+
+    private static final long DAY_IN_MILLIS = 1000 * 60 * 60 * 24;
+    private static final int DAYS = 14;
+
+    private static final int OPERATIONS_PER_ITERATION = 10000;
+
+    /*
+        The cached labels must be exactly what the old, uncached helpers produced.
+     */
+    public void testLabelsMatchUncachedFormatting() {
+        long now = System.currentTimeMillis();
+        for (int i = -1; i < DAYS + 7; i++) {
+            long date = now + i * DAY_IN_MILLIS;
+            assertEquals("Error: friendly day string for day " + i,
+                    legacyFriendlyDayString(mContext, date, true),
+                    Utility.getFriendlyDayString(mContext, date, true));
+            assertEquals("Error: short friendly day string for day " + i,
+                    legacyFriendlyDayString(mContext, date, false),
+                    Utility.getFriendlyDayString(mContext, date, false));
+            assertEquals("Error: day name for day " + i,
+                    legacyDayName(mContext, date), Utility.getDayName(mContext, date));
+            assertEquals("Error: month day for day " + i,
+                    new SimpleDateFormat("MMMM dd").format(date),
+                    Utility.getFormattedMonthDay(mContext, date));
+        }
+    }
+
+    /*
+        After a time zone change, "Today" and "Tomorrow" must name the days of the new zone,
+        not those the cache computed in the old one.
+     */
+    public void testTimeZoneChange() {
+        TimeZone original = TimeZone.getDefault();
+        long now = System.currentTimeMillis();
+        for (int i = -1; i < 2; i++) {
+            Utility.getDayName(mContext, now + i * DAY_IN_MILLIS);
+        }
+        try {
+            // Nearly a day away from the original zone, so that most of the day it is another day
+            TimeZone.setDefault(TimeZone.getTimeZone(original.getRawOffset() >= 0
+                    ? "Pacific/Pago_Pago" : "Pacific/Kiritimati"));
+            new TimeZoneReceiver().onReceive(mContext, new Intent(Intent.ACTION_TIMEZONE_CHANGED));
+            for (int i = -1; i < 2; i++) {
+                long date = now + i * DAY_IN_MILLIS;
+                assertEquals("Error: day name for day " + i + " in the new zone",
+                        legacyDayName(mContext, date), Utility.getDayName(mContext, date));
+            }
+        } finally {
+            TimeZone.setDefault(original);
+            DayLabelCache.getInstance().onTimeZoneChanged();
+        }
+    }
+
+    /*
+        The detail widget factory formats rows on binder threads while the list formats on the
+        main thread.  Hammer the cache from several threads and make sure nothing breaks.
+     */
+    public void testConcurrentAccess() throws Throwable {
+        final long now = System.currentTimeMillis();
+        final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        for (int i = 0; i < OPERATIONS_PER_ITERATION; i++) {
+                            long date = now + (i % DAYS) * DAY_IN_MILLIS;
+                            assertNotNull(Utility.getFriendlyDayString(mContext, date, i % 2 == 0));
+                        }
+                    } catch (Throwable e) {
+                        failure.set(e);
+                    }
+                }
+            };
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        if (failure.get() != null) {
+            throw failure.get();
+        }
+    }
+
+    // Utility.getFriendlyDayString as it was before the cache.
+    static String legacyFriendlyDayString(Context context, long dateInMillis,
+                                          boolean displayLongToday) {
+        Time time = new Time();
+        time.setToNow();
+        long currentTime = System.currentTimeMillis();
+        int julianDay = Time.getJulianDay(dateInMillis, time.gmtoff);
+        int currentJulianDay = Time.getJulianDay(currentTime, time.gmtoff);
+
+        if (displayLongToday && julianDay == currentJulianDay) {
+            return context.getString(R.string.format_full_friendly_date,
+                    context.getString(R.string.today),
+                    new SimpleDateFormat("MMMM dd").format(dateInMillis));
+        } else if (julianDay < currentJulianDay + 7) {
+            return legacyDayName(context, dateInMillis);
+        } else {
+            return new SimpleDateFormat("EEE MMM dd").format(dateInMillis);
+        }
+    }
+
+    // Utility.getDayName as it was before the cache.
+    private static String legacyDayName(Context context, long dateInMillis) {
+        Time t = new Time();
+        t.setToNow();
+        int julianDay = Time.getJulianDay(dateInMillis, t.gmtoff);
+        int currentJulianDay = Time.getJulianDay(System.currentTimeMillis(), t.gmtoff);
+        if (julianDay == currentJulianDay) {
+            return context.getString(R.string.today);
+        } else if (julianDay == currentJulianDay + 1) {
+            return context.getString(R.string.tomorrow);
+        } else {
+            return new SimpleDateFormat("EEEE").format(dateInMillis);
+        }
+    }
+}
@@ -0,0 +1,167 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.app;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.net.Uri;
+import android.test.AndroidTestCase;
+
+import com.example.android.sunshine.app.data.WeatherContract;
+import com.example.android.sunshine.app.data.WeatherContract.LocationEntry;
+import com.example.android.sunshine.app.data.WeatherContract.WeatherEntry;
+import com.example.android.sunshine.app.data.WeatherProvider;
+
+public class TestForecastListCache extends AndroidTestCase {
+    static final String TEST_LOCATION = "cache test";
+    static final String SORT_ORDER = ForecastFragment.FORECAST_SORT_ORDER;
+    static final int DAYS = 14;
+    private static final long HOUR_IN_MILLIS = 60 * 60 * 1000;
+    private static final long DAY_IN_MILLIS = 24 * HOUR_IN_MILLIS;
+
+    private long mToday;
+    private Uri mUri;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        deleteAllRecords(mContext);
+        ForecastListCache.clear();
+        mToday = WeatherContract.normalizeDate(System.currentTimeMillis());
+        mUri = ForecastFragment.buildForecastUri(TEST_LOCATION, System.currentTimeMillis());
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        deleteAllRecords(mContext);
+        ForecastListCache.clear();
+        super.tearDown();
+    }
+
+    static void deleteAllRecords(Context context) {
+        context.getContentResolver().delete(WeatherEntry.CONTENT_URI, null, null);
+        context.getContentResolver().delete(LocationEntry.CONTENT_URI, null, null);
+    }
+
+    // Two weeks from today for TEST_LOCATION
+    static void insertForecast(Context context, long today) {
+        ContentValues location = new ContentValues();
+        location.put(LocationEntry.COLUMN_LOCATION_SETTING, TEST_LOCATION);
+        location.put(LocationEntry.COLUMN_CITY_NAME, "London");
+        location.put(LocationEntry.COLUMN_COORD_LAT, 51.50853);
+        location.put(LocationEntry.COLUMN_COORD_LONG, -0.12574);
+        Uri locationUri = context.getContentResolver().insert(LocationEntry.CONTENT_URI, location);
+        long locationId = Long.parseLong(locationUri.getLastPathSegment());
+
+        ContentValues[] days = new ContentValues[DAYS];
+        for (int i = 0; i < DAYS; i++) {
+            ContentValues day = new ContentValues();
+            day.put(WeatherEntry.COLUMN_LOC_KEY, locationId);
+            day.put(WeatherEntry.COLUMN_DATE, today + i * DAY_IN_MILLIS);
+            day.put(WeatherEntry.COLUMN_WEATHER_ID, 800);
+            day.put(WeatherEntry.COLUMN_SHORT_DESC, "Clear");
+            day.put(WeatherEntry.COLUMN_MAX_TEMP, 20.5 + i);
+            day.put(WeatherEntry.COLUMN_MIN_TEMP, 10.25 - i);
+            day.put(WeatherEntry.COLUMN_HUMIDITY, 60.0);
+            day.put(WeatherEntry.COLUMN_PRESSURE, 1013.2);
+            day.put(WeatherEntry.COLUMN_WIND_SPEED, 4.1);
+            day.put(WeatherEntry.COLUMN_DEGREES, 250.5);
+            days[i] = day;
+        }
+        context.getContentResolver().bulkInsert(WeatherEntry.CONTENT_URI, days);
+    }
+
+    private ForecastListLoader createLoader() {
+        return new ForecastListLoader(mContext, mUri, ForecastFragment.FORECAST_COLUMNS,
+                SORT_ORDER);
+    }
+
+    public void testServedUntilWrite() {
+        insertForecast(mContext, mToday);
+        String key = ForecastListCache.key(mUri, ForecastFragment.FORECAST_COLUMNS, SORT_ORDER);
+        long version = WeatherProvider.getDataVersion();
+        assertNull(ForecastListCache.get(key, version));
+
+        ForecastListSnapshot loaded = createLoader().loadInBackground();
+        assertEquals(DAYS, loaded.getCount());
+        assertSame("Error: a new loader should be served the cached snapshot",
+                loaded, createLoader().loadInBackground());
+        assertNull("Error: another sort order is another query", ForecastListCache.get(
+                ForecastListCache.key(mUri, ForecastFragment.FORECAST_COLUMNS, null), version));
+
+        ContentValues update = new ContentValues();
+        update.put(WeatherEntry.COLUMN_MAX_TEMP, 30.0);
+        mContext.getContentResolver().update(WeatherEntry.CONTENT_URI, update,
+                WeatherEntry.COLUMN_DATE + " = ?", new String[]{Long.toString(mToday)});
+        assertTrue("Error: a write should change the data version",
+                WeatherProvider.getDataVersion() > version);
+        assertNull(ForecastListCache.get(key, WeatherProvider.getDataVersion()));
+
+        ForecastListSnapshot reloaded = createLoader().loadInBackground();
+        assertNotSame(loaded, reloaded);
+        assertEquals(30.0, reloaded.getHigh(0));
+    }
+
+    public void testSameDaySharesKey() {
+        String key = ForecastListCache.key(mUri, ForecastFragment.FORECAST_COLUMNS, SORT_ORDER);
+        assertEquals("Error: loads on the same day should share the cached list", key,
+                ForecastListCache.key(ForecastFragment.buildForecastUri(TEST_LOCATION,
+                        mToday + HOUR_IN_MILLIS), ForecastFragment.FORECAST_COLUMNS, SORT_ORDER));
+        assertFalse("Error: the next day's list starts from another day", key.equals(
+                ForecastListCache.key(ForecastFragment.buildForecastUri(TEST_LOCATION,
+                        mToday + DAY_IN_MILLIS), ForecastFragment.FORECAST_COLUMNS, SORT_ORDER)));
+    }
+
+    /*
+        A day shown from the list in the detail pane is served to its own loader from the
+        cache, but only at the version the list was read at.
+     */
+    public void testDaySeededFromList() {
+        insertForecast(mContext, mToday);
+        ForecastListSnapshot list = createLoader().loadInBackground();
+        Uri dayUri = WeatherEntry.buildWeatherLocationWithDate(TEST_LOCATION,
+                mToday + DAY_IN_MILLIS);
+        String dayKey = ForecastListCache.key(dayUri, ForecastFragment.FORECAST_COLUMNS, null);
+
+        ForecastListSnapshot day = ForecastListCache.putDay(dayKey, list, 1);
+        assertEquals(1, day.getCount());
+        assertEquals(list.getDate(1), day.getDate(0));
+        assertEquals(list.getHigh(1), day.getHigh(0));
+        assertSame("Error: the day loader should be served the day from the list", day,
+                new ForecastListLoader(mContext, dayUri, ForecastFragment.FORECAST_COLUMNS, null)
+                        .loadInBackground());
+
+        ForecastListCache.clear();
+        ForecastListCache.putDay(dayKey, list, 1);
+        assertNull("Error: a day of an uncached list has no known version",
+                ForecastListCache.get(dayKey, WeatherProvider.getDataVersion()));
+    }
+
+    public void testOlderLoadDoesNotReplaceNewer() {
+        insertForecast(mContext, mToday);
+        ForecastListSnapshot older = ForecastListSnapshot.empty();
+        Cursor cursor = getContext().getContentResolver().query(mUri,
+                ForecastFragment.FORECAST_COLUMNS, null, null, SORT_ORDER);
+        ForecastListSnapshot newer = ForecastListSnapshot.fromCursor(cursor);
+        cursor.close();
+
+        ForecastListCache.put("key", 2, newer);
+        ForecastListCache.put("key", 1, older);
+        assertSame(newer, ForecastListCache.get("key", 2));
+        assertNull(ForecastListCache.get("key", 1));
+    }
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.app;
+
+import android.database.Cursor;
+import android.database.MatrixCursor;
+import android.test.AndroidTestCase;
+
+import com.example.android.sunshine.app.data.WeatherContract;
+
+public class TestForecastListSnapshot extends AndroidTestCase {
+    static final int DAYS = 14;
+    private static final long DAY_IN_MILLIS = 24 * 60 * 60 * 1000;
+    private static final long FIRST_DATE = 1419033600000L;  // December 20th, 2014
+
+    // Same order as ForecastFragment.FORECAST_COLUMNS
+    private static final String[] COLUMNS = {
+            WeatherContract.WeatherEntry._ID,
+            WeatherContract.WeatherEntry.COLUMN_DATE,
+            WeatherContract.WeatherEntry.COLUMN_SHORT_DESC,
+            WeatherContract.WeatherEntry.COLUMN_MAX_TEMP,
+            WeatherContract.WeatherEntry.COLUMN_MIN_TEMP,
+            WeatherContract.LocationEntry.COLUMN_LOCATION_SETTING,
+            WeatherContract.WeatherEntry.COLUMN_WEATHER_ID,
+            WeatherContract.LocationEntry.COLUMN_COORD_LAT,
+            WeatherContract.LocationEntry.COLUMN_COORD_LONG,
+            WeatherContract.WeatherEntry.COLUMN_HUMIDITY,
+            WeatherContract.WeatherEntry.COLUMN_PRESSURE,
+            WeatherContract.WeatherEntry.COLUMN_WIND_SPEED,
+            WeatherContract.WeatherEntry.COLUMN_DEGREES
+    };
+
+    static Cursor createCursor(int days) {
+        MatrixCursor cursor = new MatrixCursor(COLUMNS, days);
+        for (int i = 0; i < days; i++) {
+            cursor.addRow(new Object[]{100L + i, FIRST_DATE + i * DAY_IN_MILLIS, "Clear",
+                    20.0 + i, 10.0 + i, "99705", 800 + i, 64.7488, -147.353,
+                    60.0 + i, 1013.5, 5.5, 270.0});
+        }
+        return cursor;
+    }
+
+    public void testFromCursor() {
+        Cursor cursor = createCursor(DAYS);
+        ForecastListSnapshot snapshot = ForecastListSnapshot.fromCursor(cursor);
+        cursor.close();
+
+        assertEquals(DAYS, snapshot.getCount());
+        assertEquals(103L, snapshot.getId(3));
+        assertEquals(FIRST_DATE + 3 * DAY_IN_MILLIS, snapshot.getDate(3));
+        assertEquals(803, snapshot.getWeatherId(3));
+        assertEquals(23.0, snapshot.getHigh(3));
+        assertEquals(13.0, snapshot.getLow(3));
+        assertEquals("Clear", snapshot.getDescription(3));
+        assertEquals(63f, snapshot.getHumidity(3));
+        assertEquals(1013.5f, snapshot.getPressure(3));
+        assertEquals(5.5f, snapshot.getWindSpeed(3));
+        assertEquals(270f, snapshot.getDegrees(3));
+        assertEquals("99705", snapshot.getLocationSetting());
+        assertEquals(64.7488, snapshot.getLatitude());
+        assertEquals(-147.353, snapshot.getLongitude());
+
+        assertEquals(5, snapshot.indexOfDate(FIRST_DATE + 5 * DAY_IN_MILLIS));
+        assertEquals(-1, snapshot.indexOfDate(FIRST_DATE - DAY_IN_MILLIS));
+    }
+
+    public void testEmpty() {
+        Cursor cursor = createCursor(0);
+        ForecastListSnapshot snapshot = ForecastListSnapshot.fromCursor(cursor);
+        cursor.close();
+        assertEquals(0, snapshot.getCount());
+        assertNull(snapshot.getLocationSetting());
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.app;
+
+import android.support.v7.widget.RecyclerView;
+import android.test.AndroidTestCase;
+import android.view.ViewGroup;
+import android.widget.AbsListView;
+
+public class TestItemChoiceManager extends AndroidTestCase {
+
+    // Adapter over a list of ids, without views
+    static class IdAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder> {
+        long[] mIds;
+
+        IdAdapter(long[] ids) {
+            mIds = ids;
+            setHasStableIds(true);
+        }
+
+        @Override
+        public RecyclerView.ViewHolder onCreateViewHolder(ViewGroup parent, int viewType) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void onBindViewHolder(RecyclerView.ViewHolder holder, int position) {
+        }
+
+        @Override
+        public long getItemId(int position) {
+            return mIds[position];
+        }
+
+        @Override
+        public int getItemCount() {
+            return mIds.length;
+        }
+    }
+
+    // Ids first + shift .. first + shift + count - 1, as if shift items were inserted at the top
+    static long[] createIds(int count, int shift) {
+        long[] ids = new long[count];
+        for (int i = 0; i < count; i++) {
+            ids[i] = 1000L + i - shift;
+        }
+        return ids;
+    }
+
+    public void testLongIntMap() {
+        LongIntMap map = new LongIntMap();
+        for (long key = -500; key < 500; key++) {
+            map.put(key * 86400000L, (int) key);
+        }
+        assertEquals(1000, map.size());
+        assertEquals(-3, map.get(-3 * 86400000L, 42));
+        assertEquals(42, map.get(1, 42));
+
+        for (long key = -500; key < 500; key += 2) {
+            map.remove(key * 86400000L);
+        }
+        assertEquals(500, map.size());
+        for (long key = -500; key < 500; key++) {
+            assertEquals("Error: wrong value after removals", key % 2 == 0 ? -1 : (int) key,
+                    map.get(key * 86400000L, -1));
+        }
+
+        int visited = 0;
+        for (int slot = map.nextSlot(0); slot != -1; slot = map.nextSlot(slot + 1)) {
+            assertEquals(map.valueAtSlot(slot), map.keyAtSlot(slot) / 86400000L);
+            visited++;
+        }
+        assertEquals(500, visited);
+
+        map.clear();
+        assertEquals(0, map.size());
+        assertFalse(map.containsKey(86400000L));
+    }
+
+    public void testCheckedItemFollowsId() {
+        IdAdapter adapter = new IdAdapter(createIds(100, 0));
+        ItemChoiceManager manager = new ItemChoiceManager(adapter);
+        manager.setChoiceMode(AbsListView.CHOICE_MODE_SINGLE);
+        manager.mCheckStates.put(10, true);
+        manager.mCheckedIdStates.put(adapter.getItemId(10), 10);
+
+        // Further than the old search distance
+        adapter.mIds = createIds(100, 40);
+        adapter.notifyDataSetChanged();
+        assertEquals(50, manager.getSelectedItemPosition());
+        assertTrue(manager.isItemChecked(50));
+        assertFalse(manager.isItemChecked(10));
+
+        // Gone from the data
+        adapter.mIds = createIds(10, 0);
+        adapter.notifyDataSetChanged();
+        assertEquals(RecyclerView.NO_POSITION, manager.getSelectedItemPosition());
+    }
+}
@@ -0,0 +1,166 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.app;
+
+import android.content.SharedPreferences;
+import android.os.SystemClock;
+import android.preference.PreferenceManager;
+import android.test.AndroidTestCase;
+import android.util.Log;
+
+import com.example.android.sunshine.app.utils.PollingCheck;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class TestSunshineSettings extends AndroidTestCase {
+
+    public static final String LOG_TAG = TestSunshineSettings.class.getSimpleName();
+
+    private static final int ITERATIONS = 100000;
+
+    /*
+        The snapshot must follow the preferences: after a commit (which notifies listeners
+        synchronously on the main thread, and shortly after on other threads) the values
+        read through Utility must match what was written.
+     */
+    public void testSnapshotFollowsPreferences() throws Throwable {
+        final SharedPreferences prefs = PreferenceManager.getDefaultSharedPreferences(mContext);
+        final String unitsKey = mContext.getString(R.string.pref_units_key);
+        final String locationKey = mContext.getString(R.string.pref_location_key);
+        final String oldUnits = prefs.getString(unitsKey, null);
+        final String oldLocation = prefs.getString(locationKey, null);
+
+        // Make sure the snapshot (and its listener) exist before we change anything.
+        SunshineSettings.get(mContext);
+
+        try {
+            prefs.edit()
+                    .putString(unitsKey, mContext.getString(R.string.pref_units_imperial))
+                    .putString(locationKey, "99705")
+                    .commit();
+            // Listeners are notified on the main thread when the commit happens elsewhere.
+            new PollingCheck(5000) {
+                @Override
+                protected boolean check() {
+                    return !Utility.isMetric(mContext);
+                }
+            }.run();
+            assertFalse("Error: snapshot did not pick up the units change",
+                    Utility.isMetric(mContext));
+            assertEquals("Error: snapshot did not pick up the location change",
+                    "99705", Utility.getPreferredLocation(mContext));
+        } finally {
+            SharedPreferences.Editor editor = prefs.edit();
+            if (oldUnits == null) editor.remove(unitsKey); else editor.putString(unitsKey, oldUnits);
+            if (oldLocation == null) editor.remove(locationKey); else editor.putString(locationKey, oldLocation);
+            editor.commit();
+        }
+    }
+
+    /*
+        Changing the units must reach the presentation listeners, once the snapshot has the new
+        units; changing the location alone changes what is shown, not how, and must not.
+     */
+    public void testPresentationListener() throws Throwable {
+        final SharedPreferences prefs = PreferenceManager.getDefaultSharedPreferences(mContext);
+        final String unitsKey = mContext.getString(R.string.pref_units_key);
+        final String locationKey = mContext.getString(R.string.pref_location_key);
+        final String oldUnits = prefs.getString(unitsKey, null);
+        final String oldLocation = prefs.getString(locationKey, null);
+        final String metric = mContext.getString(R.string.pref_units_metric);
+        final String imperial = mContext.getString(R.string.pref_units_imperial);
+        final boolean wasMetric = Utility.isMetric(mContext);
+
+        final AtomicInteger calls = new AtomicInteger();
+        final boolean[] metricWhenCalled = new boolean[1];
+        SunshineSettings.OnPresentationChangedListener listener =
+                new SunshineSettings.OnPresentationChangedListener() {
+                    @Override
+                    public void onPresentationChanged() {
+                        metricWhenCalled[0] = Utility.isMetric(mContext);
+                        calls.incrementAndGet();
+                    }
+                };
+        SunshineSettings.registerPresentationListener(mContext, listener);
+
+        try {
+            prefs.edit().putString(unitsKey, wasMetric ? imperial : metric).commit();
+            new PollingCheck(5000) {
+                @Override
+                protected boolean check() {
+                    return calls.get() == 1;
+                }
+            }.run();
+            assertEquals("Error: the listener should read the new units", !wasMetric,
+                    metricWhenCalled[0]);
+
+            prefs.edit().putString(locationKey, "99705").commit();
+            new PollingCheck(5000) {
+                @Override
+                protected boolean check() {
+                    return "99705".equals(Utility.getPreferredLocation(mContext));
+                }
+            }.run();
+            assertEquals("Error: a new location is not a new presentation", 1, calls.get());
+        } finally {
+            SunshineSettings.unregisterPresentationListener(listener);
+            SharedPreferences.Editor editor = prefs.edit();
+            if (oldUnits == null) editor.remove(unitsKey); else editor.putString(unitsKey, oldUnits);
+            if (oldLocation == null) editor.remove(locationKey); else editor.putString(locationKey, oldLocation);
+            editor.commit();
+        }
+    }
+
+    /*
+        Microbenchmark: the per-call cost of reading a preference the old way (default shared
+        preferences plus resource lookups) against reading the snapshot.  Results are logged, not
+        compared: timings on a device vary too much from run to run to fail a test on.
+     */
+    public void testReadCost() {
+        SharedPreferences prefs = PreferenceManager.getDefaultSharedPreferences(mContext);
+        boolean sink = false;
+
+        // warm up both paths
+        for (int i = 0; i < ITERATIONS / 10; i++) {
+            sink ^= isMetricFromPreferences(prefs);
+            sink ^= Utility.isMetric(mContext);
+        }
+
+        long start = SystemClock.elapsedRealtimeNanos();
+        for (int i = 0; i < ITERATIONS; i++) {
+            sink ^= isMetricFromPreferences(PreferenceManager.getDefaultSharedPreferences(mContext));
+        }
+        long preferencesNanos = (SystemClock.elapsedRealtimeNanos() - start) / ITERATIONS;
+
+        start = SystemClock.elapsedRealtimeNanos();
+        for (int i = 0; i < ITERATIONS; i++) {
+            sink ^= Utility.isMetric(mContext);
+        }
+        long snapshotNanos = (SystemClock.elapsedRealtimeNanos() - start) / ITERATIONS;
+
+        Log.i(LOG_TAG, "isMetric per call: SharedPreferences " + preferencesNanos
+                + " ns, snapshot " + snapshotNanos + " ns (" + sink + ")");
+        assertEquals("Error: the snapshot and the preferences disagree on the units",
+                isMetricFromPreferences(prefs), Utility.isMetric(mContext));
+    }
+
+    // The way Utility.isMetric read the preference before the snapshot existed.
+    private boolean isMetricFromPreferences(SharedPreferences prefs) {
+        return prefs.getString(mContext.getString(R.string.pref_units_key),
+                mContext.getString(R.string.pref_units_metric))
+                .equals(mContext.getString(R.string.pref_units_metric));
+    }
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.app;
+
+import android.test.AndroidTestCase;
+
+import java.util.Locale;
+
+public class TestWeatherConditions extends AndroidTestCase {
+
+    // Condition ids that had their own case in the old getStringForWeatherCondition switch.
+    private static final int[] LEGACY_STRING_IDS = {
+            500, 501, 502, 503, 504, 511, 520, 531,
+            600, 601, 602, 611, 612, 615, 616, 620, 621, 622,
+            701, 711, 721, 731, 741, 751, 761, 762, 771, 781,
+            800, 801, 802, 803, 804,
+            900, 901, 902, 903, 904, 905, 906,
+            951, 952, 953, 954, 955, 956, 957, 958, 959, 960, 961, 962
+    };
+
+    /*
+        Every condition id from 0 to 999 must map to the same icon, art, art URL, image and
+        string as the old range chains did.
+     */
+    public void testTablesMatchRangeChains() {
+        String artPackFormat = SunshineSettings.get(mContext).getArtPackFormat();
+        for (int id = 0; id <= 999; id++) {
+            int legacyIcon = legacyResource(id, R.drawable.ic_storm, R.drawable.ic_light_rain,
+                    R.drawable.ic_rain, R.drawable.ic_snow, R.drawable.ic_fog,
+                    R.drawable.ic_clear, R.drawable.ic_light_clouds, R.drawable.ic_cloudy);
+            assertEquals("Error: wrong icon for id " + id,
+                    legacyIcon, Utility.getIconResourceForWeatherCondition(id));
+
+            int legacyArt = legacyResource(id, R.drawable.art_storm, R.drawable.art_light_rain,
+                    R.drawable.art_rain, R.drawable.art_snow, R.drawable.art_fog,
+                    R.drawable.art_clear, R.drawable.art_light_clouds, R.drawable.art_clouds);
+            assertEquals("Error: wrong art for id " + id,
+                    legacyArt, Utility.getArtResourceForWeatherCondition(id));
+
+            String legacyArtName = legacyArtName(id);
+            assertEquals("Error: wrong art URL for id " + id,
+                    legacyArtName == null ? null
+                            : String.format(Locale.US, artPackFormat, legacyArtName),
+                    Utility.getArtUrlForWeatherCondition(mContext, id));
+
+            assertEquals("Error: wrong string for id " + id,
+                    legacyString(id), Utility.getStringForWeatherCondition(mContext, id));
+        }
+    }
+
+    // The old range chain, parameterized by the resource of each art kind.
+    private static int legacyResource(int weatherId, int storm, int lightRain, int rain, int snow,
+                                      int fog, int clear, int lightClouds, int clouds) {
+        if (weatherId >= 200 && weatherId <= 232) {
+            return storm;
+        } else if (weatherId >= 300 && weatherId <= 321) {
+            return lightRain;
+        } else if (weatherId >= 500 && weatherId <= 504) {
+            return rain;
+        } else if (weatherId == 511) {
+            return snow;
+        } else if (weatherId >= 520 && weatherId <= 531) {
+            return rain;
+        } else if (weatherId >= 600 && weatherId <= 622) {
+            return snow;
+        } else if (weatherId >= 701 && weatherId <= 761) {
+            return fog;
+        } else if (weatherId == 761 || weatherId == 781) {
+            return storm;
+        } else if (weatherId == 800) {
+            return clear;
+        } else if (weatherId == 801) {
+            return lightClouds;
+        } else if (weatherId >= 802 && weatherId <= 804) {
+            return clouds;
+        }
+        return -1;
+    }
+
+    private static String legacyArtName(int weatherId) {
+        int art = legacyResource(weatherId, 0, 1, 2, 3, 4, 5, 6, 7);
+        String[] names = {
+                "storm", "light_rain", "rain", "snow", "fog", "clear", "light_clouds", "clouds"
+        };
+        return art == -1 ? null : names[art];
+    }
+
+    private String legacyString(int weatherId) {
+        if (weatherId >= 200 && weatherId <= 232) {
+            return mContext.getString(R.string.condition_2xx);
+        } else if (weatherId >= 300 && weatherId <= 321) {
+            return mContext.getString(R.string.condition_3xx);
+        }
+        for (int id : LEGACY_STRING_IDS) {
+            if (id == weatherId) {
+                int stringId = mContext.getResources().getIdentifier("condition_" + id, "string",
+                        mContext.getPackageName());
+                return mContext.getString(stringId);
+            }
+        }
+        return mContext.getString(R.string.condition_unknown, weatherId);
+    }
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.app.data;
+
+import android.content.ContentValues;
+import android.database.Cursor;
+import android.test.AndroidTestCase;
+import android.text.format.Time;
+import android.util.Log;
+
+import com.example.android.sunshine.app.data.WeatherContract.WeatherEntry;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Five years of synthetic days for one location.  Logs the archive's bytes per day and the
+ * time taken to scan a month and the whole range, in us/op.
+ */
+public class ForecastArchiveBenchmark extends AndroidTestCase {
+    private static final String LOG_TAG = ForecastArchiveBenchmark.class.getSimpleName();
+
+    private static final int FIVE_YEARS = TestForecastArchive.FIVE_YEARS;
+    private static final int SCANS = 50;
+
+    private ForecastArchive mArchive;
+    private int mFirstDay;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        mArchive = new ForecastArchive(new File(mContext.getCacheDir(), "test_archive"));
+        mArchive.delete(TestUtilities.TEST_LOCATION);
+        Time time = new Time();
+        time.setToNow();
+        mFirstDay = Time.getJulianDay(System.currentTimeMillis(), time.gmtoff) - FIVE_YEARS;
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        mArchive.delete(TestUtilities.TEST_LOCATION);
+        super.tearDown();
+    }
+
+    public void testStorageAndScanCost() throws Exception {
+        List<ContentValues> days =
+                TestForecastArchive.createDays(mFirstDay, FIVE_YEARS, new Random(4));
+        long start = System.nanoTime();
+        // appended a day at a time, as the sync does
+        for (ContentValues day : days) {
+            List<ContentValues> single = new ArrayList<ContentValues>(1);
+            single.add(day);
+            mArchive.append(TestUtilities.TEST_LOCATION, single);
+        }
+        long appendMicros = (System.nanoTime() - start) / FIVE_YEARS / 1000;
+        double bytesPerDay =
+                (double) mArchive.getSizeInBytes(TestUtilities.TEST_LOCATION) / FIVE_YEARS;
+
+        long monthMicros = measureScan(ForecastArchive.fromJulianDay(mFirstDay + FIVE_YEARS - 30),
+                ForecastArchive.fromJulianDay(mFirstDay + FIVE_YEARS - 1), 30);
+        long allMicros = measureScan(Long.MIN_VALUE, Long.MAX_VALUE, FIVE_YEARS);
+
+        Log.i(LOG_TAG, "Archive of " + FIVE_YEARS + " days: "
+                + String.format("%.1f", bytesPerDay) + " bytes/day, append " + appendMicros
+                + " us/op, month scan " + monthMicros + " us/op, full scan " + allMicros
+                + " us/op");
+        assertTrue("Error: archive should take less than 16 bytes per day", bytesPerDay < 16);
+    }
+
+    private long measureScan(long startDate, long endDate, int expectedDays) {
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i < SCANS; i++) {
+            long start = System.nanoTime();
+            Cursor cursor = mArchive.query(TestUtilities.TEST_LOCATION,
+                    new String[]{WeatherEntry.COLUMN_DATE, WeatherEntry.COLUMN_MAX_TEMP},
+                    startDate, endDate);
+            assertEquals(expectedDays, cursor.getCount());
+            cursor.close();
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        return best / 1000;
+    }
+}
@@ -0,0 +1,118 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.app.data;
+
+import android.content.ContentValues;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.net.Uri;
+import android.test.AndroidTestCase;
+import android.util.Log;
+
+import com.example.android.sunshine.app.data.WeatherContract.LocationEntry;
+
+import java.util.Random;
+
+/**
+ * Nearest location lookups among 10k synthetic locations, through the geohash index against
+ * reading every location.  Results are logged as us/op.
+ */
+public class GeoHashBenchmark extends AndroidTestCase {
+    private static final String LOG_TAG = GeoHashBenchmark.class.getSimpleName();
+
+    private static final int SYNTHETIC_LOCATIONS = 10000;
+    private static final int LOOKUPS = 200;
+    private static final double RADIUS_KM = TestGeoHash.RADIUS_KM;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        TestGeoHash.deleteAllRecords(mContext);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        TestGeoHash.deleteAllRecords(mContext);
+        super.tearDown();
+    }
+
+    public void testNearestLocationCost() {
+        Random random = new Random(42);
+        WeatherDbHelper dbHelper = new WeatherDbHelper(mContext);
+        SQLiteDatabase db = dbHelper.getWritableDatabase();
+        db.beginTransaction();
+        try {
+            ContentValues values = new ContentValues();
+            for (int i = 0; i < SYNTHETIC_LOCATIONS; i++) {
+                double latitude = random.nextDouble() * 140 - 70;
+                double longitude = random.nextDouble() * 360 - 180;
+                values.put(LocationEntry.COLUMN_LOCATION_SETTING, "synthetic " + i);
+                values.put(LocationEntry.COLUMN_CITY_NAME, "synthetic " + i);
+                values.put(LocationEntry.COLUMN_COORD_LAT, latitude);
+                values.put(LocationEntry.COLUMN_COORD_LONG, longitude);
+                values.put(LocationEntry.COLUMN_GEOHASH,
+                        GeoHash.encode(latitude, longitude, GeoHash.STORED_PRECISION));
+                db.insert(LocationEntry.TABLE_NAME, null, values);
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+
+        double[] latitudes = new double[LOOKUPS];
+        double[] longitudes = new double[LOOKUPS];
+        for (int i = 0; i < LOOKUPS; i++) {
+            latitudes[i] = random.nextDouble() * 140 - 70;
+            longitudes[i] = random.nextDouble() * 360 - 180;
+        }
+
+        long start = System.nanoTime();
+        int indexedMatches = 0;
+        for (int i = 0; i < LOOKUPS; i++) {
+            Uri uri = LocationEntry.buildNearestLocationUri(latitudes[i], longitudes[i], RADIUS_KM);
+            Cursor cursor = mContext.getContentResolver().query(
+                    uri, new String[]{LocationEntry._ID}, null, null, null);
+            indexedMatches += cursor.getCount();
+            cursor.close();
+        }
+        long indexed = (System.nanoTime() - start) / LOOKUPS / 1000;
+
+        start = System.nanoTime();
+        int scannedMatches = 0;
+        for (int i = 0; i < LOOKUPS; i++) {
+            Cursor cursor = db.query(LocationEntry.TABLE_NAME,
+                    new String[]{LocationEntry.COLUMN_COORD_LAT, LocationEntry.COLUMN_COORD_LONG},
+                    null, null, null, null, null);
+            boolean found = false;
+            while (cursor.moveToNext()) {
+                if (GeoHash.distanceKm(latitudes[i], longitudes[i],
+                        cursor.getDouble(0), cursor.getDouble(1)) <= RADIUS_KM) {
+                    found = true;
+                }
+            }
+            cursor.close();
+            if (found) {
+                scannedMatches++;
+            }
+        }
+        long scanned = (System.nanoTime() - start) / LOOKUPS / 1000;
+        dbHelper.close();
+
+        Log.i(LOG_TAG, "Nearest of " + SYNTHETIC_LOCATIONS + " locations: geohash index "
+                + indexed + " us/op, full scan " + scanned + " us/op");
+        assertEquals("Error: The index and the scan disagree", scannedMatches, indexedMatches);
+    }
+}
@@ -0,0 +1,159 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.app.data;
+
+import android.content.ContentValues;
+import android.database.Cursor;
+import android.test.AndroidTestCase;
+import android.text.format.Time;
+
+import com.example.android.sunshine.app.data.WeatherContract.ArchiveEntry;
+import com.example.android.sunshine.app.data.WeatherContract.WeatherEntry;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+public class TestForecastArchive extends AndroidTestCase {
+    static final int FIVE_YEARS = 5 * 365 + 1;
+
+    private File mDirectory;
+    private ForecastArchive mArchive;
+    private int mFirstDay;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        mDirectory = new File(mContext.getCacheDir(), "test_archive");
+        mArchive = new ForecastArchive(mDirectory);
+        mArchive.delete(TestUtilities.TEST_LOCATION);
+        Time time = new Time();
+        time.setToNow();
+        mFirstDay = Time.getJulianDay(System.currentTimeMillis(), time.gmtoff) - FIVE_YEARS;
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        mArchive.delete(TestUtilities.TEST_LOCATION);
+        ForecastArchive.getInstance(mContext).delete(TestUtilities.TEST_LOCATION);
+        super.tearDown();
+    }
+
+    static List<ContentValues> createDays(int firstDay, int count, Random random) {
+        List<ContentValues> days = new ArrayList<ContentValues>(count);
+        double low = 10;
+        double pressure = 1013;
+        for (int i = 0; i < count; i++) {
+            low += random.nextGaussian() * 2;
+            pressure += random.nextGaussian() * 4;
+            ContentValues values = new ContentValues();
+            values.put(WeatherEntry.COLUMN_DATE, ForecastArchive.fromJulianDay(firstDay + i));
+            values.put(WeatherEntry.COLUMN_WEATHER_ID, 800 - random.nextInt(300));
+            values.put(WeatherEntry.COLUMN_MIN_TEMP, low);
+            values.put(WeatherEntry.COLUMN_MAX_TEMP, low + random.nextDouble() * 12);
+            values.put(WeatherEntry.COLUMN_HUMIDITY, random.nextDouble() * 100);
+            values.put(WeatherEntry.COLUMN_PRESSURE, pressure);
+            values.put(WeatherEntry.COLUMN_WIND_SPEED, random.nextDouble() * 20);
+            values.put(WeatherEntry.COLUMN_DEGREES, random.nextDouble() * 360);
+            days.add(values);
+        }
+        return days;
+    }
+
+    public void testRoundTrip() throws Exception {
+        List<ContentValues> days = createDays(mFirstDay, 30, new Random(1));
+        assertEquals(30, mArchive.append(TestUtilities.TEST_LOCATION, days));
+
+        Cursor cursor = mArchive.query(TestUtilities.TEST_LOCATION, null,
+                Long.MIN_VALUE, Long.MAX_VALUE);
+        assertEquals(30, cursor.getCount());
+        for (ContentValues expected : days) {
+            assertTrue(cursor.moveToNext());
+            assertEquals(expected.getAsLong(WeatherEntry.COLUMN_DATE).longValue(),
+                    cursor.getLong(cursor.getColumnIndex(WeatherEntry.COLUMN_DATE)));
+            assertEquals(expected.getAsInteger(WeatherEntry.COLUMN_WEATHER_ID).intValue(),
+                    cursor.getInt(cursor.getColumnIndex(WeatherEntry.COLUMN_WEATHER_ID)));
+            assertEquals(expected.getAsDouble(WeatherEntry.COLUMN_MIN_TEMP),
+                    cursor.getDouble(cursor.getColumnIndex(WeatherEntry.COLUMN_MIN_TEMP)), 0.05);
+            assertEquals(expected.getAsDouble(WeatherEntry.COLUMN_MAX_TEMP),
+                    cursor.getDouble(cursor.getColumnIndex(WeatherEntry.COLUMN_MAX_TEMP)), 0.05);
+            assertEquals(expected.getAsDouble(WeatherEntry.COLUMN_PRESSURE),
+                    cursor.getDouble(cursor.getColumnIndex(WeatherEntry.COLUMN_PRESSURE)), 0.05);
+            assertEquals(expected.getAsDouble(WeatherEntry.COLUMN_HUMIDITY),
+                    cursor.getDouble(cursor.getColumnIndex(WeatherEntry.COLUMN_HUMIDITY)), 0.5);
+        }
+        cursor.close();
+    }
+
+    public void testAppendSkipsArchivedDays() throws Exception {
+        Random random = new Random(2);
+        assertEquals(10, mArchive.append(TestUtilities.TEST_LOCATION,
+                createDays(mFirstDay, 10, random)));
+        // Days 5 to 14: only the last five are new
+        assertEquals(5, mArchive.append(TestUtilities.TEST_LOCATION,
+                createDays(mFirstDay + 5, 10, random)));
+
+        Cursor cursor = mArchive.query(TestUtilities.TEST_LOCATION, null,
+                Long.MIN_VALUE, Long.MAX_VALUE);
+        assertEquals(15, cursor.getCount());
+        cursor.close();
+    }
+
+    public void testArchiveUri() throws Exception {
+        ForecastArchive.getInstance(mContext).append(TestUtilities.TEST_LOCATION,
+                createDays(mFirstDay, 20, new Random(3)));
+
+        Cursor cursor = mContext.getContentResolver().query(
+                ArchiveEntry.buildArchiveLocationWithRange(TestUtilities.TEST_LOCATION,
+                        ForecastArchive.fromJulianDay(mFirstDay + 5),
+                        ForecastArchive.fromJulianDay(mFirstDay + 9)),
+                new String[]{WeatherEntry.COLUMN_DATE, WeatherEntry.COLUMN_MAX_TEMP},
+                null, null, null);
+        assertNotNull(cursor);
+        assertEquals("Error: Archive range returned the wrong days", 5, cursor.getCount());
+        assertTrue(cursor.moveToFirst());
+        assertEquals(ForecastArchive.fromJulianDay(mFirstDay + 5), cursor.getLong(0));
+        cursor.close();
+    }
+
+    /*
+        A failure to archive must reach the sync, which then keeps the expired rows for the
+        next attempt instead of deleting days that were never archived.
+     */
+    public void testArchiveFailureIsReported() throws Exception {
+        long locationId = TestUtilities.insertNorthPoleLocationValues(mContext);
+        mContext.getContentResolver().insert(WeatherEntry.CONTENT_URI,
+                TestUtilities.createWeatherValues(locationId));
+        // A file where the archive directory should be, so that it cannot be created
+        File blocked = new File(mContext.getCacheDir(), "blocked_archive");
+        assertTrue(blocked.isFile() || blocked.createNewFile());
+        try {
+            new ForecastArchive(blocked).archiveExpired(mContext.getContentResolver(),
+                    Long.MAX_VALUE);
+            fail("Error: archiving into a file should have failed");
+        } catch (IOException expected) {
+            // the sync keeps the rows
+        } finally {
+            //noinspection ResultOfMethodCallIgnored
+            blocked.delete();
+            mContext.getContentResolver().delete(WeatherEntry.CONTENT_URI, null, null);
+            mContext.getContentResolver().delete(WeatherContract.LocationEntry.CONTENT_URI,
+                    null, null);
+        }
+    }
+}
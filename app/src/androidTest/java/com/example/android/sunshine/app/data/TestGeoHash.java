@@ -0,0 +1,106 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.app.data;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.test.AndroidTestCase;
+
+import com.example.android.sunshine.app.data.WeatherContract.LocationEntry;
+import com.example.android.sunshine.app.data.WeatherContract.WeatherEntry;
+
+import java.util.Set;
+
+public class TestGeoHash extends AndroidTestCase {
+    static final double RADIUS_KM = 2.0;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        deleteAllRecords(mContext);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        deleteAllRecords(mContext);
+        super.tearDown();
+    }
+
+    static void deleteAllRecords(Context context) {
+        context.getContentResolver().delete(WeatherEntry.CONTENT_URI, null, null);
+        context.getContentResolver().delete(LocationEntry.CONTENT_URI, null, null);
+    }
+
+    public void testEncode() {
+        // Reference value from the original geohash description
+        assertEquals("u4pruydqqvj", GeoHash.encode(57.64911, 10.40744, 11));
+        assertEquals("u4pru", GeoHash.encode(57.64911, 10.40744, 5));
+    }
+
+    public void testNeighborsSurroundTheCell() {
+        Set<String> cells = GeoHash.getCellAndNeighbors(37.4, -122.08, 5);
+        assertEquals(9, cells.size());
+        assertTrue(cells.contains(GeoHash.encode(37.4, -122.08, 5)));
+
+        // Across the antimeridian
+        cells = GeoHash.getCellAndNeighbors(0.1, 179.99, 4);
+        assertTrue(cells.contains(GeoHash.encode(0.1, -179.99, 4)));
+    }
+
+    public void testSearchPrecisionCoversRadius() {
+        int precision = GeoHash.getSearchPrecision(45, RADIUS_KM);
+        assertTrue(precision > 0);
+        assertTrue("Error: cells smaller than the search radius",
+                GeoHash.getCellHeight(precision) * 111 >= RADIUS_KM);
+        assertTrue("Error: a longer hash would still cover the radius",
+                precision == GeoHash.STORED_PRECISION
+                        || GeoHash.getCellHeight(precision + 1) * 111 < RADIUS_KM
+                        || GeoHash.getCellWidth(precision + 1) * 111 * Math.cos(Math.toRadians(46)) < RADIUS_KM);
+    }
+
+    public void testNearestLocation() {
+        insertLocation("Mountain View", 37.3861, -122.0839);
+        insertLocation("Sunnyvale", 37.3688, -122.0363);
+
+        // 300m from Mountain View
+        Cursor cursor = mContext.getContentResolver().query(
+                LocationEntry.buildNearestLocationUri(37.3888, -122.0840, RADIUS_KM),
+                new String[]{LocationEntry.COLUMN_LOCATION_SETTING}, null, null, null);
+        assertNotNull(cursor);
+        assertTrue("Error: No location found near Mountain View", cursor.moveToFirst());
+        assertEquals("Mountain View", cursor.getString(0));
+        assertEquals(1, cursor.getCount());
+        cursor.close();
+
+        // San Francisco is more than 40km away from both
+        cursor = mContext.getContentResolver().query(
+                LocationEntry.buildNearestLocationUri(37.7749, -122.4194, RADIUS_KM),
+                new String[]{LocationEntry.COLUMN_LOCATION_SETTING}, null, null, null);
+        assertNotNull(cursor);
+        assertEquals("Error: Location found too far away", 0, cursor.getCount());
+        cursor.close();
+    }
+
+    private void insertLocation(String setting, double latitude, double longitude) {
+        ContentValues values = new ContentValues();
+        values.put(LocationEntry.COLUMN_LOCATION_SETTING, setting);
+        values.put(LocationEntry.COLUMN_CITY_NAME, setting);
+        values.put(LocationEntry.COLUMN_COORD_LAT, latitude);
+        values.put(LocationEntry.COLUMN_COORD_LONG, longitude);
+        mContext.getContentResolver().insert(LocationEntry.CONTENT_URI, values);
+    }
+}
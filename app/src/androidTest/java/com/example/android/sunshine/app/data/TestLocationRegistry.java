@@ -0,0 +1,76 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.app.data;
+
+import android.content.ContentUris;
+import android.net.Uri;
+import android.test.AndroidTestCase;
+
+import com.example.android.sunshine.app.data.WeatherContract.LocationEntry;
+import com.example.android.sunshine.app.data.WeatherContract.WeatherEntry;
+
+public class TestLocationRegistry extends AndroidTestCase {
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        deleteAllRecords();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        deleteAllRecords();
+        super.tearDown();
+    }
+
+    private void deleteAllRecords() {
+        mContext.getContentResolver().delete(WeatherEntry.CONTENT_URI, null, null);
+        mContext.getContentResolver().delete(LocationEntry.CONTENT_URI, null, null);
+    }
+
+    public void testInsertedLocationIsRegistered() {
+        // Load the registry before the insert so that the insert has to update it
+        assertEquals(-1, LocationRegistry.getLocationId(mContext, TestUtilities.TEST_LOCATION));
+
+        Uri uri = mContext.getContentResolver().insert(LocationEntry.CONTENT_URI,
+                TestUtilities.createNorthPoleLocationValues());
+        long locationId = ContentUris.parseId(uri);
+
+        assertEquals("Error: Location setting not registered on insert",
+                locationId, LocationRegistry.getLocationId(mContext, TestUtilities.TEST_LOCATION));
+        assertEquals("Error: Unknown location setting should not match",
+                -1, LocationRegistry.getLocationId(mContext, "75001"));
+    }
+
+    public void testRegistryLoadsExistingLocations() {
+        long locationId = TestUtilities.insertNorthPoleLocationValues(mContext);
+
+        // Forget everything, the next lookup has to read the location table
+        LocationRegistry.invalidate();
+        assertEquals("Error: Existing location not loaded",
+                locationId, LocationRegistry.getLocationId(mContext, TestUtilities.TEST_LOCATION));
+    }
+
+    public void testDeletedLocationIsForgotten() {
+        mContext.getContentResolver().insert(LocationEntry.CONTENT_URI,
+                TestUtilities.createNorthPoleLocationValues());
+        assertTrue(LocationRegistry.getLocationId(mContext, TestUtilities.TEST_LOCATION) != -1);
+
+        deleteAllRecords();
+        assertEquals("Error: Deleted location still registered",
+                -1, LocationRegistry.getLocationId(mContext, TestUtilities.TEST_LOCATION));
+    }
+}
@@ -16,6 +16,8 @@
 package com.example.android.sunshine.app.data;
 
 import android.content.ComponentName;
+import android.content.ContentProviderOperation;
+import android.content.ContentProviderResult;
 import android.content.ContentUris;
 import android.content.ContentValues;
 import android.content.pm.PackageManager;
@@ -29,6 +31,9 @@ import android.util.Log;
 
 import com.example.android.sunshine.app.data.WeatherContract.LocationEntry;
 import com.example.android.sunshine.app.data.WeatherContract.WeatherEntry;
+import com.example.android.sunshine.shared.WeatherStorage;
+
+import java.util.ArrayList;
 
 /*
     Note: This is not a complete set of tests of the Sunshine ContentProvider, but it does test
@@ -179,7 +184,8 @@ public class TestProvider extends AndroidTestCase {
         // Fantastic.  Now that we have a location, add some weather!
         ContentValues weatherValues = TestUtilities.createWeatherValues(locationRowId);
 
-        long weatherRowId = db.insert(WeatherEntry.TABLE_NAME, null, weatherValues);
+        long weatherRowId = db.insert(WeatherEntry.TABLE_NAME, null,
+                WeatherProvider.encodeWeatherValues(weatherValues));
         assertTrue("Unable to Insert WeatherEntry into the Database", weatherRowId != -1);
 
         db.close();
@@ -437,7 +443,7 @@ public class TestProvider extends AndroidTestCase {
             weatherValues.put(WeatherContract.WeatherEntry.COLUMN_PRESSURE, 1.3 - 0.01 * (float) i);
             weatherValues.put(WeatherContract.WeatherEntry.COLUMN_MAX_TEMP, 75 + i);
             weatherValues.put(WeatherContract.WeatherEntry.COLUMN_MIN_TEMP, 65 - i);
-            weatherValues.put(WeatherContract.WeatherEntry.COLUMN_SHORT_DESC, "Asteroids");
+            weatherValues.put(WeatherContract.WeatherEntry.COLUMN_SHORT_DESC, "Drizzle");
             weatherValues.put(WeatherContract.WeatherEntry.COLUMN_WIND_SPEED, 5.5 + 0.2 * (float) i);
             weatherValues.put(WeatherContract.WeatherEntry.COLUMN_WEATHER_ID, 321);
             returnContentValues[i] = weatherValues;
@@ -512,4 +518,99 @@ public class TestProvider extends AndroidTestCase {
         }
         cursor.close();
     }
+
+    /*
+        The weather rows of a batch share a compiled statement, and rows it cannot bind, here
+        with numbers given as strings, are inserted the usual way.  Both read back the same.
+     */
+    public void testBatchInsert() throws Exception {
+        long locationRowId = ContentUris.parseId(mContext.getContentResolver().insert(
+                LocationEntry.CONTENT_URI, TestUtilities.createNorthPoleLocationValues()));
+        ContentValues[] weatherValues = createBulkInsertWeatherValues(locationRowId);
+        weatherValues[1].put(WeatherEntry.COLUMN_MAX_TEMP, "76");
+
+        ArrayList<ContentProviderOperation> operations = new ArrayList<ContentProviderOperation>();
+        for (ContentValues values : weatherValues) {
+            // The operations hold copies, normalized by the provider
+            values.put(WeatherEntry.COLUMN_DATE,
+                    WeatherContract.normalizeDate(values.getAsLong(WeatherEntry.COLUMN_DATE)));
+            operations.add(ContentProviderOperation.newInsert(WeatherEntry.CONTENT_URI)
+                    .withValues(values)
+                    .build());
+        }
+        mContext.getContentResolver().applyBatch(WeatherContract.CONTENT_AUTHORITY, operations);
+
+        Cursor cursor = mContext.getContentResolver().query(WeatherEntry.CONTENT_URI, null, null,
+                null, WeatherEntry.COLUMN_DATE + " ASC");
+        assertEquals(BULK_INSERT_RECORDS_TO_INSERT, cursor.getCount());
+        cursor.moveToFirst();
+        for (int i = 0; i < BULK_INSERT_RECORDS_TO_INSERT; i++, cursor.moveToNext()) {
+            TestUtilities.validateCurrentRecord("testBatchInsert.  Error validating WeatherEntry "
+                    + i, cursor, weatherValues[i]);
+        }
+        cursor.close();
+    }
+
+    /*
+        The expired days of a batch are deleted through its compiled statement, alongside the
+        days it inserts, and only the days up to the cutoff are gone.
+     */
+    public void testBatchDeleteExpired() throws Exception {
+        long locationRowId = ContentUris.parseId(mContext.getContentResolver().insert(
+                LocationEntry.CONTENT_URI, TestUtilities.createNorthPoleLocationValues()));
+        ContentValues[] weatherValues = createBulkInsertWeatherValues(locationRowId);
+        ContentValues newDay = new ContentValues(weatherValues[BULK_INSERT_RECORDS_TO_INSERT - 1]);
+        mContext.getContentResolver().bulkInsert(WeatherEntry.CONTENT_URI, weatherValues);
+
+        long cutoffDate = WeatherContract.normalizeDate(
+                weatherValues[2].getAsLong(WeatherEntry.COLUMN_DATE));
+        newDay.put(WeatherEntry.COLUMN_DATE, WeatherContract.normalizeDate(
+                newDay.getAsLong(WeatherEntry.COLUMN_DATE) + 1000 * 60 * 60 * 24));
+        ArrayList<ContentProviderOperation> operations = new ArrayList<ContentProviderOperation>();
+        operations.add(ContentProviderOperation.newDelete(WeatherEntry.CONTENT_URI)
+                .withSelection(WeatherStorage.SELECTION_EXPIRED,
+                        new String[]{Long.toString(cutoffDate)})
+                .build());
+        operations.add(ContentProviderOperation.newInsert(WeatherEntry.CONTENT_URI)
+                .withValues(newDay)
+                .build());
+        ContentProviderResult[] results = mContext.getContentResolver()
+                .applyBatch(WeatherContract.CONTENT_AUTHORITY, operations);
+        assertEquals("Error: the days up to the cutoff should have been deleted",
+                3, results[0].count.intValue());
+
+        Cursor cursor = mContext.getContentResolver().query(WeatherEntry.CONTENT_URI, null, null,
+                null, WeatherEntry.COLUMN_DATE + " ASC");
+        assertEquals(BULK_INSERT_RECORDS_TO_INSERT - 3 + 1, cursor.getCount());
+        cursor.moveToFirst();
+        assertTrue("Error: a day up to the cutoff was kept",
+                cursor.getLong(cursor.getColumnIndex(WeatherEntry.COLUMN_DATE)) > cutoffDate);
+        cursor.close();
+    }
+
+    /*
+        Selections and sort orders see the measurements in their unit and the description, as
+        the rows read, rather than the hundredths and condition ids stored.
+     */
+    public void testSelectionOnDecodedColumns() {
+        long locationRowId = ContentUris.parseId(mContext.getContentResolver().insert(
+                LocationEntry.CONTENT_URI, TestUtilities.createNorthPoleLocationValues()));
+        mContext.getContentResolver().bulkInsert(WeatherEntry.CONTENT_URI,
+                createBulkInsertWeatherValues(locationRowId));
+
+        // The highs are 75 and up, one more each day
+        Cursor cursor = mContext.getContentResolver().query(WeatherEntry.CONTENT_URI, null,
+                WeatherEntry.COLUMN_MAX_TEMP + " > ?", new String[]{"80"},
+                WeatherEntry.COLUMN_MIN_TEMP + " ASC");
+        assertEquals(BULK_INSERT_RECORDS_TO_INSERT - 6, cursor.getCount());
+        cursor.moveToFirst();
+        assertEquals(75.0 + BULK_INSERT_RECORDS_TO_INSERT - 1,
+                cursor.getDouble(cursor.getColumnIndex(WeatherEntry.COLUMN_MAX_TEMP)));
+        cursor.close();
+
+        assertEquals("Error: the days should all be drizzle",
+                BULK_INSERT_RECORDS_TO_INSERT,
+                mContext.getContentResolver().delete(WeatherEntry.CONTENT_URI,
+                        WeatherEntry.COLUMN_SHORT_DESC + " = ?", new String[]{"Drizzle"}));
+    }
 }
@@ -0,0 +1,75 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.app.muzei;
+
+import android.net.Uri;
+import android.os.ParcelFileDescriptor;
+import android.test.AndroidTestCase;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+public class TestWeatherArtProvider extends AndroidTestCase {
+
+    private File mArt;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        mArt = new File(WeatherArtProvider.getArtDirectory(mContext), "test.jpg");
+        FileOutputStream out = new FileOutputStream(mArt);
+        out.write(new byte[] { 1, 2, 3 });
+        out.close();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        //noinspection ResultOfMethodCallIgnored
+        mArt.delete();
+        super.tearDown();
+    }
+
+    public void testOpensPrefetchedArt() throws IOException {
+        ParcelFileDescriptor descriptor = mContext.getContentResolver()
+                .openFileDescriptor(WeatherArtProvider.buildArtUri(mArt), "r");
+        assertNotNull("Error: prefetched art could not be opened", descriptor);
+        assertEquals("Error: wrong file opened", 3, descriptor.getStatSize());
+        descriptor.close();
+    }
+
+    public void testRejectsFilesOutsideTheArtDirectory() {
+        Uri uri = Uri.parse("content://" + WeatherArtProvider.CONTENT_AUTHORITY
+                + "/..%2Fshared_prefs%2Fmuzei_source_state.xml");
+        try {
+            mContext.getContentResolver().openFileDescriptor(uri, "r");
+            fail("Error: a file outside of the art directory was opened");
+        } catch (FileNotFoundException expected) {
+            // expected
+        }
+    }
+
+    public void testRejectsWrites() throws FileNotFoundException {
+        try {
+            mContext.getContentResolver()
+                    .openFileDescriptor(WeatherArtProvider.buildArtUri(mArt), "w");
+            fail("Error: art could be opened for writing");
+        } catch (SecurityException expected) {
+            // expected
+        }
+    }
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.app.sync;
+
+import android.content.ContentUris;
+import android.content.ContentValues;
+import android.database.Cursor;
+import android.net.Uri;
+import android.test.AndroidTestCase;
+import android.util.Log;
+
+import com.example.android.sunshine.app.data.WeatherContract;
+import com.example.android.sunshine.app.data.WeatherContract.LocationEntry;
+import com.example.android.sunshine.app.data.WeatherContract.WeatherEntry;
+
+import java.io.File;
+
+/**
+ * Reading today's forecast after a restart, from the mapped snapshot against querying the
+ * provider as the widgets, Muzei and the watch did.  Results are logged in us per read.
+ */
+public class ForecastSnapshotBenchmark extends AndroidTestCase {
+    private static final String LOG_TAG = ForecastSnapshotBenchmark.class.getSimpleName();
+
+    private static final String TEST_LOCATION = TestForecastSnapshot.TEST_LOCATION;
+    private static final int ITERATIONS = 50;
+
+    private static final String[] TODAY_COLUMNS = {
+            WeatherEntry.COLUMN_WEATHER_ID,
+            WeatherEntry.COLUMN_SHORT_DESC,
+            WeatherEntry.COLUMN_MAX_TEMP,
+            WeatherEntry.COLUMN_MIN_TEMP
+    };
+
+    private long mToday;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        TestForecastSnapshot.deleteAllRecords(mContext);
+        mToday = WeatherContract.normalizeDate(System.currentTimeMillis());
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        TestForecastSnapshot.deleteAllRecords(mContext);
+        //noinspection ResultOfMethodCallIgnored
+        ForecastSnapshot.getFile(mContext).delete();
+        super.tearDown();
+    }
+
+    private long insertLocation() {
+        ContentValues values = new ContentValues();
+        values.put(LocationEntry.COLUMN_LOCATION_SETTING, TEST_LOCATION);
+        values.put(LocationEntry.COLUMN_CITY_NAME, "London");
+        values.put(LocationEntry.COLUMN_COORD_LAT, 51.5085);
+        values.put(LocationEntry.COLUMN_COORD_LONG, -0.1258);
+        Uri uri = mContext.getContentResolver().insert(LocationEntry.CONTENT_URI, values);
+        return ContentUris.parseId(uri);
+    }
+
+    public void testTodayReadCost() {
+        ContentValues[] days = TestForecastSnapshot.createDays(insertLocation(), mToday);
+        mContext.getContentResolver().bulkInsert(WeatherEntry.CONTENT_URI, days);
+        ForecastSnapshot.fromContentValues(TEST_LOCATION, days).save(mContext);
+        File file = ForecastSnapshot.getFile(mContext);
+        Uri todayUri = WeatherEntry.buildWeatherLocationWithStartDate(TEST_LOCATION, mToday);
+
+        long provider = Long.MAX_VALUE;
+        long mapped = Long.MAX_VALUE;
+        double sink = 0;
+        for (int i = 0; i < ITERATIONS; i++) {
+            long start = System.nanoTime();
+            Cursor cursor = mContext.getContentResolver().query(todayUri, TODAY_COLUMNS, null,
+                    null, WeatherEntry.COLUMN_DATE + " ASC");
+            assertTrue(cursor.moveToFirst());
+            sink += cursor.getInt(0) + cursor.getString(1).length() + cursor.getDouble(2)
+                    + cursor.getDouble(3);
+            cursor.close();
+            provider = Math.min(provider, System.nanoTime() - start);
+
+            start = System.nanoTime();
+            ForecastSnapshot snapshot = ForecastSnapshot.load(file);
+            int today = snapshot.getTodayIndex();
+            sink += snapshot.getWeatherId(today) + snapshot.getDescription(today).length()
+                    + snapshot.getHigh(today) + snapshot.getLow(today);
+            mapped = Math.min(mapped, System.nanoTime() - start);
+        }
+
+        Log.i(LOG_TAG, "Reading today: provider " + provider / 1000 + " us, mapped snapshot "
+                + mapped / 1000 + " us (" + sink + ")");
+    }
+}
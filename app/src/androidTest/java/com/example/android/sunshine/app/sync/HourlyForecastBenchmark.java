@@ -0,0 +1,104 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.app.sync;
+
+import android.content.ContentProviderOperation;
+import android.content.ContentValues;
+import android.test.AndroidTestCase;
+import android.util.Log;
+
+import com.example.android.sunshine.app.data.WeatherContract;
+import com.example.android.sunshine.app.data.WeatherContract.HourlyEntry;
+import com.google.gson.stream.JsonReader;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Ingesting the 40 slots of one location, parsed from the response and stored in one batch,
+ * against parsing with org.json and inserting the slots one by one.  Results are logged in us
+ * per location.
+ */
+public class HourlyForecastBenchmark extends AndroidTestCase {
+    private static final String LOG_TAG = HourlyForecastBenchmark.class.getSimpleName();
+
+    private static final int SLOTS = TestHourlyForecast.SLOTS;
+    private static final long SLOT_SECONDS = TestHourlyForecast.SLOT_SECONDS;
+    private static final int ITERATIONS = 20;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        TestHourlyForecast.deleteAllRecords(mContext);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        TestHourlyForecast.deleteAllRecords(mContext);
+        super.tearDown();
+    }
+
+    public void testIngestionCost() throws Exception {
+        long locationId = TestHourlyForecast.insertLocation(mContext);
+        long firstSlotSeconds = System.currentTimeMillis() / 1000 / SLOT_SECONDS * SLOT_SECONDS;
+        String response = TestHourlyForecast.createResponse(firstSlotSeconds, SLOTS);
+
+        long batched = Long.MAX_VALUE;
+        long separate = Long.MAX_VALUE;
+        for (int i = 0; i < ITERATIONS; i++) {
+            long start = System.nanoTime();
+            List<ContentValues> slots =
+                    HourlyForecastParser.parse(new JsonReader(new StringReader(response)));
+            ArrayList<ContentProviderOperation> operations =
+                    new ArrayList<ContentProviderOperation>(slots.size());
+            for (ContentValues slot : slots) {
+                slot.put(HourlyEntry.COLUMN_LOC_KEY, locationId);
+                operations.add(ContentProviderOperation.newInsert(HourlyEntry.CONTENT_URI)
+                        .withValues(slot).build());
+            }
+            mContext.getContentResolver().applyBatch(WeatherContract.CONTENT_AUTHORITY, operations);
+            batched = Math.min(batched, System.nanoTime() - start);
+
+            start = System.nanoTime();
+            JSONArray list = new JSONObject(response).getJSONArray("list");
+            for (int j = 0; j < list.length(); j++) {
+                JSONObject item = list.getJSONObject(j);
+                JSONObject main = item.getJSONObject("main");
+                JSONObject weather = item.getJSONArray("weather").getJSONObject(0);
+                JSONObject wind = item.getJSONObject("wind");
+                ContentValues slot = new ContentValues();
+                slot.put(HourlyEntry.COLUMN_LOC_KEY, locationId);
+                slot.put(HourlyEntry.COLUMN_TIME, item.getLong("dt") * 1000);
+                slot.put(HourlyEntry.COLUMN_WEATHER_ID, weather.getInt("id"));
+                slot.put(HourlyEntry.COLUMN_SHORT_DESC, weather.getString("main"));
+                slot.put(HourlyEntry.COLUMN_TEMP, main.getDouble("temp"));
+                slot.put(HourlyEntry.COLUMN_HUMIDITY, main.getDouble("humidity"));
+                slot.put(HourlyEntry.COLUMN_PRESSURE, main.getDouble("pressure"));
+                slot.put(HourlyEntry.COLUMN_WIND_SPEED, wind.getDouble("speed"));
+                slot.put(HourlyEntry.COLUMN_DEGREES, wind.getDouble("deg"));
+                mContext.getContentResolver().insert(HourlyEntry.CONTENT_URI, slot);
+            }
+            separate = Math.min(separate, System.nanoTime() - start);
+        }
+
+        Log.i(LOG_TAG, "Ingesting " + SLOTS + " slots: streamed and batched "
+                + batched / 1000 + " us, org.json and separate inserts " + separate / 1000 + " us");
+    }
+}
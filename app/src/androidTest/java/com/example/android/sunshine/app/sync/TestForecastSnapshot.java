@@ -0,0 +1,114 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.app.sync;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.test.AndroidTestCase;
+
+import com.example.android.sunshine.app.data.WeatherContract;
+import com.example.android.sunshine.app.data.WeatherContract.LocationEntry;
+import com.example.android.sunshine.app.data.WeatherContract.WeatherEntry;
+
+import java.io.File;
+
+public class TestForecastSnapshot extends AndroidTestCase {
+    static final String TEST_LOCATION = "snapshot test";
+    private static final int DAYS = 14;
+    private static final long DAY_IN_MILLIS = 24 * 60 * 60 * 1000;
+
+    private long mToday;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        deleteAllRecords(mContext);
+        mToday = WeatherContract.normalizeDate(System.currentTimeMillis());
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        deleteAllRecords(mContext);
+        //noinspection ResultOfMethodCallIgnored
+        ForecastSnapshot.getFile(mContext).delete();
+        super.tearDown();
+    }
+
+    static void deleteAllRecords(Context context) {
+        context.getContentResolver().delete(WeatherEntry.CONTENT_URI, null, null);
+        context.getContentResolver().delete(LocationEntry.CONTENT_URI, null, null);
+    }
+
+    // Two weeks from today
+    static ContentValues[] createDays(long locationId, long today) {
+        ContentValues[] days = new ContentValues[DAYS];
+        for (int i = 0; i < DAYS; i++) {
+            ContentValues day = new ContentValues();
+            day.put(WeatherEntry.COLUMN_LOC_KEY, locationId);
+            day.put(WeatherEntry.COLUMN_DATE, today + i * DAY_IN_MILLIS);
+            day.put(WeatherEntry.COLUMN_WEATHER_ID, 800 + i);
+            day.put(WeatherEntry.COLUMN_SHORT_DESC, i % 2 == 0 ? "Clear" : "Thunderstorm");
+            day.put(WeatherEntry.COLUMN_MAX_TEMP, 20.5 + i);
+            day.put(WeatherEntry.COLUMN_MIN_TEMP, 10.25 - i);
+            day.put(WeatherEntry.COLUMN_HUMIDITY, 60.0);
+            day.put(WeatherEntry.COLUMN_PRESSURE, 1013.2);
+            day.put(WeatherEntry.COLUMN_WIND_SPEED, 4.1);
+            day.put(WeatherEntry.COLUMN_DEGREES, 250.5);
+            days[i] = day;
+        }
+        return days;
+    }
+
+    public void testSaveAndMap() {
+        ForecastSnapshot snapshot =
+                ForecastSnapshot.fromContentValues(TEST_LOCATION, createDays(1, mToday));
+        snapshot.save(mContext);
+
+        ForecastSnapshot mapped = ForecastSnapshot.load(ForecastSnapshot.getFile(mContext));
+        assertNotNull("Error: the saved snapshot could not be read", mapped);
+        assertEquals(TEST_LOCATION, mapped.getLocationSetting());
+        assertEquals(snapshot.getSyncTime(), mapped.getSyncTime());
+        assertEquals(DAYS, mapped.getDayCount());
+        assertEquals(0, mapped.getTodayIndex());
+        for (int i = 0; i < DAYS; i++) {
+            assertEquals(mToday + i * DAY_IN_MILLIS, mapped.getDate(i));
+            assertEquals(800 + i, mapped.getWeatherId(i));
+            // Described from the condition id as the provider reads the day back, whatever
+            // the values said: 800 is clear sky, up to 804 are clouds, the rest have no name
+            assertEquals(i == 0 ? "Clear" : i <= 4 ? "Clouds" : "", mapped.getDescription(i));
+            assertEquals(20.5 + i, mapped.getHigh(i));
+            assertEquals(10.25 - i, mapped.getLow(i));
+        }
+    }
+
+    public void testUnsavableLocationRemovesFile() {
+        ForecastSnapshot.fromContentValues(TEST_LOCATION, createDays(1, mToday))
+                .save(mContext);
+        File file = ForecastSnapshot.getFile(mContext);
+        assertTrue(file.isFile());
+
+        StringBuilder longLocation = new StringBuilder();
+        while (longLocation.length() < 100) {
+            longLocation.append(TEST_LOCATION);
+        }
+        ForecastSnapshot snapshot =
+                ForecastSnapshot.fromContentValues(longLocation.toString(),
+                        createDays(1, mToday));
+        assertEquals(longLocation.toString(), snapshot.getLocationSetting());
+        snapshot.save(mContext);
+        assertFalse("Error: a stale snapshot was left behind", file.exists());
+    }
+}
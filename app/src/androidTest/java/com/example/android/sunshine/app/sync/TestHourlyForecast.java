@@ -0,0 +1,148 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.app.sync;
+
+import android.content.ContentUris;
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.net.Uri;
+import android.test.AndroidTestCase;
+
+import com.example.android.sunshine.app.data.WeatherContract;
+import com.example.android.sunshine.app.data.WeatherContract.HourlyEntry;
+import com.example.android.sunshine.app.data.WeatherContract.LocationEntry;
+import com.google.gson.stream.JsonReader;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.List;
+
+public class TestHourlyForecast extends AndroidTestCase {
+    static final String TEST_LOCATION = "hourly test";
+    static final int SLOTS = 40;
+    static final long SLOT_SECONDS = 3 * 60 * 60;
+
+    private long mFirstSlotSeconds;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        deleteAllRecords(mContext);
+        mFirstSlotSeconds = System.currentTimeMillis() / 1000 / SLOT_SECONDS * SLOT_SECONDS;
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        deleteAllRecords(mContext);
+        super.tearDown();
+    }
+
+    static void deleteAllRecords(Context context) {
+        context.getContentResolver().delete(HourlyEntry.CONTENT_URI, null, null);
+        context.getContentResolver().delete(WeatherContract.WeatherEntry.CONTENT_URI, null, null);
+        context.getContentResolver().delete(LocationEntry.CONTENT_URI, null, null);
+    }
+
+    // A response shaped like the forecast endpoint's, with the fields the parser skips.
+    static String createResponse(long firstSlotSeconds, int slots) {
+        StringBuilder json = new StringBuilder("{\"cod\":\"200\",\"message\":0.0032,\"cnt\":")
+                .append(slots).append(",\"list\":[");
+        for (int i = 0; i < slots; i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append("{\"dt\":").append(firstSlotSeconds + i * SLOT_SECONDS)
+                    .append(",\"main\":{\"temp\":").append(10 + i % 8)
+                    .append(".5,\"temp_min\":9.1,\"temp_max\":12.3,\"pressure\":1013.2,")
+                    .append("\"sea_level\":1021.3,\"grnd_level\":1013.2,\"humidity\":")
+                    .append(60 + i % 30).append(",\"temp_kf\":0}")
+                    .append(",\"weather\":[{\"id\":").append(i % 2 == 0 ? 800 : 500)
+                    .append(",\"main\":\"").append(i % 2 == 0 ? "Clear" : "Rain")
+                    .append("\",\"description\":\"sky\",\"icon\":\"01d\"}]")
+                    .append(",\"clouds\":{\"all\":0},\"wind\":{\"speed\":4.1,\"deg\":250.5}")
+                    .append(",\"sys\":{\"pod\":\"d\"},\"dt_txt\":\"2016-03-05 12:00:00\"}");
+        }
+        return json.append("],\"city\":{\"id\":2643743,\"name\":\"London\",")
+                .append("\"coord\":{\"lat\":51.5085,\"lon\":-0.1258},\"country\":\"GB\"}}")
+                .toString();
+    }
+
+    static long insertLocation(Context context) {
+        ContentValues values = new ContentValues();
+        values.put(LocationEntry.COLUMN_LOCATION_SETTING, TEST_LOCATION);
+        values.put(LocationEntry.COLUMN_CITY_NAME, "London");
+        values.put(LocationEntry.COLUMN_COORD_LAT, 51.5085);
+        values.put(LocationEntry.COLUMN_COORD_LONG, -0.1258);
+        Uri uri = context.getContentResolver().insert(LocationEntry.CONTENT_URI, values);
+        return ContentUris.parseId(uri);
+    }
+
+    public void testParse() throws IOException {
+        List<ContentValues> slots = HourlyForecastParser.parse(
+                new JsonReader(new StringReader(createResponse(mFirstSlotSeconds, SLOTS))));
+        assertEquals(SLOTS, slots.size());
+
+        ContentValues first = slots.get(0);
+        assertEquals(mFirstSlotSeconds * 1000, first.getAsLong(HourlyEntry.COLUMN_TIME).longValue());
+        assertEquals(800, first.getAsInteger(HourlyEntry.COLUMN_WEATHER_ID).intValue());
+        assertEquals("Clear", first.getAsString(HourlyEntry.COLUMN_SHORT_DESC));
+        assertEquals(10.5, first.getAsDouble(HourlyEntry.COLUMN_TEMP), 0.001);
+        assertEquals(1013.2, first.getAsDouble(HourlyEntry.COLUMN_PRESSURE), 0.001);
+        assertEquals(4.1, first.getAsDouble(HourlyEntry.COLUMN_WIND_SPEED), 0.001);
+        assertEquals(250.5, first.getAsDouble(HourlyEntry.COLUMN_DEGREES), 0.001);
+    }
+
+    public void testParseError() {
+        try {
+            HourlyForecastParser.parse(new JsonReader(new StringReader(
+                    "{\"cod\":\"404\",\"message\":\"city not found\"}")));
+            fail("Error: an error response should not parse");
+        } catch (IOException expected) {
+        }
+    }
+
+    public void testTimeWindow() throws Exception {
+        long locationId = insertLocation(mContext);
+        List<ContentValues> slots = HourlyForecastParser.parse(
+                new JsonReader(new StringReader(createResponse(mFirstSlotSeconds, SLOTS))));
+        for (ContentValues slot : slots) {
+            slot.put(HourlyEntry.COLUMN_LOC_KEY, locationId);
+        }
+        mContext.getContentResolver().bulkInsert(HourlyEntry.CONTENT_URI,
+                slots.toArray(new ContentValues[slots.size()]));
+
+        // The next 24 hours: eight slots
+        long start = mFirstSlotSeconds * 1000;
+        Cursor cursor = mContext.getContentResolver().query(
+                HourlyEntry.buildHourlyLocationWithWindow(TEST_LOCATION, start,
+                        start + 8 * SLOT_SECONDS * 1000),
+                new String[]{HourlyEntry.COLUMN_TIME}, null, null, null);
+        assertNotNull(cursor);
+        assertEquals("Error: wrong number of slots in the window", 8, cursor.getCount());
+        assertTrue(cursor.moveToFirst());
+        assertEquals(start, cursor.getLong(0));
+        cursor.close();
+
+        // Inserting the same slots again replaces them
+        mContext.getContentResolver().bulkInsert(HourlyEntry.CONTENT_URI,
+                slots.toArray(new ContentValues[slots.size()]));
+        cursor = mContext.getContentResolver().query(
+                HourlyEntry.buildHourlyLocation(TEST_LOCATION), null, null, null, null);
+        assertEquals("Error: slots were duplicated", SLOTS, cursor.getCount());
+        cursor.close();
+    }
+}
@@ -0,0 +1,120 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.app.widget;
+
+import android.content.ContentResolver;
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.test.AndroidTestCase;
+
+import com.example.android.sunshine.app.R;
+
+public class TestWidgetArtCache extends AndroidTestCase {
+
+    // The art bundled with the app, so that the test does not depend on the network.
+    static final int[] ART_RESOURCES = {
+            R.drawable.art_storm,
+            R.drawable.art_light_rain,
+            R.drawable.art_rain,
+            R.drawable.art_snow,
+            R.drawable.art_fog,
+            R.drawable.art_clear,
+            R.drawable.art_light_clouds,
+            R.drawable.art_clouds
+    };
+
+    static String artUri(Context context, int resourceId) {
+        return ContentResolver.SCHEME_ANDROID_RESOURCE + "://" + context.getPackageName()
+                + "/" + resourceId;
+    }
+
+    private String artUri(int resourceId) {
+        return artUri(mContext, resourceId);
+    }
+
+    public void testLoadedArtIsPresized() {
+        WidgetArtCache cache = new WidgetArtCache(mContext, 4 * 1024 * 1024);
+        int size = WidgetArtCache.getListIconSize(mContext);
+        String artUrl = artUri(R.drawable.art_clear);
+
+        assertNull("Error: nothing should be cached yet",
+                cache.get(artUrl, R.drawable.ic_clear, size, size));
+        Bitmap bitmap = cache.load(artUrl, R.drawable.ic_clear, size, size);
+        assertNotNull("Error: art could not be loaded", bitmap);
+        assertTrue("Error: art should be decoded at the row size",
+                bitmap.getWidth() <= size && bitmap.getHeight() <= size);
+        assertSame("Error: loaded art should be served from memory",
+                bitmap, cache.get(artUrl, R.drawable.ic_clear, size, size));
+        assertNull("Error: other sizes are cached separately",
+                cache.get(artUrl, R.drawable.ic_clear, size * 2, size * 2));
+    }
+
+    public void testFallsBackToResource() {
+        WidgetArtCache cache = new WidgetArtCache(mContext, 4 * 1024 * 1024);
+        int size = WidgetArtCache.getListIconSize(mContext);
+        String artUrl = artUri(0);
+
+        Bitmap bitmap = cache.load(artUrl, R.drawable.ic_storm, size, size);
+        assertNotNull("Error: the fallback resource should have been decoded", bitmap);
+        assertSame("Error: the fallback should be served from memory",
+                bitmap, cache.get(artUrl, R.drawable.ic_storm, size, size));
+    }
+
+    public void testRetriesArtBehindCachedFallback() {
+        WidgetArtCache cache = new WidgetArtCache(mContext, 4 * 1024 * 1024);
+        int size = WidgetArtCache.getListIconSize(mContext);
+        Bitmap fallback = cache.load(artUri(0), R.drawable.ic_storm, size, size);
+        assertNotNull("Error: the fallback resource should have been decoded", fallback);
+
+        String artUrl = artUri(R.drawable.art_storm);
+        Bitmap bitmap = cache.load(artUrl, R.drawable.ic_storm, size, size);
+        assertNotSame("Error: the art should be downloaded rather than the cached fallback served",
+                fallback, bitmap);
+        assertSame("Error: the downloaded art should be served from memory",
+                bitmap, cache.get(artUrl, R.drawable.ic_storm, size, size));
+    }
+
+    public void testEvictsBeyondByteBudget() {
+        int size = WidgetArtCache.getListIconSize(mContext);
+        // Room for roughly two rows
+        int budget = size * size * 4 * 2;
+        WidgetArtCache cache = new WidgetArtCache(mContext, budget);
+        for (int resourceId : ART_RESOURCES) {
+            cache.load(artUri(resourceId), -1, size, size);
+            assertTrue("Error: cache grew past its byte budget",
+                    cache.sizeInBytes() <= cache.maxSizeInBytes());
+        }
+        assertNotNull("Error: the most recent art should still be cached",
+                cache.get(artUri(R.drawable.art_clouds), -1, size, size));
+        assertNull("Error: the oldest art should have been evicted",
+                cache.get(artUri(R.drawable.art_storm), -1, size, size));
+    }
+
+    /*
+        A load on an interrupted thread, as a consumer cancelled by the dispatcher, must give
+        up without decoding and leave the thread interrupted for its caller.
+     */
+    public void testLoadWhenInterrupted() {
+        WidgetArtCache cache = new WidgetArtCache(mContext, 4 * 1024 * 1024);
+        int size = WidgetArtCache.getListIconSize(mContext);
+
+        Thread.currentThread().interrupt();
+        Bitmap bitmap = cache.load(artUri(R.drawable.art_clear), R.drawable.ic_clear, size, size);
+        assertTrue("Error: the interrupt should be left set", Thread.interrupted());
+        assertNull("Error: nothing should be loaded once interrupted", bitmap);
+        assertNull(cache.get(artUri(R.drawable.art_clear), R.drawable.ic_clear, size, size));
+    }
+}
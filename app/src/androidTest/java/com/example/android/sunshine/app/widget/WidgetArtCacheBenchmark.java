@@ -0,0 +1,55 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.app.widget;
+
+import android.test.AndroidTestCase;
+import android.util.Log;
+
+import static com.example.android.sunshine.app.widget.TestWidgetArtCache.ART_RESOURCES;
+
+/**
+ * Per-row latency of a cold row (decode and scale, as getViewAt used to do for every row)
+ * against a warm row (memory only).  Results are logged as microseconds.
+ */
+public class WidgetArtCacheBenchmark extends AndroidTestCase {
+
+    public static final String LOG_TAG = WidgetArtCacheBenchmark.class.getSimpleName();
+
+    public void testColdAndWarmRowLatency() {
+        WidgetArtCache cache = new WidgetArtCache(mContext, 4 * 1024 * 1024);
+        int size = WidgetArtCache.getListIconSize(mContext);
+
+        long start = System.nanoTime();
+        for (int resourceId : ART_RESOURCES) {
+            assertNotNull(cache.load(artUri(resourceId), -1, size, size));
+        }
+        long coldMicros = (System.nanoTime() - start) / 1000 / ART_RESOURCES.length;
+
+        int rows = 1000;
+        start = System.nanoTime();
+        for (int i = 0; i < rows; i++) {
+            assertNotNull(cache.get(artUri(ART_RESOURCES[i % ART_RESOURCES.length]), -1,
+                    size, size));
+        }
+        long warmMicros = (System.nanoTime() - start) / 1000 / rows;
+
+        Log.i(LOG_TAG, "Art per row: cold " + coldMicros + " us, warm " + warmMicros + " us");
+    }
+
+    private String artUri(int resourceId) {
+        return TestWidgetArtCache.artUri(mContext, resourceId);
+    }
+}
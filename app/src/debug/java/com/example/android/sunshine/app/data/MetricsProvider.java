@@ -0,0 +1,106 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.app.data;
+
+import android.content.ContentProvider;
+import android.content.ContentValues;
+import android.database.Cursor;
+import android.database.MatrixCursor;
+import android.net.Uri;
+import android.support.annotation.NonNull;
+
+import com.example.android.sunshine.shared.Metrics;
+
+/**
+ * Debug-only provider listing the {@link Metrics} recorded by the app process, one row per
+ * metric.  Deleting resets them, so that a scenario can be measured from a clean slate:
+ * <pre>
+ *     adb shell content delete --uri content://com.example.android.sunshine.app.metrics
+ *     adb shell content query --uri content://com.example.android.sunshine.app.metrics
+ * </pre>
+ * Timers are in microseconds.  Percentiles are rounded up to the next power of two.
+ */
+public class MetricsProvider extends ContentProvider {
+    public static final String CONTENT_AUTHORITY = "com.example.android.sunshine.app.metrics";
+
+    public static final String COLUMN_NAME = "name";
+    public static final String COLUMN_TYPE = "type";
+    public static final String COLUMN_COUNT = "count";
+    public static final String COLUMN_SUM = "sum";
+    public static final String COLUMN_MIN = "min";
+    public static final String COLUMN_MAX = "max";
+    public static final String COLUMN_P50 = "p50";
+    public static final String COLUMN_P90 = "p90";
+    public static final String COLUMN_P99 = "p99";
+
+    private static final String[] COLUMNS = {
+            COLUMN_NAME, COLUMN_TYPE, COLUMN_COUNT, COLUMN_SUM, COLUMN_MIN, COLUMN_MAX,
+            COLUMN_P50, COLUMN_P90, COLUMN_P99
+    };
+
+    private static final String MIME_TYPE =
+            "vnd.android.cursor.dir/" + CONTENT_AUTHORITY + "/metrics";
+
+    @Override
+    public boolean onCreate() {
+        return true;
+    }
+
+    @Override
+    public Cursor query(@NonNull Uri uri, String[] projection, String selection,
+                        String[] selectionArgs, String sortOrder) {
+        MatrixCursor cursor = new MatrixCursor(COLUMNS);
+        for (Metrics.Metric metric : Metrics.getAll()) {
+            MatrixCursor.RowBuilder row = cursor.newRow()
+                    .add(metric.getName())
+                    .add(metric.getType())
+                    .add(metric.getCount());
+            if (metric instanceof Metrics.Histogram) {
+                Metrics.Histogram histogram = (Metrics.Histogram) metric;
+                row.add(histogram.getSum())
+                        .add(histogram.getMin())
+                        .add(histogram.getMax())
+                        .add(histogram.getPercentile(50))
+                        .add(histogram.getPercentile(90))
+                        .add(histogram.getPercentile(99));
+            }
+        }
+        return cursor;
+    }
+
+    @Override
+    public String getType(@NonNull Uri uri) {
+        return MIME_TYPE;
+    }
+
+    @Override
+    public Uri insert(@NonNull Uri uri, ContentValues values) {
+        throw new UnsupportedOperationException("Metrics are read-only: " + uri);
+    }
+
+    @Override
+    public int delete(@NonNull Uri uri, String selection, String[] selectionArgs) {
+        int count = Metrics.getAll().size();
+        Metrics.reset();
+        return count;
+    }
+
+    @Override
+    public int update(@NonNull Uri uri, ContentValues values, String selection,
+                      String[] selectionArgs) {
+        throw new UnsupportedOperationException("Metrics are read-only: " + uri);
+    }
+}
@@ -0,0 +1,210 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.app;
+
+import android.content.Context;
+import android.text.format.Time;
+import android.util.SparseArray;
+
+import java.text.DateFormat;
+import java.text.SimpleDateFormat;
+import java.util.Locale;
+
+/**
+ * Builds the day labels shown in the forecast list, the detail pane and the detail widget.
+ *
+ * "Today", the current Julian day and the locale are computed once per day (or locale or time
+ * zone change) instead of once per call, and every label is memoized by the Julian day it
+ * describes.  All methods are synchronized, so the cache can be shared with the widget factory
+ * binder threads.
+ */
+final class DayLabelCache {
+
+    // The kinds of labels we memoize, one SparseArray (keyed by Julian day) per kind.
+    private static final int LABEL_FRIENDLY = 0;
+    private static final int LABEL_FRIENDLY_LONG_TODAY = 1;
+    private static final int LABEL_FULL_FRIENDLY = 2;
+    private static final int LABEL_DAY_NAME = 3;
+    private static final int LABEL_MONTH_DAY = 4;
+    private static final int LABEL_DATE = 5;
+    private static final int LABEL_KINDS = 6;
+
+    // We only ever show a couple of weeks, so there is no point in remembering more than that.
+    private static final int MAX_LABELS_PER_KIND = 32;
+
+    private static final DayLabelCache sInstance = new DayLabelCache();
+
+    private final SparseArray<String>[] mLabels;
+
+    private Locale mLocale;
+    private long mGmtOffset;
+    private int mTodayJulianDay;
+    private long mTomorrowStartMillis;
+
+    private SimpleDateFormat mShortDateFormat;
+    private SimpleDateFormat mDayNameFormat;
+    private SimpleDateFormat mMonthDayFormat;
+    private DateFormat mDateFormat;
+
+    // Localized strings; only loaded once a caller provides a Context.
+    private String mToday;
+    private String mTomorrow;
+
+    @SuppressWarnings("unchecked")
+    private DayLabelCache() {
+        mLabels = new SparseArray[LABEL_KINDS];
+        for (int i = 0; i < LABEL_KINDS; i++) {
+            mLabels[i] = new SparseArray<String>(MAX_LABELS_PER_KIND);
+        }
+    }
+
+    static DayLabelCache getInstance() {
+        return sInstance;
+    }
+
+    synchronized String getFriendlyDayString(Context context, long dateInMillis,
+                                             boolean displayLongToday) {
+        int julianDay = julianDayOf(dateInMillis);
+        int kind = displayLongToday ? LABEL_FRIENDLY_LONG_TODAY : LABEL_FRIENDLY;
+        String label = mLabels[kind].get(julianDay);
+        if (label == null) {
+            if (displayLongToday && julianDay == mTodayJulianDay) {
+                // For today: "Today, June 8"
+                loadStrings(context);
+                label = context.getString(R.string.format_full_friendly_date, mToday,
+                        getFormattedMonthDay(context, dateInMillis));
+            } else if (julianDay < mTodayJulianDay + 7) {
+                // If the input date is less than a week in the future, just return the day name.
+                label = getDayName(context, dateInMillis);
+            } else {
+                // Otherwise, use the form "Mon Jun 3"
+                label = mShortDateFormat.format(dateInMillis);
+            }
+            put(kind, julianDay, label);
+        }
+        return label;
+    }
+
+    synchronized String getFullFriendlyDayString(Context context, long dateInMillis) {
+        int julianDay = julianDayOf(dateInMillis);
+        String label = mLabels[LABEL_FULL_FRIENDLY].get(julianDay);
+        if (label == null) {
+            label = context.getString(R.string.format_full_friendly_date,
+                    getDayName(context, dateInMillis),
+                    getFormattedMonthDay(context, dateInMillis));
+            put(LABEL_FULL_FRIENDLY, julianDay, label);
+        }
+        return label;
+    }
+
+    synchronized String getDayName(Context context, long dateInMillis) {
+        int julianDay = julianDayOf(dateInMillis);
+        String label = mLabels[LABEL_DAY_NAME].get(julianDay);
+        if (label == null) {
+            if (julianDay == mTodayJulianDay) {
+                loadStrings(context);
+                label = mToday;
+            } else if (julianDay == mTodayJulianDay + 1) {
+                loadStrings(context);
+                label = mTomorrow;
+            } else {
+                // Otherwise, the format is just the day of the week (e.g "Wednesday").
+                label = mDayNameFormat.format(dateInMillis);
+            }
+            put(LABEL_DAY_NAME, julianDay, label);
+        }
+        return label;
+    }
+
+    synchronized String getFormattedMonthDay(Context context, long dateInMillis) {
+        int julianDay = julianDayOf(dateInMillis);
+        String label = mLabels[LABEL_MONTH_DAY].get(julianDay);
+        if (label == null) {
+            label = mMonthDayFormat.format(dateInMillis);
+            put(LABEL_MONTH_DAY, julianDay, label);
+        }
+        return label;
+    }
+
+    synchronized String formatDate(long dateInMillis) {
+        int julianDay = julianDayOf(dateInMillis);
+        String label = mLabels[LABEL_DATE].get(julianDay);
+        if (label == null) {
+            label = mDateFormat.format(dateInMillis);
+            put(LABEL_DATE, julianDay, label);
+        }
+        return label;
+    }
+
+    /**
+     * Forgets every label, as the time zone they were computed in is no longer the default one.
+     * The cache is rebuilt with the new zone on its next use.
+     */
+    synchronized void onTimeZoneChanged() {
+        mTomorrowStartMillis = 0;
+    }
+
+    /**
+     * Returns the Julian day of the given date, first rolling the cache over if the day or the
+     * locale changed since it was last used.
+     */
+    private int julianDayOf(long dateInMillis) {
+        long now = System.currentTimeMillis();
+        Locale locale = Locale.getDefault();
+        if (now >= mTomorrowStartMillis || !locale.equals(mLocale)) {
+            reset(now, locale);
+        }
+        return Time.getJulianDay(dateInMillis, mGmtOffset);
+    }
+
+    private void reset(long now, Locale locale) {
+        Time time = new Time();
+        time.set(now);
+        mGmtOffset = time.gmtoff;
+        mTodayJulianDay = Time.getJulianDay(now, mGmtOffset);
+        mTomorrowStartMillis = time.setJulianDay(mTodayJulianDay + 1);
+
+        // The formats pick up the default time zone when they are built, so we rebuild them
+        // along with everything else once a day.
+        mShortDateFormat = new SimpleDateFormat("EEE MMM dd", locale);
+        mDayNameFormat = new SimpleDateFormat("EEEE", locale);
+        mMonthDayFormat = new SimpleDateFormat("MMMM dd", locale);
+        mDateFormat = DateFormat.getDateInstance(DateFormat.DEFAULT, locale);
+        if (!locale.equals(mLocale)) {
+            mLocale = locale;
+            mToday = null;
+            mTomorrow = null;
+        }
+        for (SparseArray<String> labels : mLabels) {
+            labels.clear();
+        }
+    }
+
+    private void loadStrings(Context context) {
+        if (mToday == null) {
+            mToday = context.getString(R.string.today);
+            mTomorrow = context.getString(R.string.tomorrow);
+        }
+    }
+
+    private void put(int kind, int julianDay, String label) {
+        SparseArray<String> labels = mLabels[kind];
+        if (labels.size() >= MAX_LABELS_PER_KIND) {
+            labels.clear();
+        }
+        labels.put(julianDay, label);
+    }
+}
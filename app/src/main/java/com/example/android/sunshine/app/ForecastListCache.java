@@ -0,0 +1,135 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.app;
+
+import android.net.Uri;
+
+import com.example.android.sunshine.shared.Metrics;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Process-wide cache of the snapshots loaded by {@link ForecastListLoader}, keyed by URI,
+ * projection and sort order.
+ *
+ * Every snapshot is stored with the data version of
+ * {@link com.example.android.sunshine.app.data.WeatherProvider} it was read at, and only served
+ * while the provider is still at that version: any write to the provider makes every entry
+ * stale.  A loader created again after a configuration change, a restart or in another
+ * activity is then served without querying.  Snapshots are immutable, so they can be shared by
+ * any number of loaders, which a cursor could not.
+ */
+final class ForecastListCache {
+    // A location's list and the last few days opened in the detail pane
+    private static final int MAX_ENTRIES = 8;
+
+    private static final Metrics.Counter HITS = Metrics.counter("forecast.cache.hits");
+    private static final Metrics.Counter MISSES = Metrics.counter("forecast.cache.misses");
+
+    private static final class Entry {
+        final long version;
+        final ForecastListSnapshot snapshot;
+
+        Entry(long version, ForecastListSnapshot snapshot) {
+            this.version = version;
+            this.snapshot = snapshot;
+        }
+    }
+
+    // Least recently used first
+    private static final LinkedHashMap<String, Entry> sEntries =
+            new LinkedHashMap<String, Entry>(MAX_ENTRIES * 2, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                    return size() > MAX_ENTRIES;
+                }
+            };
+
+    private ForecastListCache() {
+    }
+
+    static String key(Uri uri, String[] projection, String sortOrder) {
+        StringBuilder key = new StringBuilder(uri.toString());
+        if (projection != null) {
+            for (String column : projection) {
+                key.append('\n').append(column);
+            }
+        }
+        return key.append('\n').append(sortOrder).toString();
+    }
+
+    /**
+     * @param version the current data version of the provider
+     * @return the snapshot stored for the key at that version, or null
+     */
+    static ForecastListSnapshot get(String key, long version) {
+        Entry entry;
+        synchronized (sEntries) {
+            entry = sEntries.get(key);
+        }
+        if (entry == null || entry.version != version) {
+            MISSES.inc();
+            return null;
+        }
+        HITS.inc();
+        return entry.snapshot;
+    }
+
+    /**
+     * @param version the data version of the provider read before the query, so that a write
+     *                made while querying leaves the entry stale
+     */
+    static void put(String key, long version, ForecastListSnapshot snapshot) {
+        synchronized (sEntries) {
+            Entry entry = sEntries.get(key);
+            // A load that started earlier must not replace a newer result
+            if (entry == null || entry.version <= version) {
+                sEntries.put(key, new Entry(version, snapshot));
+            }
+        }
+    }
+
+    /**
+     * Stores a day of a cached snapshot under the key of the day's own query, at the version the
+     * snapshot was read at, so that a loader for the day is served it without querying.  Nothing
+     * is stored once the snapshot is no longer cached, as its version is then unknown.
+     *
+     * @return the day, as it is served from the cache
+     */
+    static ForecastListSnapshot putDay(String key, ForecastListSnapshot snapshot, int position) {
+        ForecastListSnapshot day = snapshot.getDay(position);
+        synchronized (sEntries) {
+            Entry cached = null;
+            for (Entry entry : sEntries.values()) {
+                if (entry.snapshot == snapshot) {
+                    cached = entry;
+                    break;
+                }
+            }
+            if (cached != null) {
+                put(key, cached.version, day);
+            }
+        }
+        return day;
+    }
+
+    static void clear() {
+        synchronized (sEntries) {
+            sEntries.clear();
+        }
+    }
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.app;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.net.Uri;
+import android.support.v4.content.AsyncTaskLoader;
+
+import com.example.android.sunshine.app.data.WeatherProvider;
+
+/**
+ * Loads the forecast list as a {@link ForecastListSnapshot}.  The cursor is copied and closed
+ * on the loader thread, and the loader watches the URI itself for changes, like a
+ * {@link android.support.v4.content.CursorLoader} watches its cursor.
+ *
+ * Snapshots are shared through the {@link ForecastListCache}: a new loader for a query whose
+ * data has not changed since it was last loaded delivers it as it starts, without a query.
+ */
+class ForecastListLoader extends AsyncTaskLoader<ForecastListSnapshot> {
+    private final ForceLoadContentObserver mObserver = new ForceLoadContentObserver();
+
+    private final Uri mUri;
+    private final String[] mProjection;
+    private final String mSortOrder;
+    private final String mCacheKey;
+
+    private ForecastListSnapshot mSnapshot;
+    private boolean mObserving;
+
+    ForecastListLoader(Context context, Uri uri, String[] projection, String sortOrder) {
+        super(context);
+        mUri = uri;
+        mProjection = projection;
+        mSortOrder = sortOrder;
+        mCacheKey = ForecastListCache.key(uri, projection, sortOrder);
+    }
+
+    @Override
+    public ForecastListSnapshot loadInBackground() {
+        long version = WeatherProvider.getDataVersion();
+        ForecastListSnapshot snapshot = ForecastListCache.get(mCacheKey, version);
+        if (snapshot != null) {
+            return snapshot;
+        }
+        Cursor cursor = getContext().getContentResolver().query(
+                mUri, mProjection, null, null, mSortOrder);
+        if (cursor == null) {
+            return ForecastListSnapshot.empty();
+        }
+        try {
+            snapshot = ForecastListSnapshot.fromCursor(cursor);
+        } finally {
+            cursor.close();
+        }
+        ForecastListCache.put(mCacheKey, version, snapshot);
+        return snapshot;
+    }
+
+    @Override
+    public void deliverResult(ForecastListSnapshot snapshot) {
+        if (isReset()) {
+            return;
+        }
+        mSnapshot = snapshot;
+        if (isStarted()) {
+            super.deliverResult(snapshot);
+        }
+    }
+
+    @Override
+    protected void onStartLoading() {
+        if (!mObserving) {
+            getContext().getContentResolver().registerContentObserver(mUri, true, mObserver);
+            mObserving = true;
+        }
+        if (mSnapshot == null) {
+            mSnapshot = ForecastListCache.get(mCacheKey, WeatherProvider.getDataVersion());
+        }
+        if (mSnapshot != null) {
+            deliverResult(mSnapshot);
+        }
+        if (takeContentChanged() || mSnapshot == null) {
+            forceLoad();
+        }
+    }
+
+    @Override
+    protected void onStopLoading() {
+        cancelLoad();
+    }
+
+    @Override
+    protected void onReset() {
+        super.onReset();
+        onStopLoading();
+        if (mObserving) {
+            getContext().getContentResolver().unregisterContentObserver(mObserver);
+            mObserving = false;
+        }
+        mSnapshot = null;
+    }
+}
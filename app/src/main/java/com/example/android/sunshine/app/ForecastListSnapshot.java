@@ -0,0 +1,186 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.app;
+
+import android.database.Cursor;
+
+/**
+ * Immutable, column-major copy of the forecast list: one primitive array per column of
+ * {@link ForecastFragment}'s projection, read from the cursor once per load.
+ *
+ * Binding and clicks index the arrays directly, so the cursor (and its window) can be closed as
+ * soon as the snapshot is built.
+ */
+public final class ForecastListSnapshot {
+
+    private static final ForecastListSnapshot EMPTY = new ForecastListSnapshot(0);
+
+    private final long[] mIds;
+    private final long[] mDates;
+    private final int[] mWeatherIds;
+    private final double[] mHighs;
+    private final double[] mLows;
+    private final String[] mDescriptions;
+    private final float[] mHumidities;
+    private final float[] mPressures;
+    private final float[] mWindSpeeds;
+    private final float[] mDegrees;
+
+    // Every row is for the same location
+    private String mLocationSetting;
+    private double mLatitude;
+    private double mLongitude;
+
+    private ForecastListSnapshot(int count) {
+        mIds = new long[count];
+        mDates = new long[count];
+        mWeatherIds = new int[count];
+        mHighs = new double[count];
+        mLows = new double[count];
+        mDescriptions = new String[count];
+        mHumidities = new float[count];
+        mPressures = new float[count];
+        mWindSpeeds = new float[count];
+        mDegrees = new float[count];
+    }
+
+    public static ForecastListSnapshot empty() {
+        return EMPTY;
+    }
+
+    /**
+     * Reads every row of a cursor over ForecastFragment.FORECAST_COLUMNS.  The cursor is left
+     * open, after its last row.
+     */
+    public static ForecastListSnapshot fromCursor(Cursor cursor) {
+        int count = cursor.getCount();
+        if (count == 0) {
+            return EMPTY;
+        }
+        ForecastListSnapshot snapshot = new ForecastListSnapshot(count);
+        cursor.moveToPosition(-1);
+        for (int i = 0; cursor.moveToNext(); i++) {
+            snapshot.mIds[i] = cursor.getLong(ForecastFragment.COL_WEATHER_ID);
+            snapshot.mDates[i] = cursor.getLong(ForecastFragment.COL_WEATHER_DATE);
+            snapshot.mWeatherIds[i] = cursor.getInt(ForecastFragment.COL_WEATHER_CONDITION_ID);
+            snapshot.mHighs[i] = cursor.getDouble(ForecastFragment.COL_WEATHER_MAX_TEMP);
+            snapshot.mLows[i] = cursor.getDouble(ForecastFragment.COL_WEATHER_MIN_TEMP);
+            snapshot.mDescriptions[i] = cursor.getString(ForecastFragment.COL_WEATHER_DESC);
+            snapshot.mHumidities[i] = cursor.getFloat(ForecastFragment.COL_WEATHER_HUMIDITY);
+            snapshot.mPressures[i] = cursor.getFloat(ForecastFragment.COL_WEATHER_PRESSURE);
+            snapshot.mWindSpeeds[i] = cursor.getFloat(ForecastFragment.COL_WEATHER_WIND_SPEED);
+            snapshot.mDegrees[i] = cursor.getFloat(ForecastFragment.COL_WEATHER_DEGREES);
+            if (i == 0) {
+                snapshot.mLocationSetting = cursor.getString(ForecastFragment.COL_LOCATION_SETTING);
+                snapshot.mLatitude = cursor.getDouble(ForecastFragment.COL_COORD_LAT);
+                snapshot.mLongitude = cursor.getDouble(ForecastFragment.COL_COORD_LONG);
+            }
+        }
+        return snapshot;
+    }
+
+    public int getCount() {
+        return mDates.length;
+    }
+
+    public long getId(int position) {
+        return mIds[position];
+    }
+
+    public long getDate(int position) {
+        return mDates[position];
+    }
+
+    public int getWeatherId(int position) {
+        return mWeatherIds[position];
+    }
+
+    public double getHigh(int position) {
+        return mHighs[position];
+    }
+
+    public double getLow(int position) {
+        return mLows[position];
+    }
+
+    public String getDescription(int position) {
+        return mDescriptions[position];
+    }
+
+    public float getHumidity(int position) {
+        return mHumidities[position];
+    }
+
+    public float getPressure(int position) {
+        return mPressures[position];
+    }
+
+    public float getWindSpeed(int position) {
+        return mWindSpeeds[position];
+    }
+
+    public float getDegrees(int position) {
+        return mDegrees[position];
+    }
+
+    /**
+     * @return the location setting of the rows, or null if there are none
+     */
+    public String getLocationSetting() {
+        return mLocationSetting;
+    }
+
+    public double getLatitude() {
+        return mLatitude;
+    }
+
+    public double getLongitude() {
+        return mLongitude;
+    }
+
+    /**
+     * @return a snapshot of the one row at a position, as a query for its date would read it
+     */
+    public ForecastListSnapshot getDay(int position) {
+        ForecastListSnapshot day = new ForecastListSnapshot(1);
+        day.mIds[0] = mIds[position];
+        day.mDates[0] = mDates[position];
+        day.mWeatherIds[0] = mWeatherIds[position];
+        day.mHighs[0] = mHighs[position];
+        day.mLows[0] = mLows[position];
+        day.mDescriptions[0] = mDescriptions[position];
+        day.mHumidities[0] = mHumidities[position];
+        day.mPressures[0] = mPressures[position];
+        day.mWindSpeeds[0] = mWindSpeeds[position];
+        day.mDegrees[0] = mDegrees[position];
+        day.mLocationSetting = mLocationSetting;
+        day.mLatitude = mLatitude;
+        day.mLongitude = mLongitude;
+        return day;
+    }
+
+    /**
+     * @return the position of the row for a date, or -1 if there is none
+     */
+    public int indexOfDate(long date) {
+        for (int i = 0; i < mDates.length; i++) {
+            if (mDates[i] == date) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
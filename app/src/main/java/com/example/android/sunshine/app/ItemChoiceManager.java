@@ -19,7 +19,6 @@ import android.os.Build;
 import android.os.Bundle;
 import android.os.Parcel;
 import android.os.Parcelable;
-import android.support.v4.util.LongSparseArray;
 import android.support.v4.view.ViewCompat;
 import android.support.v7.widget.RecyclerView;
 import android.util.Log;
@@ -28,8 +27,8 @@ import android.widget.AbsListView;
 import android.widget.Checkable;
 
 /**
- * The ItemChoiceManager class keeps track of which positions have been selected.  Note that it
- * doesn't take advantage of new adapter features to track changes in the underlying data.
+ * The ItemChoiceManager class keeps track of which positions have been selected.  When the
+ * adapter has stable ids, checked items follow their ids across changes in the underlying data.
  */
 public class ItemChoiceManager {
     private final String LOG_TAG = MainActivity.class.getSimpleName();
@@ -42,7 +41,7 @@ public class ItemChoiceManager {
         public void onChanged() {
             super.onChanged();
             if (mAdapter != null && mAdapter.hasStableIds())
-                confirmCheckedPositionsById(mAdapter.getItemCount());
+                confirmCheckedPositionsById();
         }
     };
 
@@ -51,17 +50,15 @@ public class ItemChoiceManager {
 
     ;
 
+    /**
+     * The adapter must call {@link RecyclerView.Adapter#setHasStableIds(boolean)} before creating
+     * its ItemChoiceManager, as the manager registers itself as an observer of the adapter.
+     */
     public ItemChoiceManager(RecyclerView.Adapter adapter) {
         mAdapter = adapter;
+        mAdapter.registerAdapterDataObserver(mAdapterDataObserver);
     }
 
-    /**
-     * How many positions in either direction we will search to try to
-     * find a checked item with a stable ID that moved position across
-     * a data set change. If the item isn't found it will be unselected.
-     */
-    private static final int CHECK_POSITION_SEARCH_DISTANCE = 20;
-
     /**
      * Running state of which positions are currently checked
      */
@@ -72,7 +69,17 @@ public class ItemChoiceManager {
      * If there is a value for a given key, the checked state for that ID is true
      * and the value holds the last known position in the adapter for that id.
      */
-    LongSparseArray<Integer> mCheckedIdStates = new LongSparseArray<Integer>();
+    LongIntMap mCheckedIdStates = new LongIntMap();
+
+    /**
+     * Spare map the checked IDs are moved into while confirming their positions.
+     */
+    private LongIntMap mConfirmedIdStates = new LongIntMap();
+
+    /**
+     * Position of every ID in the adapter, rebuilt once per data set change when IDs are checked.
+     */
+    private final LongIntMap mPositionsById = new LongIntMap();
 
     public void onClick(RecyclerView.ViewHolder vh) {
         if (mChoiceMode == AbsListView.CHOICE_MODE_NONE)
@@ -109,6 +116,11 @@ public class ItemChoiceManager {
             case AbsListView.CHOICE_MODE_MULTIPLE: {
                 boolean checked = mCheckStates.get(position, false);
                 mCheckStates.put(position, !checked);
+                if (checked) {
+                    mCheckedIdStates.remove(mAdapter.getItemId(position));
+                } else {
+                    mCheckedIdStates.put(mAdapter.getItemId(position), position);
+                }
                 // We directly call onBindViewHolder here because notifying that an item has
                 // changed on an item that has the focus causes it to lose focus, which makes
                 // keyboard navigation a bit annoying
@@ -154,38 +166,35 @@ public class ItemChoiceManager {
         mCheckedIdStates.clear();
     }
 
-    void confirmCheckedPositionsById(int oldItemCount) {
+    /**
+     * Moves the checked positions to wherever their IDs are now, unchecking the IDs that are gone.
+     */
+    void confirmCheckedPositionsById() {
         // Clear out the positional check states, we'll rebuild it below from IDs.
         mCheckStates.clear();
+        if (mCheckedIdStates.size() == 0) {
+            return;
+        }
 
-        for (int checkedIndex = 0; checkedIndex < mCheckedIdStates.size(); checkedIndex++) {
-            final long id = mCheckedIdStates.keyAt(checkedIndex);
-            final int lastPos = mCheckedIdStates.valueAt(checkedIndex);
-
-            final long lastPosId = mAdapter.getItemId(lastPos);
-            if (id != lastPosId) {
-                // Look around to see if the ID is nearby. If not, uncheck it.
-                final int start = Math.max(0, lastPos - CHECK_POSITION_SEARCH_DISTANCE);
-                final int end = Math.min(lastPos + CHECK_POSITION_SEARCH_DISTANCE, oldItemCount);
-                boolean found = false;
-                for (int searchPos = start; searchPos < end; searchPos++) {
-                    final long searchId = mAdapter.getItemId(searchPos);
-                    if (id == searchId) {
-                        found = true;
-                        mCheckStates.put(searchPos, true);
-                        mCheckedIdStates.setValueAt(checkedIndex, searchPos);
-                        break;
-                    }
-                }
+        mPositionsById.clear();
+        for (int position = 0, count = mAdapter.getItemCount(); position < count; position++) {
+            mPositionsById.put(mAdapter.getItemId(position), position);
+        }
 
-                if (!found) {
-                    mCheckedIdStates.delete(id);
-                    checkedIndex--;
-                }
-            } else {
-                mCheckStates.put(lastPos, true);
+        mConfirmedIdStates.clear();
+        for (int slot = mCheckedIdStates.nextSlot(0); slot != -1;
+                slot = mCheckedIdStates.nextSlot(slot + 1)) {
+            final long id = mCheckedIdStates.keyAtSlot(slot);
+            final int position = mPositionsById.get(id, RecyclerView.NO_POSITION);
+            if (position != RecyclerView.NO_POSITION) {
+                mCheckStates.put(position, true);
+                mConfirmedIdStates.put(id, position);
             }
         }
+
+        LongIntMap previous = mCheckedIdStates;
+        mCheckedIdStates = mConfirmedIdStates;
+        mConfirmedIdStates = previous;
     }
 
     public void onBindViewHolder(RecyclerView.ViewHolder vh, int position) {
@@ -216,11 +225,11 @@ public class ItemChoiceManager {
     public void onSaveInstanceState(Bundle outState) {
         Parcel outParcel = Parcel.obtain();
         outParcel.writeSparseBooleanArray(mCheckStates);
-        final int numStates = mCheckedIdStates.size();
-        outParcel.writeInt(numStates);
-        for (int i=0; i<numStates; i++) {
-            outParcel.writeLong(mCheckedIdStates.keyAt(i));
-            outParcel.writeInt(mCheckedIdStates.valueAt(i));
+        outParcel.writeInt(mCheckedIdStates.size());
+        for (int slot = mCheckedIdStates.nextSlot(0); slot != -1;
+                slot = mCheckedIdStates.nextSlot(slot + 1)) {
+            outParcel.writeLong(mCheckedIdStates.keyAtSlot(slot));
+            outParcel.writeInt(mCheckedIdStates.valueAtSlot(slot));
         }
         byte[] states = outParcel.marshall();
         outState.putByteArray(SELECTED_ITEMS_KEY, states);
@@ -0,0 +1,173 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.app;
+
+import java.util.Arrays;
+
+/**
+ * Map from long keys to int values, without boxing either.
+ *
+ * Entries live in open-addressed arrays probed linearly, kept at most half full.  Clearing
+ * keeps the arrays, so a map that is refilled to a similar size does not allocate.  Entries are
+ * visited through their slots: {@link #nextSlot(int)} returns the next occupied one.
+ */
+final class LongIntMap {
+    private static final int MIN_CAPACITY = 8;
+
+    private long[] mKeys;
+    private int[] mValues;
+    private boolean[] mUsed;
+    private int mMask;
+    private int mSize;
+
+    LongIntMap() {
+        this(MIN_CAPACITY / 2);
+    }
+
+    /**
+     * @param expectedSize number of entries the map can hold before growing
+     */
+    LongIntMap(int expectedSize) {
+        allocate(capacityFor(expectedSize));
+    }
+
+    int size() {
+        return mSize;
+    }
+
+    /**
+     * @return the value of the key, or {@code valueIfAbsent}
+     */
+    int get(long key, int valueIfAbsent) {
+        int slot = findSlot(key);
+        return mUsed[slot] ? mValues[slot] : valueIfAbsent;
+    }
+
+    boolean containsKey(long key) {
+        return mUsed[findSlot(key)];
+    }
+
+    void put(long key, int value) {
+        int slot = findSlot(key);
+        if (mUsed[slot]) {
+            mValues[slot] = value;
+            return;
+        }
+        mKeys[slot] = key;
+        mValues[slot] = value;
+        mUsed[slot] = true;
+        if (++mSize * 2 > mKeys.length) {
+            grow();
+        }
+    }
+
+    void remove(long key) {
+        int slot = findSlot(key);
+        if (!mUsed[slot]) {
+            return;
+        }
+        mUsed[slot] = false;
+        mSize--;
+        // Move back the entries that probed past the freed slot, so lookups still find them
+        int next = (slot + 1) & mMask;
+        while (mUsed[next]) {
+            int home = hash(mKeys[next]) & mMask;
+            // The entry can fill the hole if its home is not in (slot, next], cyclically
+            boolean movable = slot <= next
+                    ? (home <= slot || home > next)
+                    : (home <= slot && home > next);
+            if (movable) {
+                mKeys[slot] = mKeys[next];
+                mValues[slot] = mValues[next];
+                mUsed[slot] = true;
+                mUsed[next] = false;
+                slot = next;
+            }
+            next = (next + 1) & mMask;
+        }
+    }
+
+    void clear() {
+        if (mSize > 0) {
+            Arrays.fill(mUsed, false);
+            mSize = 0;
+        }
+    }
+
+    /**
+     * @return the first occupied slot at or after {@code slot}, or -1 if there is none
+     */
+    int nextSlot(int slot) {
+        for (int i = Math.max(slot, 0); i < mUsed.length; i++) {
+            if (mUsed[i]) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    long keyAtSlot(int slot) {
+        return mKeys[slot];
+    }
+
+    int valueAtSlot(int slot) {
+        return mValues[slot];
+    }
+
+    private int findSlot(long key) {
+        int slot = hash(key) & mMask;
+        while (mUsed[slot] && mKeys[slot] != key) {
+            slot = (slot + 1) & mMask;
+        }
+        return slot;
+    }
+
+    private void grow() {
+        long[] keys = mKeys;
+        int[] values = mValues;
+        boolean[] used = mUsed;
+        allocate(keys.length * 2);
+        for (int i = 0; i < keys.length; i++) {
+            if (used[i]) {
+                int slot = findSlot(keys[i]);
+                mKeys[slot] = keys[i];
+                mValues[slot] = values[i];
+                mUsed[slot] = true;
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        mKeys = new long[capacity];
+        mValues = new int[capacity];
+        mUsed = new boolean[capacity];
+        mMask = capacity - 1;
+    }
+
+    private static int capacityFor(int expectedSize) {
+        int capacity = MIN_CAPACITY;
+        while (capacity < expectedSize * 2) {
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+
+    private static int hash(long key) {
+        // Ids and dates are sequential or evenly spaced, spread them over the table
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+}
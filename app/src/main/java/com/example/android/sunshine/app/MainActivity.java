@@ -15,9 +15,11 @@
  */
 package com.example.android.sunshine.app;
 
+import android.content.Context;
 import android.content.Intent;
 import android.content.SharedPreferences;
 import android.net.Uri;
+import android.os.AsyncTask;
 import android.os.Bundle;
 import android.preference.PreferenceManager;
 import android.support.v4.app.ActivityCompat;
@@ -45,9 +47,11 @@ public class MainActivity extends AppCompatActivity implements ForecastFragment.
 
     private boolean mTwoPane;
     private String mLocation;
+    private boolean mDeferredStartupPosted;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
+        StartupTimer.onActivityCreated();
         super.onCreate(savedInstanceState);
         mLocation = Utility.getPreferredLocation(this);
         Uri contentUri = getIntent() != null ? getIntent().getData() : null;
@@ -88,8 +92,38 @@ public class MainActivity extends AppCompatActivity implements ForecastFragment.
             forecastFragment.setInitialSelectedDate(
                     WeatherContract.WeatherEntry.getDateFromUri(contentUri));
         }
+        // The sync account and GCM registration wait until the cached forecast is on screen,
+        // see onForecastShown
+    }
+
+    @Override
+    public void onForecastShown(int count) {
+        StartupTimer.onForecastDrawn(count);
+        if (mDeferredStartupPosted) {
+            return;
+        }
+        mDeferredStartupPosted = true;
+        // Posted, so it runs after the frame being drawn
+        getWindow().getDecorView().post(new Runnable() {
+            @Override
+            public void run() {
+                if (!isFinishing()) {
+                    onDeferredStartup();
+                }
+            }
+        });
+    }
 
-        SunshineSyncAdapter.initializeSyncAdapter(this);
+    private void onDeferredStartup() {
+        // Looking up or creating the account goes through the account manager: keep it off the
+        // main thread.  A new account also configures the periodic sync and syncs immediately.
+        final Context context = getApplicationContext();
+        AsyncTask.execute(new Runnable() {
+            @Override
+            public void run() {
+                SunshineSyncAdapter.initializeSyncAdapter(context);
+            }
+        });
 
         // If Google Play Services is up to date, we'll want to register GCM. If it is not, we'll
         // skip the registration and this device will not receive any downstream messages from
@@ -153,6 +187,17 @@ public class MainActivity extends AppCompatActivity implements ForecastFragment.
     @Override
     public void onItemSelected(Uri contentUri, ForecastAdapter.ForecastAdapterViewHolder vh) {
         if (mTwoPane) {
+            // Switching days: show the day straight from the list when the pane is up
+            DetailFragment df = (DetailFragment)getSupportFragmentManager().findFragmentByTag(DETAILFRAGMENT_TAG);
+            ForecastFragment ff = (ForecastFragment)getSupportFragmentManager().findFragmentById(R.id.fragment_forecast);
+            ForecastListSnapshot snapshot = null != ff ? ff.getSnapshot() : null;
+            int position = vh.getAdapterPosition();
+            if ( null != df && null != df.getView() && null != snapshot
+                    && position >= 0 && position < snapshot.getCount() ) {
+                df.showDay(contentUri, snapshot, position);
+                return;
+            }
+
             // In two-pane mode, show the detail view in this activity by
             // adding or replacing the detail fragment using a
             // fragment transaction.
@@ -18,6 +18,8 @@ package com.example.android.sunshine.app;
 import android.annotation.TargetApi;
 import android.content.Intent;
 import android.content.SharedPreferences;
+import android.database.Cursor;
+import android.os.AsyncTask;
 import android.os.Build;
 import android.os.Bundle;
 import android.preference.ListPreference;
@@ -31,6 +33,9 @@ import android.view.View;
 import android.widget.ImageView;
 import com.example.android.sunshine.app.data.WeatherContract;
 import com.example.android.sunshine.app.sync.SunshineSyncAdapter;
+import com.example.android.sunshine.app.sync.SunshineWearableUpdateService;
+import com.example.android.sunshine.app.widget.DetailWidgetProvider;
+import com.example.android.sunshine.app.widget.TodayWidgetIntentService;
 import com.google.android.gms.location.places.Place;
 import com.google.android.gms.location.places.ui.PlacePicker;
 import com.google.android.gms.maps.model.LatLng;
@@ -46,7 +51,23 @@ import com.google.android.gms.maps.model.LatLng;
 public class SettingsActivity extends PreferenceActivity
         implements Preference.OnPreferenceChangeListener, SharedPreferences.OnSharedPreferenceChangeListener {
     protected final static int PLACE_PICKER_REQUEST = 9090;
+
+    // A picked place this close to a stored location reuses it and its forecast.
+    private static final double PLACE_REUSE_RADIUS_KM = 2.0;
+
+    private static final String[] NEARBY_LOCATION_COLUMNS = {
+            WeatherContract.LocationEntry.COLUMN_LOCATION_SETTING,
+            WeatherContract.LocationEntry.COLUMN_COORD_LAT,
+            WeatherContract.LocationEntry.COLUMN_COORD_LONG
+    };
+    // these indices must match the projection
+    private static final int INDEX_NEARBY_LOCATION_SETTING = 0;
+    private static final int INDEX_NEARBY_COORD_LAT = 1;
+    private static final int INDEX_NEARBY_COORD_LONG = 2;
+
     private ImageView mAttribution;
+    // Set while a picked place is saved, which is not a location typed in by the user
+    private boolean mSavingPickedPlace;
 
     @Override
     public void onCreate(Bundle savedInstanceState) {
@@ -153,7 +174,7 @@ public class SettingsActivity extends PreferenceActivity
     // start our synchronization here
     @Override
     public void onSharedPreferenceChanged(SharedPreferences sharedPreferences, String key) {
-        if ( key.equals(getString(R.string.pref_location_key)) ) {
+        if ( key.equals(getString(R.string.pref_location_key)) && !mSavingPickedPlace ) {
             // we've changed the location
             // Wipe out any potential PlacePicker latlng values so that we can use this text entry.
             SharedPreferences.Editor editor = sharedPreferences.edit();
@@ -169,15 +190,29 @@ public class SettingsActivity extends PreferenceActivity
             Utility.resetLocationStatus(this);
             SunshineSyncAdapter.syncImmediately(this);
         } else if ( key.equals(getString(R.string.pref_units_key)) ) {
-            // units have changed. update lists of weather entries accordingly
-            getContentResolver().notifyChange(WeatherContract.WeatherEntry.CONTENT_URI, null);
+            // units have changed, not the weather.  The screens showing it are told by
+            // SunshineSettings and format what they loaded again; widgets and watch are told here
+            startService(new Intent(this, TodayWidgetIntentService.class));
+            DetailWidgetProvider.notifyPresentationChanged(this);
+            updateWatch();
         } else if ( key.equals(getString(R.string.pref_location_status_key)) ) {
             // our location status has changed.  Update the summary accordingly
             Preference locationPreference = findPreference(getString(R.string.pref_location_key));
             bindPreferenceSummaryToValue(locationPreference);
         } else if ( key.equals(getString(R.string.pref_art_pack_key)) ) {
-            // art pack have changed. update lists of weather entries accordingly
-            getContentResolver().notifyChange(WeatherContract.WeatherEntry.CONTENT_URI, null);
+            // art pack have changed, the screens follow it as they follow the units.  Of the
+            // widgets, only the detail widget shows the art.
+            DetailWidgetProvider.notifyPresentationChanged(this);
+        } else if ( key.equals(getString(R.string.pref_watch_blink_key)) ) {
+            updateWatch();
+        }
+    }
+
+    // The watch face reads the settings along with the weather, send both again
+    private void updateWatch() {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
+            startService(new Intent(SunshineSyncAdapter.ACTION_DATA_UPDATED)
+                    .setClass(this, SunshineWearableUpdateService.class));
         }
     }
 
@@ -203,42 +238,110 @@ public class SettingsActivity extends PreferenceActivity
                     address = String.format("(%.2f, %.2f)",latLong.latitude, latLong.longitude);
                 }
 
-                SharedPreferences sharedPreferences =
-                        PreferenceManager.getDefaultSharedPreferences(this);
-                SharedPreferences.Editor editor = sharedPreferences.edit();
-                editor.putString(getString(R.string.pref_location_key), address);
-
-                // Also store the latitude and longitude so that we can use these to get a precise
-                // result from our weather service. We cannot expect the weather service to
-                // understand addresses that Google formats.
-                editor.putFloat(getString(R.string.pref_location_latitude),
-                        (float) latLong.latitude);
-                editor.putFloat(getString(R.string.pref_location_longitude),
-                        (float) latLong.longitude);
-                editor.commit();
-
-                // Tell the SyncAdapter that we've changed the location, so that we can update
-                // our UI with new values. We need to do this manually because we are responding
-                // to the PlacePicker widget result here instead of allowing the
-                // LocationEditTextPreference to handle these changes and invoke our callbacks.
-                Preference locationPreference = findPreference(getString(R.string.pref_location_key));
-                setPreferenceSummary(locationPreference, address);
-
-                // Add attributions for our new PlacePicker location.
-                if (mAttribution != null) {
-                    mAttribution.setVisibility(View.VISIBLE);
-                } else {
-                    // For pre-Honeycomb devices, we cannot add a footer, so we will use a snackbar
-                    View rootView = findViewById(android.R.id.content);
-                    Snackbar.make(rootView, getString(R.string.attribution_text),
-                            Snackbar.LENGTH_LONG).show();
-                }
-
-                Utility.resetLocationStatus(this);
-                SunshineSyncAdapter.syncImmediately(this);
+                // Looking for a stored location next to the place reads the database, so the
+                // place is saved once that is done in the background
+                new PickedPlaceTask(address, latLong.latitude, latLong.longitude).execute();
             }
         } else {
             super.onActivityResult(requestCode, resultCode, data);
         }
     }
+
+    private void savePickedPlace(String address, double latitude, double longitude,
+                                 boolean sync) {
+        SharedPreferences sharedPreferences =
+                PreferenceManager.getDefaultSharedPreferences(this);
+        SharedPreferences.Editor editor = sharedPreferences.edit();
+        editor.putString(getString(R.string.pref_location_key), address);
+
+        // Also store the latitude and longitude so that we can use these to get a precise
+        // result from our weather service. We cannot expect the weather service to
+        // understand addresses that Google formats.
+        editor.putFloat(getString(R.string.pref_location_latitude), (float) latitude);
+        editor.putFloat(getString(R.string.pref_location_longitude), (float) longitude);
+        // Listeners are called during the commit, as we are on the main thread
+        mSavingPickedPlace = true;
+        editor.commit();
+        mSavingPickedPlace = false;
+
+        // Tell the SyncAdapter that we've changed the location, so that we can update
+        // our UI with new values. We need to do this manually because we are responding
+        // to the PlacePicker widget result here instead of allowing the
+        // LocationEditTextPreference to handle these changes and invoke our callbacks.
+        Preference locationPreference = findPreference(getString(R.string.pref_location_key));
+        setPreferenceSummary(locationPreference, address);
+
+        // Add attributions for our new PlacePicker location.
+        if (mAttribution != null) {
+            mAttribution.setVisibility(View.VISIBLE);
+        } else {
+            // For pre-Honeycomb devices, we cannot add a footer, so we will use a snackbar
+            View rootView = findViewById(android.R.id.content);
+            Snackbar.make(rootView, getString(R.string.attribution_text),
+                    Snackbar.LENGTH_LONG).show();
+        }
+
+        if (sync) {
+            Utility.resetLocationStatus(this);
+            SunshineSyncAdapter.syncImmediately(this);
+        }
+    }
+
+    /**
+     * Saves a place returned by the place picker.  A place next to one we already know is the
+     * same place as far as the weather is concerned: the stored location, and the forecast we
+     * already have for it, are used instead of adding a new one.  The periodic sync will refresh
+     * a reused location, unless it has nothing to show.
+     */
+    private class PickedPlaceTask extends AsyncTask<Void, Void, Boolean> {
+        private String mAddress;
+        private double mLatitude;
+        private double mLongitude;
+
+        PickedPlaceTask(String address, double latitude, double longitude) {
+            mAddress = address;
+            mLatitude = latitude;
+            mLongitude = longitude;
+        }
+
+        @Override
+        protected Boolean doInBackground(Void... params) {
+            boolean reused = false;
+            Cursor nearby = getContentResolver().query(
+                    WeatherContract.LocationEntry.buildNearestLocationUri(
+                            mLatitude, mLongitude, PLACE_REUSE_RADIUS_KM),
+                    NEARBY_LOCATION_COLUMNS, null, null, null);
+            if (nearby != null) {
+                if (nearby.moveToFirst()) {
+                    mAddress = nearby.getString(INDEX_NEARBY_LOCATION_SETTING);
+                    mLatitude = nearby.getDouble(INDEX_NEARBY_COORD_LAT);
+                    mLongitude = nearby.getDouble(INDEX_NEARBY_COORD_LONG);
+                    reused = true;
+                }
+                nearby.close();
+            }
+            return !reused || !hasForecastFromToday(mAddress);
+        }
+
+        @Override
+        protected void onPostExecute(Boolean sync) {
+            savePickedPlace(mAddress, mLatitude, mLongitude, sync);
+        }
+    }
+
+    private boolean hasForecastFromToday(String locationSetting) {
+        Cursor cursor = getContentResolver().query(
+                WeatherContract.WeatherEntry.buildWeatherLocationWithStartDate(
+                        locationSetting, System.currentTimeMillis()),
+                new String[]{WeatherContract.WeatherEntry.TABLE_NAME + "." + WeatherContract.WeatherEntry._ID},
+                null, null, null);
+        if (cursor == null) {
+            return false;
+        }
+        try {
+            return cursor.moveToFirst();
+        } finally {
+            cursor.close();
+        }
+    }
 }
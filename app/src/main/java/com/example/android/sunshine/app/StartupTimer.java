@@ -0,0 +1,54 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.app;
+
+import android.os.SystemClock;
+import android.util.Log;
+
+/**
+ * Measures the time from the creation of {@link MainActivity} to the first frame of the
+ * forecast list, and logs it once per activity.  The first report of the process is the cold
+ * start; later ones, after a rotation or coming back to the app, are warm starts.
+ */
+final class StartupTimer {
+    private static final String LOG_TAG = StartupTimer.class.getSimpleName();
+
+    private static boolean sColdStart = true;
+    private static long sActivityCreated;
+    private static boolean sReported = true;
+
+    private StartupTimer() {
+    }
+
+    static void onActivityCreated() {
+        sActivityCreated = SystemClock.uptimeMillis();
+        sReported = false;
+    }
+
+    /**
+     * @param rows number of forecast rows in the frame, 0 when nothing was cached yet
+     */
+    static void onForecastDrawn(int rows) {
+        if (sReported) {
+            return;
+        }
+        long elapsed = SystemClock.uptimeMillis() - sActivityCreated;
+        Log.i(LOG_TAG, (sColdStart ? "Cold" : "Warm") + " start: first forecast frame after "
+                + elapsed + " ms, " + rows + " cached rows");
+        sColdStart = false;
+        sReported = true;
+    }
+}
@@ -0,0 +1,194 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.app;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.preference.PreferenceManager;
+
+import com.example.android.sunshine.shared.WeatherConditions;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Immutable snapshot of the preferences that are read on hot paths (list rows, widget rows,
+ * notifications).  The snapshot is rebuilt only when a shared preference changes, so readers
+ * never touch {@link SharedPreferences} or resources and never take a lock.
+ *
+ * A change of the units or the art pack changes how the forecast is shown, not the forecast.
+ * It is announced to the {@link OnPresentationChangedListener}s, which format the rows they
+ * already hold again, instead of through the content provider, which would query them again.
+ */
+public final class SunshineSettings {
+
+    /**
+     * Told when a change of the settings changes how the stored forecast is shown.
+     */
+    public interface OnPresentationChangedListener {
+        /**
+         * Called on the main thread, once the new settings can be read.
+         */
+        void onPresentationChanged();
+    }
+
+    // The current snapshot.  Replaced as a whole, never mutated.
+    private static volatile SunshineSettings sCurrent;
+
+    // SharedPreferences only keeps weak references to its listeners, so we hold on to ours.
+    private static SharedPreferences.OnSharedPreferenceChangeListener sListener;
+
+    private static final List<OnPresentationChangedListener> sPresentationListeners =
+            new CopyOnWriteArrayList<OnPresentationChangedListener>();
+
+    private final String mLocationSetting;
+    private final boolean mMetric;
+    private final String mArtPackFormat;
+    private final String[] mArtUrls;
+    private final boolean mUsingLocalGraphics;
+    private final boolean mLocationLatLonAvailable;
+    private final float mLocationLatitude;
+    private final float mLocationLongitude;
+    private final boolean mWatchBlinking;
+
+    private SunshineSettings(Context context, SharedPreferences prefs) {
+        mLocationSetting = prefs.getString(context.getString(R.string.pref_location_key),
+                context.getString(R.string.pref_location_default));
+
+        String metric = context.getString(R.string.pref_units_metric);
+        mMetric = prefs.getString(context.getString(R.string.pref_units_key), metric)
+                .equals(metric);
+
+        String sunshineArtPack = context.getString(R.string.pref_art_pack_sunshine);
+        mArtPackFormat = prefs.getString(context.getString(R.string.pref_art_pack_key),
+                sunshineArtPack);
+        mUsingLocalGraphics = mArtPackFormat.equals(sunshineArtPack);
+        mArtUrls = WeatherConditions.formatArtUrls(mArtPackFormat);
+
+        String latitudeKey = context.getString(R.string.pref_location_latitude);
+        String longitudeKey = context.getString(R.string.pref_location_longitude);
+        mLocationLatLonAvailable = prefs.contains(latitudeKey) && prefs.contains(longitudeKey);
+        mLocationLatitude = prefs.getFloat(latitudeKey, Utility.DEFAULT_LATLONG);
+        mLocationLongitude = prefs.getFloat(longitudeKey, Utility.DEFAULT_LATLONG);
+
+        mWatchBlinking = prefs.getBoolean(context.getString(R.string.pref_watch_blink_key),
+                Boolean.parseBoolean(context.getString(R.string.pref_watch_blink_default)));
+    }
+
+    /**
+     * Returns the current settings snapshot, loading it on first use.
+     *
+     * @param context Context used to read the preferences the first time
+     * @return the current, immutable settings
+     */
+    public static SunshineSettings get(Context context) {
+        SunshineSettings settings = sCurrent;
+        if (settings == null) {
+            settings = load(context.getApplicationContext());
+        }
+        return settings;
+    }
+
+    private static synchronized SunshineSettings load(final Context context) {
+        if (sCurrent == null) {
+            SharedPreferences prefs = PreferenceManager.getDefaultSharedPreferences(context);
+            sListener = new SharedPreferences.OnSharedPreferenceChangeListener() {
+                @Override
+                public void onSharedPreferenceChanged(SharedPreferences sharedPreferences,
+                                                      String key) {
+                    SunshineSettings previous = sCurrent;
+                    sCurrent = new SunshineSettings(context, sharedPreferences);
+                    if (!sCurrent.isShownLike(previous)) {
+                        for (OnPresentationChangedListener listener : sPresentationListeners) {
+                            listener.onPresentationChanged();
+                        }
+                    }
+                }
+            };
+            prefs.registerOnSharedPreferenceChangeListener(sListener);
+            sCurrent = new SunshineSettings(context, prefs);
+        }
+        return sCurrent;
+    }
+
+    /**
+     * Registers a listener until it is unregistered.  It is held strongly, so views must
+     * unregister theirs when they are destroyed.
+     *
+     * @param context Context used to load the settings, so that their changes are followed
+     */
+    public static void registerPresentationListener(Context context,
+                                                    OnPresentationChangedListener listener) {
+        get(context);
+        sPresentationListeners.add(listener);
+    }
+
+    public static void unregisterPresentationListener(OnPresentationChangedListener listener) {
+        sPresentationListeners.remove(listener);
+    }
+
+    // Whether the stored forecast is shown the same way with both settings
+    private boolean isShownLike(SunshineSettings other) {
+        return other != null && mMetric == other.mMetric
+                && mArtPackFormat.equals(other.mArtPackFormat);
+    }
+
+    public String getLocationSetting() {
+        return mLocationSetting;
+    }
+
+    public boolean isMetric() {
+        return mMetric;
+    }
+
+    /**
+     * @return the art pack URL format, with a single %s placeholder for the art name
+     */
+    public String getArtPackFormat() {
+        return mArtPackFormat;
+    }
+
+    /**
+     * @param art one of the WeatherConditions.ART_* kinds, except ART_NONE
+     * @return the art pack URL for that kind, formatted when the snapshot was built
+     */
+    public String getArtUrl(int art) {
+        return mArtUrls[art];
+    }
+
+    public boolean usingLocalGraphics() {
+        return mUsingLocalGraphics;
+    }
+
+    public boolean isLocationLatLonAvailable() {
+        return mLocationLatLonAvailable;
+    }
+
+    public float getLocationLatitude() {
+        return mLocationLatitude;
+    }
+
+    public float getLocationLongitude() {
+        return mLocationLongitude;
+    }
+
+    /**
+     * @return whether the watch face blinks its colon, else it only wakes once a minute
+     */
+    public boolean isWatchBlinking() {
+        return mWatchBlinking;
+    }
+}
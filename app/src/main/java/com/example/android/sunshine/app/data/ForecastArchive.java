@@ -0,0 +1,442 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.app.data;
+
+import android.content.ContentResolver;
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.database.DatabaseUtils;
+import android.database.MatrixCursor;
+import android.text.format.Time;
+import android.util.Log;
+
+import com.example.android.sunshine.app.data.WeatherContract.WeatherEntry;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UnsupportedEncodingException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Append-only store of the days that have dropped out of the weather table, one file per
+ * location setting.
+ *
+ * A file starts with a fixed header, followed by one record per day in date order.  Each record
+ * is a run of varints: the number of days since the previous record, the condition id, the
+ * change of the low and high temperatures and of the pressure since the previous record (in
+ * tenths, zigzag encoded), the humidity, the wind speed in tenths and the wind direction.  A
+ * typical day takes about 12 bytes.
+ *
+ * The header records how many bytes of records are valid, and is only rewritten once new
+ * records have been written, so a file interrupted mid-append still reads back as it was.
+ */
+public final class ForecastArchive {
+    private static final String LOG_TAG = ForecastArchive.class.getSimpleName();
+
+    private static final String ARCHIVE_DIRECTORY = "forecast_archive";
+    private static final String FILE_EXTENSION = ".sfa";
+
+    // Header: magic, record count, data length, then the state the next record is encoded
+    // against: last julian day, low, high and pressure.
+    private static final int MAGIC = 0x53464131; // "SFA1"
+    private static final int HEADER_SIZE = 7 * 4;
+
+    // Tenths of a degree, of a hectopascal and of a wind speed unit.
+    private static final double QUANTUM = 10.0;
+
+    /** Columns served for archived days, in their default order. */
+    public static final String[] COLUMNS = {
+            WeatherEntry.COLUMN_DATE,
+            WeatherEntry.COLUMN_WEATHER_ID,
+            WeatherEntry.COLUMN_MIN_TEMP,
+            WeatherEntry.COLUMN_MAX_TEMP,
+            WeatherEntry.COLUMN_HUMIDITY,
+            WeatherEntry.COLUMN_PRESSURE,
+            WeatherEntry.COLUMN_WIND_SPEED,
+            WeatherEntry.COLUMN_DEGREES
+    };
+    private static final int COL_DATE = 0;
+    private static final int COL_WEATHER_ID = 1;
+    private static final int COL_MIN_TEMP = 2;
+    private static final int COL_MAX_TEMP = 3;
+    private static final int COL_HUMIDITY = 4;
+    private static final int COL_PRESSURE = 5;
+    private static final int COL_WIND_SPEED = 6;
+    private static final int COL_DEGREES = 7;
+
+    private static ForecastArchive sInstance;
+
+    private final File mDirectory;
+
+    public static synchronized ForecastArchive getInstance(Context context) {
+        if (sInstance == null) {
+            sInstance = new ForecastArchive(
+                    new File(context.getApplicationContext().getFilesDir(), ARCHIVE_DIRECTORY));
+        }
+        return sInstance;
+    }
+
+    ForecastArchive(File directory) {
+        mDirectory = directory;
+    }
+
+    /**
+     * Moves every weather row dated up to {@code cutoffDate} into the archive of its location.
+     * Rows are only added after the last archived day of a location, so running this again
+     * after a failure is harmless.  The rows are not deleted from the weather table, and must
+     * not be when this throws: they would be lost, instead of archived by the next attempt.
+     *
+     * @return the number of days added to the archive
+     * @throws IOException if the expired days could not all be read or archived
+     */
+    public int archiveExpired(ContentResolver resolver, long cutoffDate) throws IOException {
+        HashMap<Long, String> settings = new HashMap<Long, String>();
+        Cursor locations = resolver.query(WeatherContract.LocationEntry.CONTENT_URI,
+                new String[]{WeatherContract.LocationEntry._ID,
+                        WeatherContract.LocationEntry.COLUMN_LOCATION_SETTING},
+                null, null, null);
+        if (locations == null) {
+            throw new IOException("Cannot read the locations");
+        }
+        try {
+            while (locations.moveToNext()) {
+                settings.put(locations.getLong(0), locations.getString(1));
+            }
+        } finally {
+            locations.close();
+        }
+
+        String[] projection = new String[COLUMNS.length + 1];
+        System.arraycopy(COLUMNS, 0, projection, 0, COLUMNS.length);
+        projection[COLUMNS.length] = WeatherEntry.COLUMN_LOC_KEY;
+        Cursor expired = resolver.query(WeatherEntry.CONTENT_URI, projection,
+                WeatherEntry.COLUMN_DATE + " <= ?", new String[]{Long.toString(cutoffDate)},
+                WeatherEntry.COLUMN_LOC_KEY + " ASC, " + WeatherEntry.COLUMN_DATE + " ASC");
+        if (expired == null) {
+            throw new IOException("Cannot read the expired days");
+        }
+        int archived = 0;
+        try {
+            long currentLocation = -1;
+            List<ContentValues> days = new ArrayList<ContentValues>();
+            while (expired.moveToNext()) {
+                long locationId = expired.getLong(COLUMNS.length);
+                if (locationId != currentLocation) {
+                    archived += append(settings.get(currentLocation), days);
+                    days.clear();
+                    currentLocation = locationId;
+                }
+                ContentValues day = new ContentValues();
+                DatabaseUtils.cursorRowToContentValues(expired, day);
+                days.add(day);
+            }
+            archived += append(settings.get(currentLocation), days);
+        } finally {
+            expired.close();
+            // Locations archived before a failure stay archived
+            if (archived > 0) {
+                resolver.notifyChange(WeatherContract.ArchiveEntry.CONTENT_URI, null);
+            }
+        }
+        return archived;
+    }
+
+    /**
+     * Appends days to the archive of a location.  Days not after the last archived day are
+     * skipped.
+     *
+     * @param days weather values, in date order
+     * @return the number of days appended
+     */
+    synchronized int append(String locationSetting, List<ContentValues> days)
+            throws IOException {
+        if (locationSetting == null || days.isEmpty()) {
+            return 0;
+        }
+        if (!mDirectory.isDirectory() && !mDirectory.mkdirs()) {
+            throw new IOException("Cannot create " + mDirectory);
+        }
+        RandomAccessFile file = new RandomAccessFile(getFile(locationSetting), "rw");
+        try {
+            Header header = readHeader(file);
+            ByteArrayOutputStream records = new ByteArrayOutputStream(days.size() * 12);
+            int appended = 0;
+            for (ContentValues day : days) {
+                int julianDay = toJulianDay(day.getAsLong(WeatherEntry.COLUMN_DATE));
+                if (header.count > 0 && julianDay <= header.lastDay) {
+                    continue;
+                }
+                int low = quantize(day.getAsDouble(WeatherEntry.COLUMN_MIN_TEMP));
+                int high = quantize(day.getAsDouble(WeatherEntry.COLUMN_MAX_TEMP));
+                int pressure = quantize(day.getAsDouble(WeatherEntry.COLUMN_PRESSURE));
+                writeVarint(records, julianDay - header.lastDay);
+                writeVarint(records, day.getAsInteger(WeatherEntry.COLUMN_WEATHER_ID));
+                writeVarint(records, zigzag(low - header.lastLow));
+                writeVarint(records, zigzag(high - header.lastHigh));
+                writeVarint(records, (int) Math.round(day.getAsDouble(WeatherEntry.COLUMN_HUMIDITY)));
+                writeVarint(records, zigzag(pressure - header.lastPressure));
+                writeVarint(records, quantize(day.getAsDouble(WeatherEntry.COLUMN_WIND_SPEED)));
+                writeVarint(records, normalizeDegrees(day.getAsDouble(WeatherEntry.COLUMN_DEGREES)));
+                header.count++;
+                header.lastDay = julianDay;
+                header.lastLow = low;
+                header.lastHigh = high;
+                header.lastPressure = pressure;
+                appended++;
+            }
+            if (appended > 0) {
+                // Records first, then the header that makes them visible
+                file.seek(HEADER_SIZE + header.dataLength);
+                file.write(records.toByteArray());
+                header.dataLength += records.size();
+                file.setLength(HEADER_SIZE + header.dataLength);
+                writeHeader(file, header);
+            }
+            return appended;
+        } finally {
+            file.close();
+        }
+    }
+
+    /**
+     * @param projection columns of {@link #COLUMNS} to return, or null for all of them
+     * @param startDate first date to return, inclusive
+     * @param endDate last date to return, inclusive
+     * @return the archived days of the location in the range, in date order
+     */
+    public synchronized Cursor query(String locationSetting, String[] projection,
+                                     long startDate, long endDate) {
+        if (projection == null) {
+            projection = COLUMNS;
+        }
+        int[] columns = new int[projection.length];
+        for (int i = 0; i < projection.length; i++) {
+            columns[i] = indexOfColumn(projection[i]);
+        }
+        MatrixCursor cursor = new MatrixCursor(projection);
+
+        byte[] data;
+        try {
+            data = readData(locationSetting);
+        } catch (IOException e) {
+            Log.e(LOG_TAG, "Error reading the archive of " + locationSetting, e);
+            return cursor;
+        }
+        if (data == null) {
+            return cursor;
+        }
+        int startDay = startDate == Long.MIN_VALUE ? Integer.MIN_VALUE : toJulianDay(startDate);
+        int endDay = endDate == Long.MAX_VALUE ? Integer.MAX_VALUE : toJulianDay(endDate);
+
+        Object[] row = new Object[projection.length];
+        int[] position = {0};
+        int day = 0, low = 0, high = 0, pressure = 0;
+        while (position[0] < data.length) {
+            day += readVarint(data, position);
+            int weatherId = readVarint(data, position);
+            low += unzigzag(readVarint(data, position));
+            high += unzigzag(readVarint(data, position));
+            int humidity = readVarint(data, position);
+            pressure += unzigzag(readVarint(data, position));
+            int wind = readVarint(data, position);
+            int degrees = readVarint(data, position);
+            if (day < startDay) {
+                continue;
+            }
+            if (day > endDay) {
+                break;
+            }
+            for (int i = 0; i < columns.length; i++) {
+                switch (columns[i]) {
+                    case COL_DATE:
+                        row[i] = fromJulianDay(day);
+                        break;
+                    case COL_WEATHER_ID:
+                        row[i] = weatherId;
+                        break;
+                    case COL_MIN_TEMP:
+                        row[i] = low / QUANTUM;
+                        break;
+                    case COL_MAX_TEMP:
+                        row[i] = high / QUANTUM;
+                        break;
+                    case COL_HUMIDITY:
+                        row[i] = (double) humidity;
+                        break;
+                    case COL_PRESSURE:
+                        row[i] = pressure / QUANTUM;
+                        break;
+                    case COL_WIND_SPEED:
+                        row[i] = wind / QUANTUM;
+                        break;
+                    case COL_DEGREES:
+                        row[i] = (double) degrees;
+                        break;
+                }
+            }
+            cursor.addRow(row);
+        }
+        return cursor;
+    }
+
+    /**
+     * @return the size of the archive of a location, in bytes
+     */
+    public synchronized long getSizeInBytes(String locationSetting) {
+        return getFile(locationSetting).length();
+    }
+
+    public synchronized void delete(String locationSetting) {
+        //noinspection ResultOfMethodCallIgnored
+        getFile(locationSetting).delete();
+    }
+
+    private byte[] readData(String locationSetting) throws IOException {
+        File archive = getFile(locationSetting);
+        if (!archive.isFile()) {
+            return null;
+        }
+        RandomAccessFile file = new RandomAccessFile(archive, "r");
+        try {
+            Header header = readHeader(file);
+            byte[] data = new byte[header.dataLength];
+            file.seek(HEADER_SIZE);
+            file.readFully(data);
+            return data;
+        } finally {
+            file.close();
+        }
+    }
+
+    private File getFile(String locationSetting) {
+        // Settings are free-form addresses, name the files after a digest of them
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-1");
+            byte[] hash = digest.digest(locationSetting.getBytes("UTF-8"));
+            StringBuilder name = new StringBuilder(hash.length * 2 + FILE_EXTENSION.length());
+            for (byte b : hash) {
+                name.append(Character.forDigit((b >> 4) & 0xf, 16))
+                        .append(Character.forDigit(b & 0xf, 16));
+            }
+            return new File(mDirectory, name.append(FILE_EXTENSION).toString());
+        } catch (NoSuchAlgorithmException | UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static int indexOfColumn(String column) {
+        for (int i = 0; i < COLUMNS.length; i++) {
+            if (COLUMNS[i].equals(column)) {
+                return i;
+            }
+        }
+        throw new IllegalArgumentException("Unknown archive column: " + column);
+    }
+
+    static int toJulianDay(long date) {
+        Time time = new Time();
+        time.set(date);
+        return Time.getJulianDay(date, time.gmtoff);
+    }
+
+    static long fromJulianDay(int julianDay) {
+        // the same value WeatherContract.normalizeDate gives any time of that day
+        return new Time().setJulianDay(julianDay);
+    }
+
+    private static int quantize(double value) {
+        return (int) Math.round(value * QUANTUM);
+    }
+
+    private static int normalizeDegrees(double degrees) {
+        int normalized = (int) Math.round(degrees) % 360;
+        return normalized < 0 ? normalized + 360 : normalized;
+    }
+
+    private static int zigzag(int value) {
+        return (value << 1) ^ (value >> 31);
+    }
+
+    private static int unzigzag(int value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static void writeVarint(ByteArrayOutputStream out, int value) {
+        while ((value & ~0x7f) != 0) {
+            out.write((value & 0x7f) | 0x80);
+            value >>>= 7;
+        }
+        out.write(value);
+    }
+
+    private static int readVarint(byte[] data, int[] position) {
+        int value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = data[position[0]++];
+            value |= (b & 0x7f) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return value;
+    }
+
+    private static Header readHeader(RandomAccessFile file) throws IOException {
+        Header header = new Header();
+        if (file.length() < HEADER_SIZE) {
+            // A new archive
+            return header;
+        }
+        file.seek(0);
+        if (file.readInt() != MAGIC) {
+            throw new IOException("Not a forecast archive");
+        }
+        header.count = file.readInt();
+        header.dataLength = file.readInt();
+        header.lastDay = file.readInt();
+        header.lastLow = file.readInt();
+        header.lastHigh = file.readInt();
+        header.lastPressure = file.readInt();
+        return header;
+    }
+
+    private static void writeHeader(RandomAccessFile file, Header header) throws IOException {
+        file.seek(0);
+        file.writeInt(MAGIC);
+        file.writeInt(header.count);
+        file.writeInt(header.dataLength);
+        file.writeInt(header.lastDay);
+        file.writeInt(header.lastLow);
+        file.writeInt(header.lastHigh);
+        file.writeInt(header.lastPressure);
+    }
+
+    private static class Header {
+        int count;
+        int dataLength;
+        int lastDay;
+        int lastLow;
+        int lastHigh;
+        int lastPressure;
+    }
+}
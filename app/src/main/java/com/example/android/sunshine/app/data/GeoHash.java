@@ -0,0 +1,164 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.app.data;
+
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Geohash encoding of coordinates, used to index the location table by proximity.
+ *
+ * A geohash names a cell of the map; every extra character splits the cell in 32, and cells
+ * sharing a prefix are inside the same larger cell, so a prefix range of an ordinary index
+ * finds every location in a cell.
+ */
+public final class GeoHash {
+
+    private static final char[] BASE32 = "0123456789bcdefghjkmnpqrstuvwxyz".toCharArray();
+
+    // Precision stored in the location table, cells of about 5 by 5 meters.
+    public static final int STORED_PRECISION = 9;
+
+    // Greater than every character of the alphabet, closes a prefix range.
+    private static final char PREFIX_RANGE_END = '{';
+
+    private static final double EARTH_RADIUS_KM = 6371.0;
+    private static final double KM_PER_DEGREE = Math.PI * EARTH_RADIUS_KM / 180.0;
+
+    private GeoHash() {
+    }
+
+    /**
+     * @param precision number of characters of the hash
+     * @return the geohash of the cell containing the coordinates
+     */
+    public static String encode(double latitude, double longitude, int precision) {
+        double minLat = -90, maxLat = 90;
+        double minLon = -180, maxLon = 180;
+        char[] hash = new char[precision];
+        boolean evenBit = true;
+        int bit = 0;
+        int index = 0;
+        for (int i = 0; i < precision; ) {
+            if (evenBit) {
+                double mid = (minLon + maxLon) / 2;
+                if (longitude >= mid) {
+                    index = (index << 1) | 1;
+                    minLon = mid;
+                } else {
+                    index <<= 1;
+                    maxLon = mid;
+                }
+            } else {
+                double mid = (minLat + maxLat) / 2;
+                if (latitude >= mid) {
+                    index = (index << 1) | 1;
+                    minLat = mid;
+                } else {
+                    index <<= 1;
+                    maxLat = mid;
+                }
+            }
+            evenBit = !evenBit;
+            if (++bit == 5) {
+                hash[i++] = BASE32[index];
+                bit = 0;
+                index = 0;
+            }
+        }
+        return new String(hash);
+    }
+
+    /**
+     * @return the height, in degrees of latitude, of a cell at this precision
+     */
+    static double getCellHeight(int precision) {
+        int latitudeBits = (5 * precision) / 2;
+        return 180.0 / (1L << latitudeBits);
+    }
+
+    /**
+     * @return the width, in degrees of longitude, of a cell at this precision
+     */
+    static double getCellWidth(int precision) {
+        int longitudeBits = (5 * precision + 1) / 2;
+        return 360.0 / (1L << longitudeBits);
+    }
+
+    /**
+     * Picks the longest hash whose cells are at least {@code radiusKm} wide and high around the
+     * coordinates, so that a circle of that radius is always covered by the cell containing its
+     * center and the eight cells around it.
+     *
+     * @return the precision, or 0 if even the largest cells are too small (near the poles)
+     */
+    public static int getSearchPrecision(double latitude, double radiusKm) {
+        // Cells are narrowest on the side of the circle closest to the pole.
+        double farthestLatitude = Math.min(Math.abs(latitude) + radiusKm / KM_PER_DEGREE, 90);
+        double cosLatitude = Math.cos(Math.toRadians(farthestLatitude));
+        for (int precision = STORED_PRECISION; precision > 0; precision--) {
+            double heightKm = getCellHeight(precision) * KM_PER_DEGREE;
+            double widthKm = getCellWidth(precision) * KM_PER_DEGREE * cosLatitude;
+            if (heightKm >= radiusKm && widthKm >= radiusKm) {
+                return precision;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * @return the hashes of the cell containing the coordinates and of the cells around it
+     */
+    public static Set<String> getCellAndNeighbors(double latitude, double longitude,
+                                                  int precision) {
+        double height = getCellHeight(precision);
+        double width = getCellWidth(precision);
+        Set<String> cells = new LinkedHashSet<String>(9);
+        for (int i = -1; i <= 1; i++) {
+            double neighborLatitude = Math.max(-90, Math.min(90, latitude + i * height));
+            for (int j = -1; j <= 1; j++) {
+                double neighborLongitude = longitude + j * width;
+                if (neighborLongitude >= 180) {
+                    neighborLongitude -= 360;
+                } else if (neighborLongitude < -180) {
+                    neighborLongitude += 360;
+                }
+                cells.add(encode(neighborLatitude, neighborLongitude, precision));
+            }
+        }
+        return cells;
+    }
+
+    /**
+     * @return the smallest string greater than every hash starting with {@code prefix}
+     */
+    public static String getPrefixRangeEnd(String prefix) {
+        return prefix + PREFIX_RANGE_END;
+    }
+
+    /**
+     * @return the great-circle distance between two points, in kilometers
+     */
+    public static double distanceKm(double latitude1, double longitude1,
+                                    double latitude2, double longitude2) {
+        double dLat = Math.toRadians(latitude2 - latitude1);
+        double dLon = Math.toRadians(longitude2 - longitude1);
+        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2)
+                + Math.cos(Math.toRadians(latitude1)) * Math.cos(Math.toRadians(latitude2))
+                * Math.sin(dLon / 2) * Math.sin(dLon / 2);
+        return 2 * EARTH_RADIUS_KM * Math.asin(Math.min(1, Math.sqrt(a)));
+    }
+}
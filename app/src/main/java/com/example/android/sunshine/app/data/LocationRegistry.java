@@ -0,0 +1,123 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.app.data;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+
+import java.util.HashMap;
+
+/**
+ * In-process map from location settings to location row ids.
+ *
+ * The registry reads the location table once, the first time it is needed, and is then kept up
+ * to date by {@link WeatherProvider}: inserted locations are added, and anything else that
+ * changes the table (deletes, updates, a new database) drops the registry so that it is read
+ * again on next use.  Rows inserted around the provider are simply not found, and callers fall
+ * back to querying the provider.
+ *
+ * The table is read without holding any lock, and the map is only ever replaced, never changed,
+ * so lookups never wait on a query made by another thread.
+ */
+public final class LocationRegistry {
+
+    private static final String[] LOCATION_COLUMNS = {
+            WeatherContract.LocationEntry._ID,
+            WeatherContract.LocationEntry.COLUMN_LOCATION_SETTING
+    };
+    // these indices must match the projection
+    private static final int INDEX_ID = 0;
+    private static final int INDEX_LOCATION_SETTING = 1;
+
+    // Null until the location table has been read.  Replaced as a whole, under the class lock.
+    private static volatile HashMap<String, Long> sIdsBySetting;
+    // Changed along with the map, so that a table read while the map changed is not published
+    private static int sGeneration;
+
+    private LocationRegistry() {
+    }
+
+    /**
+     * @param locationSetting the location setting of the row
+     * @return the id of its location row, or -1 if there is none
+     */
+    public static long getLocationId(Context context, String locationSetting) {
+        HashMap<String, Long> idsBySetting = sIdsBySetting;
+        if (idsBySetting == null) {
+            idsBySetting = load(context);
+        }
+        Long id = idsBySetting.get(locationSetting);
+        return id == null ? -1 : id;
+    }
+
+    /**
+     * Called by the provider once a location row was inserted.
+     */
+    static synchronized void onLocationInserted(long id, ContentValues values) {
+        sGeneration++;
+        if (sIdsBySetting == null) {
+            // Not loaded yet, the row will be read along with the others.
+            return;
+        }
+        String locationSetting =
+                values.getAsString(WeatherContract.LocationEntry.COLUMN_LOCATION_SETTING);
+        if (locationSetting == null) {
+            // Let the table tell us what was stored.
+            sIdsBySetting = null;
+            return;
+        }
+        HashMap<String, Long> idsBySetting = new HashMap<String, Long>(sIdsBySetting);
+        idsBySetting.put(locationSetting, id);
+        sIdsBySetting = idsBySetting;
+    }
+
+    /**
+     * Called by the provider when location rows were changed or removed.
+     */
+    static synchronized void invalidate() {
+        sGeneration++;
+        sIdsBySetting = null;
+    }
+
+    private static HashMap<String, Long> load(Context context) {
+        int generation;
+        synchronized (LocationRegistry.class) {
+            generation = sGeneration;
+        }
+        HashMap<String, Long> idsBySetting = new HashMap<String, Long>();
+        Cursor cursor = context.getContentResolver().query(
+                WeatherContract.LocationEntry.CONTENT_URI, LOCATION_COLUMNS, null, null, null);
+        if (cursor == null) {
+            return idsBySetting;
+        }
+        try {
+            while (cursor.moveToNext()) {
+                idsBySetting.put(cursor.getString(INDEX_LOCATION_SETTING),
+                        cursor.getLong(INDEX_ID));
+            }
+        } finally {
+            cursor.close();
+        }
+        synchronized (LocationRegistry.class) {
+            // A location written while we read may be missing, read again next time instead
+            if (generation == sGeneration && sIdsBySetting == null) {
+                sIdsBySetting = idsBySetting;
+            }
+        }
+        return idsBySetting;
+    }
+}
@@ -21,6 +21,9 @@ import android.net.Uri;
 import android.provider.BaseColumns;
 import android.text.format.Time;
 
+import com.example.android.sunshine.shared.LocationStorage;
+import com.example.android.sunshine.shared.WeatherStorage;
+
 /**
  * Defines table and column names for the weather database.
  */
@@ -43,6 +46,9 @@ public class WeatherContract {
     // At least, let's hope not.  Don't be that dev, reader.  Don't be that dev.
     public static final String PATH_WEATHER = "weather";
     public static final String PATH_LOCATION = "location";
+    public static final String PATH_NEAR = "near";
+    public static final String PATH_ARCHIVE = "archive";
+    public static final String PATH_HOURLY = "hourly";
 
     // To make it easy to query for the exact date, we normalize all dates that go into
     // the database to the start of the the Julian day at UTC.
@@ -66,24 +72,47 @@ public class WeatherContract {
                 ContentResolver.CURSOR_ITEM_BASE_TYPE + "/" + CONTENT_AUTHORITY + "/" + PATH_LOCATION;
 
         // Table name
-        public static final String TABLE_NAME = "location";
+        public static final String TABLE_NAME = LocationStorage.TABLE_NAME;
 
         // The location setting string is what will be sent to openweathermap
         // as the location query.
-        public static final String COLUMN_LOCATION_SETTING = "location_setting";
+        public static final String COLUMN_LOCATION_SETTING =
+                LocationStorage.COLUMN_LOCATION_SETTING;
 
         // Human readable location string, provided by the API.  Because for styling,
         // "Mountain View" is more recognizable than 94043.
-        public static final String COLUMN_CITY_NAME = "city_name";
+        public static final String COLUMN_CITY_NAME = LocationStorage.COLUMN_CITY_NAME;
 
         // In order to uniquely pinpoint the location on the map when we launch the
         // map intent, we store the latitude and longitude as returned by openweathermap.
-        public static final String COLUMN_COORD_LAT = "coord_lat";
-        public static final String COLUMN_COORD_LONG = "coord_long";
+        public static final String COLUMN_COORD_LAT = LocationStorage.COLUMN_COORD_LAT;
+        public static final String COLUMN_COORD_LONG = LocationStorage.COLUMN_COORD_LONG;
+
+        // Geohash of the coordinates, filled in by the provider, so that locations can be
+        // looked up by proximity through an index.
+        public static final String COLUMN_GEOHASH = LocationStorage.COLUMN_GEOHASH;
+
+        // Query parameters of the nearest location URI.
+        public static final String PARAM_LATITUDE = "lat";
+        public static final String PARAM_LONGITUDE = "lon";
+        public static final String PARAM_RADIUS_KM = "radius_km";
 
         public static Uri buildLocationUri(long id) {
             return ContentUris.withAppendedId(CONTENT_URI, id);
         }
+
+        /**
+         * @return the URI of the stored location nearest to the coordinates, if it is within
+         * {@code radiusKm} of them.  Querying it returns one row at most.
+         */
+        public static Uri buildNearestLocationUri(double latitude, double longitude,
+                                                  double radiusKm) {
+            return CONTENT_URI.buildUpon().appendPath(PATH_NEAR)
+                    .appendQueryParameter(PARAM_LATITUDE, Double.toString(latitude))
+                    .appendQueryParameter(PARAM_LONGITUDE, Double.toString(longitude))
+                    .appendQueryParameter(PARAM_RADIUS_KM, Double.toString(radiusKm))
+                    .build();
+        }
     }
 
     /* Inner class that defines the table contents of the weather table */
@@ -97,34 +126,37 @@ public class WeatherContract {
         public static final String CONTENT_ITEM_TYPE =
                 ContentResolver.CURSOR_ITEM_BASE_TYPE + "/" + CONTENT_AUTHORITY + "/" + PATH_WEATHER;
 
-        public static final String TABLE_NAME = "weather";
+        public static final String TABLE_NAME = WeatherStorage.TABLE_NAME;
 
         // Column with the foreign key into the location table.
-        public static final String COLUMN_LOC_KEY = "location_id";
+        public static final String COLUMN_LOC_KEY = WeatherStorage.COLUMN_LOC_KEY;
         // Date, stored as long in milliseconds since the epoch
-        public static final String COLUMN_DATE = "date";
+        public static final String COLUMN_DATE = WeatherStorage.COLUMN_DATE;
         // Weather id as returned by API, to identify the icon to be used
-        public static final String COLUMN_WEATHER_ID = "weather_id";
+        public static final String COLUMN_WEATHER_ID = WeatherStorage.COLUMN_WEATHER_ID;
 
-        // Short description and long description of the weather, as provided by API.
-        // e.g "clear" vs "sky is clear".
-        public static final String COLUMN_SHORT_DESC = "short_desc";
+        // Short description of the weather, e.g. "Clear".  Not stored: it reads as the main
+        // name of the condition id, or an empty string for an id without one.
+        public static final String COLUMN_SHORT_DESC = WeatherStorage.COLUMN_SHORT_DESC;
 
-        // Min and max temperatures for the day (stored as floats)
-        public static final String COLUMN_MIN_TEMP = "min";
-        public static final String COLUMN_MAX_TEMP = "max";
+        // The measurements below are stored as INTEGER hundredths of their unit, and read back
+        // as REALs in their unit, rounded to a hundredth.
 
-        // Humidity is stored as a float representing percentage
-        public static final String COLUMN_HUMIDITY = "humidity";
+        // Min and max temperatures for the day, in degrees Celsius
+        public static final String COLUMN_MIN_TEMP = WeatherStorage.COLUMN_MIN_TEMP;
+        public static final String COLUMN_MAX_TEMP = WeatherStorage.COLUMN_MAX_TEMP;
 
-        // Humidity is stored as a float representing percentage
-        public static final String COLUMN_PRESSURE = "pressure";
+        // Humidity, as a percentage
+        public static final String COLUMN_HUMIDITY = WeatherStorage.COLUMN_HUMIDITY;
 
-        // Windspeed is stored as a float representing windspeed  mph
-        public static final String COLUMN_WIND_SPEED = "wind";
+        // Atmospheric pressure, in hPa
+        public static final String COLUMN_PRESSURE = WeatherStorage.COLUMN_PRESSURE;
 
-        // Degrees are meteorological degrees (e.g, 0 is north, 180 is south).  Stored as floats.
-        public static final String COLUMN_DEGREES = "degrees";
+        // Wind speed, in km/h
+        public static final String COLUMN_WIND_SPEED = WeatherStorage.COLUMN_WIND_SPEED;
+
+        // Degrees are meteorological degrees (e.g, 0 is north, 180 is south).
+        public static final String COLUMN_DEGREES = WeatherStorage.COLUMN_DEGREES;
 
         public static Uri buildWeatherUri(long id) {
             return ContentUris.withAppendedId(CONTENT_URI, id);
@@ -165,4 +197,128 @@ public class WeatherContract {
                 return 0;
         }
     }
+
+    /* Inner class that defines the table contents of the hourly table */
+    public static final class HourlyEntry implements BaseColumns {
+
+        public static final Uri CONTENT_URI =
+                BASE_CONTENT_URI.buildUpon().appendPath(PATH_HOURLY).build();
+
+        public static final String CONTENT_TYPE =
+                ContentResolver.CURSOR_DIR_BASE_TYPE + "/" + CONTENT_AUTHORITY + "/" + PATH_HOURLY;
+        public static final String CONTENT_ITEM_TYPE =
+                ContentResolver.CURSOR_ITEM_BASE_TYPE + "/" + CONTENT_AUTHORITY + "/" + PATH_HOURLY;
+
+        public static final String TABLE_NAME = "hourly";
+
+        // Column with the foreign key into the location table.
+        public static final String COLUMN_LOC_KEY = "location_id";
+        // Start of the three hour slot, stored as long in milliseconds since the epoch
+        public static final String COLUMN_TIME = "time";
+        // Weather id as returned by API, to identify the icon to be used
+        public static final String COLUMN_WEATHER_ID = "weather_id";
+        // Short description of the weather, stored as the weather table reads it: the main
+        // name of the condition id, or an empty string for an id without one.
+        public static final String COLUMN_SHORT_DESC = "short_desc";
+
+        // Temperature, humidity, pressure, wind speed and direction for the slot, in the units
+        // of the weather table.  Unlike the weather table, they are stored as REALs as received.
+        public static final String COLUMN_TEMP = "temp";
+        public static final String COLUMN_HUMIDITY = "humidity";
+        public static final String COLUMN_PRESSURE = "pressure";
+        public static final String COLUMN_WIND_SPEED = "wind";
+        public static final String COLUMN_DEGREES = "degrees";
+
+        // Query parameters bounding the slots returned: from the start time, inclusive, to the
+        // end time, exclusive.  Both are optional.
+        public static final String PARAM_START_TIME = "start_time";
+        public static final String PARAM_END_TIME = "end_time";
+
+        public static Uri buildHourlyUri(long id) {
+            return ContentUris.withAppendedId(CONTENT_URI, id);
+        }
+
+        public static Uri buildHourlyLocation(String locationSetting) {
+            return CONTENT_URI.buildUpon().appendPath(locationSetting).build();
+        }
+
+        public static Uri buildHourlyLocationWithWindow(
+                String locationSetting, long startTime, long endTime) {
+            return CONTENT_URI.buildUpon().appendPath(locationSetting)
+                    .appendQueryParameter(PARAM_START_TIME, Long.toString(startTime))
+                    .appendQueryParameter(PARAM_END_TIME, Long.toString(endTime))
+                    .build();
+        }
+
+        public static String getLocationSettingFromUri(Uri uri) {
+            return uri.getPathSegments().get(1);
+        }
+
+        public static long getStartTimeFromUri(Uri uri) {
+            String timeString = uri.getQueryParameter(PARAM_START_TIME);
+            if (null != timeString && timeString.length() > 0)
+                return Long.parseLong(timeString);
+            else
+                return 0;
+        }
+
+        public static long getEndTimeFromUri(Uri uri) {
+            String timeString = uri.getQueryParameter(PARAM_END_TIME);
+            if (null != timeString && timeString.length() > 0)
+                return Long.parseLong(timeString);
+            else
+                return Long.MAX_VALUE;
+        }
+    }
+
+    /*
+        Days that have dropped out of the weather table, kept per location by ForecastArchive.
+        Rows have the weather table's date, condition and measurement columns, except for the
+        descriptions; values are rounded to a tenth (temperatures, pressure and wind) or to a
+        unit (humidity and degrees).
+     */
+    public static final class ArchiveEntry {
+
+        public static final Uri CONTENT_URI =
+                BASE_CONTENT_URI.buildUpon().appendPath(PATH_ARCHIVE).build();
+
+        public static final String CONTENT_TYPE =
+                ContentResolver.CURSOR_DIR_BASE_TYPE + "/" + CONTENT_AUTHORITY + "/" + PATH_ARCHIVE;
+
+        // Query parameters bounding the archived dates, both inclusive and optional.
+        public static final String PARAM_START_DATE = "start_date";
+        public static final String PARAM_END_DATE = "end_date";
+
+        public static Uri buildArchiveLocation(String locationSetting) {
+            return CONTENT_URI.buildUpon().appendPath(locationSetting).build();
+        }
+
+        public static Uri buildArchiveLocationWithRange(
+                String locationSetting, long startDate, long endDate) {
+            return CONTENT_URI.buildUpon().appendPath(locationSetting)
+                    .appendQueryParameter(PARAM_START_DATE, Long.toString(normalizeDate(startDate)))
+                    .appendQueryParameter(PARAM_END_DATE, Long.toString(normalizeDate(endDate)))
+                    .build();
+        }
+
+        public static String getLocationSettingFromUri(Uri uri) {
+            return uri.getPathSegments().get(1);
+        }
+
+        public static long getStartDateFromUri(Uri uri) {
+            String dateString = uri.getQueryParameter(PARAM_START_DATE);
+            if (null != dateString && dateString.length() > 0)
+                return Long.parseLong(dateString);
+            else
+                return Long.MIN_VALUE;
+        }
+
+        public static long getEndDateFromUri(Uri uri) {
+            String dateString = uri.getQueryParameter(PARAM_END_DATE);
+            if (null != dateString && dateString.length() > 0)
+                return Long.parseLong(dateString);
+            else
+                return Long.MAX_VALUE;
+        }
+    }
 }
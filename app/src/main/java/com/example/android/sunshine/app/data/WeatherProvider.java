@@ -17,27 +17,107 @@ package com.example.android.sunshine.app.data;
 
 import android.annotation.TargetApi;
 import android.content.ContentProvider;
+import android.content.ContentProviderOperation;
+import android.content.ContentProviderResult;
 import android.content.ContentValues;
+import android.content.OperationApplicationException;
 import android.content.UriMatcher;
 import android.database.Cursor;
+import android.database.MatrixCursor;
 import android.database.sqlite.SQLiteDatabase;
 import android.database.sqlite.SQLiteQueryBuilder;
 import android.net.Uri;
 
+import com.example.android.sunshine.shared.Metrics;
+import com.example.android.sunshine.shared.WeatherStorage;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
 public class WeatherProvider extends ContentProvider {
 
     // The URI Matcher used by this content provider.
     private static final UriMatcher sUriMatcher = buildUriMatcher();
     private WeatherDbHelper mOpenHelper;
 
+    private static final Metrics.Timer QUERY_TIMER = Metrics.timer("provider.query");
+    private static final Metrics.Timer BULK_INSERT_TIMER = Metrics.timer("provider.bulkInsert");
+    private static final Metrics.Counter BULK_INSERT_ROWS = Metrics.counter("provider.bulkInsert.rows");
+
     static final int WEATHER = 100;
     static final int WEATHER_WITH_LOCATION = 101;
     static final int WEATHER_WITH_LOCATION_AND_DATE = 102;
     static final int LOCATION = 300;
+    static final int LOCATION_NEAR = 301;
+    static final int ARCHIVE_WITH_LOCATION = 400;
+    static final int HOURLY = 500;
+    static final int HOURLY_WITH_LOCATION = 501;
+
+    // Bumped once every write is committed, before its change is notified.
+    private static final AtomicLong sDataVersion = new AtomicLong();
+
+    // URIs changed by the batch being applied on this thread, notified once it is committed.
+    private static final ThreadLocal<Set<Uri>> sBatchChanges = new ThreadLocal<Set<Uri>>();
+    // Weather rows inserted by that batch, compiled on its first weather row.
+    private static final ThreadLocal<WeatherRowInserter> sBatchWeatherInserter =
+            new ThreadLocal<WeatherRowInserter>();
 
+    /*
+        The weather table stores its measurements as INTEGER hundredths of their unit, and does
+        not store the description at all, since it follows from the condition id.  The
+        projection maps decode both, so that every WeatherEntry column reads as it did when it
+        was stored as is, by its bare name or qualified with its table name.  Selections and
+        sort orders on the weather table are rewritten the same way, see
+        WeatherStorage.buildDecodedClause.
+     */
+    private static final String[] SCALED_COLUMNS = WeatherStorage.getScaledColumns();
+
+    // Columns served for a null projection
+    private static final String[] WEATHER_COLUMNS = {
+            WeatherContract.WeatherEntry._ID,
+            WeatherContract.WeatherEntry.COLUMN_LOC_KEY,
+            WeatherContract.WeatherEntry.COLUMN_DATE,
+            WeatherContract.WeatherEntry.COLUMN_WEATHER_ID,
+            WeatherContract.WeatherEntry.COLUMN_SHORT_DESC,
+            WeatherContract.WeatherEntry.COLUMN_MIN_TEMP,
+            WeatherContract.WeatherEntry.COLUMN_MAX_TEMP,
+            WeatherContract.WeatherEntry.COLUMN_HUMIDITY,
+            WeatherContract.WeatherEntry.COLUMN_PRESSURE,
+            WeatherContract.WeatherEntry.COLUMN_WIND_SPEED,
+            WeatherContract.WeatherEntry.COLUMN_DEGREES
+    };
+    private static final String[] WEATHER_WITH_LOCATION_COLUMNS = {
+            WeatherContract.WeatherEntry._ID,
+            WeatherContract.WeatherEntry.COLUMN_LOC_KEY,
+            WeatherContract.WeatherEntry.COLUMN_DATE,
+            WeatherContract.WeatherEntry.COLUMN_WEATHER_ID,
+            WeatherContract.WeatherEntry.COLUMN_SHORT_DESC,
+            WeatherContract.WeatherEntry.COLUMN_MIN_TEMP,
+            WeatherContract.WeatherEntry.COLUMN_MAX_TEMP,
+            WeatherContract.WeatherEntry.COLUMN_HUMIDITY,
+            WeatherContract.WeatherEntry.COLUMN_PRESSURE,
+            WeatherContract.WeatherEntry.COLUMN_WIND_SPEED,
+            WeatherContract.WeatherEntry.COLUMN_DEGREES,
+            WeatherContract.LocationEntry.COLUMN_LOCATION_SETTING,
+            WeatherContract.LocationEntry.COLUMN_CITY_NAME,
+            WeatherContract.LocationEntry.COLUMN_COORD_LAT,
+            WeatherContract.LocationEntry.COLUMN_COORD_LONG,
+            WeatherContract.LocationEntry.COLUMN_GEOHASH
+    };
+
+    private static final SQLiteQueryBuilder sWeatherQueryBuilder;
     private static final SQLiteQueryBuilder sWeatherByLocationSettingQueryBuilder;
+    private static final SQLiteQueryBuilder sHourlyByLocationSettingQueryBuilder;
 
     static{
+        sWeatherQueryBuilder = new SQLiteQueryBuilder();
+        sWeatherQueryBuilder.setTables(WeatherContract.WeatherEntry.TABLE_NAME);
+        sWeatherQueryBuilder.setProjectionMap(buildWeatherProjectionMap(false));
+
         sWeatherByLocationSettingQueryBuilder = new SQLiteQueryBuilder();
         
         //This is an inner join which looks like
@@ -49,6 +129,72 @@ public class WeatherProvider extends ContentProvider {
                         "." + WeatherContract.WeatherEntry.COLUMN_LOC_KEY +
                         " = " + WeatherContract.LocationEntry.TABLE_NAME +
                         "." + WeatherContract.LocationEntry._ID);
+        sWeatherByLocationSettingQueryBuilder.setProjectionMap(buildWeatherProjectionMap(true));
+
+        //hourly INNER JOIN location ON hourly.location_id = location._id
+        sHourlyByLocationSettingQueryBuilder = new SQLiteQueryBuilder();
+        sHourlyByLocationSettingQueryBuilder.setTables(
+                WeatherContract.HourlyEntry.TABLE_NAME + " INNER JOIN " +
+                        WeatherContract.LocationEntry.TABLE_NAME +
+                        " ON " + WeatherContract.HourlyEntry.TABLE_NAME +
+                        "." + WeatherContract.HourlyEntry.COLUMN_LOC_KEY +
+                        " = " + WeatherContract.LocationEntry.TABLE_NAME +
+                        "." + WeatherContract.LocationEntry._ID);
+    }
+
+    private static Map<String, String> buildWeatherProjectionMap(boolean withLocation) {
+        Map<String, String> map = new HashMap<String, String>();
+        String weather = WeatherContract.WeatherEntry.TABLE_NAME + ".";
+        putColumn(map, weather, WeatherContract.WeatherEntry._ID);
+        putColumn(map, weather, WeatherContract.WeatherEntry.COLUMN_LOC_KEY);
+        putColumn(map, weather, WeatherContract.WeatherEntry.COLUMN_DATE);
+        putColumn(map, weather, WeatherContract.WeatherEntry.COLUMN_WEATHER_ID);
+        putColumn(map, weather, WeatherContract.WeatherEntry.COLUMN_SHORT_DESC,
+                WeatherStorage.buildDescriptionExpression(
+                        weather + WeatherContract.WeatherEntry.COLUMN_WEATHER_ID));
+        for (String column : SCALED_COLUMNS) {
+            putColumn(map, weather, column,
+                    WeatherStorage.buildDecodeExpression(weather + column));
+        }
+        if (withLocation) {
+            String location = WeatherContract.LocationEntry.TABLE_NAME + ".";
+            putColumn(map, location, WeatherContract.LocationEntry.COLUMN_LOCATION_SETTING);
+            putColumn(map, location, WeatherContract.LocationEntry.COLUMN_CITY_NAME);
+            putColumn(map, location, WeatherContract.LocationEntry.COLUMN_COORD_LAT);
+            putColumn(map, location, WeatherContract.LocationEntry.COLUMN_COORD_LONG);
+            putColumn(map, location, WeatherContract.LocationEntry.COLUMN_GEOHASH);
+            // The bare _id is the weather row's, the location's is only served qualified
+            map.put(location + WeatherContract.LocationEntry._ID,
+                    location + WeatherContract.LocationEntry._ID);
+        }
+        return map;
+    }
+
+    private static void putColumn(Map<String, String> map, String table, String column) {
+        putColumn(map, table, column, table + column);
+    }
+
+    private static void putColumn(Map<String, String> map, String table, String column,
+                                  String expression) {
+        String aliased = expression + " AS " + column;
+        map.put(column, aliased);
+        map.put(table + column, aliased);
+    }
+
+    /*
+        Copies weather values to the form they are stored in: measurements scaled to INTEGERs,
+        and no description.  The values of the caller are left as they are.
+     */
+    static ContentValues encodeWeatherValues(ContentValues values) {
+        ContentValues encoded = new ContentValues(values);
+        for (String column : SCALED_COLUMNS) {
+            Double value = values.getAsDouble(column);
+            if (value != null) {
+                encoded.put(column, WeatherStorage.scale(value));
+            }
+        }
+        encoded.remove(WeatherContract.WeatherEntry.COLUMN_SHORT_DESC);
+        return encoded;
     }
 
     //location.location_setting = ?
@@ -84,12 +230,12 @@ public class WeatherProvider extends ContentProvider {
         }
 
         return sWeatherByLocationSettingQueryBuilder.query(mOpenHelper.getReadableDatabase(),
-                projection,
+                projection != null ? projection : WEATHER_WITH_LOCATION_COLUMNS,
                 selection,
                 selectionArgs,
                 null,
                 null,
-                sortOrder
+                WeatherStorage.buildDecodedClause(sortOrder)
         );
     }
 
@@ -99,15 +245,125 @@ public class WeatherProvider extends ContentProvider {
         long date = WeatherContract.WeatherEntry.getDateFromUri(uri);
 
         return sWeatherByLocationSettingQueryBuilder.query(mOpenHelper.getReadableDatabase(),
-                projection,
+                projection != null ? projection : WEATHER_WITH_LOCATION_COLUMNS,
                 sLocationSettingAndDaySelection,
                 new String[]{locationSetting, Long.toString(date)},
                 null,
                 null,
-                sortOrder
+                WeatherStorage.buildDecodedClause(sortOrder)
+        );
+    }
+
+    //location.location_setting = ? AND time >= ? AND time < ?
+    private static final String sLocationSettingWithTimeWindowSelection =
+            WeatherContract.LocationEntry.TABLE_NAME +
+                    "." + WeatherContract.LocationEntry.COLUMN_LOCATION_SETTING + " = ? AND " +
+                    WeatherContract.HourlyEntry.COLUMN_TIME + " >= ? AND " +
+                    WeatherContract.HourlyEntry.COLUMN_TIME + " < ? ";
+
+    private Cursor getHourlyByLocationSetting(Uri uri, String[] projection, String sortOrder) {
+        String locationSetting = WeatherContract.HourlyEntry.getLocationSettingFromUri(uri);
+        long startTime = WeatherContract.HourlyEntry.getStartTimeFromUri(uri);
+        long endTime = WeatherContract.HourlyEntry.getEndTimeFromUri(uri);
+
+        return sHourlyByLocationSettingQueryBuilder.query(mOpenHelper.getReadableDatabase(),
+                projection,
+                sLocationSettingWithTimeWindowSelection,
+                new String[]{locationSetting, Long.toString(startTime), Long.toString(endTime)},
+                null,
+                null,
+                sortOrder != null ? sortOrder : WeatherContract.HourlyEntry.COLUMN_TIME + " ASC"
         );
     }
 
+    //location.geohash >= ? AND location.geohash < ?
+    private static final String sGeoHashPrefixSelection =
+            WeatherContract.LocationEntry.COLUMN_GEOHASH + " >= ? AND " +
+                    WeatherContract.LocationEntry.COLUMN_GEOHASH + " < ? ";
+
+    private static final String[] NEAR_CANDIDATE_COLUMNS = {
+            WeatherContract.LocationEntry._ID,
+            WeatherContract.LocationEntry.COLUMN_COORD_LAT,
+            WeatherContract.LocationEntry.COLUMN_COORD_LONG
+    };
+
+    /*
+        Finds the stored location nearest to the coordinates of the URI, within its radius.
+        Only the locations of the geohash cells around the coordinates are read, through the
+        geohash index, and their exact distance is then checked here.
+     */
+    private Cursor getNearestLocation(Uri uri, String[] projection) {
+        double latitude = Double.parseDouble(
+                uri.getQueryParameter(WeatherContract.LocationEntry.PARAM_LATITUDE));
+        double longitude = Double.parseDouble(
+                uri.getQueryParameter(WeatherContract.LocationEntry.PARAM_LONGITUDE));
+        double radiusKm = Double.parseDouble(
+                uri.getQueryParameter(WeatherContract.LocationEntry.PARAM_RADIUS_KM));
+
+        String selection = null;
+        String[] selectionArgs = null;
+        int precision = GeoHash.getSearchPrecision(latitude, radiusKm);
+        if (precision > 0) {
+            Set<String> cells = GeoHash.getCellAndNeighbors(latitude, longitude, precision);
+            StringBuilder builder = new StringBuilder();
+            selectionArgs = new String[cells.size() * 2];
+            int i = 0;
+            for (String cell : cells) {
+                if (i > 0) {
+                    builder.append(" OR ");
+                }
+                builder.append('(').append(sGeoHashPrefixSelection).append(')');
+                selectionArgs[i++] = cell;
+                selectionArgs[i++] = GeoHash.getPrefixRangeEnd(cell);
+            }
+            selection = builder.toString();
+        }
+        // else the radius is too large for any cell, every location is a candidate
+
+        SQLiteDatabase db = mOpenHelper.getReadableDatabase();
+        long nearestId = -1;
+        double nearestDistance = radiusKm;
+        Cursor candidates = db.query(WeatherContract.LocationEntry.TABLE_NAME,
+                NEAR_CANDIDATE_COLUMNS, selection, selectionArgs, null, null, null);
+        try {
+            while (candidates.moveToNext()) {
+                double distance = GeoHash.distanceKm(latitude, longitude,
+                        candidates.getDouble(1), candidates.getDouble(2));
+                if (distance <= nearestDistance) {
+                    nearestId = candidates.getLong(0);
+                    nearestDistance = distance;
+                }
+            }
+        } finally {
+            candidates.close();
+        }
+
+        if (nearestId == -1) {
+            return new MatrixCursor(projection != null ? projection : new String[]{
+                    WeatherContract.LocationEntry._ID});
+        }
+        return db.query(WeatherContract.LocationEntry.TABLE_NAME,
+                projection,
+                WeatherContract.LocationEntry._ID + " = ?",
+                new String[]{Long.toString(nearestId)},
+                null,
+                null,
+                null
+        );
+    }
+
+    /*
+        Keeps the geohash column in step with the coordinates being written.
+     */
+    private void putGeoHash(ContentValues values) {
+        Double latitude = values.getAsDouble(WeatherContract.LocationEntry.COLUMN_COORD_LAT);
+        Double longitude = values.getAsDouble(WeatherContract.LocationEntry.COLUMN_COORD_LONG);
+        if (latitude != null && longitude != null) {
+            values.put(WeatherContract.LocationEntry.COLUMN_GEOHASH,
+                    GeoHash.encode(latitude, longitude, GeoHash.STORED_PRECISION));
+        }
+    }
+
     /*
         Students: Here is where you need to create the UriMatcher. This UriMatcher will
         match each URI to the WEATHER, WEATHER_WITH_LOCATION, WEATHER_WITH_LOCATION_AND_DATE,
@@ -130,6 +386,13 @@ public class WeatherProvider extends ContentProvider {
         matcher.addURI(authority, WeatherContract.PATH_WEATHER + "/*/#", WEATHER_WITH_LOCATION_AND_DATE);
 
         matcher.addURI(authority, WeatherContract.PATH_LOCATION, LOCATION);
+        matcher.addURI(authority, WeatherContract.PATH_LOCATION + "/" + WeatherContract.PATH_NEAR,
+                LOCATION_NEAR);
+
+        matcher.addURI(authority, WeatherContract.PATH_ARCHIVE + "/*", ARCHIVE_WITH_LOCATION);
+
+        matcher.addURI(authority, WeatherContract.PATH_HOURLY, HOURLY);
+        matcher.addURI(authority, WeatherContract.PATH_HOURLY + "/*", HOURLY_WITH_LOCATION);
         return matcher;
     }
 
@@ -164,6 +427,13 @@ public class WeatherProvider extends ContentProvider {
                 return WeatherContract.WeatherEntry.CONTENT_TYPE;
             case LOCATION:
                 return WeatherContract.LocationEntry.CONTENT_TYPE;
+            case LOCATION_NEAR:
+                return WeatherContract.LocationEntry.CONTENT_ITEM_TYPE;
+            case ARCHIVE_WITH_LOCATION:
+                return WeatherContract.ArchiveEntry.CONTENT_TYPE;
+            case HOURLY:
+            case HOURLY_WITH_LOCATION:
+                return WeatherContract.HourlyEntry.CONTENT_TYPE;
             default:
                 throw new UnsupportedOperationException("Unknown uri: " + uri);
         }
@@ -172,6 +442,20 @@ public class WeatherProvider extends ContentProvider {
     @Override
     public Cursor query(Uri uri, String[] projection, String selection, String[] selectionArgs,
                         String sortOrder) {
+        long start = QUERY_TIMER.start();
+        try {
+            Cursor retCursor = queryUri(uri, projection, selection, selectionArgs, sortOrder);
+            // A SQLite cursor only runs its statement when it is first read, which every caller
+            // does right away: read the count here so that the time includes the statement.
+            retCursor.getCount();
+            return retCursor;
+        } finally {
+            QUERY_TIMER.stop(start);
+        }
+    }
+
+    private Cursor queryUri(Uri uri, String[] projection, String selection,
+                            String[] selectionArgs, String sortOrder) {
         // Here's the switch statement that, given a URI, will determine what kind of request it is,
         // and query the database accordingly.
         Cursor retCursor;
@@ -189,8 +473,20 @@ public class WeatherProvider extends ContentProvider {
             }
             // "weather"
             case WEATHER: {
+                retCursor = sWeatherQueryBuilder.query(mOpenHelper.getReadableDatabase(),
+                        projection != null ? projection : WEATHER_COLUMNS,
+                        WeatherStorage.buildDecodedClause(selection),
+                        selectionArgs,
+                        null,
+                        null,
+                        WeatherStorage.buildDecodedClause(sortOrder)
+                );
+                break;
+            }
+            // "location"
+            case LOCATION: {
                 retCursor = mOpenHelper.getReadableDatabase().query(
-                        WeatherContract.WeatherEntry.TABLE_NAME,
+                        WeatherContract.LocationEntry.TABLE_NAME,
                         projection,
                         selection,
                         selectionArgs,
@@ -200,10 +496,29 @@ public class WeatherProvider extends ContentProvider {
                 );
                 break;
             }
-            // "location"
-            case LOCATION: {
+            // "location/near"
+            case LOCATION_NEAR: {
+                retCursor = getNearestLocation(uri, projection);
+                break;
+            }
+            // "archive/*"
+            case ARCHIVE_WITH_LOCATION: {
+                retCursor = ForecastArchive.getInstance(getContext()).query(
+                        WeatherContract.ArchiveEntry.getLocationSettingFromUri(uri),
+                        projection,
+                        WeatherContract.ArchiveEntry.getStartDateFromUri(uri),
+                        WeatherContract.ArchiveEntry.getEndDateFromUri(uri));
+                break;
+            }
+            // "hourly/*"
+            case HOURLY_WITH_LOCATION: {
+                retCursor = getHourlyByLocationSetting(uri, projection, sortOrder);
+                break;
+            }
+            // "hourly"
+            case HOURLY: {
                 retCursor = mOpenHelper.getReadableDatabase().query(
-                        WeatherContract.LocationEntry.TABLE_NAME,
+                        WeatherContract.HourlyEntry.TABLE_NAME,
                         projection,
                         selection,
                         selectionArgs,
@@ -232,8 +547,15 @@ public class WeatherProvider extends ContentProvider {
 
         switch (match) {
             case WEATHER: {
-                normalizeDate(values);
-                long _id = db.insert(WeatherContract.WeatherEntry.TABLE_NAME, null, values);
+                long _id;
+                WeatherRowInserter inserter = getBatchWeatherInserter(db);
+                if (inserter != null) {
+                    _id = inserter.insert(values);
+                } else {
+                    normalizeDate(values);
+                    _id = db.insert(WeatherContract.WeatherEntry.TABLE_NAME, null,
+                            encodeWeatherValues(values));
+                }
                 if ( _id > 0 )
                     returnUri = WeatherContract.WeatherEntry.buildWeatherUri(_id);
                 else
@@ -241,9 +563,19 @@ public class WeatherProvider extends ContentProvider {
                 break;
             }
             case LOCATION: {
+                putGeoHash(values);
                 long _id = db.insert(WeatherContract.LocationEntry.TABLE_NAME, null, values);
-                if ( _id > 0 )
+                if ( _id > 0 ) {
+                    LocationRegistry.onLocationInserted(_id, values);
                     returnUri = WeatherContract.LocationEntry.buildLocationUri(_id);
+                } else
+                    throw new android.database.SQLException("Failed to insert row into " + uri);
+                break;
+            }
+            case HOURLY: {
+                long _id = db.insert(WeatherContract.HourlyEntry.TABLE_NAME, null, values);
+                if ( _id > 0 )
+                    returnUri = WeatherContract.HourlyEntry.buildHourlyUri(_id);
                 else
                     throw new android.database.SQLException("Failed to insert row into " + uri);
                 break;
@@ -251,7 +583,7 @@ public class WeatherProvider extends ContentProvider {
             default:
                 throw new UnsupportedOperationException("Unknown uri: " + uri);
         }
-        getContext().getContentResolver().notifyChange(uri, null);
+        notifyChange(uri);
         return returnUri;
     }
 
@@ -263,20 +595,34 @@ public class WeatherProvider extends ContentProvider {
         // this makes delete all rows return the number of rows deleted
         if ( null == selection ) selection = "1";
         switch (match) {
-            case WEATHER:
-                rowsDeleted = db.delete(
-                        WeatherContract.WeatherEntry.TABLE_NAME, selection, selectionArgs);
+            case WEATHER: {
+                // The expired days of a sync share the compiled statements of its batch
+                WeatherRowInserter inserter = WeatherStorage.SELECTION_EXPIRED.equals(selection)
+                        && selectionArgs != null && selectionArgs.length == 1
+                        ? getBatchWeatherInserter(db) : null;
+                if (inserter != null) {
+                    rowsDeleted = inserter.deleteExpired(selectionArgs[0]);
+                } else {
+                    rowsDeleted = db.delete(WeatherContract.WeatherEntry.TABLE_NAME,
+                            WeatherStorage.buildDecodedClause(selection), selectionArgs);
+                }
                 break;
+            }
             case LOCATION:
                 rowsDeleted = db.delete(
                         WeatherContract.LocationEntry.TABLE_NAME, selection, selectionArgs);
+                LocationRegistry.invalidate();
+                break;
+            case HOURLY:
+                rowsDeleted = db.delete(
+                        WeatherContract.HourlyEntry.TABLE_NAME, selection, selectionArgs);
                 break;
             default:
                 throw new UnsupportedOperationException("Unknown uri: " + uri);
         }
         // Because a null deletes all rows
         if (rowsDeleted != 0) {
-            getContext().getContentResolver().notifyChange(uri, null);
+            notifyChange(uri);
         }
         return rowsDeleted;
     }
@@ -299,49 +645,153 @@ public class WeatherProvider extends ContentProvider {
         switch (match) {
             case WEATHER:
                 normalizeDate(values);
-                rowsUpdated = db.update(WeatherContract.WeatherEntry.TABLE_NAME, values, selection,
+                rowsUpdated = db.update(WeatherContract.WeatherEntry.TABLE_NAME,
+                        encodeWeatherValues(values), WeatherStorage.buildDecodedClause(selection),
                         selectionArgs);
                 break;
             case LOCATION:
+                putGeoHash(values);
                 rowsUpdated = db.update(WeatherContract.LocationEntry.TABLE_NAME, values, selection,
                         selectionArgs);
+                LocationRegistry.invalidate();
                 break;
             default:
                 throw new UnsupportedOperationException("Unknown uri: " + uri);
         }
         if (rowsUpdated != 0) {
-            getContext().getContentResolver().notifyChange(uri, null);
+            notifyChange(uri);
         }
         return rowsUpdated;
     }
 
     @Override
     public int bulkInsert(Uri uri, ContentValues[] values) {
+        long start = BULK_INSERT_TIMER.start();
+        int inserted;
+        try {
+            inserted = bulkInsertUri(uri, values);
+        } finally {
+            BULK_INSERT_TIMER.stop(start);
+        }
+        BULK_INSERT_ROWS.add(inserted);
+        return inserted;
+    }
+
+    private int bulkInsertUri(Uri uri, ContentValues[] values) {
         final SQLiteDatabase db = mOpenHelper.getWritableDatabase();
         final int match = sUriMatcher.match(uri);
         switch (match) {
             case WEATHER:
                 db.beginTransaction();
                 int returnCount = 0;
+                WeatherRowInserter inserter = null;
                 try {
+                    inserter = new WeatherRowInserter(db);
                     for (ContentValues value : values) {
-                        normalizeDate(value);
-                        long _id = db.insert(WeatherContract.WeatherEntry.TABLE_NAME, null, value);
+                        long _id = inserter.insert(value);
                         if (_id != -1) {
                             returnCount++;
                         }
                     }
                     db.setTransactionSuccessful();
                 } finally {
+                    if (inserter != null) {
+                        inserter.close();
+                    }
                     db.endTransaction();
                 }
-                getContext().getContentResolver().notifyChange(uri, null);
+                notifyChange(uri);
                 return returnCount;
+            case HOURLY:
+                db.beginTransaction();
+                int slotCount = 0;
+                try {
+                    for (ContentValues value : values) {
+                        long _id = db.insert(WeatherContract.HourlyEntry.TABLE_NAME, null, value);
+                        if (_id != -1) {
+                            slotCount++;
+                        }
+                    }
+                    db.setTransactionSuccessful();
+                } finally {
+                    db.endTransaction();
+                }
+                notifyChange(uri);
+                return slotCount;
             default:
                 return super.bulkInsert(uri, values);
         }
     }
 
+    /*
+        Applies the whole batch in one transaction, so that a sync writing several tables
+        commits them together, and notifies each changed URI once, after the commit.
+     */
+    @Override
+    public ContentProviderResult[] applyBatch(ArrayList<ContentProviderOperation> operations)
+            throws OperationApplicationException {
+        final SQLiteDatabase db = mOpenHelper.getWritableDatabase();
+        Set<Uri> changes = new HashSet<Uri>();
+        ContentProviderResult[] results;
+        sBatchChanges.set(changes);
+        db.beginTransaction();
+        try {
+            results = super.applyBatch(operations);
+            db.setTransactionSuccessful();
+        } finally {
+            WeatherRowInserter inserter = sBatchWeatherInserter.get();
+            if (inserter != null) {
+                inserter.close();
+                sBatchWeatherInserter.remove();
+            }
+            db.endTransaction();
+            sBatchChanges.remove();
+        }
+        if (!changes.isEmpty()) {
+            sDataVersion.incrementAndGet();
+        }
+        for (Uri uri : changes) {
+            getContext().getContentResolver().notifyChange(uri, null);
+        }
+        return results;
+    }
+
+    /*
+        Within a batch, its weather rows share one compiled insert, and its expired days one
+        compiled delete.  Outside of one, a statement would only serve a single call: returns
+        null.
+     */
+    private WeatherRowInserter getBatchWeatherInserter(SQLiteDatabase db) {
+        if (sBatchChanges.get() == null) {
+            return null;
+        }
+        WeatherRowInserter inserter = sBatchWeatherInserter.get();
+        if (inserter == null) {
+            inserter = new WeatherRowInserter(db);
+            sBatchWeatherInserter.set(inserter);
+        }
+        return inserter;
+    }
+
+    private void notifyChange(Uri uri) {
+        Set<Uri> batchChanges = sBatchChanges.get();
+        if (batchChanges != null) {
+            batchChanges.add(uri);
+        } else {
+            sDataVersion.incrementAndGet();
+            getContext().getContentResolver().notifyChange(uri, null);
+        }
+    }
+
+    /**
+     * The data version changes with every write committed through this provider, in this
+     * process.  A result read at some version is still current while the version is the same;
+     * read the version before querying.
+     */
+    public static long getDataVersion() {
+        return sDataVersion.get();
+    }
+
     // You do not need to call this method. This is a method specifically to assist the testing
     // framework in running smoothly. You can read more at:
     // http://developer.android.com/reference/android/content/ContentProvider.html#shutdown()
@@ -0,0 +1,152 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.app.data;
+
+import android.content.ContentValues;
+import android.database.SQLException;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+import android.text.format.Time;
+import android.util.Log;
+
+import com.example.android.sunshine.shared.WeatherStorage;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Inserts weather rows through a single compiled INSERT, for the rows of one transaction.
+ *
+ * {@link SQLiteDatabase#insert} writes and compiles a statement for every row, from a copy of
+ * its values.  Here the statement is compiled once, and the numbers of each row are bound as
+ * primitives straight from its values, scaled and with their date normalized on the way.  Rows
+ * with other columns, or values that are not numbers, go through SQLiteDatabase.insert as before.
+ * The expired days a sync deletes in the same transaction go through a compiled DELETE as well,
+ * compiled the first time it is needed.
+ *
+ * An inserter belongs to the thread and the transaction it was created in, and must be closed
+ * before the transaction ends.
+ */
+final class WeatherRowInserter {
+    private static final String LOG_TAG = WeatherRowInserter.class.getSimpleName();
+
+    // Bound in this order by WeatherStorage.SQL_INSERT, from index 1
+    private static final String[] COLUMNS = WeatherStorage.getInsertColumns();
+
+    // Every key a row can have and still be bound: the description is derived, not stored
+    private static final Set<String> BINDABLE_KEYS = new HashSet<String>();
+
+    static {
+        Collections.addAll(BINDABLE_KEYS, COLUMNS);
+        BINDABLE_KEYS.add(WeatherContract.WeatherEntry.COLUMN_SHORT_DESC);
+    }
+
+    private final SQLiteDatabase mDatabase;
+    private final SQLiteStatement mStatement;
+    private SQLiteStatement mDeleteExpiredStatement;
+    private final Time mTime = new Time();
+
+    WeatherRowInserter(SQLiteDatabase db) {
+        mDatabase = db;
+        mStatement = db.compileStatement(WeatherStorage.SQL_INSERT);
+    }
+
+    /**
+     * Inserts a row, replacing the row of the same location and day.  As with
+     * WeatherProvider.insert, the date of the values is normalized in place.
+     *
+     * @return the id of the row, or -1 if it could not be inserted
+     */
+    long insert(ContentValues values) {
+        if (!isBindable(values)) {
+            Long date = values.getAsLong(WeatherContract.WeatherEntry.COLUMN_DATE);
+            if (date != null) {
+                values.put(WeatherContract.WeatherEntry.COLUMN_DATE, normalizeDate(date));
+            }
+            return mDatabase.insert(WeatherContract.WeatherEntry.TABLE_NAME, null,
+                    WeatherProvider.encodeWeatherValues(values));
+        }
+
+        for (int i = 0; i < COLUMNS.length; i++) {
+            Number value = (Number) values.get(COLUMNS[i]);
+            if (value == null) {
+                // Left to the NOT NULL constraint
+                mStatement.bindNull(i + 1);
+            } else if (i >= WeatherStorage.INSERT_INDEX_FIRST_SCALED) {
+                mStatement.bindLong(i + 1, WeatherStorage.scale(value.doubleValue()));
+            } else if (i == WeatherStorage.INSERT_INDEX_DATE) {
+                long date = value.longValue();
+                long normalized = normalizeDate(date);
+                if (normalized != date) {
+                    values.put(WeatherContract.WeatherEntry.COLUMN_DATE, normalized);
+                }
+                mStatement.bindLong(i + 1, normalized);
+            } else {
+                mStatement.bindLong(i + 1, value.longValue());
+            }
+        }
+        try {
+            return mStatement.executeInsert();
+        } catch (SQLException e) {
+            Log.e(LOG_TAG, "Error inserting " + values, e);
+            return -1;
+        }
+    }
+
+    /**
+     * Deletes the days up to a date, as {@link SQLiteDatabase#delete} does with
+     * {@link WeatherStorage#SELECTION_EXPIRED}: the date is bound as the same string argument.
+     *
+     * @return the number of rows deleted
+     */
+    int deleteExpired(String cutoffDate) {
+        if (mDeleteExpiredStatement == null) {
+            mDeleteExpiredStatement = mDatabase.compileStatement(WeatherStorage.SQL_DELETE_EXPIRED);
+        }
+        mDeleteExpiredStatement.bindString(1, cutoffDate);
+        return mDeleteExpiredStatement.executeUpdateDelete();
+    }
+
+    void close() {
+        mStatement.close();
+        if (mDeleteExpiredStatement != null) {
+            mDeleteExpiredStatement.close();
+        }
+    }
+
+    private static boolean isBindable(ContentValues values) {
+        for (Map.Entry<String, Object> entry : values.valueSet()) {
+            if (!BINDABLE_KEYS.contains(entry.getKey())) {
+                return false;
+            }
+            Object value = entry.getValue();
+            if (value != null && !(value instanceof Number)
+                    && !entry.getKey().equals(WeatherContract.WeatherEntry.COLUMN_SHORT_DESC)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // WeatherContract.normalizeDate, without a new Time for every row
+    private long normalizeDate(long date) {
+        mTime.set(date);
+        int julianDay = Time.getJulianDay(date, mTime.gmtoff);
+        return mTime.setJulianDay(julianDay);
+    }
+}
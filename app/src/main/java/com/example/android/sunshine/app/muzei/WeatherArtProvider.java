@@ -0,0 +1,113 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.app.muzei;
+
+import android.content.ContentProvider;
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.net.Uri;
+import android.os.ParcelFileDescriptor;
+import android.support.annotation.NonNull;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+
+/**
+ * Read-only provider serving the wallpapers prefetched by {@link WeatherMuzeiSource}, so that
+ * Muzei reads them from local storage instead of downloading them again.
+ *
+ * Only files directly inside the art cache directory can be opened, and only for reading.
+ */
+public class WeatherArtProvider extends ContentProvider {
+    public static final String CONTENT_AUTHORITY = "com.example.android.sunshine.app.muzei";
+
+    private static final String ART_DIRECTORY = "muzei";
+    private static final String MIME_TYPE = "image/jpeg";
+
+    /**
+     * @return the directory the prefetched wallpapers are stored in, created if needed
+     */
+    static File getArtDirectory(Context context) {
+        File directory = new File(context.getCacheDir(), ART_DIRECTORY);
+        if (!directory.isDirectory()) {
+            //noinspection ResultOfMethodCallIgnored
+            directory.mkdirs();
+        }
+        return directory;
+    }
+
+    /**
+     * @return the URI Muzei should load a prefetched wallpaper from
+     */
+    static Uri buildArtUri(File file) {
+        return new Uri.Builder()
+                .scheme("content")
+                .authority(CONTENT_AUTHORITY)
+                .appendPath(file.getName())
+                .build();
+    }
+
+    @Override
+    public boolean onCreate() {
+        return true;
+    }
+
+    @Override
+    public ParcelFileDescriptor openFile(@NonNull Uri uri, @NonNull String mode)
+            throws FileNotFoundException {
+        if (!"r".equals(mode)) {
+            throw new SecurityException("Art can only be opened for reading: " + uri);
+        }
+        // A single path segment naming a file of the art directory, nothing else.
+        if (uri.getPathSegments().size() != 1) {
+            throw new FileNotFoundException("Unknown art: " + uri);
+        }
+        File directory = getArtDirectory(getContext());
+        File file = new File(directory, uri.getLastPathSegment());
+        if (!directory.equals(file.getParentFile()) || !file.isFile()) {
+            throw new FileNotFoundException("Unknown art: " + uri);
+        }
+        return ParcelFileDescriptor.open(file, ParcelFileDescriptor.MODE_READ_ONLY);
+    }
+
+    @Override
+    public String getType(@NonNull Uri uri) {
+        return MIME_TYPE;
+    }
+
+    @Override
+    public Cursor query(@NonNull Uri uri, String[] projection, String selection,
+                        String[] selectionArgs, String sortOrder) {
+        return null;
+    }
+
+    @Override
+    public Uri insert(@NonNull Uri uri, ContentValues values) {
+        throw new UnsupportedOperationException("Art is read-only: " + uri);
+    }
+
+    @Override
+    public int delete(@NonNull Uri uri, String selection, String[] selectionArgs) {
+        throw new UnsupportedOperationException("Art is read-only: " + uri);
+    }
+
+    @Override
+    public int update(@NonNull Uri uri, ContentValues values, String selection,
+                      String[] selectionArgs) {
+        throw new UnsupportedOperationException("Art is read-only: " + uri);
+    }
+}
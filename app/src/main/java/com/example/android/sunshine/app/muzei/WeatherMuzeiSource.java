@@ -16,20 +16,49 @@
 package com.example.android.sunshine.app.muzei;
 
 import android.content.Intent;
+import android.content.SharedPreferences;
 import android.database.Cursor;
 import android.net.Uri;
+import android.util.Log;
+
+import com.bumptech.glide.Glide;
+import com.bumptech.glide.request.target.Target;
 
 import com.example.android.sunshine.app.MainActivity;
 import com.example.android.sunshine.app.Utility;
 import com.example.android.sunshine.app.data.WeatherContract;
+import com.example.android.sunshine.app.sync.ForecastSnapshot;
 import com.example.android.sunshine.app.sync.SunshineSyncAdapter;
 import com.google.android.apps.muzei.api.Artwork;
 import com.google.android.apps.muzei.api.MuzeiArtSource;
 
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.concurrent.ExecutionException;
+
 /**
- * Muzei source that changes your background based on the current weather conditions
+ * Muzei source that changes your background based on the current weather conditions.
+ *
+ * Wallpapers are only published when the weather changes, and are downloaded ahead of time so
+ * that Muzei loads them from {@link WeatherArtProvider} rather than from the network.
  */
 public class WeatherMuzeiSource extends MuzeiArtSource {
+    private static final String LOG_TAG = WeatherMuzeiSource.class.getSimpleName();
+
+    // What was last published, so that unchanged weather is not published again
+    private static final String STATE_PREFERENCES = "muzei_source_state";
+    private static final String STATE_WEATHER_ID = "weather_id";
+    private static final String STATE_IMAGE_URL = "image_url";
+    private static final String STATE_LOCATION = "location";
+
+    private static final int MAX_PREFETCHED_ART = 3;
+
     private static final String[] FORECAST_COLUMNS = new String[]{
             WeatherContract.WeatherEntry.COLUMN_WEATHER_ID,
             WeatherContract.WeatherEntry.COLUMN_SHORT_DESC
@@ -55,25 +84,135 @@ public class WeatherMuzeiSource extends MuzeiArtSource {
     @Override
     protected void onUpdate(int reason) {
         String location = Utility.getPreferredLocation(this);
+        ForecastSnapshot snapshot = ForecastSnapshot.getLatest(this);
+        // Midnight may have passed since getLatest, resolve today once
+        int today = snapshot != null ? snapshot.getTodayIndex() : -1;
+        if (today >= 0) {
+            publishWeather(reason, snapshot.getWeatherId(today), snapshot.getDescription(today),
+                    location);
+            return;
+        }
+
         Uri weatherForLocationUri = WeatherContract.WeatherEntry.buildWeatherLocationWithStartDate(
                 location, System.currentTimeMillis());
         Cursor cursor = getContentResolver().query(weatherForLocationUri, FORECAST_COLUMNS, null,
                 null, WeatherContract.WeatherEntry.COLUMN_DATE + " ASC");
         if (cursor.moveToFirst()) {
-            int weatherId = cursor.getInt(INDEX_WEATHER_ID);
-            String desc = cursor.getString(INDEX_SHORT_DESC);
-
-            String imageUrl = Utility.getImageUrlForWeatherCondition(weatherId);
-            // Only publish a new wallpaper if we have a valid image
-            if (imageUrl != null) {
-                publishArtwork(new Artwork.Builder()
-                        .imageUri(Uri.parse(imageUrl))
-                        .title(desc)
-                        .byline(location)
-                        .viewIntent(new Intent(this, MainActivity.class))
-                        .build());
-            }
+            publishWeather(reason, cursor.getInt(INDEX_WEATHER_ID),
+                    cursor.getString(INDEX_SHORT_DESC), location);
         }
         cursor.close();
     }
+
+    private void publishWeather(int reason, int weatherId, String desc, String location) {
+        String imageUrl = Utility.getImageUrlForWeatherCondition(weatherId);
+        // Only publish a new wallpaper if we have a valid image
+        if (imageUrl == null) {
+            return;
+        }
+
+        // New data for the same weather: Muzei already shows the right wallpaper
+        SharedPreferences state = getSharedPreferences(STATE_PREFERENCES, MODE_PRIVATE);
+        if (reason == UPDATE_REASON_OTHER && getCurrentArtwork() != null
+                && state.getInt(STATE_WEATHER_ID, -1) == weatherId
+                && imageUrl.equals(state.getString(STATE_IMAGE_URL, null))
+                && location.equals(state.getString(STATE_LOCATION, null))) {
+            Log.d(LOG_TAG, "Weather unchanged, not publishing " + imageUrl);
+            return;
+        }
+
+        File art = prefetch(imageUrl);
+        publishArtwork(new Artwork.Builder()
+                .imageUri(art != null ? WeatherArtProvider.buildArtUri(art) : Uri.parse(imageUrl))
+                .title(desc)
+                .byline(location)
+                .viewIntent(new Intent(this, MainActivity.class))
+                .build());
+        state.edit()
+                .putInt(STATE_WEATHER_ID, weatherId)
+                .putString(STATE_IMAGE_URL, imageUrl)
+                .putString(STATE_LOCATION, location)
+                .apply();
+    }
+
+    /**
+     * Downloads the wallpaper into the art directory, unless it is already there.
+     *
+     * @return the local copy, or null if it could not be downloaded
+     */
+    private File prefetch(String imageUrl) {
+        File directory = WeatherArtProvider.getArtDirectory(this);
+        File art = new File(directory, Integer.toHexString(imageUrl.hashCode()) + ".jpg");
+        if (!art.isFile()) {
+            File download = null;
+            File temp = new File(directory, art.getName() + ".tmp");
+            try {
+                // Glide keeps the download in its own disk cache, which may evict it at any time,
+                // so we keep a copy of our own.
+                download = Glide.with(this)
+                        .load(imageUrl)
+                        .downloadOnly(Target.SIZE_ORIGINAL, Target.SIZE_ORIGINAL)
+                        .get();
+                copy(download, temp);
+                if (!temp.renameTo(art)) {
+                    throw new IOException("Could not rename " + temp);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                //noinspection ResultOfMethodCallIgnored
+                temp.delete();
+                return null;
+            } catch (ExecutionException | IOException e) {
+                Log.e(LOG_TAG, "Error prefetching " + imageUrl, e);
+                //noinspection ResultOfMethodCallIgnored
+                temp.delete();
+                return null;
+            }
+        }
+        //noinspection ResultOfMethodCallIgnored
+        art.setLastModified(System.currentTimeMillis());
+        pruneArt(directory);
+        return art;
+    }
+
+    private static void copy(File from, File to) throws IOException {
+        InputStream in = new FileInputStream(from);
+        try {
+            OutputStream out = new FileOutputStream(to);
+            try {
+                byte[] buffer = new byte[8192];
+                int read;
+                while ((read = in.read(buffer)) != -1) {
+                    out.write(buffer, 0, read);
+                }
+            } finally {
+                out.close();
+            }
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * Keeps only the most recently used wallpapers, Muzei may still be showing one of the older
+     * ones while it loads the new one.
+     */
+    private static void pruneArt(File directory) {
+        File[] files = directory.listFiles();
+        if (files == null || files.length <= MAX_PREFETCHED_ART) {
+            return;
+        }
+        Arrays.sort(files, new Comparator<File>() {
+            @Override
+            public int compare(File lhs, File rhs) {
+                long l = lhs.lastModified();
+                long r = rhs.lastModified();
+                return l > r ? -1 : (l == r ? 0 : 1);
+            }
+        });
+        for (int i = MAX_PREFETCHED_ART; i < files.length; i++) {
+            //noinspection ResultOfMethodCallIgnored
+            files[i].delete();
+        }
+    }
 }
@@ -0,0 +1,193 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.app.sync;
+
+import android.content.Context;
+import android.util.Log;
+
+import com.example.android.sunshine.shared.Metrics;
+
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Hands the forecast committed by a sync to everything that shows it, in parallel.
+ *
+ * Each consumer runs on a small, bounded pool with its own timeout; a consumer that takes too
+ * long is interrupted without holding up the others.  Interrupting only works if the consumer
+ * stops once interrupted, so consumers must not swallow InterruptedException, and what they
+ * publish should not wait on slow work like downloads.  The time taken by each consumer and by
+ * the whole dispatch is logged, and recorded in {@link Metrics} as "dispatch.&lt;name&gt;" and
+ * "dispatch".
+ */
+final class ForecastDispatcher {
+    private static final String LOG_TAG = ForecastDispatcher.class.getSimpleName();
+
+    private static final int POOL_SIZE = 4;
+    private static final int QUEUE_SIZE = 8;
+    private static final long KEEP_ALIVE_SECONDS = 30;
+
+    private static final Metrics.Timer DISPATCH_TIMER = Metrics.timer("dispatch");
+    private static final Metrics.Counter TIMEOUTS = Metrics.counter("dispatch.timeouts");
+    private static final Metrics.Counter FAILURES = Metrics.counter("dispatch.failures");
+
+    /**
+     * Something that shows the forecast and needs to hear about new ones.
+     */
+    interface Consumer {
+        /**
+         * @return a short name, used in the logs
+         */
+        String getName();
+
+        /**
+         * @return how long, in milliseconds, the consumer may run before being interrupted
+         */
+        long getTimeoutMillis();
+
+        /**
+         * @return the timer the time the consumer takes is recorded in, "dispatch.&lt;name&gt;"
+         */
+        Metrics.Timer getTimer();
+
+        /**
+         * Called on a pool thread with the new forecast.  Once the consumer has timed out, its
+         * thread is interrupted, and it should stop without publishing anything.
+         */
+        void onForecast(Context context, ForecastSnapshot snapshot) throws Exception;
+    }
+
+    /**
+     * A consumer with a fixed name and timeout, and its timer looked up once.
+     */
+    abstract static class BaseConsumer implements Consumer {
+        private final String mName;
+        private final long mTimeoutMillis;
+        private final Metrics.Timer mTimer;
+
+        BaseConsumer(String name, long timeoutMillis) {
+            mName = name;
+            mTimeoutMillis = timeoutMillis;
+            mTimer = Metrics.timer("dispatch." + name);
+        }
+
+        @Override
+        public String getName() {
+            return mName;
+        }
+
+        @Override
+        public long getTimeoutMillis() {
+            return mTimeoutMillis;
+        }
+
+        @Override
+        public Metrics.Timer getTimer() {
+            return mTimer;
+        }
+    }
+
+    private static final ThreadPoolExecutor sExecutor;
+
+    static {
+        ThreadFactory threadFactory = new ThreadFactory() {
+            private final AtomicInteger mCount = new AtomicInteger();
+
+            @Override
+            public Thread newThread(Runnable runnable) {
+                return new Thread(runnable, "ForecastDispatcher #" + mCount.incrementAndGet());
+            }
+        };
+        sExecutor = new ThreadPoolExecutor(POOL_SIZE, POOL_SIZE, KEEP_ALIVE_SECONDS,
+                TimeUnit.SECONDS, new ArrayBlockingQueue<Runnable>(QUEUE_SIZE), threadFactory);
+        sExecutor.allowCoreThreadTimeOut(true);
+    }
+
+    private ForecastDispatcher() {
+    }
+
+    /**
+     * Publishes the snapshot as the latest forecast and hands it to every consumer.  Blocks
+     * until every consumer is done or has timed out, so this must not be called on the main
+     * thread.
+     */
+    static void dispatch(final Context context, final ForecastSnapshot snapshot,
+                         List<Consumer> consumers) {
+        ForecastSnapshot.setLatest(snapshot);
+
+        final long start = System.nanoTime();
+        int size = consumers.size();
+        @SuppressWarnings("unchecked")
+        Future<Long>[] futures = new Future[size];
+        for (int i = 0; i < size; i++) {
+            final Consumer consumer = consumers.get(i);
+            try {
+                futures[i] = sExecutor.submit(new Callable<Long>() {
+                    @Override
+                    public Long call() throws Exception {
+                        long consumerStart = System.nanoTime();
+                        consumer.onForecast(context, snapshot);
+                        return System.nanoTime() - consumerStart;
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                Log.w(LOG_TAG, consumer.getName() + " skipped, dispatcher is saturated");
+            }
+        }
+
+        for (int i = 0; i < size; i++) {
+            Consumer consumer = consumers.get(i);
+            Future<Long> future = futures[i];
+            if (future == null) {
+                continue;
+            }
+            // Every consumer has been running since the dispatch started, so its deadline is
+            // measured from there.
+            long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            long remainingMillis = Math.max(consumer.getTimeoutMillis() - elapsedMillis, 0);
+            try {
+                long nanos = future.get(remainingMillis, TimeUnit.MILLISECONDS);
+                consumer.getTimer().record(nanos / 1000);
+                Log.d(LOG_TAG, consumer.getName() + " took "
+                        + TimeUnit.NANOSECONDS.toMillis(nanos) + " ms");
+            } catch (TimeoutException e) {
+                future.cancel(true);
+                TIMEOUTS.inc();
+                Log.w(LOG_TAG, consumer.getName() + " timed out after "
+                        + consumer.getTimeoutMillis() + " ms");
+            } catch (ExecutionException e) {
+                FAILURES.inc();
+                Log.e(LOG_TAG, consumer.getName() + " failed", e.getCause());
+            } catch (InterruptedException e) {
+                // The sync is being cancelled: let the consumers finish on their own
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        DISPATCH_TIMER.stop(start);
+        Log.d(LOG_TAG, "Dispatched forecast to " + size + " consumers in "
+                + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + " ms");
+    }
+}
@@ -0,0 +1,335 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.app.sync;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.util.Log;
+
+import com.example.android.sunshine.app.Utility;
+import com.example.android.sunshine.app.data.WeatherContract;
+import com.example.android.sunshine.shared.WeatherStorage;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Immutable copy of the forecast written by the last sync, built from the parsed values rather
+ * than read back from the provider.  The consumers notified after a sync (widgets, Muzei, the
+ * watch and the notification) all read the same snapshot instead of each running their own
+ * query for today's weather.
+ *
+ * The snapshot is stored in fixed-size records, the same in memory and in the file the sync
+ * saves it to.  Once the process has been restarted, the first reader maps that file, and the
+ * records are then read in place, without going through the provider.  The database stays the
+ * source of truth: the file is only a copy of the last forecast committed to it.
+ *
+ * Layout, big-endian: a header of {@value #HEADER_SIZE} bytes holding the magic, the version,
+ * the sync time, the number of days, the record size and the location setting, then one record
+ * of {@value #RECORD_SIZE} bytes per day, in date order.
+ */
+public final class ForecastSnapshot {
+    private static final String LOG_TAG = ForecastSnapshot.class.getSimpleName();
+
+    private static final String FILE_NAME = "forecast.snapshot";
+
+    private static final int MAGIC = 0x53464e43; // "SFNC"
+    private static final int VERSION = 1;
+
+    // Header offsets.  The location setting is stored as its length, then its characters.
+    private static final int HEADER_MAGIC = 0;
+    private static final int HEADER_VERSION = 4;
+    private static final int HEADER_SYNC_TIME = 8;
+    private static final int HEADER_DAYS = 16;
+    private static final int HEADER_RECORD_SIZE = 20;
+    private static final int HEADER_LOCATION_LENGTH = 24;
+    private static final int HEADER_LOCATION = 28;
+    private static final int LOCATION_CHARS = 48;
+    static final int HEADER_SIZE = HEADER_LOCATION + LOCATION_CHARS * 2;
+
+    // Record offsets.  Descriptions are stored as their length, then their characters; longer
+    // ones are cut, the main names of the conditions are all well under the limit.
+    private static final int RECORD_DATE = 0;
+    private static final int RECORD_WEATHER_ID = 8;
+    private static final int RECORD_DESCRIPTION_LENGTH = 12;
+    private static final int RECORD_HIGH = 16;
+    private static final int RECORD_LOW = 24;
+    private static final int RECORD_DESCRIPTION = 32;
+    private static final int DESCRIPTION_CHARS = 24;
+    static final int RECORD_SIZE = RECORD_DESCRIPTION + DESCRIPTION_CHARS * 2;
+
+    // The snapshot of the last sync, or of the file, in this process if any.
+    private static volatile ForecastSnapshot sLatest;
+
+    private final String mLocationSetting;
+    private final int mDays;
+    // Header and records.  Only ever read with absolute gets, so it can be shared by threads.
+    private final ByteBuffer mBuffer;
+
+    private ForecastSnapshot(String locationSetting, int days, ByteBuffer buffer) {
+        mLocationSetting = locationSetting;
+        mDays = days;
+        mBuffer = buffer;
+    }
+
+    /**
+     * Builds a snapshot from the values a sync is about to insert, as the provider reads them
+     * back once stored: temperatures rounded to a hundredth, and the description derived from
+     * the condition id.
+     *
+     * @param locationSetting the location the values were fetched for
+     * @param values one weather row per day, in date order
+     */
+    static ForecastSnapshot fromContentValues(String locationSetting, ContentValues[] values) {
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + values.length * RECORD_SIZE);
+        buffer.putInt(HEADER_MAGIC, MAGIC);
+        buffer.putInt(HEADER_VERSION, VERSION);
+        buffer.putLong(HEADER_SYNC_TIME, System.currentTimeMillis());
+        buffer.putInt(HEADER_DAYS, values.length);
+        buffer.putInt(HEADER_RECORD_SIZE, RECORD_SIZE);
+        // A location too long for the header is kept in memory only, see save()
+        if (locationSetting.length() <= LOCATION_CHARS) {
+            putChars(buffer, HEADER_LOCATION_LENGTH, HEADER_LOCATION, locationSetting,
+                    LOCATION_CHARS);
+        } else {
+            buffer.putInt(HEADER_LOCATION_LENGTH, -1);
+        }
+        for (int i = 0; i < values.length; i++) {
+            ContentValues day = values[i];
+            int record = HEADER_SIZE + i * RECORD_SIZE;
+            buffer.putLong(record + RECORD_DATE,
+                    day.getAsLong(WeatherContract.WeatherEntry.COLUMN_DATE));
+            int weatherId = day.getAsInteger(WeatherContract.WeatherEntry.COLUMN_WEATHER_ID);
+            buffer.putInt(record + RECORD_WEATHER_ID, weatherId);
+            buffer.putDouble(record + RECORD_HIGH, WeatherStorage.round(
+                    day.getAsDouble(WeatherContract.WeatherEntry.COLUMN_MAX_TEMP)));
+            buffer.putDouble(record + RECORD_LOW, WeatherStorage.round(
+                    day.getAsDouble(WeatherContract.WeatherEntry.COLUMN_MIN_TEMP)));
+            putChars(buffer, record + RECORD_DESCRIPTION_LENGTH, record + RECORD_DESCRIPTION,
+                    WeatherStorage.getDescription(weatherId), DESCRIPTION_CHARS);
+        }
+        return new ForecastSnapshot(locationSetting, values.length, buffer);
+    }
+
+    static void setLatest(ForecastSnapshot snapshot) {
+        synchronized (ForecastSnapshot.class) {
+            sLatest = snapshot;
+        }
+    }
+
+    /**
+     * Returns the snapshot of the last sync, if it is still relevant: it must be for the
+     * preferred location and include today.  When this process has not synced yet, it is mapped
+     * from the file saved by the last sync.
+     *
+     * Today can still end before the caller reads the snapshot, so callers resolve
+     * {@link #getTodayIndex()} once and query the provider when it is -1.
+     *
+     * @param context Context used to read the preferred location
+     * @return the snapshot, or null if the caller has to query the provider
+     */
+    public static ForecastSnapshot getLatest(Context context) {
+        ForecastSnapshot snapshot = sLatest;
+        if (snapshot == null) {
+            ForecastSnapshot saved = load(getFile(context));
+            synchronized (ForecastSnapshot.class) {
+                // A sync may have finished meanwhile, its snapshot is newer
+                if (sLatest == null) {
+                    sLatest = saved;
+                }
+                snapshot = sLatest;
+            }
+        }
+        if (snapshot == null
+                || !snapshot.mLocationSetting.equals(Utility.getPreferredLocation(context))
+                || snapshot.getTodayIndex() < 0) {
+            return null;
+        }
+        return snapshot;
+    }
+
+    /**
+     * Writes the snapshot to the file read by {@link #getLatest(Context)} after a restart,
+     * replacing it at once: a reader sees either the previous file or the new one, whole.
+     * Must be called once the forecast is committed to the database.
+     */
+    void save(Context context) {
+        File file = getFile(context);
+        if (mBuffer.getInt(HEADER_LOCATION_LENGTH) < 0) {
+            // Readers fall back to the provider
+            //noinspection ResultOfMethodCallIgnored
+            file.delete();
+            return;
+        }
+        File temp = new File(file.getPath() + ".tmp");
+        try {
+            FileOutputStream out = new FileOutputStream(temp);
+            try {
+                ByteBuffer records = mBuffer.duplicate();
+                records.clear();
+                FileChannel channel = out.getChannel();
+                while (records.hasRemaining()) {
+                    channel.write(records);
+                }
+                out.getFD().sync();
+            } finally {
+                out.close();
+            }
+            if (!temp.renameTo(file)) {
+                throw new IOException("Could not rename " + temp);
+            }
+        } catch (IOException e) {
+            Log.e(LOG_TAG, "Error saving the forecast snapshot", e);
+            //noinspection ResultOfMethodCallIgnored
+            temp.delete();
+        }
+    }
+
+    /**
+     * Maps a saved snapshot.  The mapping outlives the file: once a newer one is renamed over
+     * it, the snapshot keeps reading the old records.
+     *
+     * @return the snapshot, or null if there is none or it is not readable
+     */
+    static ForecastSnapshot load(File file) {
+        if (!file.isFile()) {
+            return null;
+        }
+        try {
+            RandomAccessFile in = new RandomAccessFile(file, "r");
+            ByteBuffer buffer;
+            try {
+                buffer = in.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, in.length());
+            } finally {
+                in.close();
+            }
+            if (buffer.capacity() < HEADER_SIZE
+                    || buffer.getInt(HEADER_MAGIC) != MAGIC
+                    || buffer.getInt(HEADER_VERSION) != VERSION
+                    || buffer.getInt(HEADER_RECORD_SIZE) != RECORD_SIZE) {
+                Log.w(LOG_TAG, "Ignoring unknown forecast snapshot " + file);
+                return null;
+            }
+            int days = buffer.getInt(HEADER_DAYS);
+            int locationLength = buffer.getInt(HEADER_LOCATION_LENGTH);
+            if (days < 0 || buffer.capacity() < HEADER_SIZE + (long) days * RECORD_SIZE
+                    || locationLength < 0 || locationLength > LOCATION_CHARS) {
+                Log.w(LOG_TAG, "Ignoring truncated forecast snapshot " + file);
+                return null;
+            }
+            return new ForecastSnapshot(getChars(buffer, HEADER_LOCATION, locationLength),
+                    days, buffer);
+        } catch (IOException e) {
+            Log.e(LOG_TAG, "Error reading the forecast snapshot", e);
+            return null;
+        }
+    }
+
+    static File getFile(Context context) {
+        return new File(context.getFilesDir(), FILE_NAME);
+    }
+
+    private static void putChars(ByteBuffer buffer, int lengthOffset, int offset, String value,
+                                 int maxChars) {
+        int length = Math.min(value.length(), maxChars);
+        buffer.putInt(lengthOffset, length);
+        for (int i = 0; i < length; i++) {
+            buffer.putChar(offset + i * 2, value.charAt(i));
+        }
+    }
+
+    private static String getChars(ByteBuffer buffer, int offset, int length) {
+        char[] chars = new char[length];
+        for (int i = 0; i < length; i++) {
+            chars[i] = buffer.getChar(offset + i * 2);
+        }
+        return new String(chars);
+    }
+
+    public String getLocationSetting() {
+        return mLocationSetting;
+    }
+
+    /**
+     * @return when the sync that wrote the snapshot ran, in milliseconds since the epoch
+     */
+    public long getSyncTime() {
+        return mBuffer.getLong(HEADER_SYNC_TIME);
+    }
+
+    public int getDayCount() {
+        return mDays;
+    }
+
+    /**
+     * @return the index of today's forecast, or -1 if the snapshot does not include today
+     */
+    public int getTodayIndex() {
+        long today = WeatherContract.normalizeDate(System.currentTimeMillis());
+        for (int i = 0; i < mDays; i++) {
+            if (getDate(i) == today) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    public long getDate(int day) {
+        return mBuffer.getLong(record(day) + RECORD_DATE);
+    }
+
+    public int getWeatherId(int day) {
+        return mBuffer.getInt(record(day) + RECORD_WEATHER_ID);
+    }
+
+    public double getHigh(int day) {
+        return mBuffer.getDouble(record(day) + RECORD_HIGH);
+    }
+
+    public double getLow(int day) {
+        return mBuffer.getDouble(record(day) + RECORD_LOW);
+    }
+
+    public String getDescription(int day) {
+        int record = record(day);
+        int length = mBuffer.getInt(record + RECORD_DESCRIPTION_LENGTH);
+        return getChars(mBuffer, record + RECORD_DESCRIPTION,
+                Math.max(0, Math.min(length, DESCRIPTION_CHARS)));
+    }
+
+    /**
+     * @return the condition ids of every day, starting today
+     */
+    public int[] getWeatherIdsFromToday() {
+        int today = Math.max(getTodayIndex(), 0);
+        int[] weatherIds = new int[mDays - today];
+        for (int i = 0; i < weatherIds.length; i++) {
+            weatherIds[i] = getWeatherId(today + i);
+        }
+        return weatherIds;
+    }
+
+    private int record(int day) {
+        if (day < 0 || day >= mDays) {
+            throw new IndexOutOfBoundsException("Day " + day + " of " + mDays);
+        }
+        return HEADER_SIZE + day * RECORD_SIZE;
+    }
+}
@@ -0,0 +1,62 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.app.sync;
+
+import android.content.ContentValues;
+
+import com.example.android.sunshine.app.data.WeatherContract.HourlyEntry;
+import com.example.android.sunshine.shared.HourlyForecast;
+import com.example.android.sunshine.shared.WeatherStorage;
+import com.google.gson.stream.JsonReader;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Parses OpenWeatherMap's three hour forecast into rows of the hourly table.  The response is
+ * streamed by the shared {@link HourlyForecast}.
+ */
+final class HourlyForecastParser {
+
+    private HourlyForecastParser() {
+    }
+
+    /**
+     * @return the slots of the response, without their location, in the order received.  Slots
+     * missing their time or condition are dropped.
+     * @throws IOException if the response could not be read, or is an error
+     */
+    static List<ContentValues> parse(JsonReader reader) throws IOException {
+        HourlyForecast forecast = HourlyForecast.parse(reader);
+        List<ContentValues> slots = new ArrayList<ContentValues>(forecast.getCount());
+        for (int i = 0; i < forecast.getCount(); i++) {
+            ContentValues slot = new ContentValues();
+            slot.put(HourlyEntry.COLUMN_TIME, forecast.getTime(i));
+            int weatherId = forecast.getWeatherId(i);
+            slot.put(HourlyEntry.COLUMN_WEATHER_ID, weatherId);
+            // Described as the weather table describes its days, whatever the response says
+            slot.put(HourlyEntry.COLUMN_SHORT_DESC, WeatherStorage.getDescription(weatherId));
+            slot.put(HourlyEntry.COLUMN_TEMP, forecast.getTemperature(i));
+            slot.put(HourlyEntry.COLUMN_HUMIDITY, forecast.getHumidity(i));
+            slot.put(HourlyEntry.COLUMN_PRESSURE, forecast.getPressure(i));
+            slot.put(HourlyEntry.COLUMN_WIND_SPEED, forecast.getWindSpeed(i));
+            slot.put(HourlyEntry.COLUMN_DEGREES, forecast.getDegrees(i));
+            slots.add(slot);
+        }
+        return slots;
+    }
+}
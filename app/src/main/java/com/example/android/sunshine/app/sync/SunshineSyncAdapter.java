@@ -2,16 +2,17 @@ package com.example.android.sunshine.app.sync;
 
 import android.accounts.Account;
 import android.accounts.AccountManager;
-import android.annotation.SuppressLint;
 import android.app.NotificationManager;
 import android.app.PendingIntent;
 import android.content.AbstractThreadedSyncAdapter;
 import android.content.ContentProviderClient;
+import android.content.ContentProviderOperation;
 import android.content.ContentResolver;
 import android.content.ContentUris;
 import android.content.ContentValues;
 import android.content.Context;
 import android.content.Intent;
+import android.content.OperationApplicationException;
 import android.content.SharedPreferences;
 import android.content.SyncRequest;
 import android.content.SyncResult;
@@ -22,6 +23,7 @@ import android.graphics.BitmapFactory;
 import android.net.Uri;
 import android.os.Build;
 import android.os.Bundle;
+import android.os.RemoteException;
 import android.preference.PreferenceManager;
 import android.support.annotation.IntDef;
 import android.support.v4.app.NotificationCompat;
@@ -29,23 +31,28 @@ import android.support.v4.app.TaskStackBuilder;
 import android.text.format.Time;
 import android.util.Log;
 
-import com.bumptech.glide.Glide;
 import com.example.android.sunshine.app.BuildConfig;
 import com.example.android.sunshine.app.MainActivity;
 import com.example.android.sunshine.app.R;
+import com.example.android.sunshine.app.SunshineSettings;
 import com.example.android.sunshine.app.Utility;
+import com.example.android.sunshine.app.data.ForecastArchive;
+import com.example.android.sunshine.app.data.LocationRegistry;
 import com.example.android.sunshine.app.data.WeatherContract;
 import com.example.android.sunshine.app.muzei.WeatherMuzeiSource;
+import com.example.android.sunshine.app.widget.WidgetArtCache;
+import com.example.android.sunshine.shared.DailyForecast;
+import com.example.android.sunshine.shared.Metrics;
+import com.example.android.sunshine.shared.WeatherStorage;
 import com.google.android.gms.wearable.DataApi;
 import com.google.android.gms.wearable.DataEvent;
 import com.google.android.gms.wearable.DataEventBuffer;
 import com.google.android.gms.wearable.DataItem;
 import com.google.android.gms.wearable.DataMap;
 import com.google.android.gms.wearable.DataMapItem;
+import com.google.gson.stream.JsonReader;
 
-import org.json.JSONArray;
 import org.json.JSONException;
-import org.json.JSONObject;
 
 import java.io.BufferedReader;
 import java.io.IOException;
@@ -55,8 +62,10 @@ import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
 import java.net.HttpURLConnection;
 import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Vector;
-import java.util.concurrent.ExecutionException;
 
 public class SunshineSyncAdapter extends AbstractThreadedSyncAdapter {
     public final String LOG_TAG = SunshineSyncAdapter.class.getSimpleName();
@@ -68,21 +77,59 @@ public class SunshineSyncAdapter extends AbstractThreadedSyncAdapter {
     public static final int SYNC_INTERVAL = 60 * 180;
     public static final int SYNC_FLEXTIME = SYNC_INTERVAL/3;
     private static final long DAY_IN_MILLIS = 1000 * 60 * 60 * 24;
+    // Hourly slots are kept for a day after they started, so today's earlier slots stay around.
+    private static final long HOURLY_RETENTION_MILLIS = DAY_IN_MILLIS;
     private static final int WEATHER_NOTIFICATION_ID = 3004;
 
+    private static final String OWM_BASE_URL = "http://api.openweathermap.org/data/2.5/";
+    private static final int CONNECT_TIMEOUT_MILLIS = 15000;
+    private static final int READ_TIMEOUT_MILLIS = 30000;
+    // The three hour forecast is optional, so it is given up on sooner than the daily one
+    private static final int HOURLY_READ_TIMEOUT_MILLIS = 10000;
 
-    private static final String[] NOTIFY_WEATHER_PROJECTION = new String[] {
-            WeatherContract.WeatherEntry.COLUMN_WEATHER_ID,
-            WeatherContract.WeatherEntry.COLUMN_MAX_TEMP,
-            WeatherContract.WeatherEntry.COLUMN_MIN_TEMP,
-            WeatherContract.WeatherEntry.COLUMN_SHORT_DESC
-    };
+    // Where forecasts are requested from, a local server in tests
+    private static volatile String sBaseUrl = OWM_BASE_URL;
 
-    // these indices must match the projection
-    private static final int INDEX_WEATHER_ID = 0;
-    private static final int INDEX_MAX_TEMP = 1;
-    private static final int INDEX_MIN_TEMP = 2;
-    private static final int INDEX_SHORT_DESC = 3;
+    private static final Metrics.Timer SYNC_TIMER = Metrics.timer("sync.perform");
+    private static final Metrics.Counter SYNC_FAILURES = Metrics.counter("sync.failures");
+
+
+    // Everything that shows the forecast, handed each new forecast in parallel after a sync
+    private static final List<ForecastDispatcher.Consumer> POST_SYNC_CONSUMERS =
+            Arrays.<ForecastDispatcher.Consumer>asList(
+            new ForecastDispatcher.BaseConsumer("widgets", 2000) {
+                @Override
+                public void onForecast(Context context, ForecastSnapshot snapshot) {
+                    updateWidgets(context);
+                }
+            },
+            new ForecastDispatcher.BaseConsumer("art", 10000) {
+                @Override
+                public void onForecast(Context context, ForecastSnapshot snapshot) {
+                    // Decode the art ahead of the widget rows, which otherwise load it when
+                    // their list is refreshed.  The widgets are not held up waiting for it.
+                    WidgetArtCache.getInstance(context)
+                            .warmRows(snapshot.getWeatherIdsFromToday());
+                }
+            },
+            new ForecastDispatcher.BaseConsumer("muzei", 2000) {
+                @Override
+                public void onForecast(Context context, ForecastSnapshot snapshot) {
+                    updateMuzei(context);
+                }
+            },
+            new ForecastDispatcher.BaseConsumer("watch", 2000) {
+                @Override
+                public void onForecast(Context context, ForecastSnapshot snapshot) {
+                    updateWatch(context);
+                }
+            },
+            new ForecastDispatcher.BaseConsumer("notification", 10000) {
+                @Override
+                public void onForecast(Context context, ForecastSnapshot snapshot) {
+                    notifyWeather(context, snapshot);
+                }
+            });
 
 
     @Retention(RetentionPolicy.SOURCE)
@@ -101,14 +148,24 @@ public class SunshineSyncAdapter extends AbstractThreadedSyncAdapter {
 
     @Override
     public void onPerformSync(Account account, Bundle extras, String authority, ContentProviderClient provider, SyncResult syncResult) {
+        long start = SYNC_TIMER.start();
+        try {
+            performSync();
+        } finally {
+            SYNC_TIMER.stop(start);
+        }
+    }
+
+    private void performSync() {
         Log.d(LOG_TAG, "Starting sync");
 
         // We no longer need just the location String, but also potentially the latitude and
         // longitude, in case we are syncing based on a new Place Picker API result.
         Context context = getContext();
-        String locationQuery = Utility.getPreferredLocation(context);
-        String locationLatitude = String.valueOf(Utility.getLocationLatitude(context));
-        String locationLongitude = String.valueOf(Utility.getLocationLongitude(context));
+        SunshineSettings settings = SunshineSettings.get(context);
+        String locationQuery = settings.getLocationSetting();
+        String locationLatitude = String.valueOf(settings.getLocationLatitude());
+        String locationLongitude = String.valueOf(settings.getLocationLongitude());
 
         // These two need to be declared outside the try/catch
         // so that they can be closed in the finally block.
@@ -126,8 +183,7 @@ public class SunshineSyncAdapter extends AbstractThreadedSyncAdapter {
             // Construct the URL for the OpenWeatherMap query
             // Possible parameters are avaiable at OWM's forecast API page, at
             // http://openweathermap.org/API#forecast
-            final String FORECAST_BASE_URL =
-                    "http://api.openweathermap.org/data/2.5/forecast/daily?";
+            final String FORECAST_BASE_URL = sBaseUrl + "forecast/daily?";
             final String QUERY_PARAM = "q";
             final String LAT_PARAM = "lat";
             final String LON_PARAM = "lon";
@@ -144,7 +200,7 @@ public class SunshineSyncAdapter extends AbstractThreadedSyncAdapter {
             // if we have a lat/lon to work with, and use those when we do. Otherwise, the weather
             // service may not understand the location address provided by the Place Picker API
             // and the user could end up with no weather! The horror!
-            if (Utility.isLocationLatLonAvailable(context)) {
+            if (settings.isLocationLatLonAvailable()) {
                 uriBuilder.appendQueryParameter(LAT_PARAM, locationLatitude)
                         .appendQueryParameter(LON_PARAM, locationLongitude);
             } else {
@@ -162,8 +218,20 @@ public class SunshineSyncAdapter extends AbstractThreadedSyncAdapter {
             // Create the request to OpenWeatherMap, and open the connection
             urlConnection = (HttpURLConnection) url.openConnection();
             urlConnection.setRequestMethod("GET");
+            urlConnection.setConnectTimeout(CONNECT_TIMEOUT_MILLIS);
+            urlConnection.setReadTimeout(READ_TIMEOUT_MILLIS);
             urlConnection.connect();
 
+            // Errors may come as an HTTP status instead of a code in the response
+            int responseCode = urlConnection.getResponseCode();
+            if (responseCode == HttpURLConnection.HTTP_NOT_FOUND) {
+                setLocationStatus(getContext(), LOCATION_STATUS_INVALID);
+                return;
+            } else if (responseCode != HttpURLConnection.HTTP_OK) {
+                setLocationStatus(getContext(), LOCATION_STATUS_SERVER_DOWN);
+                return;
+            }
+
             // Read the input stream into a String
             InputStream inputStream = urlConnection.getInputStream();
             StringBuffer buffer = new StringBuffer();
@@ -187,7 +255,8 @@ public class SunshineSyncAdapter extends AbstractThreadedSyncAdapter {
                 return;
             }
             forecastJsonStr = buffer.toString();
-            getWeatherDataFromJson(forecastJsonStr, locationQuery);
+            List<ContentValues> hourlyValues = fetchHourlyForecast(settings);
+            getWeatherDataFromJson(forecastJsonStr, locationQuery, hourlyValues);
         } catch (IOException e) {
             Log.e(LOG_TAG, "Error ", e);
             // If the code didn't successfully get the weather data, there's no point in attempting
@@ -212,84 +281,99 @@ public class SunshineSyncAdapter extends AbstractThreadedSyncAdapter {
         return;
     }
 
+    /**
+     * Downloads and parses the three hour forecast for the location of the settings.  The daily
+     * forecast is what the app cannot do without, so a failure here is only logged, and a slow
+     * response is not waited on for as long.
+     *
+     * @return the slots, without their location, or an empty list if they could not be fetched
+     */
+    private List<ContentValues> fetchHourlyForecast(SunshineSettings settings) {
+        final String HOURLY_BASE_URL = sBaseUrl + "forecast?";
+        final String QUERY_PARAM = "q";
+        final String LAT_PARAM = "lat";
+        final String LON_PARAM = "lon";
+        final String UNITS_PARAM = "units";
+        final String APPID_PARAM = "APPID";
+
+        Uri.Builder uriBuilder = Uri.parse(HOURLY_BASE_URL).buildUpon();
+        if (settings.isLocationLatLonAvailable()) {
+            uriBuilder
+                    .appendQueryParameter(LAT_PARAM,
+                            String.valueOf(settings.getLocationLatitude()))
+                    .appendQueryParameter(LON_PARAM,
+                            String.valueOf(settings.getLocationLongitude()));
+        } else {
+            uriBuilder.appendQueryParameter(QUERY_PARAM, settings.getLocationSetting());
+        }
+        Uri builtUri = uriBuilder.appendQueryParameter(UNITS_PARAM, "metric")
+                .appendQueryParameter(APPID_PARAM, BuildConfig.OPEN_WEATHER_MAP_API_KEY)
+                .build();
+
+        HttpURLConnection urlConnection = null;
+        JsonReader reader = null;
+        try {
+            URL url = new URL(builtUri.toString());
+            urlConnection = (HttpURLConnection) url.openConnection();
+            urlConnection.setRequestMethod("GET");
+            urlConnection.setConnectTimeout(CONNECT_TIMEOUT_MILLIS);
+            urlConnection.setReadTimeout(HOURLY_READ_TIMEOUT_MILLIS);
+            urlConnection.connect();
+
+            // Parse straight off the stream, the response is never held as a String
+            reader = new JsonReader(new BufferedReader(
+                    new InputStreamReader(urlConnection.getInputStream(), "UTF-8")));
+            return HourlyForecastParser.parse(reader);
+        } catch (IOException | IllegalStateException | NumberFormatException e) {
+            // IllegalStateException: the response was not shaped as expected.
+            // NumberFormatException: a number field held something else.
+            Log.e(LOG_TAG, "Error fetching the hourly forecast", e);
+            return new ArrayList<ContentValues>();
+        } finally {
+            if (urlConnection != null) {
+                urlConnection.disconnect();
+            }
+            if (reader != null) {
+                try {
+                    reader.close();
+                } catch (final IOException e) {
+                    Log.e(LOG_TAG, "Error closing stream", e);
+                }
+            }
+        }
+    }
+
     /**
      * Take the String representing the complete forecast in JSON Format and
      * pull out the data we need to construct the Strings needed for the wireframes.
      *
-     * Fortunately parsing is easy:  constructor takes the JSON string and converts it
-     * into an Object hierarchy for us.
+     * The response is parsed by the shared {@link DailyForecast}.
      */
     private void getWeatherDataFromJson(String forecastJsonStr,
-                                        String locationSetting)
+                                        String locationSetting,
+                                        List<ContentValues> hourlyValues)
             throws JSONException {
-
-        // Now we have a String representing the complete forecast in JSON Format.
-        // Fortunately parsing is easy:  constructor takes the JSON string and converts it
-        // into an Object hierarchy for us.
-
-        // These are the names of the JSON objects that need to be extracted.
-
-        // Location information
-        final String OWM_CITY = "city";
-        final String OWM_CITY_NAME = "name";
-        final String OWM_COORD = "coord";
-
-        // Location coordinate
-        final String OWM_LATITUDE = "lat";
-        final String OWM_LONGITUDE = "lon";
-
-        // Weather information.  Each day's forecast info is an element of the "list" array.
-        final String OWM_LIST = "list";
-
-        final String OWM_PRESSURE = "pressure";
-        final String OWM_HUMIDITY = "humidity";
-        final String OWM_WINDSPEED = "speed";
-        final String OWM_WIND_DIRECTION = "deg";
-
-        // All temperatures are children of the "temp" object.
-        final String OWM_TEMPERATURE = "temp";
-        final String OWM_MAX = "max";
-        final String OWM_MIN = "min";
-
-        final String OWM_WEATHER = "weather";
-        final String OWM_DESCRIPTION = "main";
-        final String OWM_WEATHER_ID = "id";
-
-        final String OWM_MESSAGE_CODE = "cod";
-
         try {
-            JSONObject forecastJson = new JSONObject(forecastJsonStr);
+            DailyForecast forecast = DailyForecast.parse(forecastJsonStr);
             Context context = getContext();
 
             // do we have an error?
-            if ( forecastJson.has(OWM_MESSAGE_CODE) ) {
-                int errorCode = forecastJson.getInt(OWM_MESSAGE_CODE);
-
-                switch (errorCode) {
-                    case HttpURLConnection.HTTP_OK:
-                        break;
-                    case HttpURLConnection.HTTP_NOT_FOUND:
-                        setLocationStatus(getContext(), LOCATION_STATUS_INVALID);
-                        return;
-                    default:
-                        setLocationStatus(getContext(), LOCATION_STATUS_SERVER_DOWN);
-                        return;
-                }
+            switch (forecast.getCode()) {
+                case HttpURLConnection.HTTP_OK:
+                    break;
+                case HttpURLConnection.HTTP_NOT_FOUND:
+                    setLocationStatus(getContext(), LOCATION_STATUS_INVALID);
+                    return;
+                default:
+                    setLocationStatus(getContext(), LOCATION_STATUS_SERVER_DOWN);
+                    return;
             }
 
-            JSONArray weatherArray = forecastJson.getJSONArray(OWM_LIST);
-
-            JSONObject cityJson = forecastJson.getJSONObject(OWM_CITY);
-            String cityName = cityJson.getString(OWM_CITY_NAME);
-
-            JSONObject cityCoord = cityJson.getJSONObject(OWM_COORD);
-            double cityLatitude = cityCoord.getDouble(OWM_LATITUDE);
-            double cityLongitude = cityCoord.getDouble(OWM_LONGITUDE);
-
-            long locationId = addLocation(locationSetting, cityName, cityLatitude, cityLongitude);
+            long locationId = addLocation(locationSetting, forecast.getCityName(),
+                    forecast.getLatitude(), forecast.getLongitude());
 
             // Insert the new weather information into the database
-            Vector<ContentValues> cVVector = new Vector<ContentValues>(weatherArray.length());
+            Vector<ContentValues> cVVector = new Vector<ContentValues>(forecast.getCount());
 
             // OWM returns daily forecasts based upon the local time of the city that is being
             // asked for, which means that we need to know the GMT offset to translate this data
@@ -308,56 +392,29 @@ public class SunshineSyncAdapter extends AbstractThreadedSyncAdapter {
             // now we work exclusively in UTC
             dayTime = new Time();
 
-            for(int i = 0; i < weatherArray.length(); i++) {
-                // These are the values that will be collected.
-                long dateTime;
-                double pressure;
-                int humidity;
-                double windSpeed;
-                double windDirection;
-
-                double high;
-                double low;
-
-                String description;
-                int weatherId;
-
-                // Get the JSON object representing the day
-                JSONObject dayForecast = weatherArray.getJSONObject(i);
-
+            for(int i = 0; i < forecast.getCount(); i++) {
                 // Cheating to convert this to UTC time, which is what we want anyhow
-                dateTime = dayTime.setJulianDay(julianStartDay+i);
-
-                pressure = dayForecast.getDouble(OWM_PRESSURE);
-                humidity = dayForecast.getInt(OWM_HUMIDITY);
-                windSpeed = dayForecast.getDouble(OWM_WINDSPEED);
-                windDirection = dayForecast.getDouble(OWM_WIND_DIRECTION);
-
-                // Description is in a child array called "weather", which is 1 element long.
-                // That element also contains a weather code.
-                JSONObject weatherObject =
-                        dayForecast.getJSONArray(OWM_WEATHER).getJSONObject(0);
-                description = weatherObject.getString(OWM_DESCRIPTION);
-                weatherId = weatherObject.getInt(OWM_WEATHER_ID);
-
-                // Temperatures are in a child object called "temp".  Try not to name variables
-                // "temp" when working with temperature.  It confuses everybody.
-                JSONObject temperatureObject = dayForecast.getJSONObject(OWM_TEMPERATURE);
-                high = temperatureObject.getDouble(OWM_MAX);
-                low = temperatureObject.getDouble(OWM_MIN);
+                long dateTime = dayTime.setJulianDay(julianStartDay+i);
 
                 ContentValues weatherValues = new ContentValues();
 
                 weatherValues.put(WeatherContract.WeatherEntry.COLUMN_LOC_KEY, locationId);
                 weatherValues.put(WeatherContract.WeatherEntry.COLUMN_DATE, dateTime);
-                weatherValues.put(WeatherContract.WeatherEntry.COLUMN_HUMIDITY, humidity);
-                weatherValues.put(WeatherContract.WeatherEntry.COLUMN_PRESSURE, pressure);
-                weatherValues.put(WeatherContract.WeatherEntry.COLUMN_WIND_SPEED, windSpeed);
-                weatherValues.put(WeatherContract.WeatherEntry.COLUMN_DEGREES, windDirection);
-                weatherValues.put(WeatherContract.WeatherEntry.COLUMN_MAX_TEMP, high);
-                weatherValues.put(WeatherContract.WeatherEntry.COLUMN_MIN_TEMP, low);
-                weatherValues.put(WeatherContract.WeatherEntry.COLUMN_SHORT_DESC, description);
-                weatherValues.put(WeatherContract.WeatherEntry.COLUMN_WEATHER_ID, weatherId);
+                weatherValues.put(WeatherContract.WeatherEntry.COLUMN_HUMIDITY,
+                        forecast.getHumidity(i));
+                weatherValues.put(WeatherContract.WeatherEntry.COLUMN_PRESSURE,
+                        forecast.getPressure(i));
+                weatherValues.put(WeatherContract.WeatherEntry.COLUMN_WIND_SPEED,
+                        forecast.getWindSpeed(i));
+                weatherValues.put(WeatherContract.WeatherEntry.COLUMN_DEGREES,
+                        forecast.getDegrees(i));
+                weatherValues.put(WeatherContract.WeatherEntry.COLUMN_MAX_TEMP,
+                        forecast.getHigh(i));
+                weatherValues.put(WeatherContract.WeatherEntry.COLUMN_MIN_TEMP, forecast.getLow(i));
+                weatherValues.put(WeatherContract.WeatherEntry.COLUMN_SHORT_DESC,
+                        forecast.getDescription(i));
+                weatherValues.put(WeatherContract.WeatherEntry.COLUMN_WEATHER_ID,
+                        forecast.getWeatherId(i));
 
                 cVVector.add(weatherValues);
             }
@@ -367,19 +424,67 @@ public class SunshineSyncAdapter extends AbstractThreadedSyncAdapter {
             if ( cVVector.size() > 0 ) {
                 ContentValues[] cvArray = new ContentValues[cVVector.size()];
                 cVVector.toArray(cvArray);
-                getContext().getContentResolver().bulkInsert(WeatherContract.WeatherEntry.CONTENT_URI, cvArray);
 
-                // delete old data so we don't build up an endless history
-                getContext().getContentResolver().delete(WeatherContract.WeatherEntry.CONTENT_URI,
-                        WeatherContract.WeatherEntry.COLUMN_DATE + " <= ?",
-                        new String[]{Long.toString(dayTime.setJulianDay(julianStartDay - 1))});
+                // move old data to the archive so the weather table stays small.  Days that
+                // could not be archived are kept, and archived by the next sync.
+                long cutoffDate = dayTime.setJulianDay(julianStartDay - 1);
+                boolean archived;
+                try {
+                    ForecastArchive.getInstance(getContext())
+                            .archiveExpired(getContext().getContentResolver(), cutoffDate);
+                    archived = true;
+                } catch (IOException e) {
+                    Log.e(LOG_TAG, "Error archiving expired days, keeping them", e);
+                    archived = false;
+                }
 
-                updateWidgets();
-                updateMuzei();
-                updateWatch();
-                notifyWeather();
+                // The days, their three hour slots and the cleanup are committed together
+                int capacity = cvArray.length + hourlyValues.size() + 2;
+                ArrayList<ContentProviderOperation> operations =
+                        new ArrayList<ContentProviderOperation>(capacity);
+                for (ContentValues values : cvArray) {
+                    operations.add(ContentProviderOperation
+                            .newInsert(WeatherContract.WeatherEntry.CONTENT_URI)
+                            .withValues(values)
+                            .build());
+                }
+                if (archived) {
+                    operations.add(ContentProviderOperation
+                            .newDelete(WeatherContract.WeatherEntry.CONTENT_URI)
+                            .withSelection(WeatherStorage.SELECTION_EXPIRED,
+                                    new String[]{Long.toString(cutoffDate)})
+                            .build());
+                }
+                for (ContentValues values : hourlyValues) {
+                    values.put(WeatherContract.HourlyEntry.COLUMN_LOC_KEY, locationId);
+                    operations.add(ContentProviderOperation
+                            .newInsert(WeatherContract.HourlyEntry.CONTENT_URI)
+                            .withValues(values)
+                            .build());
+                }
+                operations.add(ContentProviderOperation
+                        .newDelete(WeatherContract.HourlyEntry.CONTENT_URI)
+                        .withSelection(WeatherContract.HourlyEntry.COLUMN_TIME + " < ?",
+                                new String[]{Long.toString(
+                                        System.currentTimeMillis() - HOURLY_RETENTION_MILLIS)})
+                        .build());
+                try {
+                    getContext().getContentResolver()
+                            .applyBatch(WeatherContract.CONTENT_AUTHORITY, operations);
+                } catch (RemoteException | OperationApplicationException e) {
+                    Log.e(LOG_TAG, "Error storing the forecast", e);
+                    return;
+                }
+
+                // Keep a copy for readers after a restart, then hand the new forecast to
+                // everything that shows it
+                ForecastSnapshot snapshot =
+                        ForecastSnapshot.fromContentValues(locationSetting, cvArray);
+                snapshot.save(getContext());
+                ForecastDispatcher.dispatch(getContext(), snapshot, POST_SYNC_CONSUMERS);
             }
-            Log.d(LOG_TAG, "Sync Complete. " + cVVector.size() + " Inserted");
+            Log.d(LOG_TAG, "Sync Complete. " + cVVector.size() + " days and "
+                    + hourlyValues.size() + " hourly slots Inserted");
             setLocationStatus(getContext(), LOCATION_STATUS_OK);
 
         } catch (JSONException e) {
@@ -389,34 +494,30 @@ public class SunshineSyncAdapter extends AbstractThreadedSyncAdapter {
         }
     }
 
-    private void updateWidgets() {
-        Context context = getContext();
+    private static void updateWidgets(Context context) {
         // Setting the package ensures that only components in our app will receive the broadcast
         Intent dataUpdatedIntent = new Intent(ACTION_DATA_UPDATED)
                 .setPackage(context.getPackageName());
         context.sendBroadcast(dataUpdatedIntent);
     }
 
-    private void updateMuzei() {
+    private static void updateMuzei(Context context) {
         // Muzei is only compatible with Jelly Bean MR1+ devices, so there's no need to update the
         // Muzei background on lower API level devices
         if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR1) {
-            Context context = getContext();
             context.startService(new Intent(ACTION_DATA_UPDATED)
                     .setClass(context, WeatherMuzeiSource.class));
         }
     }
 
-    private void updateWatch() {
+    private static void updateWatch(Context context) {
         if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
-            Context context = getContext();
             context.startService(new Intent(ACTION_DATA_UPDATED)
                     .setClass(context, SunshineWearableUpdateService.class));
         }
     }
 
-    private void notifyWeather() {
-        Context context = getContext();
+    private static void notifyWeather(Context context, ForecastSnapshot snapshot) {
         //checking the last update and notify if it' the first of the day
         SharedPreferences prefs = PreferenceManager.getDefaultSharedPreferences(context);
         String displayNotificationsKey = context.getString(R.string.pref_enable_notifications_key);
@@ -430,46 +531,23 @@ public class SunshineSyncAdapter extends AbstractThreadedSyncAdapter {
 
             if (System.currentTimeMillis() - lastSync >= DAY_IN_MILLIS) {
                 // Last sync was more than 1 day ago, let's send a notification with the weather.
-                String locationQuery = Utility.getPreferredLocation(context);
-
-                Uri weatherUri = WeatherContract.WeatherEntry.buildWeatherLocationWithDate(locationQuery, System.currentTimeMillis());
-
-                // we'll query our contentProvider, as always
-                Cursor cursor = context.getContentResolver().query(weatherUri, NOTIFY_WEATHER_PROJECTION, null, null, null);
-
-                if (cursor.moveToFirst()) {
-                    int weatherId = cursor.getInt(INDEX_WEATHER_ID);
-                    double high = cursor.getDouble(INDEX_MAX_TEMP);
-                    double low = cursor.getDouble(INDEX_MIN_TEMP);
-                    String desc = cursor.getString(INDEX_SHORT_DESC);
+                int today = snapshot.getTodayIndex();
+                if (today >= 0) {
+                    int weatherId = snapshot.getWeatherId(today);
+                    double high = snapshot.getHigh(today);
+                    double low = snapshot.getLow(today);
+                    String desc = snapshot.getDescription(today);
 
                     int iconId = Utility.getIconResourceForWeatherCondition(weatherId);
                     Resources resources = context.getResources();
                     int artResourceId = Utility.getArtResourceForWeatherCondition(weatherId);
                     String artUrl = Utility.getArtUrlForWeatherCondition(context, weatherId);
 
-                    // On Honeycomb and higher devices, we can retrieve the size of the large icon
-                    // Prior to that, we use a fixed size
-                    @SuppressLint("InlinedApi")
-                    int largeIconWidth = Build.VERSION.SDK_INT >= Build.VERSION_CODES.HONEYCOMB
-                            ? resources.getDimensionPixelSize(android.R.dimen.notification_large_icon_width)
-                            : resources.getDimensionPixelSize(R.dimen.notification_large_icon_default);
-                    @SuppressLint("InlinedApi")
-                    int largeIconHeight = Build.VERSION.SDK_INT >= Build.VERSION_CODES.HONEYCOMB
-                            ? resources.getDimensionPixelSize(android.R.dimen.notification_large_icon_height)
-                            : resources.getDimensionPixelSize(R.dimen.notification_large_icon_default);
-
                     // Retrieve the large icon
-                    Bitmap largeIcon;
-                    try {
-                        largeIcon = Glide.with(context)
-                                .load(artUrl)
-                                .asBitmap()
-                                .error(artResourceId)
-                                .fitCenter()
-                                .into(largeIconWidth, largeIconHeight).get();
-                    } catch (InterruptedException | ExecutionException e) {
-                        Log.e(LOG_TAG, "Error retrieving large icon from " + artUrl, e);
+                    Bitmap largeIcon = WidgetArtCache.getInstance(context).load(artUrl,
+                            artResourceId, WidgetArtCache.getLargeIconWidth(context),
+                            WidgetArtCache.getLargeIconHeight(context));
+                    if (largeIcon == null) {
                         largeIcon = BitmapFactory.decodeResource(resources, artResourceId);
                     }
                     String title = context.getString(R.string.app_name);
@@ -483,7 +561,7 @@ public class SunshineSyncAdapter extends AbstractThreadedSyncAdapter {
                     // NotificationCompatBuilder is a very convenient way to build backward-compatible
                     // notifications.  Just throw in some data.
                     NotificationCompat.Builder mBuilder =
-                            new NotificationCompat.Builder(getContext())
+                            new NotificationCompat.Builder(context)
                                     .setColor(resources.getColor(R.color.primary_light))
                                     .setSmallIcon(iconId)
                                     .setLargeIcon(largeIcon)
@@ -508,7 +586,7 @@ public class SunshineSyncAdapter extends AbstractThreadedSyncAdapter {
                     mBuilder.setContentIntent(resultPendingIntent);
 
                     NotificationManager mNotificationManager =
-                            (NotificationManager) getContext().getSystemService(Context.NOTIFICATION_SERVICE);
+                            (NotificationManager) context.getSystemService(Context.NOTIFICATION_SERVICE);
                     // WEATHER_NOTIFICATION_ID allows you to update the notification later on.
                     mNotificationManager.notify(WEATHER_NOTIFICATION_ID, mBuilder.build());
 
@@ -517,7 +595,6 @@ public class SunshineSyncAdapter extends AbstractThreadedSyncAdapter {
                     editor.putLong(lastNotificationKey, System.currentTimeMillis());
                     editor.commit();
                 }
-                cursor.close();
             }
         }
     }
@@ -532,42 +609,46 @@ public class SunshineSyncAdapter extends AbstractThreadedSyncAdapter {
      * @return the row ID of the added location.
      */
     long addLocation(String locationSetting, String cityName, double lat, double lon) {
-        long locationId;
-
         // First, check if the location with this city name exists in the db
-        Cursor locationCursor = getContext().getContentResolver().query(
-                WeatherContract.LocationEntry.CONTENT_URI,
-                new String[]{WeatherContract.LocationEntry._ID},
-                WeatherContract.LocationEntry.COLUMN_LOCATION_SETTING + " = ?",
-                new String[]{locationSetting},
-                null);
-
-        if (locationCursor.moveToFirst()) {
-            int locationIdIndex = locationCursor.getColumnIndex(WeatherContract.LocationEntry._ID);
-            locationId = locationCursor.getLong(locationIdIndex);
-        } else {
-            // Now that the content provider is set up, inserting rows of data is pretty simple.
-            // First create a ContentValues object to hold the data you want to insert.
-            ContentValues locationValues = new ContentValues();
-
-            // Then add the data, along with the corresponding name of the data type,
-            // so the content provider knows what kind of value is being inserted.
-            locationValues.put(WeatherContract.LocationEntry.COLUMN_CITY_NAME, cityName);
-            locationValues.put(WeatherContract.LocationEntry.COLUMN_LOCATION_SETTING, locationSetting);
-            locationValues.put(WeatherContract.LocationEntry.COLUMN_COORD_LAT, lat);
-            locationValues.put(WeatherContract.LocationEntry.COLUMN_COORD_LONG, lon);
-
-            // Finally, insert location data into the database.
-            Uri insertedUri = getContext().getContentResolver().insert(
+        long locationId = LocationRegistry.getLocationId(getContext(), locationSetting);
+
+        if (locationId == -1) {
+            // Not a location the registry knows about; it may still have been added behind
+            // the provider's back, so ask the database before inserting it.
+            Cursor locationCursor = getContext().getContentResolver().query(
                     WeatherContract.LocationEntry.CONTENT_URI,
-                    locationValues
-            );
+                    new String[]{WeatherContract.LocationEntry._ID},
+                    WeatherContract.LocationEntry.COLUMN_LOCATION_SETTING + " = ?",
+                    new String[]{locationSetting},
+                    null);
+
+            if (locationCursor.moveToFirst()) {
+                int locationIdIndex = locationCursor.getColumnIndex(WeatherContract.LocationEntry._ID);
+                locationId = locationCursor.getLong(locationIdIndex);
+            } else {
+                // Now that the content provider is set up, inserting rows of data is pretty simple.
+                // First create a ContentValues object to hold the data you want to insert.
+                ContentValues locationValues = new ContentValues();
+
+                // Then add the data, along with the corresponding name of the data type,
+                // so the content provider knows what kind of value is being inserted.
+                locationValues.put(WeatherContract.LocationEntry.COLUMN_CITY_NAME, cityName);
+                locationValues.put(WeatherContract.LocationEntry.COLUMN_LOCATION_SETTING, locationSetting);
+                locationValues.put(WeatherContract.LocationEntry.COLUMN_COORD_LAT, lat);
+                locationValues.put(WeatherContract.LocationEntry.COLUMN_COORD_LONG, lon);
+
+                // Finally, insert location data into the database.
+                Uri insertedUri = getContext().getContentResolver().insert(
+                        WeatherContract.LocationEntry.CONTENT_URI,
+                        locationValues
+                );
+
+                // The resulting URI contains the ID for the row.  Extract the locationId from the Uri.
+                locationId = ContentUris.parseId(insertedUri);
+            }
 
-            // The resulting URI contains the ID for the row.  Extract the locationId from the Uri.
-            locationId = ContentUris.parseId(insertedUri);
+            locationCursor.close();
         }
-
-        locationCursor.close();
         // Wait, that worked?  Yes!
         return locationId;
     }
@@ -663,6 +744,16 @@ public class SunshineSyncAdapter extends AbstractThreadedSyncAdapter {
         getSyncAccount(context);
     }
 
+    /**
+     * Points the sync at another server, serving the same API as OpenWeatherMap.
+     *
+     * @param baseUrl URL the endpoint paths are appended to, like "http://localhost:8080/", or
+     *                null to go back to OpenWeatherMap
+     */
+    static void setBaseUrl(String baseUrl) {
+        sBaseUrl = baseUrl != null ? baseUrl : OWM_BASE_URL;
+    }
+
     /**
      * Sets the location status into shared preference.  This function should not be called from
      * the UI thread because it uses commit to write to the shared preferences.
@@ -670,6 +761,9 @@ public class SunshineSyncAdapter extends AbstractThreadedSyncAdapter {
      * @param locationStatus The IntDef value to set
      */
     static private void setLocationStatus(Context c, @LocationStatus int locationStatus){
+        if (locationStatus != LOCATION_STATUS_OK) {
+            SYNC_FAILURES.inc();
+        }
         SharedPreferences sp = PreferenceManager.getDefaultSharedPreferences(c);
         SharedPreferences.Editor spe = sp.edit();
         spe.putInt(c.getString(R.string.pref_location_status_key), locationStatus);
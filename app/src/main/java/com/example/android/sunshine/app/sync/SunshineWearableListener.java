@@ -7,6 +7,8 @@ import android.os.Build;
 import android.os.IBinder;
 import android.util.Log;
 
+import com.example.android.sunshine.shared.FrameTrace;
+import com.example.android.sunshine.shared.Metrics;
 import com.google.android.gms.wearable.DataEvent;
 import com.google.android.gms.wearable.DataEventBuffer;
 import com.google.android.gms.wearable.DataItem;
@@ -19,6 +21,15 @@ public class SunshineWearableListener extends WearableListenerService {
     private static final String WEATHER_UPDATE_PATH = "/weather_update";
     private static final String TAG = SunshineWearableListener.class.getSimpleName();
 
+    // A watch frame drawn slower than this misses the next vsync
+    private static final long JANK_MICROS = 16667;
+
+    private static final Metrics.Timer TRACE_DRAW = Metrics.timer("watch.trace.draw");
+    private static final Metrics.Counter TRACE_JANK = Metrics.counter("watch.trace.jank");
+    private static final Metrics.Histogram TRACE_DRIFT = Metrics.histogram("watch.trace.drift");
+    private static final Metrics.Histogram TRACE_INVALIDATES =
+            Metrics.histogram("watch.trace.invalidatesPerMinute");
+
     @Override
     public void onDataChanged(DataEventBuffer dataEvents) {
         super.onDataChanged(dataEvents);
@@ -30,10 +41,51 @@ public class SunshineWearableListener extends WearableListenerService {
                     if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
                         startService(new Intent(SunshineSyncAdapter.ACTION_DATA_UPDATED).setClass(this, SunshineWearableUpdateService.class));
                     }
+                } else if (item.getUri().getPath().compareTo(FrameTrace.PATH) == 0) {
+                    reportFrameTrace(DataMapItem.fromDataItem(item).getDataMap());
                 }
             } else if (event.getType() == DataEvent.TYPE_DELETED) {
                 // DataItem deleted
             }
         }
     }
+
+    /**
+     * Adds a frame trace sent by the watch face to the "watch.trace" metrics, and logs a
+     * summary of it.  Draw times are in microseconds, tick drift in milliseconds; ticks that ran
+     * early are counted as on time.
+     */
+    private void reportFrameTrace(DataMap map) {
+        long[] drawMicros = map.getLongArray(FrameTrace.KEY_DRAW_MICROS);
+        long[] tickDrift = map.getLongArray(FrameTrace.KEY_TICK_DRIFT);
+        long[] invalidates = map.getLongArray(FrameTrace.KEY_INVALIDATES);
+        if (drawMicros == null || tickDrift == null || invalidates == null) {
+            return;
+        }
+        int jank = 0;
+        long worstDraw = 0;
+        for (long micros : drawMicros) {
+            TRACE_DRAW.record(micros);
+            if (micros > JANK_MICROS) {
+                jank++;
+            }
+            worstDraw = Math.max(worstDraw, micros);
+        }
+        TRACE_JANK.add(jank);
+        long worstDrift = 0;
+        for (long drift : tickDrift) {
+            if (drift != FrameTrace.NO_DRIFT) {
+                TRACE_DRIFT.record(drift);
+                worstDrift = Math.max(worstDrift, drift);
+            }
+        }
+        long mostInvalidates = 0;
+        for (long count : invalidates) {
+            TRACE_INVALIDATES.record(count);
+            mostInvalidates = Math.max(mostInvalidates, count);
+        }
+        Log.i(TAG, "Watch frame trace: " + drawMicros.length + " frames, " + jank
+                + " over " + JANK_MICROS + " us, slowest " + worstDraw + " us, latest tick "
+                + worstDrift + " ms late, at most " + mostInvalidates + " invalidates a minute");
+    }
 }
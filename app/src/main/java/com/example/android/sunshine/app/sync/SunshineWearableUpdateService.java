@@ -7,8 +7,10 @@ import android.net.Uri;
 import android.os.Bundle;
 import android.util.Log;
 
+import com.example.android.sunshine.app.SunshineSettings;
 import com.example.android.sunshine.app.Utility;
 import com.example.android.sunshine.app.data.WeatherContract;
+import com.example.android.sunshine.shared.Metrics;
 import com.google.android.gms.common.ConnectionResult;
 import com.google.android.gms.common.api.GoogleApiClient;
 import com.google.android.gms.common.api.ResultCallback;
@@ -26,6 +28,12 @@ public class SunshineWearableUpdateService extends IntentService implements Goog
     private GoogleApiClient mGoogleApiClient;
     public final String LOG_TAG = SunshineWearableUpdateService.class.getSimpleName();
     private static final String WEATHER_PATH = "/weather";
+    private static final String KEY_BLINK_COLON = "blink_colon";
+    // The temperatures are sent in Celsius, and formatted by the watch in these units
+    private static final String KEY_METRIC = "metric";
+
+    private static final Metrics.Timer PUSH_TIMER = Metrics.timer("watch.push");
+    private static final Metrics.Counter PUSH_FAILURES = Metrics.counter("watch.push.failures");
 
     private static final String[] NOTIFY_WEATHER_PROJECTION = new String[] {
             WeatherContract.WeatherEntry.COLUMN_WEATHER_ID,
@@ -61,36 +69,22 @@ public class SunshineWearableUpdateService extends IntentService implements Goog
     public void onConnected(Bundle bundle) {
 
         String locationQuery = Utility.getPreferredLocation(this);
+        ForecastSnapshot snapshot = ForecastSnapshot.getLatest(this);
+        // Midnight may have passed since getLatest, resolve today once
+        int today = snapshot != null ? snapshot.getTodayIndex() : -1;
+        if (today >= 0) {
+            putWeather(locationQuery, snapshot.getWeatherId(today), snapshot.getHigh(today),
+                    snapshot.getLow(today), snapshot.getDescription(today));
+            return;
+        }
+
         Uri weatherUri = WeatherContract.WeatherEntry.buildWeatherLocationWithDate(locationQuery, System.currentTimeMillis());
         Cursor cursor = getContentResolver().query(weatherUri, NOTIFY_WEATHER_PROJECTION, null, null, null);
 
         if (cursor.moveToFirst()) {
-            int weatherId = cursor.getInt(INDEX_WEATHER_ID);
-            double high = cursor.getDouble(INDEX_MAX_TEMP);
-            double low = cursor.getDouble(INDEX_MIN_TEMP);
-            String desc = cursor.getString(INDEX_SHORT_DESC);
-
-            PutDataMapRequest putDataMapReq = PutDataMapRequest.create(WEATHER_PATH);
-            DataMap putMap = putDataMapReq.getDataMap();
-            putMap.putLong("time", System.currentTimeMillis());
-            putMap.putString("location", locationQuery);
-            putMap.putInt(WeatherContract.WeatherEntry.COLUMN_WEATHER_ID, weatherId);
-            putMap.putDouble(WeatherContract.WeatherEntry.COLUMN_MAX_TEMP, high);
-            putMap.putDouble(WeatherContract.WeatherEntry.COLUMN_MIN_TEMP, low);
-            putMap.putString(WeatherContract.WeatherEntry.COLUMN_SHORT_DESC, desc);
-
-            PutDataRequest putDataReq = putDataMapReq.asPutDataRequest();
-            Wearable.DataApi.putDataItem(mGoogleApiClient, putDataReq)
-                .setResultCallback(new ResultCallback<DataApi.DataItemResult>() {
-                    @Override
-                    public void onResult(DataApi.DataItemResult dataItemResult) {
-                        if (!dataItemResult.getStatus().isSuccess()) {
-                            Log.d(LOG_TAG, "Weather data result callback : FAILED");
-                        } else {
-                            Log.d(LOG_TAG, "Weather data result callback : SUCCESS");
-                        }
-                    }
-                });
+            putWeather(locationQuery, cursor.getInt(INDEX_WEATHER_ID),
+                    cursor.getDouble(INDEX_MAX_TEMP), cursor.getDouble(INDEX_MIN_TEMP),
+                    cursor.getString(INDEX_SHORT_DESC));
         }
         else {
             Log.d(LOG_TAG, "Weather query did not return data!");
@@ -99,6 +93,36 @@ public class SunshineWearableUpdateService extends IntentService implements Goog
         cursor.close();
     }
 
+    private void putWeather(String locationQuery, int weatherId, double high, double low,
+                            String desc) {
+        PutDataMapRequest putDataMapReq = PutDataMapRequest.create(WEATHER_PATH);
+        DataMap putMap = putDataMapReq.getDataMap();
+        putMap.putLong("time", System.currentTimeMillis());
+        putMap.putString("location", locationQuery);
+        putMap.putInt(WeatherContract.WeatherEntry.COLUMN_WEATHER_ID, weatherId);
+        putMap.putDouble(WeatherContract.WeatherEntry.COLUMN_MAX_TEMP, high);
+        putMap.putDouble(WeatherContract.WeatherEntry.COLUMN_MIN_TEMP, low);
+        putMap.putString(WeatherContract.WeatherEntry.COLUMN_SHORT_DESC, desc);
+        putMap.putBoolean(KEY_BLINK_COLON, SunshineSettings.get(this).isWatchBlinking());
+        putMap.putBoolean(KEY_METRIC, SunshineSettings.get(this).isMetric());
+
+        PutDataRequest putDataReq = putDataMapReq.asPutDataRequest();
+        final long start = PUSH_TIMER.start();
+        Wearable.DataApi.putDataItem(mGoogleApiClient, putDataReq)
+            .setResultCallback(new ResultCallback<DataApi.DataItemResult>() {
+                @Override
+                public void onResult(DataApi.DataItemResult dataItemResult) {
+                    PUSH_TIMER.stop(start);
+                    if (!dataItemResult.getStatus().isSuccess()) {
+                        PUSH_FAILURES.inc();
+                        Log.d(LOG_TAG, "Weather data result callback : FAILED");
+                    } else {
+                        Log.d(LOG_TAG, "Weather data result callback : SUCCESS");
+                    }
+                }
+            });
+    }
+
     @Override
     public void onConnectionSuspended(int i) {
         Log.d(LOG_TAG, "Google API client connection suspended: " + i);
@@ -7,6 +7,8 @@ import android.appwidget.AppWidgetProvider;
 import android.content.ComponentName;
 import android.content.Context;
 import android.content.Intent;
+import android.database.Cursor;
+import android.os.AsyncTask;
 import android.os.Build;
 import android.support.annotation.NonNull;
 import android.support.v4.app.TaskStackBuilder;
@@ -17,11 +19,17 @@ import com.example.android.sunshine.app.MainActivity;
 import com.example.android.sunshine.app.R;
 import com.example.android.sunshine.app.sync.SunshineSyncAdapter;
 
+import java.util.Arrays;
+
 /**
- * Provider for a scrollable weather detail widget
+ * Provider for a scrollable weather detail widget.  New data only reloads the list when at least
+ * one day changed, and the list then only renders the days that changed.
  */
 @TargetApi(Build.VERSION_CODES.HONEYCOMB)
 public class DetailWidgetProvider extends AppWidgetProvider {
+    // Digests of the rows the widgets were last told to show, guarded by the class
+    private static String[] sNotifiedRows;
+
     public void onUpdate(Context context, AppWidgetManager appWidgetManager, int[] appWidgetIds) {
         // Perform this loop procedure for each App Widget that belongs to this provider
         for (int appWidgetId : appWidgetIds) {
@@ -58,13 +66,64 @@ public class DetailWidgetProvider extends AppWidgetProvider {
     public void onReceive(@NonNull Context context, @NonNull Intent intent) {
         super.onReceive(context, intent);
         if (SunshineSyncAdapter.ACTION_DATA_UPDATED.equals(intent.getAction())) {
-            AppWidgetManager appWidgetManager = AppWidgetManager.getInstance(context);
-            int[] appWidgetIds = appWidgetManager.getAppWidgetIds(
-                    new ComponentName(context, getClass()));
-            appWidgetManager.notifyAppWidgetViewDataChanged(appWidgetIds, R.id.widget_list);
+            // Comparing the rows needs a query, so do it off the main thread
+            final Context appContext = context.getApplicationContext();
+            final PendingResult result = goAsync();
+            AsyncTask.THREAD_POOL_EXECUTOR.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        notifyIfChanged(appContext);
+                    } finally {
+                        result.finish();
+                    }
+                }
+            });
         }
     }
 
+    /**
+     * Tells the widgets to reload their list, but only if a day shows something different
+     * from what the list was last told about.
+     */
+    private static void notifyIfChanged(Context context) {
+        String[] rows = null;
+        Cursor data = DetailWidgetRemoteViewsService.queryForecast(context);
+        if (data != null) {
+            rows = new String[data.getCount()];
+            for (int i = 0; data.moveToPosition(i); i++) {
+                rows[i] = DetailWidgetRemoteViewsService.digestRow(context, data);
+            }
+            data.close();
+        }
+        synchronized (DetailWidgetProvider.class) {
+            if (rows != null && Arrays.equals(rows, sNotifiedRows)) {
+                return;
+            }
+            sNotifiedRows = rows;
+        }
+        notifyWidgets(context);
+    }
+
+    /**
+     * Tells the widgets to render their list again after the units or the art pack changed.
+     * The rows are not queried again, see DetailWidgetRemoteViewsService.
+     */
+    public static void notifyPresentationChanged(Context context) {
+        synchronized (DetailWidgetProvider.class) {
+            // The digests were formatted with the previous settings
+            sNotifiedRows = null;
+        }
+        notifyWidgets(context);
+    }
+
+    private static void notifyWidgets(Context context) {
+        AppWidgetManager appWidgetManager = AppWidgetManager.getInstance(context);
+        int[] appWidgetIds = appWidgetManager.getAppWidgetIds(
+                new ComponentName(context, DetailWidgetProvider.class));
+        appWidgetManager.notifyAppWidgetViewDataChanged(appWidgetIds, R.id.widget_list);
+    }
+
     /**
      * Sets the remote adapter used to fill in the list items
      *
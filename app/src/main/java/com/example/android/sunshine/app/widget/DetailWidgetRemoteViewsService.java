@@ -1,24 +1,23 @@
 package com.example.android.sunshine.app.widget;
 
 import android.annotation.TargetApi;
+import android.content.Context;
 import android.content.Intent;
 import android.database.Cursor;
 import android.graphics.Bitmap;
 import android.net.Uri;
 import android.os.Binder;
 import android.os.Build;
-import android.util.Log;
+import android.util.LongSparseArray;
 import android.widget.AdapterView;
 import android.widget.RemoteViews;
 import android.widget.RemoteViewsService;
 
-import com.bumptech.glide.Glide;
-import com.bumptech.glide.request.target.Target;
 import com.example.android.sunshine.app.R;
 import com.example.android.sunshine.app.Utility;
 import com.example.android.sunshine.app.data.WeatherContract;
-
-import java.util.concurrent.ExecutionException;
+import com.example.android.sunshine.app.data.WeatherProvider;
+import com.example.android.sunshine.shared.Metrics;
 
 /**
  * RemoteViewsService controlling the data being shown in the scrollable weather detail widget
@@ -26,6 +25,10 @@ import java.util.concurrent.ExecutionException;
 @TargetApi(Build.VERSION_CODES.HONEYCOMB)
 public class DetailWidgetRemoteViewsService extends RemoteViewsService {
     public final String LOG_TAG = DetailWidgetRemoteViewsService.class.getSimpleName();
+    private static final Metrics.Timer DATA_TIMER = Metrics.timer("widget.detail.data");
+    private static final Metrics.Timer ROW_TIMER = Metrics.timer("widget.detail.row");
+    private static final Metrics.Counter ROWS_REUSED = Metrics.counter("widget.detail.row.reused");
+    private static final Metrics.Counter DATA_REUSED = Metrics.counter("widget.detail.data.reused");
     private static final String[] FORECAST_COLUMNS = {
             WeatherContract.WeatherEntry.TABLE_NAME + "." + WeatherContract.WeatherEntry._ID,
             WeatherContract.WeatherEntry.COLUMN_DATE,
@@ -42,35 +45,129 @@ public class DetailWidgetRemoteViewsService extends RemoteViewsService {
     static final int INDEX_WEATHER_MAX_TEMP = 4;
     static final int INDEX_WEATHER_MIN_TEMP = 5;
 
+    /**
+     * Queries the forecast shown by the widget, starting today.
+     */
+    static Cursor queryForecast(Context context) {
+        String location = Utility.getPreferredLocation(context);
+        Uri weatherForLocationUri = WeatherContract.WeatherEntry
+                .buildWeatherLocationWithStartDate(location, System.currentTimeMillis());
+        return context.getContentResolver().query(weatherForLocationUri,
+                FORECAST_COLUMNS,
+                null,
+                null,
+                WeatherContract.WeatherEntry.COLUMN_DATE + " ASC");
+    }
+
+    /**
+     * Describes everything a row of the widget shows, so that rows can be compared without
+     * rendering them.
+     *
+     * @param data Cursor positioned on the row
+     * @return a digest that changes whenever the rendered row would
+     */
+    static String digestRow(Context context, Cursor data) {
+        int weatherId = data.getInt(INDEX_WEATHER_CONDITION_ID);
+        long dateInMillis = data.getLong(INDEX_WEATHER_DATE);
+        StringBuilder digest = new StringBuilder()
+                .append(dateInMillis).append('|')
+                .append(Utility.getFriendlyDayString(context, dateInMillis, false)).append('|')
+                .append(weatherId).append('|')
+                .append(data.getString(INDEX_WEATHER_DESC)).append('|')
+                .append(Utility.formatTemperature(context, data.getDouble(INDEX_WEATHER_MAX_TEMP)))
+                .append('|')
+                .append(Utility.formatTemperature(context, data.getDouble(INDEX_WEATHER_MIN_TEMP)))
+                .append('|')
+                .append(Utility.getPreferredLocation(context));
+        if (!Utility.usingLocalGraphics(context)) {
+            digest.append('|').append(Utility.getArtUrlForWeatherCondition(context, weatherId));
+        }
+        return digest.toString();
+    }
+
     @Override
     public RemoteViewsFactory onGetViewFactory(Intent intent) {
         return new RemoteViewsFactory() {
             private Cursor data = null;
+            // What the cursor was queried for, so that it is only queried again when it changed
+            private long mDataVersion;
+            private long mDataDay;
+            private String mDataLocation;
+            private int mIconSize;
+            // The last rendered rows, by date, so that unchanged days are not rendered again
+            private final LongSparseArray<RenderedRow> mRows = new LongSparseArray<RenderedRow>();
 
             @Override
             public void onCreate() {
-                // Nothing to do
+                mIconSize = WidgetArtCache.getListIconSize(DetailWidgetRemoteViewsService.this);
             }
 
             @Override
             public void onDataSetChanged() {
-                if (data != null) {
-                    data.close();
-                }
-                // This method is called by the app hosting the widget (e.g., the launcher)
-                // However, our ContentProvider is not exported so it doesn't have access to the
-                // data. Therefore we need to clear (and finally restore) the calling identity so
-                // that calls use our process and permission
-                final long identityToken = Binder.clearCallingIdentity();
+                long start = DATA_TIMER.start();
+                // A change of the units or the art pack only renders the rows again
+                long version = WeatherProvider.getDataVersion();
+                long day = WeatherContract.normalizeDate(System.currentTimeMillis());
                 String location = Utility.getPreferredLocation(DetailWidgetRemoteViewsService.this);
-                Uri weatherForLocationUri = WeatherContract.WeatherEntry
-                        .buildWeatherLocationWithStartDate(location, System.currentTimeMillis());
-                data = getContentResolver().query(weatherForLocationUri,
-                        FORECAST_COLUMNS,
-                        null,
-                        null,
-                        WeatherContract.WeatherEntry.COLUMN_DATE + " ASC");
-                Binder.restoreCallingIdentity(identityToken);
+                if (data != null && version == mDataVersion && day == mDataDay
+                        && location.equals(mDataLocation)) {
+                    DATA_REUSED.inc();
+                } else {
+                    if (data != null) {
+                        data.close();
+                    }
+                    // This method is called by the app hosting the widget (e.g., the launcher)
+                    // However, our ContentProvider is not exported so it doesn't have access to
+                    // the data. Therefore we need to clear (and finally restore) the calling
+                    // identity so that calls use our process and permission
+                    final long identityToken = Binder.clearCallingIdentity();
+                    data = queryForecast(DetailWidgetRemoteViewsService.this);
+                    Binder.restoreCallingIdentity(identityToken);
+                    mDataVersion = version;
+                    mDataDay = day;
+                    mDataLocation = location;
+                }
+                loadArt();
+                pruneRows();
+                DATA_TIMER.stop(start);
+            }
+
+            private void pruneRows() {
+                // Forget the days that are no longer shown
+                if (data == null) {
+                    mRows.clear();
+                    return;
+                }
+                LongSparseArray<RenderedRow> shown = new LongSparseArray<RenderedRow>();
+                for (int i = 0; data.moveToPosition(i); i++) {
+                    long dateInMillis = data.getLong(INDEX_WEATHER_DATE);
+                    RenderedRow row = mRows.get(dateInMillis);
+                    if (row != null) {
+                        shown.put(dateInMillis, row);
+                    }
+                }
+                mRows.clear();
+                for (int i = 0; i < shown.size(); i++) {
+                    mRows.put(shown.keyAt(i), shown.valueAt(i));
+                }
+            }
+
+            private void loadArt() {
+                // The sync warms the cache, but the process may have been restarted since.
+                // Blocking is fine here, getViewAt is not called until we return.
+                if (data == null ||
+                        Utility.usingLocalGraphics(DetailWidgetRemoteViewsService.this)) {
+                    return;
+                }
+                WidgetArtCache cache =
+                        WidgetArtCache.getInstance(DetailWidgetRemoteViewsService.this);
+                for (int i = 0; data.moveToPosition(i); i++) {
+                    int weatherId = data.getInt(INDEX_WEATHER_CONDITION_ID);
+                    cache.load(Utility.getArtUrlForWeatherCondition(
+                            DetailWidgetRemoteViewsService.this, weatherId),
+                            Utility.getIconResourceForWeatherCondition(weatherId),
+                            mIconSize, mIconSize);
+                }
             }
 
             @Override
@@ -79,6 +176,7 @@ public class DetailWidgetRemoteViewsService extends RemoteViewsService {
                     data.close();
                     data = null;
                 }
+                mRows.clear();
             }
 
             @Override
@@ -88,30 +186,40 @@ public class DetailWidgetRemoteViewsService extends RemoteViewsService {
 
             @Override
             public RemoteViews getViewAt(int position) {
+                long start = ROW_TIMER.start();
+                RemoteViews views = renderRow(position);
+                ROW_TIMER.stop(start);
+                return views;
+            }
+
+            private RemoteViews renderRow(int position) {
                 if (position == AdapterView.INVALID_POSITION ||
                         data == null || !data.moveToPosition(position)) {
                     return null;
                 }
-                RemoteViews views = new RemoteViews(getPackageName(),
-                        R.layout.widget_detail_list_item);
                 int weatherId = data.getInt(INDEX_WEATHER_CONDITION_ID);
                 int weatherArtResourceId = Utility.getIconResourceForWeatherCondition(weatherId);
                 Bitmap weatherArtImage = null;
                 if ( !Utility.usingLocalGraphics(DetailWidgetRemoteViewsService.this) ) {
-                    String weatherArtResourceUrl = Utility.getArtUrlForWeatherCondition(
-                            DetailWidgetRemoteViewsService.this, weatherId);
-                    try {
-                        weatherArtImage = Glide.with(DetailWidgetRemoteViewsService.this)
-                                .load(weatherArtResourceUrl)
-                                .asBitmap()
-                                .error(weatherArtResourceId)
-                                .into(Target.SIZE_ORIGINAL, Target.SIZE_ORIGINAL).get();
-                    } catch (InterruptedException | ExecutionException e) {
-                        Log.e(LOG_TAG, "Error retrieving large icon from " + weatherArtResourceUrl, e);
-                    }
+                    // Only ever read from memory here: the art was loaded by the sync, or by
+                    // onDataSetChanged, and a miss simply shows the bundled icon.
+                    weatherArtImage = WidgetArtCache.getInstance(DetailWidgetRemoteViewsService.this)
+                            .get(Utility.getArtUrlForWeatherCondition(
+                                    DetailWidgetRemoteViewsService.this, weatherId),
+                                    weatherArtResourceId, mIconSize, mIconSize);
                 }
-                String description = data.getString(INDEX_WEATHER_DESC);
                 long dateInMillis = data.getLong(INDEX_WEATHER_DATE);
+                String digest = digestRow(DetailWidgetRemoteViewsService.this, data);
+                RenderedRow row = mRows.get(dateInMillis);
+                if (row != null && row.mDigest.equals(digest)
+                        && row.mWeatherArtImage == weatherArtImage) {
+                    ROWS_REUSED.inc();
+                    return row.mViews;
+                }
+
+                RemoteViews views = new RemoteViews(getPackageName(),
+                        R.layout.widget_detail_list_item);
+                String description = data.getString(INDEX_WEATHER_DESC);
                 String formattedDate = Utility.getFriendlyDayString(
                         DetailWidgetRemoteViewsService.this, dateInMillis, false);
                 double maxTemp = data.getDouble(INDEX_WEATHER_MAX_TEMP);
@@ -141,6 +249,7 @@ public class DetailWidgetRemoteViewsService extends RemoteViewsService {
                         dateInMillis);
                 fillInIntent.setData(weatherUri);
                 views.setOnClickFillInIntent(R.id.widget_list_item, fillInIntent);
+                mRows.put(dateInMillis, new RenderedRow(digest, weatherArtImage, views));
                 return views;
             }
 
@@ -172,4 +281,19 @@ public class DetailWidgetRemoteViewsService extends RemoteViewsService {
             }
         };
     }
+
+    /**
+     * A row of the widget, as last returned to the host.
+     */
+    private static class RenderedRow {
+        final String mDigest;
+        final Bitmap mWeatherArtImage;
+        final RemoteViews mViews;
+
+        RenderedRow(String digest, Bitmap weatherArtImage, RemoteViews views) {
+            mDigest = digest;
+            mWeatherArtImage = weatherArtImage;
+            mViews = views;
+        }
+    }
 }
@@ -26,6 +26,7 @@ import android.net.Uri;
 import android.os.Build;
 import android.os.Bundle;
 import android.util.DisplayMetrics;
+import android.util.SparseArray;
 import android.util.TypedValue;
 import android.widget.RemoteViews;
 
@@ -33,11 +34,25 @@ import com.example.android.sunshine.app.MainActivity;
 import com.example.android.sunshine.app.R;
 import com.example.android.sunshine.app.Utility;
 import com.example.android.sunshine.app.data.WeatherContract;
+import com.example.android.sunshine.app.sync.ForecastSnapshot;
+import com.example.android.sunshine.shared.Metrics;
 
 /**
  * IntentService which handles updating all Today widgets with the latest data
  */
 public class TodayWidgetIntentService extends IntentService {
+    /**
+     * Set when the widgets must be rebuilt from scratch (new or resized widgets), rather than
+     * only being sent the fields that changed since they were last rendered.
+     */
+    static final String EXTRA_FULL_UPDATE = "full_update";
+
+    private static final Metrics.Timer UPDATE_TIMER = Metrics.timer("widget.today.update");
+
+    // What each widget last showed, by widget id.  Only touched on the worker thread, except
+    // for removals.
+    private static final SparseArray<RenderedToday> sRendered = new SparseArray<RenderedToday>();
+
     private static final String[] FORECAST_COLUMNS = {
             WeatherContract.WeatherEntry.COLUMN_WEATHER_ID,
             WeatherContract.WeatherEntry.COLUMN_SHORT_DESC,
@@ -56,34 +71,56 @@ public class TodayWidgetIntentService extends IntentService {
 
     @Override
     protected void onHandleIntent(Intent intent) {
+        long start = UPDATE_TIMER.start();
+        updateWidgets(intent);
+        UPDATE_TIMER.stop(start);
+    }
+
+    private void updateWidgets(Intent intent) {
         // Retrieve all of the Today widget ids: these are the widgets we need to update
         AppWidgetManager appWidgetManager = AppWidgetManager.getInstance(this);
         int[] appWidgetIds = appWidgetManager.getAppWidgetIds(new ComponentName(this,
                 TodayWidgetProvider.class));
 
-        // Get today's data from the ContentProvider
-        String location = Utility.getPreferredLocation(this);
-        Uri weatherForLocationUri = WeatherContract.WeatherEntry.buildWeatherLocationWithStartDate(
-                location, System.currentTimeMillis());
-        Cursor data = getContentResolver().query(weatherForLocationUri, FORECAST_COLUMNS, null,
-                null, WeatherContract.WeatherEntry.COLUMN_DATE + " ASC");
-        if (data == null) {
-            return;
-        }
-        if (!data.moveToFirst()) {
+        // Get today's data from the last sync, or else from the ContentProvider
+        int weatherId;
+        String description;
+        double maxTemp;
+        double minTemp;
+        ForecastSnapshot snapshot = ForecastSnapshot.getLatest(this);
+        // Midnight may have passed since getLatest, resolve today once
+        int todayIndex = snapshot != null ? snapshot.getTodayIndex() : -1;
+        if (todayIndex >= 0) {
+            weatherId = snapshot.getWeatherId(todayIndex);
+            description = snapshot.getDescription(todayIndex);
+            maxTemp = snapshot.getHigh(todayIndex);
+            minTemp = snapshot.getLow(todayIndex);
+        } else {
+            String location = Utility.getPreferredLocation(this);
+            Uri weatherForLocationUri = WeatherContract.WeatherEntry
+                    .buildWeatherLocationWithStartDate(location, System.currentTimeMillis());
+            Cursor data = getContentResolver().query(weatherForLocationUri, FORECAST_COLUMNS, null,
+                    null, WeatherContract.WeatherEntry.COLUMN_DATE + " ASC");
+            if (data == null) {
+                return;
+            }
+            if (!data.moveToFirst()) {
+                data.close();
+                return;
+            }
+
+            // Extract the weather data from the Cursor
+            weatherId = data.getInt(INDEX_WEATHER_ID);
+            description = data.getString(INDEX_SHORT_DESC);
+            maxTemp = data.getDouble(INDEX_MAX_TEMP);
+            minTemp = data.getDouble(INDEX_MIN_TEMP);
             data.close();
-            return;
         }
-
-        // Extract the weather data from the Cursor
-        int weatherId = data.getInt(INDEX_WEATHER_ID);
         int weatherArtResourceId = Utility.getArtResourceForWeatherCondition(weatherId);
-        String description = data.getString(INDEX_SHORT_DESC);
-        double maxTemp = data.getDouble(INDEX_MAX_TEMP);
-        double minTemp = data.getDouble(INDEX_MIN_TEMP);
         String formattedMaxTemperature = Utility.formatTemperature(this, maxTemp);
         String formattedMinTemperature = Utility.formatTemperature(this, minTemp);
-        data.close();
+
+        boolean fullUpdate = intent.getBooleanExtra(EXTRA_FULL_UPDATE, false);
 
         // Perform this loop procedure for each Today widget
         for (int appWidgetId : appWidgetIds) {
@@ -99,26 +136,75 @@ public class TodayWidgetIntentService extends IntentService {
             } else {
                 layoutId = R.layout.widget_today_small;
             }
+            RenderedToday today = new RenderedToday(layoutId, weatherArtResourceId, description,
+                    formattedMaxTemperature, formattedMinTemperature);
+
+            RenderedToday rendered;
+            synchronized (sRendered) {
+                rendered = sRendered.get(appWidgetId);
+            }
             RemoteViews views = new RemoteViews(getPackageName(), layoutId);
+            if (fullUpdate || rendered == null || rendered.mLayoutId != layoutId) {
+                // Add the data to the RemoteViews
+                setWeather(views, today, null);
 
-            // Add the data to the RemoteViews
-            views.setImageViewResource(R.id.widget_icon, weatherArtResourceId);
-            // Content Descriptions for RemoteViews were only added in ICS MR1
-            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.ICE_CREAM_SANDWICH_MR1) {
-                setRemoteContentDescription(views, description);
+                // Create an Intent to launch MainActivity
+                Intent launchIntent = new Intent(this, MainActivity.class);
+                PendingIntent pendingIntent = PendingIntent.getActivity(this, 0, launchIntent, 0);
+                views.setOnClickPendingIntent(R.id.widget, pendingIntent);
+
+                // Tell the AppWidgetManager to perform an update on the current app widget
+                appWidgetManager.updateAppWidget(appWidgetId, views);
+            } else if (setWeather(views, today, rendered)) {
+                // Only send what changed; the click handler and the layout are already there
+                appWidgetManager.partiallyUpdateAppWidget(appWidgetId, views);
             }
-            views.setTextViewText(R.id.widget_description, description);
-            views.setTextViewText(R.id.widget_high_temperature, formattedMaxTemperature);
-            views.setTextViewText(R.id.widget_low_temperature, formattedMinTemperature);
+            synchronized (sRendered) {
+                sRendered.put(appWidgetId, today);
+            }
+        }
+    }
 
-            // Create an Intent to launch MainActivity
-            Intent launchIntent = new Intent(this, MainActivity.class);
-            PendingIntent pendingIntent = PendingIntent.getActivity(this, 0, launchIntent, 0);
-            views.setOnClickPendingIntent(R.id.widget, pendingIntent);
+    /**
+     * Forgets what deleted widgets showed, so that a widget reusing their id is fully built.
+     */
+    static void forget(int[] appWidgetIds) {
+        synchronized (sRendered) {
+            for (int appWidgetId : appWidgetIds) {
+                sRendered.delete(appWidgetId);
+            }
+        }
+    }
 
-            // Tell the AppWidgetManager to perform an update on the current app widget
-            appWidgetManager.updateAppWidget(appWidgetId, views);
+    /**
+     * Sets the fields of today's weather that differ from what was rendered before.
+     *
+     * @param rendered what the widget showed before, or null to set every field
+     * @return true if any field was set
+     */
+    private boolean setWeather(RemoteViews views, RenderedToday today, RenderedToday rendered) {
+        boolean changed = false;
+        if (rendered == null || rendered.mWeatherArtResourceId != today.mWeatherArtResourceId) {
+            views.setImageViewResource(R.id.widget_icon, today.mWeatherArtResourceId);
+            changed = true;
+        }
+        if (rendered == null || !rendered.mDescription.equals(today.mDescription)) {
+            // Content Descriptions for RemoteViews were only added in ICS MR1
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.ICE_CREAM_SANDWICH_MR1) {
+                setRemoteContentDescription(views, today.mDescription);
+            }
+            views.setTextViewText(R.id.widget_description, today.mDescription);
+            changed = true;
+        }
+        if (rendered == null || !rendered.mMaxTemperature.equals(today.mMaxTemperature)) {
+            views.setTextViewText(R.id.widget_high_temperature, today.mMaxTemperature);
+            changed = true;
+        }
+        if (rendered == null || !rendered.mMinTemperature.equals(today.mMinTemperature)) {
+            views.setTextViewText(R.id.widget_low_temperature, today.mMinTemperature);
+            changed = true;
         }
+        return changed;
     }
 
     private int getWidgetWidth(AppWidgetManager appWidgetManager, int appWidgetId) {
@@ -148,4 +234,24 @@ public class TodayWidgetIntentService extends IntentService {
     private void setRemoteContentDescription(RemoteViews views, String description) {
         views.setContentDescription(R.id.widget_icon, description);
     }
+
+    /**
+     * The content of a Today widget, as last sent to the AppWidgetManager.
+     */
+    private static class RenderedToday {
+        final int mLayoutId;
+        final int mWeatherArtResourceId;
+        final String mDescription;
+        final String mMaxTemperature;
+        final String mMinTemperature;
+
+        RenderedToday(int layoutId, int weatherArtResourceId, String description,
+                      String maxTemperature, String minTemperature) {
+            mLayoutId = layoutId;
+            mWeatherArtResourceId = weatherArtResourceId;
+            mDescription = description;
+            mMaxTemperature = maxTemperature;
+            mMinTemperature = minTemperature;
+        }
+    }
 }
@@ -0,0 +1,253 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.app.widget;
+
+import android.annotation.SuppressLint;
+import android.content.Context;
+import android.content.res.Resources;
+import android.graphics.Bitmap;
+import android.os.Build;
+import android.os.SystemClock;
+import android.util.Log;
+import android.util.LruCache;
+
+import com.bumptech.glide.Glide;
+import com.example.android.sunshine.app.R;
+import com.example.android.sunshine.app.Utility;
+
+import java.util.HashMap;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Memory cache of the weather art shown by the widgets and the notification.
+ *
+ * Bitmaps are decoded at the size they are displayed at and kept in a byte-bounded LRU cache,
+ * keyed by their source (an art URL or a drawable) and size.  The cache is warmed in the
+ * background once new weather has been committed, alongside the widget update, and the detail
+ * widget loads what is still missing when its list is refreshed, so that its rows only ever
+ * read from memory.
+ */
+public final class WidgetArtCache {
+    private static final String LOG_TAG = WidgetArtCache.class.getSimpleName();
+
+    // At most an eighth of the heap, and never more than 4MB: a couple of weeks of rows at two
+    // sizes fit comfortably.
+    private static final int MAX_CACHE_BYTES = 4 * 1024 * 1024;
+
+    // How long art that could not be downloaded is served from its fallback before it is tried
+    // again
+    private static final long RETRY_FAILED_MILLIS = 15 * 60 * 1000;
+
+    private static WidgetArtCache sInstance;
+
+    private final Context mContext;
+    private final LruCache<String, Bitmap> mCache;
+    // When each art URL and size last failed to load, by key
+    private final HashMap<String, Long> mFailures = new HashMap<String, Long>();
+
+    public static synchronized WidgetArtCache getInstance(Context context) {
+        if (sInstance == null) {
+            int maxBytes = (int) Math.min(Runtime.getRuntime().maxMemory() / 8, MAX_CACHE_BYTES);
+            sInstance = new WidgetArtCache(context, maxBytes);
+        }
+        return sInstance;
+    }
+
+    WidgetArtCache(Context context, int maxBytes) {
+        mContext = context.getApplicationContext();
+        mCache = new LruCache<String, Bitmap>(maxBytes) {
+            @Override
+            protected int sizeOf(String key, Bitmap bitmap) {
+                return bitmap.getByteCount();
+            }
+        };
+    }
+
+    /**
+     * @return the size, in pixels, of the icon in a detail widget row
+     */
+    public static int getListIconSize(Context context) {
+        return context.getResources().getDimensionPixelSize(R.dimen.list_icon);
+    }
+
+    /**
+     * @return the width, in pixels, of a notification large icon
+     */
+    @SuppressLint("InlinedApi")
+    public static int getLargeIconWidth(Context context) {
+        // On Honeycomb and higher devices, we can retrieve the size of the large icon
+        // Prior to that, we use a fixed size
+        Resources resources = context.getResources();
+        return Build.VERSION.SDK_INT >= Build.VERSION_CODES.HONEYCOMB
+                ? resources.getDimensionPixelSize(android.R.dimen.notification_large_icon_width)
+                : resources.getDimensionPixelSize(R.dimen.notification_large_icon_default);
+    }
+
+    /**
+     * @return the height, in pixels, of a notification large icon
+     */
+    @SuppressLint("InlinedApi")
+    public static int getLargeIconHeight(Context context) {
+        Resources resources = context.getResources();
+        return Build.VERSION.SDK_INT >= Build.VERSION_CODES.HONEYCOMB
+                ? resources.getDimensionPixelSize(android.R.dimen.notification_large_icon_height)
+                : resources.getDimensionPixelSize(R.dimen.notification_large_icon_default);
+    }
+
+    /**
+     * Loads the art of the detail widget rows into the cache.  Blocks while the art is
+     * downloaded and decoded, so this must not be called on the main thread.  Stops once the
+     * thread is interrupted.
+     *
+     * @param weatherIds condition ids of the rows
+     */
+    public void warmRows(int[] weatherIds) {
+        // Rows only show downloaded art when an art pack other than Sunshine's is picked.
+        if (Utility.usingLocalGraphics(mContext)) {
+            return;
+        }
+        long start = System.nanoTime();
+        int size = getListIconSize(mContext);
+        for (int weatherId : weatherIds) {
+            if (Thread.currentThread().isInterrupted()) {
+                Log.d(LOG_TAG, "Warming rows interrupted");
+                return;
+            }
+            load(Utility.getArtUrlForWeatherCondition(mContext, weatherId),
+                    Utility.getIconResourceForWeatherCondition(weatherId), size, size);
+        }
+        Log.d(LOG_TAG, "Warmed " + weatherIds.length + " rows in "
+                + (System.nanoTime() - start) / 1000000 + " ms");
+    }
+
+    /**
+     * Returns cached art without ever blocking.
+     *
+     * @param artUrl URL of the art, may be null
+     * @param fallbackResourceId drawable used when the art could not be downloaded
+     * @return the art at the requested size, or null if it has not been loaded yet
+     */
+    public Bitmap get(String artUrl, int fallbackResourceId, int width, int height) {
+        Bitmap bitmap = null;
+        if (artUrl != null) {
+            bitmap = mCache.get(urlKey(artUrl, width, height));
+        }
+        if (bitmap == null && fallbackResourceId != -1) {
+            bitmap = mCache.get(resourceKey(fallbackResourceId, width, height));
+        }
+        return bitmap;
+    }
+
+    /**
+     * Returns the art from the cache, downloading and decoding it first if needed.  Blocks, so
+     * this must not be called on the main thread.  An interrupted thread is left interrupted,
+     * and nothing is downloaded or decoded for it.
+     *
+     * The fallback is returned while the art cannot be downloaded, and the art is tried again
+     * once {@link #RETRY_FAILED_MILLIS} have passed since it last failed.
+     *
+     * @param artUrl URL of the art, may be null
+     * @param fallbackResourceId drawable used when the art could not be downloaded
+     * @return the art at the requested size, or null if neither source could be decoded or the
+     *         thread was interrupted
+     */
+    public Bitmap load(String artUrl, int fallbackResourceId, int width, int height) {
+        if (Thread.currentThread().isInterrupted()) {
+            return get(artUrl, fallbackResourceId, width, height);
+        }
+        Bitmap bitmap;
+        if (artUrl != null) {
+            String key = urlKey(artUrl, width, height);
+            bitmap = mCache.get(key);
+            if (bitmap != null) {
+                return bitmap;
+            }
+            if (!hasFailedRecently(key)) {
+                try {
+                    bitmap = Glide.with(mContext)
+                            .load(artUrl)
+                            .asBitmap()
+                            .fitCenter()
+                            .into(width, height).get();
+                    mCache.put(key, bitmap);
+                    synchronized (mFailures) {
+                        mFailures.remove(key);
+                    }
+                    return bitmap;
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return null;
+                } catch (ExecutionException e) {
+                    Log.e(LOG_TAG, "Error retrieving art from " + artUrl, e);
+                    synchronized (mFailures) {
+                        mFailures.put(key, SystemClock.elapsedRealtime());
+                    }
+                }
+            }
+        }
+        if (fallbackResourceId == -1) {
+            return null;
+        }
+        bitmap = mCache.get(resourceKey(fallbackResourceId, width, height));
+        if (bitmap == null) {
+            try {
+                bitmap = Glide.with(mContext)
+                        .load(fallbackResourceId)
+                        .asBitmap()
+                        .fitCenter()
+                        .into(width, height).get();
+                mCache.put(resourceKey(fallbackResourceId, width, height), bitmap);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return null;
+            } catch (ExecutionException e) {
+                Log.e(LOG_TAG, "Error decoding art resource " + fallbackResourceId, e);
+            }
+        }
+        return bitmap;
+    }
+
+    public void clear() {
+        mCache.evictAll();
+        synchronized (mFailures) {
+            mFailures.clear();
+        }
+    }
+
+    private boolean hasFailedRecently(String key) {
+        synchronized (mFailures) {
+            Long failedAt = mFailures.get(key);
+            return failedAt != null
+                    && SystemClock.elapsedRealtime() - failedAt < RETRY_FAILED_MILLIS;
+        }
+    }
+
+    int sizeInBytes() {
+        return mCache.size();
+    }
+
+    int maxSizeInBytes() {
+        return mCache.maxSize();
+    }
+
+    private static String urlKey(String artUrl, int width, int height) {
+        return artUrl + '@' + width + 'x' + height;
+    }
+
+    private static String resourceKey(int resourceId, int width, int height) {
+        return "res:" + resourceId + '@' + width + 'x' + height;
+    }
+}
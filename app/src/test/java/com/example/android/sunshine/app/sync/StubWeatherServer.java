@@ -0,0 +1,128 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.app.sync;
+
+import com.squareup.okhttp.mockwebserver.Dispatcher;
+import com.squareup.okhttp.mockwebserver.MockResponse;
+import com.squareup.okhttp.mockwebserver.MockWebServer;
+import com.squareup.okhttp.mockwebserver.RecordedRequest;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * In-process HTTP server standing in for the two OpenWeatherMap endpoints the sync calls.  Each
+ * endpoint answers with the last response set for it, for as many requests as it gets.
+ */
+class StubWeatherServer {
+    private static final String API_PATH = "/data/2.5/";
+    private static final long SLOT_MILLIS = 3 * 60 * 60 * 1000;
+
+    private final MockWebServer mServer = new MockWebServer();
+    private volatile MockResponse mDailyResponse = new MockResponse().setResponseCode(404);
+    private volatile MockResponse mHourlyResponse = new MockResponse().setResponseCode(404);
+
+    StubWeatherServer() {
+        mServer.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                String path = request.getPath();
+                if (path.startsWith(API_PATH + "forecast/daily?")) {
+                    return mDailyResponse;
+                } else if (path.startsWith(API_PATH + "forecast?")) {
+                    return mHourlyResponse;
+                }
+                return new MockResponse().setResponseCode(404);
+            }
+        });
+    }
+
+    void start() throws IOException {
+        mServer.start();
+    }
+
+    void shutdown() throws IOException {
+        mServer.shutdown();
+    }
+
+    /**
+     * @return the base URL to hand to {@link SunshineSyncAdapter#setBaseUrl(String)}
+     */
+    String getBaseUrl() {
+        return mServer.url(API_PATH).toString();
+    }
+
+    int getRequestCount() {
+        return mServer.getRequestCount();
+    }
+
+    void setDailyResponse(MockResponse response) {
+        mDailyResponse = response;
+    }
+
+    void setHourlyResponse(MockResponse response) {
+        mHourlyResponse = response;
+    }
+
+    static MockResponse json(String body) {
+        return new MockResponse()
+                .setHeader("Content-Type", "application/json; charset=utf-8")
+                .setBody(body);
+    }
+
+    /**
+     * @return the recorded 14 day response of the daily endpoint, for London
+     */
+    static String dailyForecast() throws IOException {
+        InputStream in = StubWeatherServer.class.getClassLoader()
+                .getResourceAsStream("fixtures/daily_forecast_london.json");
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[4096];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+            }
+            return out.toString("UTF-8");
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * A response of the three hour forecast endpoint, starting with the current slot so that
+     * none of it is past the sync's retention.
+     */
+    static String hourlyForecast(int slots) {
+        long firstSlot = System.currentTimeMillis() / SLOT_MILLIS * SLOT_MILLIS;
+        StringBuilder json = new StringBuilder("{\"cod\":\"200\",\"message\":0.0061,\"cnt\":")
+                .append(slots).append(",\"list\":[");
+        for (int i = 0; i < slots; i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append("{\"dt\":").append((firstSlot + i * SLOT_MILLIS) / 1000)
+                    .append(",\"main\":{\"temp\":").append(8 + i % 6)
+                    .append(".25,\"pressure\":1012.4,\"humidity\":").append(70 + i % 20)
+                    .append("},\"weather\":[{\"id\":").append(i % 3 == 0 ? 500 : 803)
+                    .append(",\"main\":\"").append(i % 3 == 0 ? "Rain" : "Clouds")
+                    .append("\",\"description\":\"\",\"icon\":\"04d\"}]")
+                    .append(",\"wind\":{\"speed\":5.2,\"deg\":230.5}}");
+        }
+        return json.append("],\"city\":{\"id\":2643743,\"name\":\"London\"}}").toString();
+    }
+}
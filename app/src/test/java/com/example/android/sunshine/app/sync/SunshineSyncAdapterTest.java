@@ -0,0 +1,288 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.app.sync;
+
+import android.app.Application;
+import android.content.Intent;
+import android.content.SyncResult;
+import android.database.Cursor;
+import android.net.Uri;
+import android.os.Bundle;
+import android.preference.PreferenceManager;
+
+import com.example.android.sunshine.app.BuildConfig;
+import com.example.android.sunshine.app.R;
+import com.example.android.sunshine.app.data.WeatherContract;
+import com.example.android.sunshine.app.data.WeatherContract.HourlyEntry;
+import com.example.android.sunshine.app.data.WeatherContract.WeatherEntry;
+import com.example.android.sunshine.app.data.WeatherProvider;
+import com.example.android.sunshine.app.muzei.WeatherMuzeiSource;
+import com.squareup.okhttp.mockwebserver.MockResponse;
+
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricGradleTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowApplication;
+import org.robolectric.shadows.ShadowContentResolver;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.robolectric.Shadows.shadowOf;
+
+/**
+ * Runs whole syncs on the JVM, against {@link StubWeatherServer} instead of OpenWeatherMap.
+ *
+ * Each sync's wall time and the bytes it allocated on the syncing thread are written to
+ * build/reports/sync/results.json, so they can be compared between commits.
+ */
+@RunWith(RobolectricGradleTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 21)
+public class SunshineSyncAdapterTest {
+
+    private static final int DAYS = 14;
+    private static final int SLOTS = 40;
+
+    private static final List<String> sMeasurements = new ArrayList<String>();
+
+    private Application mContext;
+    private StubWeatherServer mServer;
+    private String mLocationSetting;
+
+    @Before
+    public void setUp() throws IOException {
+        mContext = RuntimeEnvironment.application;
+        mLocationSetting = mContext.getString(R.string.pref_location_default);
+
+        WeatherProvider provider = new WeatherProvider();
+        provider.attachInfo(mContext, null);
+        ShadowContentResolver.registerProvider(WeatherContract.CONTENT_AUTHORITY, provider);
+
+        // The notification downloads its art, keep the syncs offline
+        PreferenceManager.getDefaultSharedPreferences(mContext).edit()
+                .putBoolean(mContext.getString(R.string.pref_enable_notifications_key), false)
+                .commit();
+
+        mServer = new StubWeatherServer();
+        mServer.start();
+        SunshineSyncAdapter.setBaseUrl(mServer.getBaseUrl());
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        SunshineSyncAdapter.setBaseUrl(null);
+        mServer.shutdown();
+    }
+
+    @AfterClass
+    public static void writeMeasurements() throws IOException {
+        File report = new File("build/reports/sync/results.json");
+        report.getParentFile().mkdirs();
+        Writer writer = new FileWriter(report);
+        try {
+            writer.write("[\n");
+            for (int i = 0; i < sMeasurements.size(); i++) {
+                writer.write(sMeasurements.get(i));
+                writer.write(i < sMeasurements.size() - 1 ? ",\n" : "\n");
+            }
+            writer.write("]\n");
+        } finally {
+            writer.close();
+        }
+    }
+
+    @Test
+    public void recordedForecastIsStoredAndFannedOut() throws IOException {
+        mServer.setDailyResponse(StubWeatherServer.json(StubWeatherServer.dailyForecast()));
+        mServer.setHourlyResponse(StubWeatherServer.json(StubWeatherServer.hourlyForecast(SLOTS)));
+
+        sync("recorded");
+
+        assertEquals(SunshineSyncAdapter.LOCATION_STATUS_OK, getLocationStatus());
+        assertEquals(2, mServer.getRequestCount());
+        assertEquals("Error: wrong number of days stored", DAYS,
+                count(WeatherEntry.buildWeatherLocation(mLocationSetting)));
+        assertEquals("Error: wrong number of slots stored", SLOTS,
+                count(HourlyEntry.buildHourlyLocation(mLocationSetting)));
+
+        ForecastSnapshot saved = ForecastSnapshot.load(ForecastSnapshot.getFile(mContext));
+        assertNotNull("Error: the forecast snapshot was not saved", saved);
+        assertEquals(mLocationSetting, saved.getLocationSetting());
+        assertEquals(DAYS, saved.getDayCount());
+
+        ShadowApplication application = shadowOf(mContext);
+        boolean widgetsUpdated = false;
+        for (Intent intent : application.getBroadcastIntents()) {
+            widgetsUpdated |= SunshineSyncAdapter.ACTION_DATA_UPDATED.equals(intent.getAction());
+        }
+        assertTrue("Error: the widgets were not updated", widgetsUpdated);
+
+        List<String> services = new ArrayList<String>();
+        Intent service;
+        while ((service = application.getNextStartedService()) != null) {
+            services.add(service.getComponent().getClassName());
+        }
+        assertTrue("Error: Muzei was not updated",
+                services.contains(WeatherMuzeiSource.class.getName()));
+        assertTrue("Error: the watch was not updated",
+                services.contains(SunshineWearableUpdateService.class.getName()));
+    }
+
+    @Test
+    public void slowResponseIsStored() throws IOException {
+        mServer.setDailyResponse(StubWeatherServer.json(StubWeatherServer.dailyForecast())
+                .throttleBody(512, 100, TimeUnit.MILLISECONDS));
+        mServer.setHourlyResponse(StubWeatherServer.json(StubWeatherServer.hourlyForecast(SLOTS)));
+
+        long millis = sync("slow");
+
+        assertEquals(SunshineSyncAdapter.LOCATION_STATUS_OK, getLocationStatus());
+        assertEquals(DAYS, count(WeatherEntry.buildWeatherLocation(mLocationSetting)));
+        assertTrue("Error: the response was not throttled", millis >= 500);
+    }
+
+    @Test
+    public void truncatedResponseIsInvalid() throws IOException {
+        String forecast = StubWeatherServer.dailyForecast();
+        mServer.setDailyResponse(
+                StubWeatherServer.json(forecast.substring(0, forecast.length() / 2)));
+
+        sync("truncated");
+
+        assertEquals(SunshineSyncAdapter.LOCATION_STATUS_SERVER_INVALID, getLocationStatus());
+        assertEquals(0, count(WeatherEntry.buildWeatherLocation(mLocationSetting)));
+        assertFalse("Error: nothing should have been fanned out",
+                shadowOf(mContext).getBroadcastIntents().size() > 0);
+    }
+
+    @Test
+    public void notFoundIsInvalidLocation() {
+        mServer.setDailyResponse(new MockResponse().setResponseCode(404));
+
+        sync("http 404");
+
+        assertEquals(SunshineSyncAdapter.LOCATION_STATUS_INVALID, getLocationStatus());
+    }
+
+    @Test
+    public void notFoundCodeInResponseIsInvalidLocation() {
+        mServer.setDailyResponse(
+                StubWeatherServer.json("{\"cod\":\"404\",\"message\":\"Error: Not found city\"}"));
+        mServer.setHourlyResponse(StubWeatherServer.json(StubWeatherServer.hourlyForecast(SLOTS)));
+
+        sync("code 404");
+
+        assertEquals(SunshineSyncAdapter.LOCATION_STATUS_INVALID, getLocationStatus());
+        assertEquals(0, count(WeatherEntry.buildWeatherLocation(mLocationSetting)));
+    }
+
+    @Test
+    public void serverErrorIsServerDown() {
+        mServer.setDailyResponse(new MockResponse().setResponseCode(503));
+
+        sync("http 503");
+
+        assertEquals(SunshineSyncAdapter.LOCATION_STATUS_SERVER_DOWN, getLocationStatus());
+    }
+
+    @Test
+    public void hourlyFailureKeepsDailyForecast() throws IOException {
+        mServer.setDailyResponse(StubWeatherServer.json(StubWeatherServer.dailyForecast()));
+        mServer.setHourlyResponse(new MockResponse().setResponseCode(500));
+
+        sync("hourly 500");
+
+        assertEquals(SunshineSyncAdapter.LOCATION_STATUS_OK, getLocationStatus());
+        assertEquals(DAYS, count(WeatherEntry.buildWeatherLocation(mLocationSetting)));
+        assertEquals(0, count(HourlyEntry.buildHourlyLocation(mLocationSetting)));
+    }
+
+    @Test
+    public void malformedHourlyNumberKeepsDailyForecast() throws IOException {
+        mServer.setDailyResponse(StubWeatherServer.json(StubWeatherServer.dailyForecast()));
+        // A string where the parser reads a number
+        mServer.setHourlyResponse(StubWeatherServer.json(StubWeatherServer.hourlyForecast(SLOTS)
+                .replace("\"temp\":8.25", "\"temp\":\"mild\"")));
+
+        sync("hourly malformed number");
+
+        assertEquals(SunshineSyncAdapter.LOCATION_STATUS_OK, getLocationStatus());
+        assertEquals(DAYS, count(WeatherEntry.buildWeatherLocation(mLocationSetting)));
+        assertEquals(0, count(HourlyEntry.buildHourlyLocation(mLocationSetting)));
+    }
+
+    /**
+     * Runs a sync and records its cost.
+     *
+     * @return the wall time of the sync, in milliseconds
+     */
+    private long sync(String scenario) {
+        SunshineSyncAdapter adapter = new SunshineSyncAdapter(mContext, true);
+        long allocatedBefore = getAllocatedBytes();
+        long start = System.nanoTime();
+        adapter.onPerformSync(null, new Bundle(), WeatherContract.CONTENT_AUTHORITY, null,
+                new SyncResult());
+        long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        long allocated = getAllocatedBytes() - allocatedBefore;
+
+        assertTrue("Error: the " + scenario + " sync did not settle on a location status",
+                getLocationStatus() != SunshineSyncAdapter.LOCATION_STATUS_UNKNOWN);
+        sMeasurements.add("  {\"scenario\": \"" + scenario + "\", \"millis\": " + millis
+                + ", \"allocatedBytes\": " + allocated + "}");
+        return millis;
+    }
+
+    // Bytes allocated by this thread so far, not counting the threads the forecast is fanned
+    // out on.  -1 on JVMs that do not count them.
+    private static long getAllocatedBytes() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) bean)
+                    .getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        return -1;
+    }
+
+    private int getLocationStatus() {
+        return PreferenceManager.getDefaultSharedPreferences(mContext).getInt(
+                mContext.getString(R.string.pref_location_status_key),
+                SunshineSyncAdapter.LOCATION_STATUS_UNKNOWN);
+    }
+
+    private int count(Uri uri) {
+        Cursor cursor = mContext.getContentResolver().query(uri, null, null, null, null);
+        try {
+            return cursor.getCount();
+        } finally {
+            cursor.close();
+        }
+    }
+}
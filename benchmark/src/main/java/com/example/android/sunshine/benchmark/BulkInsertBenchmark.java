@@ -0,0 +1,197 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.benchmark;
+
+import com.example.android.sunshine.shared.LocationStorage;
+import com.example.android.sunshine.shared.WeatherStorage;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * WeatherProvider.bulkInsert against SQLite on the desktop, with the app's weather table.
+ *
+ * Every invocation stores the same dates again, so rows are replaced as on a sync and the table
+ * keeps its size.  Results are batches per second; times the rows per batch for rows per second.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BulkInsertBenchmark {
+    private static final long DAY_IN_MILLIS = 24 * 60 * 60 * 1000;
+    private static final long FIRST_DATE = 1457136000000L;  // March 5th, 2016
+
+    // WeatherRowInserter's statement
+    private static final String[] COLUMNS = WeatherStorage.getInsertColumns();
+
+    /**
+     * 14 is one daily sync, 500 a week of three hour slots for a dozen locations, and 10000
+     * is far past any sync, to show how each path scales.
+     */
+    @Param({"14", "500", "10000"})
+    public int rows;
+
+    private Connection mConnection;
+    private Map<String, Object>[] mValues;
+
+    @Setup(Level.Trial)
+    @SuppressWarnings("unchecked")
+    public void setUp() throws SQLException, ClassNotFoundException {
+        Class.forName("org.sqlite.JDBC");
+        mConnection = DriverManager.getConnection("jdbc:sqlite::memory:");
+        Statement statement = mConnection.createStatement();
+        statement.execute(LocationStorage.SQL_CREATE_TABLE);
+        statement.execute(WeatherStorage.SQL_CREATE_TABLE);
+        statement.execute("INSERT INTO location (_id, location_setting, city_name, coord_lat, "
+                + "coord_long) VALUES (1, 'London, UK', 'London', 51.50853, -0.12574)");
+        statement.close();
+
+        mValues = new Map[rows];
+        for (int i = 0; i < rows; i++) {
+            Map<String, Object> values = WeatherTable.newValues();
+            values.put(WeatherStorage.COLUMN_LOC_KEY, 1L);
+            values.put(WeatherStorage.COLUMN_DATE, FIRST_DATE + i * DAY_IN_MILLIS);
+            values.put(WeatherStorage.COLUMN_HUMIDITY, 60 + i % 30);
+            values.put(WeatherStorage.COLUMN_PRESSURE, 1013.25);
+            values.put(WeatherStorage.COLUMN_WIND_SPEED, 4.5);
+            values.put(WeatherStorage.COLUMN_DEGREES, 250.0);
+            values.put(WeatherStorage.COLUMN_MAX_TEMP, 12.5 + i % 7);
+            values.put(WeatherStorage.COLUMN_MIN_TEMP, 4.5 + i % 5);
+            values.put(WeatherStorage.COLUMN_SHORT_DESC, i % 2 == 0 ? "Clear" : "Rain");
+            values.put(WeatherStorage.COLUMN_WEATHER_ID, i % 2 == 0 ? 800 : 500);
+            mValues[i] = values;
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException {
+        mConnection.close();
+    }
+
+    /**
+     * The provider's bulkInsert: one transaction, SQLiteDatabase.insert for each encoded row.
+     */
+    @Benchmark
+    public int bulkInsert() throws SQLException {
+        int returnCount = 0;
+        mConnection.setAutoCommit(false);
+        try {
+            for (Map<String, Object> value : mValues) {
+                if (insert(WeatherTable.encode(value)) != 0) {
+                    returnCount++;
+                }
+            }
+            mConnection.commit();
+        } finally {
+            mConnection.setAutoCommit(true);
+        }
+        return returnCount;
+    }
+
+    /**
+     * The provider's bulkInsert through WeatherRowInserter: one transaction, one statement
+     * compiled for it, and the numbers of each row bound as primitives.  The statement and the
+     * scaling are the app's; JDBC's PreparedStatement stands in for SQLiteStatement.
+     */
+    @Benchmark
+    public int compiledStatement() throws SQLException {
+        int returnCount = 0;
+        mConnection.setAutoCommit(false);
+        PreparedStatement statement = mConnection.prepareStatement(WeatherStorage.SQL_INSERT);
+        try {
+            for (Map<String, Object> value : mValues) {
+                for (int i = 0; i < COLUMNS.length; i++) {
+                    Number number = (Number) value.get(COLUMNS[i]);
+                    if (i >= WeatherStorage.INSERT_INDEX_FIRST_SCALED) {
+                        statement.setLong(i + 1, WeatherStorage.scale(number.doubleValue()));
+                    } else {
+                        statement.setLong(i + 1, number.longValue());
+                    }
+                }
+                if (statement.executeUpdate() != 0) {
+                    returnCount++;
+                }
+            }
+            mConnection.commit();
+        } finally {
+            statement.close();
+            mConnection.setAutoCommit(true);
+        }
+        return returnCount;
+    }
+
+    /**
+     * ContentResolver.insert for each row: a transaction per row.
+     */
+    @Benchmark
+    public int separateInserts() throws SQLException {
+        int returnCount = 0;
+        for (Map<String, Object> value : mValues) {
+            if (insert(WeatherTable.encode(value)) != 0) {
+                returnCount++;
+            }
+        }
+        return returnCount;
+    }
+
+    // Like SQLiteDatabase.insert: the statement is written from the keys of the values and
+    // compiled for every row.
+    private int insert(Map<String, Object> values) throws SQLException {
+        StringBuilder sql = new StringBuilder("INSERT INTO ").append(WeatherStorage.TABLE_NAME)
+                .append('(');
+        StringBuilder bindings = new StringBuilder(" VALUES (");
+        int i = 0;
+        for (String column : values.keySet()) {
+            sql.append(i > 0 ? "," : "").append(column);
+            bindings.append(i > 0 ? ",?" : "?");
+            i++;
+        }
+        sql.append(')').append(bindings).append(')');
+
+        PreparedStatement statement = mConnection.prepareStatement(sql.toString());
+        try {
+            i = 1;
+            for (Object value : values.values()) {
+                statement.setObject(i++, value);
+            }
+            return statement.executeUpdate();
+        } finally {
+            statement.close();
+        }
+    }
+}
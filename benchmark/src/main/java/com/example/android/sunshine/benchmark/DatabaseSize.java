@@ -0,0 +1,69 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.benchmark;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.sql.SQLException;
+
+/**
+ * Writes the size of the database {@link WeatherSchemaBenchmark} reads, for each of its
+ * schemas, as JSON.  A size is not a measurement over time, so it is reported on its own rather
+ * than as part of a benchmark's results.
+ */
+public final class DatabaseSize {
+    private static final String[] SCHEMAS = {"legacy", "compact"};
+
+    private DatabaseSize() {
+    }
+
+    /**
+     * @param args the file to write the sizes to
+     */
+    public static void main(String[] args)
+            throws IOException, SQLException, ClassNotFoundException {
+        if (args.length != 1) {
+            throw new IllegalArgumentException("Usage: DatabaseSize <result file>");
+        }
+        Writer writer = new FileWriter(args[0]);
+        try {
+            writer.write("[\n");
+            for (int i = 0; i < SCHEMAS.length; i++) {
+                writer.write("  {\"schema\": \"" + SCHEMAS[i] + "\", \"rows\": "
+                        + WeatherSchemaBenchmark.LOCATIONS * WeatherSchemaBenchmark.DAYS
+                        + ", \"bytes\": " + measure("compact".equals(SCHEMAS[i])) + "}");
+                writer.write(i < SCHEMAS.length - 1 ? ",\n" : "\n");
+            }
+            writer.write("]\n");
+        } finally {
+            writer.close();
+        }
+    }
+
+    private static long measure(boolean compact) throws IOException, SQLException,
+            ClassNotFoundException {
+        File file = File.createTempFile("weather", ".db");
+        try {
+            WeatherSchemaBenchmark.createDatabase(file, compact);
+            return file.length();
+        } finally {
+            //noinspection ResultOfMethodCallIgnored
+            file.delete();
+        }
+    }
+}
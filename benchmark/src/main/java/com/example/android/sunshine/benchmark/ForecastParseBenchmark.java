@@ -0,0 +1,105 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.benchmark;
+
+import com.example.android.sunshine.shared.DailyForecast;
+import com.example.android.sunshine.shared.HourlyForecast;
+import com.example.android.sunshine.shared.WeatherStorage;
+import com.google.gson.stream.JsonReader;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parsing the recorded forecasts with the shared parsers the sync uses.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ForecastParseBenchmark {
+    private String mDailyForecast;
+    private String mHourlyForecast;
+
+    @Setup
+    public void setUp() throws IOException {
+        mDailyForecast = Fixtures.read(Fixtures.DAILY_FORECAST);
+        mHourlyForecast = Fixtures.read(Fixtures.HOURLY_FORECAST);
+    }
+
+    /**
+     * DailyForecast.parse, as SunshineSyncAdapter.getWeatherDataFromJson calls it.
+     */
+    @Benchmark
+    public DailyForecast dailyForecast() throws JSONException {
+        return DailyForecast.parse(mDailyForecast);
+    }
+
+    /**
+     * HourlyForecast.parse: streamed, keeping only the stored fields.
+     */
+    @Benchmark
+    public HourlyForecast hourlyForecastStreamed() throws IOException {
+        return HourlyForecast.parse(new JsonReader(new StringReader(mHourlyForecast)));
+    }
+
+    /**
+     * Not shipped: the three hour forecast through an org.json tree, the way the daily one is
+     * parsed, to compare the streaming parser with.
+     */
+    @Benchmark
+    public List<Map<String, Object>> hourlyForecastTree() throws JSONException {
+        JSONArray list = new JSONObject(mHourlyForecast).getJSONArray("list");
+        List<Map<String, Object>> slots = new ArrayList<Map<String, Object>>(list.length());
+        for (int i = 0; i < list.length(); i++) {
+            JSONObject item = list.getJSONObject(i);
+            JSONObject main = item.getJSONObject("main");
+            JSONObject weather = item.getJSONArray("weather").getJSONObject(0);
+            JSONObject wind = item.getJSONObject("wind");
+            Map<String, Object> slot = WeatherTable.newValues();
+            slot.put("time", item.getLong("dt") * 1000);
+            slot.put(WeatherStorage.COLUMN_WEATHER_ID, weather.getInt("id"));
+            slot.put(WeatherStorage.COLUMN_SHORT_DESC, weather.getString("main"));
+            slot.put("temp", main.getDouble("temp"));
+            slot.put(WeatherStorage.COLUMN_HUMIDITY, main.getDouble("humidity"));
+            slot.put(WeatherStorage.COLUMN_PRESSURE, main.getDouble("pressure"));
+            slot.put(WeatherStorage.COLUMN_WIND_SPEED, wind.getDouble("speed"));
+            slot.put(WeatherStorage.COLUMN_DEGREES, wind.getDouble("deg"));
+            slots.add(slot);
+        }
+        return slots;
+    }
+}
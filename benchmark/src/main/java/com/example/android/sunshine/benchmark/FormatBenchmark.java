@@ -0,0 +1,67 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.benchmark;
+
+import com.example.android.sunshine.shared.WeatherFormat;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The Utility formatting done for every bound row, through the app's {@link WeatherFormat}
+ * with the app's format strings.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+@State(Scope.Benchmark)
+public class FormatBenchmark {
+    // R.string.format_temperature and R.string.format_wind_mph, which Utility looks up
+    private static final String FORMAT_TEMPERATURE = "%1.0f\u00B0";
+    private static final String FORMAT_WIND_MPH = "%1$1.0f mph %2$s";
+
+    public double temperature = 12.6;
+    public float windSpeed = 4.1f;
+    public float degrees = 250.5f;
+
+    /**
+     * Utility.formatTemperature, in Fahrenheit so the conversion is included.
+     */
+    @Benchmark
+    public String formatTemperature() {
+        return WeatherFormat.formatTemperature(FORMAT_TEMPERATURE, temperature, false);
+    }
+
+    /**
+     * Utility.getFormattedWind, in mph so the conversion is included: compass direction, then
+     * the format.
+     */
+    @Benchmark
+    public String formattedWind() {
+        return WeatherFormat.formatWind(FORMAT_WIND_MPH, windSpeed, degrees, false);
+    }
+}
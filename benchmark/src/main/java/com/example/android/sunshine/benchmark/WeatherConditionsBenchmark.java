@@ -0,0 +1,91 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.benchmark;
+
+import com.example.android.sunshine.shared.WeatherConditions;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Condition lookups of the shared WeatherConditions, over every id of a recorded sync.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+@State(Scope.Benchmark)
+public class WeatherConditionsBenchmark {
+    private static final String ART_PACK_FORMAT =
+            "https://raw.githubusercontent.com/udacity/sunshine_art_pack/master/art_%s.png";
+
+    // Condition ids of the daily and the hourly fixtures, in order
+    private int[] mWeatherIds;
+    private String[] mArtUrls;
+
+    @Setup
+    public void setUp() throws Exception {
+        String[] fixtures = {Fixtures.DAILY_FORECAST, Fixtures.HOURLY_FORECAST};
+        int[] ids = new int[64];
+        int count = 0;
+        for (String fixture : fixtures) {
+            JSONArray list = new JSONObject(Fixtures.read(fixture))
+                    .getJSONArray("list");
+            for (int i = 0; i < list.length(); i++) {
+                ids[count++] = list.getJSONObject(i).getJSONArray("weather").getJSONObject(0)
+                        .getInt("id");
+            }
+        }
+        mWeatherIds = new int[count];
+        System.arraycopy(ids, 0, mWeatherIds, 0, count);
+        mArtUrls = WeatherConditions.formatArtUrls(ART_PACK_FORMAT);
+    }
+
+    /**
+     * Utility.getArtUrlForWeatherCondition, with the art pack URLs formatted once.
+     */
+    @Benchmark
+    public void artUrl(Blackhole blackhole) {
+        for (int weatherId : mWeatherIds) {
+            int art = WeatherConditions.getArt(weatherId);
+            blackhole.consume(art == WeatherConditions.ART_NONE ? null : mArtUrls[art]);
+        }
+    }
+
+    /**
+     * Utility.getImageUrlForWeatherCondition, used for notifications and the watch.
+     */
+    @Benchmark
+    public void imageUrl(Blackhole blackhole) {
+        for (int weatherId : mWeatherIds) {
+            blackhole.consume(WeatherConditions.getImageUrl(weatherId));
+        }
+    }
+}
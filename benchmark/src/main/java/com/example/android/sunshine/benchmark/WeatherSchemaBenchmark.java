@@ -0,0 +1,257 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.benchmark;
+
+import com.example.android.sunshine.shared.LocationStorage;
+import com.example.android.sunshine.shared.WeatherStorage;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The weather table of database version 4, with REAL measurements and a TEXT description,
+ * against the current one, with INTEGER hundredths and the description derived from the
+ * condition id by the provider's projection map.
+ *
+ * The database is a file holding 14 days for each of 100 locations, whose size for each schema
+ * is reported by {@link DatabaseSize}.  The benchmarks read a forecast as ForecastFragment
+ * does, and every row as the archive does.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+@State(Scope.Benchmark)
+public class WeatherSchemaBenchmark {
+    private static final long DAY_IN_MILLIS = 24 * 60 * 60 * 1000;
+    private static final long FIRST_DATE = 1457136000000L;  // March 5th, 2016
+    static final int LOCATIONS = 100;
+    static final int DAYS = 14;
+    private static final int[] WEATHER_IDS = {800, 801, 803, 500, 501, 300, 701, 211, 600};
+
+    @Param({"legacy", "compact"})
+    public String schema;
+
+    private File mFile;
+    private Connection mConnection;
+    private PreparedStatement mForecastQuery;
+    private PreparedStatement mAllQuery;
+    private int mNextLocation;
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException, ClassNotFoundException, IOException {
+        boolean compact = "compact".equals(schema);
+        mFile = File.createTempFile("weather", ".db");
+        createDatabase(mFile, compact);
+        mConnection = DriverManager.getConnection("jdbc:sqlite:" + mFile.getAbsolutePath());
+
+        // ForecastFragment.FORECAST_COLUMNS through the join, then the archive's columns
+        mForecastQuery = mConnection.prepareStatement("SELECT "
+                + column(compact, "weather._id") + ", "
+                + column(compact, WeatherStorage.COLUMN_DATE) + ", "
+                + column(compact, WeatherStorage.COLUMN_SHORT_DESC) + ", "
+                + column(compact, WeatherStorage.COLUMN_MAX_TEMP) + ", "
+                + column(compact, WeatherStorage.COLUMN_MIN_TEMP) + ", "
+                + "location.location_setting, "
+                + column(compact, WeatherStorage.COLUMN_WEATHER_ID) + ", "
+                + "location.coord_lat, location.coord_long"
+                + " FROM weather INNER JOIN location ON weather.location_id = location._id"
+                + " WHERE location.location_setting = ? AND date >= ? ORDER BY date ASC");
+        mAllQuery = mConnection.prepareStatement("SELECT "
+                + column(compact, WeatherStorage.COLUMN_DATE) + ", "
+                + column(compact, WeatherStorage.COLUMN_WEATHER_ID) + ", "
+                + column(compact, WeatherStorage.COLUMN_MIN_TEMP) + ", "
+                + column(compact, WeatherStorage.COLUMN_MAX_TEMP) + ", "
+                + column(compact, WeatherStorage.COLUMN_HUMIDITY) + ", "
+                + column(compact, WeatherStorage.COLUMN_PRESSURE) + ", "
+                + column(compact, WeatherStorage.COLUMN_WIND_SPEED) + ", "
+                + column(compact, WeatherStorage.COLUMN_DEGREES) + ", "
+                + column(compact, WeatherStorage.COLUMN_LOC_KEY)
+                + " FROM weather WHERE date <= ? ORDER BY location_id ASC, date ASC");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException {
+        mForecastQuery.close();
+        mAllQuery.close();
+        mConnection.close();
+        //noinspection ResultOfMethodCallIgnored
+        mFile.delete();
+    }
+
+    /**
+     * The forecast of one location from the first day, a different location every time.
+     */
+    @Benchmark
+    public double forecast() throws SQLException {
+        mNextLocation = mNextLocation % LOCATIONS + 1;
+        mForecastQuery.setString(1, "location " + mNextLocation);
+        mForecastQuery.setLong(2, FIRST_DATE);
+        double sink = 0;
+        ResultSet rows = mForecastQuery.executeQuery();
+        try {
+            while (rows.next()) {
+                sink += rows.getLong(1) + rows.getLong(2) + rows.getString(3).length()
+                        + rows.getDouble(4) + rows.getDouble(5) + rows.getString(6).length()
+                        + rows.getInt(7) + rows.getDouble(8) + rows.getDouble(9);
+            }
+        } finally {
+            rows.close();
+        }
+        return sink;
+    }
+
+    /**
+     * Every row, as ForecastArchive.archiveExpired reads the expired days.
+     */
+    @Benchmark
+    public double allRows() throws SQLException {
+        mAllQuery.setLong(1, FIRST_DATE + DAYS * DAY_IN_MILLIS);
+        double sink = 0;
+        ResultSet rows = mAllQuery.executeQuery();
+        try {
+            while (rows.next()) {
+                for (int i = 1; i <= 9; i++) {
+                    sink += rows.getDouble(i);
+                }
+            }
+        } finally {
+            rows.close();
+        }
+        return sink;
+    }
+
+    /**
+     * Creates the database the benchmarks read in a new file: 14 days for each of 100
+     * locations, stored with the legacy schema or the compact one, then vacuumed.
+     */
+    static void createDatabase(File file, boolean compact)
+            throws SQLException, ClassNotFoundException {
+        Class.forName("org.sqlite.JDBC");
+        Connection connection =
+                DriverManager.getConnection("jdbc:sqlite:" + file.getAbsolutePath());
+        try {
+            fill(connection, compact);
+        } finally {
+            connection.close();
+        }
+    }
+
+    private static void fill(Connection connection, boolean compact) throws SQLException {
+        Statement statement = connection.createStatement();
+        statement.execute(LocationStorage.SQL_CREATE_TABLE);
+        statement.execute(compact ? WeatherStorage.SQL_CREATE_TABLE
+                : WeatherTable.SQL_CREATE_LEGACY_WEATHER_TABLE);
+        statement.close();
+
+        connection.setAutoCommit(false);
+        PreparedStatement location = connection.prepareStatement("INSERT INTO location "
+                + "(_id, location_setting, city_name, coord_lat, coord_long) VALUES (?, ?, ?, ?, ?)");
+        PreparedStatement weather = connection.prepareStatement("INSERT INTO "
+                + WeatherStorage.TABLE_NAME + " (" + WeatherStorage.COLUMN_LOC_KEY + ", "
+                + WeatherStorage.COLUMN_DATE + ", " + WeatherStorage.COLUMN_WEATHER_ID + ", "
+                + WeatherStorage.COLUMN_MIN_TEMP + ", " + WeatherStorage.COLUMN_MAX_TEMP + ", "
+                + WeatherStorage.COLUMN_HUMIDITY + ", " + WeatherStorage.COLUMN_PRESSURE + ", "
+                + WeatherStorage.COLUMN_WIND_SPEED + ", " + WeatherStorage.COLUMN_DEGREES
+                + (compact ? "" : ", " + WeatherStorage.COLUMN_SHORT_DESC)
+                + ") VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?" + (compact ? "" : ", ?") + ")");
+        for (int l = 1; l <= LOCATIONS; l++) {
+            location.setLong(1, l);
+            location.setString(2, "location " + l);
+            location.setString(3, "City " + l);
+            location.setDouble(4, 51.50853 - l * 0.1);
+            location.setDouble(5, -0.12574 + l * 0.1);
+            location.executeUpdate();
+            for (int d = 0; d < DAYS; d++) {
+                int weatherId = WEATHER_IDS[(l + d) % WEATHER_IDS.length];
+                Map<String, Object> values = WeatherTable.newValues();
+                values.put(WeatherStorage.COLUMN_MIN_TEMP, 4.25 + (l + d) % 9 - l % 3 * 0.5);
+                values.put(WeatherStorage.COLUMN_MAX_TEMP, 12.75 + (l * d) % 11);
+                values.put(WeatherStorage.COLUMN_HUMIDITY, 60 + (l + d) % 30);
+                values.put(WeatherStorage.COLUMN_PRESSURE, 1003.25 + (l + d) % 20);
+                values.put(WeatherStorage.COLUMN_WIND_SPEED, 2.1 + d % 8 * 0.6);
+                values.put(WeatherStorage.COLUMN_DEGREES, 10.5 + (l * 37 + d * 11) % 340);
+                values.put(WeatherStorage.COLUMN_SHORT_DESC,
+                        WeatherStorage.getDescription(weatherId));
+                if (compact) {
+                    values = WeatherTable.encode(values);
+                }
+                weather.setLong(1, l);
+                weather.setLong(2, FIRST_DATE + d * DAY_IN_MILLIS);
+                weather.setInt(3, weatherId);
+                weather.setObject(4, values.get(WeatherStorage.COLUMN_MIN_TEMP));
+                weather.setObject(5, values.get(WeatherStorage.COLUMN_MAX_TEMP));
+                weather.setObject(6, values.get(WeatherStorage.COLUMN_HUMIDITY));
+                weather.setObject(7, values.get(WeatherStorage.COLUMN_PRESSURE));
+                weather.setObject(8, values.get(WeatherStorage.COLUMN_WIND_SPEED));
+                weather.setObject(9, values.get(WeatherStorage.COLUMN_DEGREES));
+                if (!compact) {
+                    weather.setString(10, (String) values.get(WeatherStorage.COLUMN_SHORT_DESC));
+                }
+                weather.executeUpdate();
+            }
+        }
+        location.close();
+        weather.close();
+        connection.commit();
+        connection.setAutoCommit(true);
+
+        statement = connection.createStatement();
+        statement.execute("VACUUM");
+        statement.close();
+    }
+
+    // A column of the weather table as WeatherProvider's projection map serves it
+    private static String column(boolean compact, String column) {
+        if (!compact) {
+            return column;
+        }
+        if (column.equals(WeatherStorage.COLUMN_SHORT_DESC)) {
+            return WeatherStorage.buildDescriptionExpression(
+                    "weather." + WeatherStorage.COLUMN_WEATHER_ID) + " AS " + column;
+        }
+        for (String scaled : WeatherStorage.getScaledColumns()) {
+            if (scaled.equals(column)) {
+                return WeatherStorage.buildDecodeExpression("weather." + column) + " AS "
+                        + column;
+            }
+        }
+        return column;
+    }
+}
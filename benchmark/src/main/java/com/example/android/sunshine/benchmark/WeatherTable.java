@@ -0,0 +1,74 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.benchmark;
+
+import com.example.android.sunshine.shared.WeatherStorage;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The weather table as it was created before its measurements were scaled to INTEGERs and its
+ * description dropped.  The table as WeatherDbHelper creates it now, its columns and the way
+ * rows are stored are the app's, from {@link WeatherStorage}.
+ */
+final class WeatherTable {
+    /** Database version 4: REAL measurements and a TEXT description. */
+    static final String SQL_CREATE_LEGACY_WEATHER_TABLE = "CREATE TABLE "
+            + WeatherStorage.TABLE_NAME + " (" +
+            "_id INTEGER PRIMARY KEY AUTOINCREMENT," +
+            WeatherStorage.COLUMN_LOC_KEY + " INTEGER NOT NULL, " +
+            WeatherStorage.COLUMN_DATE + " INTEGER NOT NULL, " +
+            WeatherStorage.COLUMN_SHORT_DESC + " TEXT NOT NULL, " +
+            WeatherStorage.COLUMN_WEATHER_ID + " INTEGER NOT NULL," +
+            WeatherStorage.COLUMN_MIN_TEMP + " REAL NOT NULL, " +
+            WeatherStorage.COLUMN_MAX_TEMP + " REAL NOT NULL, " +
+            WeatherStorage.COLUMN_HUMIDITY + " REAL NOT NULL, " +
+            WeatherStorage.COLUMN_PRESSURE + " REAL NOT NULL, " +
+            WeatherStorage.COLUMN_WIND_SPEED + " REAL NOT NULL, " +
+            WeatherStorage.COLUMN_DEGREES + " REAL NOT NULL, " +
+            " FOREIGN KEY (" + WeatherStorage.COLUMN_LOC_KEY + ") REFERENCES location (_id), " +
+            " UNIQUE (" + WeatherStorage.COLUMN_DATE + ", " + WeatherStorage.COLUMN_LOC_KEY +
+            ") ON CONFLICT REPLACE);";
+
+    private static final String[] SCALED_COLUMNS = WeatherStorage.getScaledColumns();
+
+    private WeatherTable() {
+    }
+
+    /**
+     * @return an empty row, the way ContentValues holds one: a HashMap of boxed values
+     */
+    static Map<String, Object> newValues() {
+        return new HashMap<String, Object>(8);
+    }
+
+    /**
+     * WeatherProvider.encodeWeatherValues: a copy of the row with its measurements scaled to
+     * INTEGERs and without its description.
+     */
+    static Map<String, Object> encode(Map<String, Object> values) {
+        Map<String, Object> encoded = new HashMap<String, Object>(values);
+        for (String column : SCALED_COLUMNS) {
+            Object value = values.get(column);
+            if (value != null) {
+                encoded.put(column, WeatherStorage.scale(((Number) value).doubleValue()));
+            }
+        }
+        encoded.remove(WeatherStorage.COLUMN_SHORT_DESC);
+        return encoded;
+    }
+}
@@ -0,0 +1,196 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.shared;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.net.HttpURLConnection;
+
+/**
+ * OpenWeatherMap's daily forecast, parsed from the complete response through an org.json tree.
+ *
+ * org.json is part of the Android framework, so this module only compiles against it: the app
+ * uses the framework's, and JVM users of this class bring their own.
+ */
+public final class DailyForecast {
+
+    // Location information
+    private static final String OWM_CITY = "city";
+    private static final String OWM_CITY_NAME = "name";
+    private static final String OWM_COORD = "coord";
+
+    // Location coordinate
+    private static final String OWM_LATITUDE = "lat";
+    private static final String OWM_LONGITUDE = "lon";
+
+    // Weather information.  Each day's forecast info is an element of the "list" array.
+    private static final String OWM_LIST = "list";
+
+    private static final String OWM_PRESSURE = "pressure";
+    private static final String OWM_HUMIDITY = "humidity";
+    private static final String OWM_WINDSPEED = "speed";
+    private static final String OWM_WIND_DIRECTION = "deg";
+
+    // All temperatures are children of the "temp" object.
+    private static final String OWM_TEMPERATURE = "temp";
+    private static final String OWM_MAX = "max";
+    private static final String OWM_MIN = "min";
+
+    private static final String OWM_WEATHER = "weather";
+    private static final String OWM_DESCRIPTION = "main";
+    private static final String OWM_WEATHER_ID = "id";
+
+    private static final String OWM_MESSAGE_CODE = "cod";
+
+    private final int mCode;
+    private final String mCityName;
+    private final double mLatitude;
+    private final double mLongitude;
+
+    // Indexed by day, the first day being the current one
+    private final double[] mPressure;
+    private final int[] mHumidity;
+    private final double[] mWindSpeed;
+    private final double[] mDegrees;
+    private final double[] mHigh;
+    private final double[] mLow;
+    private final String[] mDescription;
+    private final int[] mWeatherId;
+
+    private DailyForecast(int code, String cityName, double latitude, double longitude,
+            int days) {
+        mCode = code;
+        mCityName = cityName;
+        mLatitude = latitude;
+        mLongitude = longitude;
+        mPressure = new double[days];
+        mHumidity = new int[days];
+        mWindSpeed = new double[days];
+        mDegrees = new double[days];
+        mHigh = new double[days];
+        mLow = new double[days];
+        mDescription = new String[days];
+        mWeatherId = new int[days];
+    }
+
+    /**
+     * @return the forecast of the response.  A response with an error code has no city and
+     * no days.
+     * @throws JSONException if the response is not shaped as expected
+     */
+    public static DailyForecast parse(String json) throws JSONException {
+        JSONObject forecastJson = new JSONObject(json);
+
+        // do we have an error?
+        if (forecastJson.has(OWM_MESSAGE_CODE)) {
+            int code = forecastJson.getInt(OWM_MESSAGE_CODE);
+            if (code != HttpURLConnection.HTTP_OK) {
+                return new DailyForecast(code, null, 0, 0, 0);
+            }
+        }
+
+        JSONArray weatherArray = forecastJson.getJSONArray(OWM_LIST);
+
+        JSONObject cityJson = forecastJson.getJSONObject(OWM_CITY);
+        JSONObject cityCoord = cityJson.getJSONObject(OWM_COORD);
+        DailyForecast forecast = new DailyForecast(HttpURLConnection.HTTP_OK,
+                cityJson.getString(OWM_CITY_NAME), cityCoord.getDouble(OWM_LATITUDE),
+                cityCoord.getDouble(OWM_LONGITUDE), weatherArray.length());
+
+        for (int i = 0; i < weatherArray.length(); i++) {
+            // Get the JSON object representing the day
+            JSONObject dayForecast = weatherArray.getJSONObject(i);
+
+            forecast.mPressure[i] = dayForecast.getDouble(OWM_PRESSURE);
+            forecast.mHumidity[i] = dayForecast.getInt(OWM_HUMIDITY);
+            forecast.mWindSpeed[i] = dayForecast.getDouble(OWM_WINDSPEED);
+            forecast.mDegrees[i] = dayForecast.getDouble(OWM_WIND_DIRECTION);
+
+            // Description is in a child array called "weather", which is 1 element long.
+            // That element also contains a weather code.
+            JSONObject weatherObject = dayForecast.getJSONArray(OWM_WEATHER).getJSONObject(0);
+            forecast.mDescription[i] = weatherObject.getString(OWM_DESCRIPTION);
+            forecast.mWeatherId[i] = weatherObject.getInt(OWM_WEATHER_ID);
+
+            // Temperatures are in a child object called "temp".  Try not to name variables
+            // "temp" when working with temperature.  It confuses everybody.
+            JSONObject temperatureObject = dayForecast.getJSONObject(OWM_TEMPERATURE);
+            forecast.mHigh[i] = temperatureObject.getDouble(OWM_MAX);
+            forecast.mLow[i] = temperatureObject.getDouble(OWM_MIN);
+        }
+        return forecast;
+    }
+
+    /**
+     * @return the code of the response, {@link HttpURLConnection#HTTP_OK} if it has none
+     */
+    public int getCode() {
+        return mCode;
+    }
+
+    public String getCityName() {
+        return mCityName;
+    }
+
+    public double getLatitude() {
+        return mLatitude;
+    }
+
+    public double getLongitude() {
+        return mLongitude;
+    }
+
+    /**
+     * @return the number of days, the first one being the current day where the city is
+     */
+    public int getCount() {
+        return mWeatherId.length;
+    }
+
+    public double getPressure(int day) {
+        return mPressure[day];
+    }
+
+    public int getHumidity(int day) {
+        return mHumidity[day];
+    }
+
+    public double getWindSpeed(int day) {
+        return mWindSpeed[day];
+    }
+
+    public double getDegrees(int day) {
+        return mDegrees[day];
+    }
+
+    public double getHigh(int day) {
+        return mHigh[day];
+    }
+
+    public double getLow(int day) {
+        return mLow[day];
+    }
+
+    public String getDescription(int day) {
+        return mDescription[day];
+    }
+
+    public int getWeatherId(int day) {
+        return mWeatherId[day];
+    }
+}
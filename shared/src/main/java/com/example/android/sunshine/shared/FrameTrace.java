@@ -0,0 +1,173 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.shared;
+
+import java.util.Arrays;
+
+/**
+ * Ring buffers of the watch face's recent frames: when each frame was drawn, how long it took,
+ * and how late the tick that asked for it was, along with the number of invalidates in each
+ * recent minute.  Once full, the oldest entries are overwritten.
+ *
+ * The watch face fills it on its UI thread and sends it to the phone under {@link #PATH}, one
+ * array per key.  It is not thread-safe.
+ */
+public final class FrameTrace {
+    /** Data Layer path the watch face sends its trace to. */
+    public static final String PATH = "/frame_trace";
+
+    public static final String KEY_FRAME_TIMES = "frame_times";
+    public static final String KEY_DRAW_MICROS = "draw_micros";
+    public static final String KEY_TICK_DRIFT = "tick_drift";
+    public static final String KEY_FIRST_MINUTE = "first_minute";
+    public static final String KEY_INVALIDATES = "invalidates";
+
+    /** Drift of a frame that was not asked for by the update tick. */
+    public static final long NO_DRIFT = Long.MIN_VALUE;
+
+    private static final long MINUTE_IN_MILLIS = 60 * 1000;
+
+    private final long[] mFrameTimes;
+    private final long[] mDrawMicros;
+    private final long[] mTickDrift;
+    private int mNextFrame;
+    private int mFrameCount;
+    private long mPendingDrift = NO_DRIFT;
+
+    private final long[] mInvalidates;
+    private long mLastMinute = -1;
+    private int mMinuteCount;
+
+    /**
+     * @param frameCapacity number of frames kept
+     * @param minuteCapacity number of minutes of invalidate counts kept
+     */
+    public FrameTrace(int frameCapacity, int minuteCapacity) {
+        mFrameTimes = new long[frameCapacity];
+        mDrawMicros = new long[frameCapacity];
+        mTickDrift = new long[frameCapacity];
+        mInvalidates = new long[minuteCapacity];
+    }
+
+    /**
+     * Counts an invalidate in the minute of {@code nowMillis}.
+     */
+    public void onInvalidate(long nowMillis) {
+        long minute = nowMillis / MINUTE_IN_MILLIS;
+        if (minute != mLastMinute) {
+            if (mLastMinute < 0 || minute < mLastMinute) {
+                // First invalidate, or the clock went back: start over
+                Arrays.fill(mInvalidates, 0);
+                mMinuteCount = 1;
+            } else {
+                // Clear the minutes skipped, and the new one, as they hold older counts
+                long skipped = Math.min(minute - mLastMinute, mInvalidates.length);
+                for (long m = minute - skipped + 1; m <= minute; m++) {
+                    mInvalidates[(int) (m % mInvalidates.length)] = 0;
+                }
+                mMinuteCount = (int) Math.min(mMinuteCount + (minute - mLastMinute),
+                        mInvalidates.length);
+            }
+            mLastMinute = minute;
+        }
+        mInvalidates[(int) (minute % mInvalidates.length)]++;
+    }
+
+    /**
+     * Records how late the update tick ran, in milliseconds, for the next frame.
+     */
+    public void onTick(long driftMillis) {
+        mPendingDrift = driftMillis;
+    }
+
+    /**
+     * Records a frame, with the drift of the tick that asked for it, if any.
+     *
+     * @param startMillis wall time the frame started being drawn
+     * @param drawMicros time taken to draw it
+     */
+    public void onFrame(long startMillis, long drawMicros) {
+        mFrameTimes[mNextFrame] = startMillis;
+        mDrawMicros[mNextFrame] = drawMicros;
+        mTickDrift[mNextFrame] = mPendingDrift;
+        mPendingDrift = NO_DRIFT;
+        mNextFrame = (mNextFrame + 1) % mFrameTimes.length;
+        mFrameCount = Math.min(mFrameCount + 1, mFrameTimes.length);
+    }
+
+    public int getFrameCount() {
+        return mFrameCount;
+    }
+
+    /**
+     * @return the start time of each frame kept, oldest first
+     */
+    public long[] getFrameTimes() {
+        return oldestFirst(mFrameTimes);
+    }
+
+    /**
+     * @return the draw time of each frame kept in microseconds, oldest first
+     */
+    public long[] getDrawMicros() {
+        return oldestFirst(mDrawMicros);
+    }
+
+    /**
+     * @return the tick drift of each frame kept in milliseconds, or {@link #NO_DRIFT}, oldest
+     * first
+     */
+    public long[] getTickDrift() {
+        return oldestFirst(mTickDrift);
+    }
+
+    /**
+     * @return the minute, since the epoch, of the first count of {@link #getInvalidates()}
+     */
+    public long getFirstMinute() {
+        return mLastMinute - mMinuteCount + 1;
+    }
+
+    /**
+     * @return the invalidates counted in each minute kept, oldest first, up to the last minute
+     * with an invalidate
+     */
+    public long[] getInvalidates() {
+        long[] counts = new long[mMinuteCount];
+        long first = getFirstMinute();
+        for (int i = 0; i < mMinuteCount; i++) {
+            counts[i] = mInvalidates[(int) ((first + i) % mInvalidates.length)];
+        }
+        return counts;
+    }
+
+    public void clear() {
+        mNextFrame = 0;
+        mFrameCount = 0;
+        mPendingDrift = NO_DRIFT;
+        mLastMinute = -1;
+        mMinuteCount = 0;
+    }
+
+    private long[] oldestFirst(long[] ring) {
+        long[] values = new long[mFrameCount];
+        int first = (mNextFrame - mFrameCount + ring.length) % ring.length;
+        for (int i = 0; i < mFrameCount; i++) {
+            values[i] = ring[(first + i) % ring.length];
+        }
+        return values;
+    }
+}
@@ -0,0 +1,223 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.shared;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * OpenWeatherMap's three hour forecast, parsed by a streaming parser.
+ *
+ * The response is read token by token straight off the connection: only the fields stored in
+ * the hourly table are kept, and nothing is built for the rest of the document.  The reader is
+ * gson's, which android.util.JsonReader is a copy of.
+ */
+public final class HourlyForecast {
+
+    // Names of the JSON fields that are read.  Each slot is an element of the "list" array.
+    private static final String OWM_MESSAGE_CODE = "cod";
+    private static final String OWM_LIST = "list";
+    private static final String OWM_TIME = "dt";
+    private static final String OWM_MAIN = "main";
+    private static final String OWM_TEMPERATURE = "temp";
+    private static final String OWM_PRESSURE = "pressure";
+    private static final String OWM_HUMIDITY = "humidity";
+    private static final String OWM_WEATHER = "weather";
+    private static final String OWM_WEATHER_ID = "id";
+    private static final String OWM_DESCRIPTION = "main";
+    private static final String OWM_WIND = "wind";
+    private static final String OWM_WINDSPEED = "speed";
+    private static final String OWM_WIND_DIRECTION = "deg";
+
+    private static final class Slot {
+        boolean mHasTime;
+        boolean mHasWeatherId;
+        long mTime;
+        int mWeatherId;
+        // Every column is NOT NULL, start from neutral values
+        String mDescription = "";
+        double mTemperature;
+        double mHumidity;
+        double mPressure;
+        double mWindSpeed;
+        double mDegrees;
+    }
+
+    private final List<Slot> mSlots;
+
+    private HourlyForecast(List<Slot> slots) {
+        mSlots = slots;
+    }
+
+    /**
+     * @return the slots of the response, in the order received.  Slots missing their time or
+     * condition are dropped.
+     * @throws IOException if the response could not be read, or is an error
+     * @throws IllegalStateException if the response is not shaped as expected
+     */
+    public static HourlyForecast parse(JsonReader reader) throws IOException {
+        List<Slot> slots = new ArrayList<Slot>(40);
+        String code = null;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            if (OWM_MESSAGE_CODE.equals(name)) {
+                // a string for this endpoint, a number for the daily one
+                code = reader.nextString();
+            } else if (OWM_LIST.equals(name) && reader.peek() == JsonToken.BEGIN_ARRAY) {
+                reader.beginArray();
+                while (reader.hasNext()) {
+                    Slot slot = readSlot(reader);
+                    if (slot.mHasTime && slot.mHasWeatherId) {
+                        slots.add(slot);
+                    }
+                }
+                reader.endArray();
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+
+        if (code != null && !code.equals(Integer.toString(HttpURLConnection.HTTP_OK))) {
+            throw new IOException("Hourly forecast request failed with code " + code);
+        }
+        return new HourlyForecast(slots);
+    }
+
+    public int getCount() {
+        return mSlots.size();
+    }
+
+    /**
+     * @return the start of the slot, in milliseconds since the epoch
+     */
+    public long getTime(int slot) {
+        return mSlots.get(slot).mTime;
+    }
+
+    public int getWeatherId(int slot) {
+        return mSlots.get(slot).mWeatherId;
+    }
+
+    public String getDescription(int slot) {
+        return mSlots.get(slot).mDescription;
+    }
+
+    public double getTemperature(int slot) {
+        return mSlots.get(slot).mTemperature;
+    }
+
+    public double getHumidity(int slot) {
+        return mSlots.get(slot).mHumidity;
+    }
+
+    public double getPressure(int slot) {
+        return mSlots.get(slot).mPressure;
+    }
+
+    public double getWindSpeed(int slot) {
+        return mSlots.get(slot).mWindSpeed;
+    }
+
+    public double getDegrees(int slot) {
+        return mSlots.get(slot).mDegrees;
+    }
+
+    private static Slot readSlot(JsonReader reader) throws IOException {
+        Slot slot = new Slot();
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            if (OWM_TIME.equals(name)) {
+                // seconds since the epoch
+                slot.mTime = reader.nextLong() * 1000;
+                slot.mHasTime = true;
+            } else if (OWM_MAIN.equals(name)) {
+                readMain(reader, slot);
+            } else if (OWM_WEATHER.equals(name)) {
+                readWeather(reader, slot);
+            } else if (OWM_WIND.equals(name)) {
+                readWind(reader, slot);
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+        return slot;
+    }
+
+    private static void readMain(JsonReader reader, Slot slot) throws IOException {
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            if (OWM_TEMPERATURE.equals(name)) {
+                slot.mTemperature = reader.nextDouble();
+            } else if (OWM_PRESSURE.equals(name)) {
+                slot.mPressure = reader.nextDouble();
+            } else if (OWM_HUMIDITY.equals(name)) {
+                slot.mHumidity = reader.nextDouble();
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+    }
+
+    private static void readWeather(JsonReader reader, Slot slot) throws IOException {
+        // An array that is one element long, anything after the first element is ignored.
+        reader.beginArray();
+        if (reader.hasNext()) {
+            reader.beginObject();
+            while (reader.hasNext()) {
+                String name = reader.nextName();
+                if (OWM_WEATHER_ID.equals(name)) {
+                    slot.mWeatherId = reader.nextInt();
+                    slot.mHasWeatherId = true;
+                } else if (OWM_DESCRIPTION.equals(name)) {
+                    slot.mDescription = reader.nextString();
+                } else {
+                    reader.skipValue();
+                }
+            }
+            reader.endObject();
+        }
+        while (reader.hasNext()) {
+            reader.skipValue();
+        }
+        reader.endArray();
+    }
+
+    private static void readWind(JsonReader reader, Slot slot) throws IOException {
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            if (OWM_WINDSPEED.equals(name)) {
+                slot.mWindSpeed = reader.nextDouble();
+            } else if (OWM_WIND_DIRECTION.equals(name)) {
+                slot.mDegrees = reader.nextDouble();
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+    }
+}
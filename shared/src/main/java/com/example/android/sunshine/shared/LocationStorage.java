@@ -0,0 +1,51 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.shared;
+
+/**
+ * How the locations of the forecasts are stored: the columns of the location table, and the SQL
+ * creating it.  The weather table references its rows, see {@link WeatherStorage}.
+ */
+public final class LocationStorage {
+
+    public static final String TABLE_NAME = "location";
+
+    public static final String COLUMN_ID = "_id";
+    public static final String COLUMN_LOCATION_SETTING = "location_setting";
+    public static final String COLUMN_CITY_NAME = "city_name";
+    public static final String COLUMN_COORD_LAT = "coord_lat";
+    public static final String COLUMN_COORD_LONG = "coord_long";
+    public static final String COLUMN_GEOHASH = "geohash";
+
+    // A location consists of the string supplied in the location setting, the city name, and
+    // the latitude and longitude
+    public static final String SQL_CREATE_TABLE = "CREATE TABLE " + TABLE_NAME + " (" +
+            COLUMN_ID + " INTEGER PRIMARY KEY," +
+            COLUMN_LOCATION_SETTING + " TEXT UNIQUE NOT NULL, " +
+            COLUMN_CITY_NAME + " TEXT NOT NULL, " +
+            COLUMN_COORD_LAT + " REAL NOT NULL, " +
+            COLUMN_COORD_LONG + " REAL NOT NULL, " +
+            COLUMN_GEOHASH + " TEXT " +
+            " );";
+
+    // Locations near each other share a geohash prefix, which this index can range over.
+    public static final String SQL_CREATE_GEOHASH_INDEX = "CREATE INDEX " +
+            TABLE_NAME + "_" + COLUMN_GEOHASH + "_idx ON " +
+            TABLE_NAME + " (" + COLUMN_GEOHASH + ");";
+
+    private LocationStorage() {
+    }
+}
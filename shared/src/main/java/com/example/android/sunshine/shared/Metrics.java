@@ -0,0 +1,339 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.shared;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Process-wide registry of counters, histograms and timers for the hot paths.
+ *
+ * Metrics are looked up by name once, typically into a static field, and then recorded into
+ * without locking or allocating: every value is an atomic, and histograms keep one counter per
+ * power of two instead of the values themselves.  Reading them back, for a dump, may allocate.
+ */
+public final class Metrics {
+
+    private static final ConcurrentMap<String, Metric> sMetrics =
+            new ConcurrentHashMap<String, Metric>();
+
+    private Metrics() {
+    }
+
+    /**
+     * A named metric.  Every metric has a count: the events counted, or the values recorded.
+     */
+    public abstract static class Metric {
+        private final String mName;
+
+        Metric(String name) {
+            mName = name;
+        }
+
+        public String getName() {
+            return mName;
+        }
+
+        /**
+         * @return "counter", "histogram" or "timer"
+         */
+        public abstract String getType();
+
+        public abstract long getCount();
+
+        abstract void reset();
+
+        abstract void appendTo(StringBuilder out);
+    }
+
+    /**
+     * Counts events.
+     */
+    public static final class Counter extends Metric {
+        private final AtomicLong mCount = new AtomicLong();
+
+        Counter(String name) {
+            super(name);
+        }
+
+        public void inc() {
+            mCount.incrementAndGet();
+        }
+
+        public void add(long delta) {
+            mCount.addAndGet(delta);
+        }
+
+        @Override
+        public String getType() {
+            return "counter";
+        }
+
+        @Override
+        public long getCount() {
+            return mCount.get();
+        }
+
+        @Override
+        void reset() {
+            mCount.set(0);
+        }
+
+        @Override
+        void appendTo(StringBuilder out) {
+            out.append(getName()).append(" count=").append(getCount());
+        }
+    }
+
+    /**
+     * Distribution of non-negative values.  Values are counted in power of two buckets, so
+     * percentiles are rounded up to the next power of two; the minimum, maximum and sum are
+     * exact.
+     */
+    public static class Histogram extends Metric {
+        // Bucket i counts the values of i significant bits: 0, 1, [2, 4), [4, 8) and so on.
+        private static final int BUCKETS = 64;
+
+        private final AtomicLongArray mBuckets = new AtomicLongArray(BUCKETS);
+        private final AtomicLong mCount = new AtomicLong();
+        private final AtomicLong mSum = new AtomicLong();
+        private final AtomicLong mMin = new AtomicLong(Long.MAX_VALUE);
+        private final AtomicLong mMax = new AtomicLong(Long.MIN_VALUE);
+
+        Histogram(String name) {
+            super(name);
+        }
+
+        /**
+         * @param value the value to record, negative values are recorded as 0
+         */
+        public void record(long value) {
+            if (value < 0) {
+                value = 0;
+            }
+            mBuckets.incrementAndGet(BUCKETS - Long.numberOfLeadingZeros(value));
+            mCount.incrementAndGet();
+            mSum.addAndGet(value);
+            long min;
+            while (value < (min = mMin.get()) && !mMin.compareAndSet(min, value)) {
+                // another thread recorded a value in between, compare again
+            }
+            long max;
+            while (value > (max = mMax.get()) && !mMax.compareAndSet(max, value)) {
+                // another thread recorded a value in between, compare again
+            }
+        }
+
+        @Override
+        public String getType() {
+            return "histogram";
+        }
+
+        @Override
+        public long getCount() {
+            return mCount.get();
+        }
+
+        public long getSum() {
+            return mSum.get();
+        }
+
+        /**
+         * @return the smallest value recorded, 0 if there is none
+         */
+        public long getMin() {
+            return getCount() == 0 ? 0 : mMin.get();
+        }
+
+        /**
+         * @return the largest value recorded, 0 if there is none
+         */
+        public long getMax() {
+            return getCount() == 0 ? 0 : mMax.get();
+        }
+
+        /**
+         * @param percentile between 0 and 100
+         * @return a value at least as large as the percentile of the recorded values, and at most
+         * twice as large, or 0 if there is none
+         */
+        public long getPercentile(double percentile) {
+            long count = getCount();
+            if (count == 0) {
+                return 0;
+            }
+            long rank = Math.max(1, (long) Math.ceil(count * percentile / 100));
+            long seen = 0;
+            for (int bucket = 0; bucket < BUCKETS; bucket++) {
+                seen += mBuckets.get(bucket);
+                if (seen >= rank) {
+                    // Largest value of the bucket, but never beyond what was recorded
+                    long bound = bucket == 0 ? 0 : (1L << bucket) - 1;
+                    return Math.min(bound, getMax());
+                }
+            }
+            return getMax();
+        }
+
+        @Override
+        void reset() {
+            for (int bucket = 0; bucket < BUCKETS; bucket++) {
+                mBuckets.set(bucket, 0);
+            }
+            mCount.set(0);
+            mSum.set(0);
+            mMin.set(Long.MAX_VALUE);
+            mMax.set(Long.MIN_VALUE);
+        }
+
+        @Override
+        void appendTo(StringBuilder out) {
+            out.append(getName())
+                    .append(" count=").append(getCount())
+                    .append(" min=").append(getMin())
+                    .append(" p50=").append(getPercentile(50))
+                    .append(" p90=").append(getPercentile(90))
+                    .append(" p99=").append(getPercentile(99))
+                    .append(" max=").append(getMax());
+        }
+    }
+
+    /**
+     * Histogram of durations, in microseconds.
+     * <pre>
+     *     long start = TIMER.start();
+     *     ...
+     *     TIMER.stop(start);
+     * </pre>
+     */
+    public static final class Timer extends Histogram {
+        Timer(String name) {
+            super(name);
+        }
+
+        /**
+         * @return the start time, to hand to {@link #stop(long)}
+         */
+        public long start() {
+            return System.nanoTime();
+        }
+
+        /**
+         * Records the time since {@code start}.
+         */
+        public void stop(long start) {
+            record((System.nanoTime() - start) / 1000);
+        }
+
+        @Override
+        public String getType() {
+            return "timer";
+        }
+
+        @Override
+        void appendTo(StringBuilder out) {
+            super.appendTo(out);
+            out.append(" (us)");
+        }
+    }
+
+    /**
+     * @return the counter of that name, created on first use
+     * @throws IllegalStateException if the name is taken by another kind of metric
+     */
+    public static Counter counter(String name) {
+        return register(name, Counter.class);
+    }
+
+    /**
+     * @return the histogram of that name, created on first use
+     * @throws IllegalStateException if the name is taken by another kind of metric
+     */
+    public static Histogram histogram(String name) {
+        return register(name, Histogram.class);
+    }
+
+    /**
+     * @return the timer of that name, created on first use
+     * @throws IllegalStateException if the name is taken by another kind of metric
+     */
+    public static Timer timer(String name) {
+        return register(name, Timer.class);
+    }
+
+    private static <T extends Metric> T register(String name, Class<T> type) {
+        Metric metric = sMetrics.get(name);
+        if (metric == null) {
+            Metric created;
+            if (type == Counter.class) {
+                created = new Counter(name);
+            } else if (type == Timer.class) {
+                created = new Timer(name);
+            } else {
+                created = new Histogram(name);
+            }
+            metric = sMetrics.putIfAbsent(name, created);
+            if (metric == null) {
+                metric = created;
+            }
+        }
+        if (metric.getClass() != type) {
+            throw new IllegalStateException(name + " is already a " + metric.getType());
+        }
+        return type.cast(metric);
+    }
+
+    /**
+     * @return every metric, sorted by name
+     */
+    public static List<Metric> getAll() {
+        List<Metric> metrics = new ArrayList<Metric>(sMetrics.values());
+        Collections.sort(metrics, new Comparator<Metric>() {
+            @Override
+            public int compare(Metric lhs, Metric rhs) {
+                return lhs.getName().compareTo(rhs.getName());
+            }
+        });
+        return metrics;
+    }
+
+    /**
+     * @return every metric, one per line, sorted by name
+     */
+    public static String dump() {
+        StringBuilder out = new StringBuilder();
+        for (Metric metric : getAll()) {
+            metric.appendTo(out);
+            out.append('\n');
+        }
+        return out.toString();
+    }
+
+    /**
+     * Sets every metric back to zero.  The metrics stay registered.
+     */
+    public static void reset() {
+        for (Metric metric : sMetrics.values()) {
+            metric.reset();
+        }
+    }
+}
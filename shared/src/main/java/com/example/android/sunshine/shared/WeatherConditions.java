@@ -0,0 +1,211 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.shared;
+
+import java.util.Locale;
+
+/**
+ * Precomputed lookup tables for the weather condition ids returned by OpenWeatherMap.
+ *
+ * Based on weather code data found at:
+ * http://bugs.openweathermap.org/projects/api/wiki/Weather_Condition_Codes
+ *
+ * Every condition id maps to a group, and every group to an art kind and a Muzei image.  The
+ * tables are dense arrays indexed by condition id, so a lookup is a bounds check and two array
+ * reads.  The phone and the watch map art kinds to their own drawables.  Every condition id also
+ * has the name OpenWeatherMap gives its group in the "main" field of a response.
+ */
+public final class WeatherConditions {
+
+    /** Highest condition id covered by the tables. */
+    public static final int MAX_CONDITION_ID = 999;
+
+    // Art kinds, used to index the icon, art and art pack URL tables.
+    public static final int ART_NONE = -1;
+    public static final int ART_STORM = 0;
+    public static final int ART_LIGHT_RAIN = 1;
+    public static final int ART_RAIN = 2;
+    public static final int ART_SNOW = 3;
+    public static final int ART_FOG = 4;
+    public static final int ART_CLEAR = 5;
+    public static final int ART_LIGHT_CLOUDS = 6;
+    public static final int ART_CLOUDS = 7;
+    public static final int ART_COUNT = 8;
+
+    // The names the art packs use for each art kind, indexed by ART_*.
+    private static final String[] ART_NAMES = {
+            "storm",
+            "light_rain",
+            "rain",
+            "snow",
+            "fog",
+            "clear",
+            "light_clouds",
+            "clouds"
+    };
+
+    // Condition groups.  A group only exists when some table needs to tell it apart from the
+    // others: a tornado (781) uses the storm art but has its own Muzei image.
+    private static final byte GROUP_NONE = 0;
+    private static final byte GROUP_STORM = 1;
+    private static final byte GROUP_LIGHT_RAIN = 2;
+    private static final byte GROUP_RAIN = 3;
+    private static final byte GROUP_SNOW = 4;
+    private static final byte GROUP_FOG = 5;
+    private static final byte GROUP_TORNADO = 6;
+    private static final byte GROUP_CLEAR = 7;
+    private static final byte GROUP_LIGHT_CLOUDS = 8;
+    private static final byte GROUP_CLOUDS = 9;
+
+    // Art kind for each group, indexed by GROUP_*.
+    private static final int[] GROUP_ART = {
+            ART_NONE,
+            ART_STORM,
+            ART_LIGHT_RAIN,
+            ART_RAIN,
+            ART_SNOW,
+            ART_FOG,
+            ART_STORM,
+            ART_CLEAR,
+            ART_LIGHT_CLOUDS,
+            ART_CLOUDS
+    };
+
+    // Muzei wallpaper for each group, indexed by GROUP_*.
+    private static final String[] GROUP_IMAGE_URLS = {
+            null,
+            "http://upload.wikimedia.org/wikipedia/commons/2/28/Thunderstorm_in_Annemasse,_France.jpg",
+            "http://upload.wikimedia.org/wikipedia/commons/a/a0/Rain_on_leaf_504605006.jpg",
+            "http://upload.wikimedia.org/wikipedia/commons/6/6c/Rain-on-Thassos.jpg",
+            "http://upload.wikimedia.org/wikipedia/commons/b/b8/Fresh_snow.JPG",
+            "http://upload.wikimedia.org/wikipedia/commons/e/e6/Westminster_fog_-_London_-_UK.jpg",
+            "http://upload.wikimedia.org/wikipedia/commons/d/dc/Raised_dust_ahead_of_a_severe_thunderstorm_1.jpg",
+            "http://upload.wikimedia.org/wikipedia/commons/7/7e/A_few_trees_and_the_sun_(6009964513).jpg",
+            "http://upload.wikimedia.org/wikipedia/commons/e/e7/Cloudy_Blue_Sky_(5031259890).jpg",
+            "http://upload.wikimedia.org/wikipedia/commons/5/54/Cloudy_hills_in_Elis,_Greece_2.jpg"
+    };
+
+    // Group of every condition id, indexed by condition id.
+    private static final byte[] sGroups = new byte[MAX_CONDITION_ID + 1];
+
+    // "main" name of every condition id, indexed by condition id.
+    private static final String[] sMainNames = new String[MAX_CONDITION_ID + 1];
+
+    static {
+        fill(200, 232, GROUP_STORM);
+        fill(300, 321, GROUP_LIGHT_RAIN);
+        fill(500, 504, GROUP_RAIN);
+        fill(511, 511, GROUP_SNOW);
+        fill(520, 531, GROUP_RAIN);
+        fill(600, 622, GROUP_SNOW);
+        fill(701, 761, GROUP_FOG);
+        fill(781, 781, GROUP_TORNADO);
+        fill(800, 800, GROUP_CLEAR);
+        fill(801, 801, GROUP_LIGHT_CLOUDS);
+        fill(802, 804, GROUP_CLOUDS);
+
+        name(200, 232, "Thunderstorm");
+        name(300, 321, "Drizzle");
+        name(500, 531, "Rain");
+        name(600, 622, "Snow");
+        name(701, 701, "Mist");
+        name(711, 711, "Smoke");
+        name(721, 721, "Haze");
+        name(731, 731, "Dust");
+        name(741, 741, "Fog");
+        name(751, 751, "Sand");
+        name(761, 761, "Dust");
+        name(762, 762, "Ash");
+        name(771, 771, "Squall");
+        name(781, 781, "Tornado");
+        name(800, 800, "Clear");
+        name(801, 804, "Clouds");
+        name(900, 906, "Extreme");
+        name(951, 962, "Additional");
+    }
+
+    private static void fill(int firstId, int lastId, byte group) {
+        for (int id = firstId; id <= lastId; id++) {
+            sGroups[id] = group;
+        }
+    }
+
+    private static void name(int firstId, int lastId, String mainName) {
+        for (int id = firstId; id <= lastId; id++) {
+            sMainNames[id] = mainName;
+        }
+    }
+
+    private WeatherConditions() {
+    }
+
+    private static int groupOf(int weatherId) {
+        if (weatherId < 0 || weatherId > MAX_CONDITION_ID) {
+            return GROUP_NONE;
+        }
+        return sGroups[weatherId];
+    }
+
+    /**
+     * @param weatherId from OpenWeatherMap API response
+     * @return the ART_* kind for the condition, ART_NONE if no relation is found.
+     */
+    public static int getArt(int weatherId) {
+        return GROUP_ART[groupOf(weatherId)];
+    }
+
+    /**
+     * @param weatherId from OpenWeatherMap API response
+     * @return the "main" name OpenWeatherMap gives the condition, e.g "Drizzle", or null if the
+     *         id is unknown
+     */
+    public static String getMainName(int weatherId) {
+        if (weatherId < 0 || weatherId > MAX_CONDITION_ID) {
+            return null;
+        }
+        return sMainNames[weatherId];
+    }
+
+    /**
+     * @param art one of the ART_* kinds, except ART_NONE
+     * @return the name art packs use for this kind, e.g "light_rain"
+     */
+    public static String getArtName(int art) {
+        return ART_NAMES[art];
+    }
+
+    /**
+     * @param weatherId from OpenWeatherMap API response
+     * @return A string URL to an appropriate image or null if no mapping is found
+     */
+    public static String getImageUrl(int weatherId) {
+        return GROUP_IMAGE_URLS[groupOf(weatherId)];
+    }
+
+    /**
+     * Formats the URL of every art kind for an art pack, so that lookups don't have to.
+     *
+     * @param artPackFormat URL format with a single %s placeholder for the art name
+     * @return the URLs, indexed by ART_*
+     */
+    public static String[] formatArtUrls(String artPackFormat) {
+        String[] urls = new String[ART_COUNT];
+        for (int art = 0; art < ART_COUNT; art++) {
+            urls[art] = String.format(Locale.US, artPackFormat, ART_NAMES[art]);
+        }
+        return urls;
+    }
+}
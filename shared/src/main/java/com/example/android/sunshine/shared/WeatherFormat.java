@@ -0,0 +1,79 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.shared;
+
+/**
+ * The unit conversions and formatting behind the measurements the phone shows on every row.
+ *
+ * The format strings are resources of the app, so they are passed in, already looked up.
+ * Measurements are stored in metric units, and converted here for users who prefer imperial.
+ */
+public final class WeatherFormat {
+
+    private static final float KMH_TO_MPH = .621371192237334f;
+
+    // Clockwise from north, each covering the 45 degrees centred on it
+    private static final String[] COMPASS_POINTS = {"N", "NE", "E", "SE", "S", "SW", "W", "NW"};
+
+    private WeatherFormat() {
+    }
+
+    /**
+     * @param celsius a temperature as stored
+     * @return the temperature in Celsius if metric, else in Fahrenheit
+     */
+    public static double toDisplayTemperature(double celsius, boolean metric) {
+        return metric ? celsius : (celsius * 1.8) + 32;
+    }
+
+    /**
+     * @param kmh a wind speed as stored
+     * @return the wind speed in km/h if metric, else in mph
+     */
+    public static float toDisplayWindSpeed(float kmh, boolean metric) {
+        return metric ? kmh : KMH_TO_MPH * kmh;
+    }
+
+    /**
+     * @param degrees meteorological degrees, 0 being north and 90 east
+     * @return the compass point nearest to the direction, such as "NW", or "Unknown"
+     */
+    public static String getCompassDirection(float degrees) {
+        if (Float.isNaN(degrees)) {
+            return "Unknown";
+        }
+        if (degrees >= 337.5 || degrees < 22.5) {
+            return COMPASS_POINTS[0];
+        }
+        return COMPASS_POINTS[(int) ((degrees + 22.5) / 45)];
+    }
+
+    /**
+     * @param format the format_temperature string, taking the temperature as a float
+     */
+    public static String formatTemperature(String format, double celsius, boolean metric) {
+        return String.format(format, toDisplayTemperature(celsius, metric));
+    }
+
+    /**
+     * @param format the format_wind_kmh or format_wind_mph string, taking the speed as a float
+     *               and the compass point as a string
+     */
+    public static String formatWind(String format, float kmh, float degrees, boolean metric) {
+        return String.format(format, toDisplayWindSpeed(kmh, metric),
+                getCompassDirection(degrees));
+    }
+}
@@ -0,0 +1,306 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.shared;
+
+/**
+ * How the days of a forecast are stored: the columns of the weather table, and the SQL the
+ * provider writes and reads them with.
+ *
+ * Measurements are stored as INTEGER hundredths of their unit, and the description is not
+ * stored at all, since it follows from the condition id.  Reads decode both with the
+ * expressions built here, so that every column reads as it did when it was stored as is.
+ */
+public final class WeatherStorage {
+
+    public static final String TABLE_NAME = "weather";
+
+    public static final String COLUMN_ID = "_id";
+    public static final String COLUMN_LOC_KEY = "location_id";
+    public static final String COLUMN_DATE = "date";
+    public static final String COLUMN_WEATHER_ID = "weather_id";
+    public static final String COLUMN_SHORT_DESC = "short_desc";
+    public static final String COLUMN_MIN_TEMP = "min";
+    public static final String COLUMN_MAX_TEMP = "max";
+    public static final String COLUMN_HUMIDITY = "humidity";
+    public static final String COLUMN_PRESSURE = "pressure";
+    public static final String COLUMN_WIND_SPEED = "wind";
+    public static final String COLUMN_DEGREES = "degrees";
+
+    /** Measurements are stored as multiples of one over this, in INTEGER columns. */
+    public static final int MEASUREMENT_SCALE = 100;
+
+    private static final String[] SCALED_COLUMNS = {
+            COLUMN_MIN_TEMP,
+            COLUMN_MAX_TEMP,
+            COLUMN_HUMIDITY,
+            COLUMN_PRESSURE,
+            COLUMN_WIND_SPEED,
+            COLUMN_DEGREES
+    };
+
+    // Bound in this order by SQL_INSERT, from index 1
+    private static final String[] INSERT_COLUMNS = {
+            COLUMN_LOC_KEY,
+            COLUMN_DATE,
+            COLUMN_WEATHER_ID,
+            COLUMN_MIN_TEMP,
+            COLUMN_MAX_TEMP,
+            COLUMN_HUMIDITY,
+            COLUMN_PRESSURE,
+            COLUMN_WIND_SPEED,
+            COLUMN_DEGREES
+    };
+
+    /** Index of the date in {@link #getInsertColumns()}. */
+    public static final int INSERT_INDEX_DATE = 1;
+    /** The columns of {@link #getInsertColumns()} from this index on are scaled measurements. */
+    public static final int INSERT_INDEX_FIRST_SCALED = 3;
+
+    /**
+     * Creates the weather table.  Measurements are INTEGER hundredths: SQLite stores small
+     * integers in 1 to 4 bytes, where a REAL always takes 8.
+     */
+    public static final String SQL_CREATE_TABLE = "CREATE TABLE " + TABLE_NAME + " (" +
+            // Why AutoIncrement here, and not for locations?
+            // Unique keys will be auto-generated in either case.  But for weather
+            // forecasting, it's reasonable to assume the user will want information
+            // for a certain date and all dates *following*, so the forecast data
+            // should be sorted accordingly.
+            COLUMN_ID + " INTEGER PRIMARY KEY AUTOINCREMENT," +
+
+            // the ID of the location entry associated with this weather data
+            COLUMN_LOC_KEY + " INTEGER NOT NULL, " +
+            COLUMN_DATE + " INTEGER NOT NULL, " +
+            // The description is derived from the condition id, see buildDescriptionExpression
+            COLUMN_WEATHER_ID + " INTEGER NOT NULL," +
+
+            COLUMN_MIN_TEMP + " INTEGER NOT NULL, " +
+            COLUMN_MAX_TEMP + " INTEGER NOT NULL, " +
+
+            COLUMN_HUMIDITY + " INTEGER NOT NULL, " +
+            COLUMN_PRESSURE + " INTEGER NOT NULL, " +
+            COLUMN_WIND_SPEED + " INTEGER NOT NULL, " +
+            COLUMN_DEGREES + " INTEGER NOT NULL, " +
+
+            // Set up the location column as a foreign key to location table.
+            " FOREIGN KEY (" + COLUMN_LOC_KEY + ") REFERENCES " +
+            LocationStorage.TABLE_NAME + " (" + LocationStorage.COLUMN_ID + "), " +
+
+            // To assure the application have just one weather entry per day
+            // per location, it's created a UNIQUE constraint with REPLACE strategy
+            " UNIQUE (" + COLUMN_DATE + ", " + COLUMN_LOC_KEY + ") ON CONFLICT REPLACE);";
+
+    /** Inserts a stored row, binding the values of {@link #getInsertColumns()} in order. */
+    public static final String SQL_INSERT;
+
+    /** Selects the days up to a date: the days a sync archives and deletes. */
+    public static final String SELECTION_EXPIRED = COLUMN_DATE + " <= ?";
+
+    /** Deletes the days up to the date bound as its argument. */
+    public static final String SQL_DELETE_EXPIRED =
+            "DELETE FROM " + TABLE_NAME + " WHERE " + SELECTION_EXPIRED;
+
+    static {
+        StringBuilder sql = new StringBuilder("INSERT INTO ").append(TABLE_NAME).append(" (");
+        for (int i = 0; i < INSERT_COLUMNS.length; i++) {
+            sql.append(i > 0 ? ", " : "").append(INSERT_COLUMNS[i]);
+        }
+        sql.append(") VALUES (");
+        for (int i = 0; i < INSERT_COLUMNS.length; i++) {
+            sql.append(i > 0 ? ", ?" : "?");
+        }
+        SQL_INSERT = sql.append(')').toString();
+    }
+
+    private WeatherStorage() {
+    }
+
+    /**
+     * @return the measurement columns, stored scaled by {@link #MEASUREMENT_SCALE}
+     */
+    public static String[] getScaledColumns() {
+        return SCALED_COLUMNS.clone();
+    }
+
+    /**
+     * @return every column of a stored row, in the order {@link #SQL_INSERT} binds them
+     */
+    public static String[] getInsertColumns() {
+        return INSERT_COLUMNS.clone();
+    }
+
+    /**
+     * @return a measurement as it is stored
+     */
+    public static long scale(double value) {
+        return Math.round(value * MEASUREMENT_SCALE);
+    }
+
+    /**
+     * @return a measurement as it reads back once stored, rounded to a hundredth
+     */
+    public static double round(double value) {
+        return scale(value) / (double) MEASUREMENT_SCALE;
+    }
+
+    /**
+     * @return the description a stored row reads back with, as
+     * {@link #buildDescriptionExpression(String)} derives it: the main name of the condition,
+     * or an empty string for an id without one
+     */
+    public static String getDescription(int weatherId) {
+        String name = WeatherConditions.getMainName(weatherId);
+        return name != null ? name : "";
+    }
+
+    /**
+     * @return the SQL reading a stored measurement back in its unit, as a REAL
+     */
+    public static String buildDecodeExpression(String column) {
+        return column + " / " + MEASUREMENT_SCALE + ".0";
+    }
+
+    /**
+     * Rewrites a WHERE or ORDER BY clause on the weather table so that it sees the columns as
+     * they are read rather than as they are stored: "max > ?" compares degrees, not
+     * hundredths.  Measurement and description columns, bare or qualified with the table name,
+     * are replaced by the expressions reading them.  Quoted strings and calls such as
+     * max(...) are left as they are.
+     *
+     * @return the clause, or null for a null clause
+     */
+    public static String buildDecodedClause(String clause) {
+        if (clause == null) {
+            return null;
+        }
+        StringBuilder sql = new StringBuilder(clause.length());
+        int length = clause.length();
+        int i = 0;
+        while (i < length) {
+            char c = clause.charAt(i);
+            if (c == '\'' || c == '"' || c == '`') {
+                // A quoted string, copied whole, or a quoted name.  A doubled quote inside one
+                // simply ends it and starts the next.
+                int end = clause.indexOf(c, i + 1);
+                end = end < 0 ? length : end + 1;
+                String expression = c != '\'' && end - i > 2
+                        && (i == 0 || clause.charAt(i - 1) != '.')
+                        && (end == length || clause.charAt(end) != '.') && !isCall(clause, end)
+                        ? getReadExpression(clause.substring(i + 1, end - 1)) : null;
+                if (expression != null) {
+                    sql.append('(').append(expression).append(')');
+                } else {
+                    sql.append(clause, i, end);
+                }
+                i = end;
+            } else if ((c == ':' || c == '@' || c == '$') && i + 1 < length
+                    && isNameStart(clause.charAt(i + 1))) {
+                // A named parameter, not a column
+                int end = endOfName(clause, i + 1);
+                sql.append(clause, i, end);
+                i = end;
+            } else if (isNameStart(c)) {
+                int end = endOfName(clause, i);
+                String name = clause.substring(i, end);
+                String column = name;
+                if (end + 1 < length && clause.charAt(end) == '.'
+                        && isNameStart(clause.charAt(end + 1))) {
+                    int columnEnd = endOfName(clause, end + 1);
+                    column = TABLE_NAME.equalsIgnoreCase(name)
+                            ? clause.substring(end + 1, columnEnd) : null;
+                    end = columnEnd;
+                }
+                String expression = column != null && !isCall(clause, end)
+                        ? getReadExpression(column) : null;
+                if (expression != null) {
+                    sql.append('(').append(expression).append(')');
+                } else {
+                    sql.append(clause, i, end);
+                }
+                i = end;
+            } else if (Character.isDigit(c)) {
+                // Numbers such as 1e3 are not names
+                int end = endOfName(clause, i);
+                sql.append(clause, i, end);
+                i = end;
+            } else {
+                sql.append(c);
+                i++;
+            }
+        }
+        return sql.toString();
+    }
+
+    private static boolean isNameStart(char c) {
+        return Character.isLetter(c) || c == '_';
+    }
+
+    private static int endOfName(String clause, int start) {
+        int end = start;
+        while (end < clause.length() && (Character.isLetterOrDigit(clause.charAt(end))
+                || clause.charAt(end) == '_')) {
+            end++;
+        }
+        return end;
+    }
+
+    private static boolean isCall(String clause, int end) {
+        while (end < clause.length() && Character.isWhitespace(clause.charAt(end))) {
+            end++;
+        }
+        return end < clause.length() && clause.charAt(end) == '(';
+    }
+
+    // The expression a column of the weather table is read with, null if it is read as stored
+    private static String getReadExpression(String column) {
+        String qualified = TABLE_NAME + ".";
+        if (COLUMN_SHORT_DESC.equalsIgnoreCase(column)) {
+            return buildDescriptionExpression(qualified + COLUMN_WEATHER_ID);
+        }
+        for (String scaled : SCALED_COLUMNS) {
+            if (scaled.equalsIgnoreCase(column)) {
+                return buildDecodeExpression(qualified + scaled);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * CASE WHEN weather_id BETWEEN 200 AND 232 THEN 'Thunderstorm' ... ELSE '' END, with a
+     * branch for each run of condition ids sharing their name.
+     *
+     * @return the SQL reading the description of a stored row from its condition id
+     */
+    public static String buildDescriptionExpression(String weatherIdColumn) {
+        StringBuilder sql = new StringBuilder("CASE");
+        int id = 0;
+        while (id <= WeatherConditions.MAX_CONDITION_ID) {
+            String name = WeatherConditions.getMainName(id);
+            int last = id;
+            while (name != null && last < WeatherConditions.MAX_CONDITION_ID
+                    && name.equals(WeatherConditions.getMainName(last + 1))) {
+                last++;
+            }
+            if (name != null) {
+                sql.append(" WHEN ").append(weatherIdColumn)
+                        .append(" BETWEEN ").append(id).append(" AND ").append(last)
+                        .append(" THEN '").append(name.replace("'", "''")).append('\'');
+            }
+            id = last + 1;
+        }
+        return sql.append(" ELSE '' END").toString();
+    }
+}
@@ -0,0 +1,67 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.shared;
+
+import org.json.JSONException;
+import org.junit.Test;
+
+import java.net.HttpURLConnection;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class DailyForecastTest {
+
+    private static final String DAY = "{\"dt\":1457179200,"
+            + "\"temp\":{\"day\":11.07,\"min\":8.58,\"max\":13.55,\"night\":9.38},"
+            + "\"pressure\":996.69,\"humidity\":89,"
+            + "\"weather\":[{\"id\":600,\"main\":\"Snow\",\"description\":\"light snow\"}],"
+            + "\"speed\":2.04,\"deg\":298,\"clouds\":7}";
+
+    @Test
+    public void cityAndDaysAreRead() throws JSONException {
+        DailyForecast forecast = DailyForecast.parse("{\"city\":{\"name\":\"London\","
+                + "\"coord\":{\"lon\":-0.12574,\"lat\":51.50853}},\"cod\":\"200\","
+                + "\"list\":[" + DAY + "," + DAY + "]}");
+        assertEquals(HttpURLConnection.HTTP_OK, forecast.getCode());
+        assertEquals("London", forecast.getCityName());
+        assertEquals(51.50853, forecast.getLatitude(), 0);
+        assertEquals(-0.12574, forecast.getLongitude(), 0);
+        assertEquals(2, forecast.getCount());
+        assertEquals(996.69, forecast.getPressure(1), 0);
+        assertEquals(89, forecast.getHumidity(1));
+        assertEquals(2.04, forecast.getWindSpeed(1), 0);
+        assertEquals(298, forecast.getDegrees(1), 0);
+        assertEquals(13.55, forecast.getHigh(1), 0);
+        assertEquals(8.58, forecast.getLow(1), 0);
+        assertEquals("Snow", forecast.getDescription(1));
+        assertEquals(600, forecast.getWeatherId(1));
+    }
+
+    @Test
+    public void errorCodeHasNoDays() throws JSONException {
+        DailyForecast forecast = DailyForecast.parse(
+                "{\"cod\":\"404\",\"message\":\"Error: Not found city\"}");
+        assertEquals(HttpURLConnection.HTTP_NOT_FOUND, forecast.getCode());
+        assertNull(forecast.getCityName());
+        assertEquals(0, forecast.getCount());
+    }
+
+    @Test(expected = JSONException.class)
+    public void missingListFails() throws JSONException {
+        DailyForecast.parse("{\"city\":{\"name\":\"London\"}}");
+    }
+}
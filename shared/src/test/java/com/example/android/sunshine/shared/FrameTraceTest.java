@@ -0,0 +1,72 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.shared;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class FrameTraceTest {
+
+    private static final long MINUTE = 60 * 1000;
+    private static final long START = 1000 * MINUTE;
+
+    @Test
+    public void framesWrapOldestFirst() {
+        FrameTrace trace = new FrameTrace(3, 5);
+        for (int i = 0; i < 5; i++) {
+            if (i % 2 == 0) {
+                trace.onTick(i);
+            }
+            trace.onFrame(START + i * 500, 100 + i);
+        }
+        assertEquals(3, trace.getFrameCount());
+        assertArrayEquals(new long[]{START + 1000, START + 1500, START + 2000},
+                trace.getFrameTimes());
+        assertArrayEquals(new long[]{102, 103, 104}, trace.getDrawMicros());
+        assertArrayEquals(new long[]{2, FrameTrace.NO_DRIFT, 4}, trace.getTickDrift());
+    }
+
+    @Test
+    public void invalidatesAreCountedPerMinute() {
+        FrameTrace trace = new FrameTrace(10, 4);
+        trace.onInvalidate(START);
+        trace.onInvalidate(START + 1);
+        trace.onInvalidate(START + 2 * MINUTE);
+        assertEquals(START / MINUTE, trace.getFirstMinute());
+        assertArrayEquals(new long[]{2, 0, 1}, trace.getInvalidates());
+
+        // Six minutes later, only the last four are kept and the skipped ones are empty
+        trace.onInvalidate(START + 8 * MINUTE);
+        assertEquals(START / MINUTE + 5, trace.getFirstMinute());
+        assertArrayEquals(new long[]{0, 0, 0, 1}, trace.getInvalidates());
+    }
+
+    @Test
+    public void clearDropsEverything() {
+        FrameTrace trace = new FrameTrace(2, 2);
+        trace.onInvalidate(START);
+        trace.onTick(7);
+        trace.onFrame(START, 10);
+        trace.clear();
+        assertEquals(0, trace.getFrameCount());
+        assertEquals(0, trace.getInvalidates().length);
+
+        trace.onFrame(START, 10);
+        assertArrayEquals(new long[]{FrameTrace.NO_DRIFT}, trace.getTickDrift());
+    }
+}
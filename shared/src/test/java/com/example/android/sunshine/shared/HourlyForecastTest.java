@@ -0,0 +1,66 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.shared;
+
+import com.google.gson.stream.JsonReader;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+
+import static org.junit.Assert.assertEquals;
+
+public class HourlyForecastTest {
+
+    private static final String SLOT = "{\"dt\":1457179200,"
+            + "\"main\":{\"temp\":12.84,\"pressure\":1018.9,\"humidity\":60,\"temp_kf\":0},"
+            + "\"weather\":[{\"id\":741,\"main\":\"Fog\",\"description\":\"fog\"},{\"id\":800}],"
+            + "\"clouds\":{\"all\":22},\"wind\":{\"speed\":2.66,\"deg\":236.407},"
+            + "\"dt_txt\":\"2016-03-05 12:00:00\"}";
+
+    @Test
+    public void storedFieldsAreRead() throws IOException {
+        HourlyForecast forecast = parse("{\"city\":{\"name\":\"London\"},\"cod\":\"200\","
+                + "\"list\":[" + SLOT + "]}");
+        assertEquals(1, forecast.getCount());
+        assertEquals(1457179200000L, forecast.getTime(0));
+        assertEquals(741, forecast.getWeatherId(0));
+        assertEquals("Fog", forecast.getDescription(0));
+        assertEquals(12.84, forecast.getTemperature(0), 0);
+        assertEquals(1018.9, forecast.getPressure(0), 0);
+        assertEquals(60, forecast.getHumidity(0), 0);
+        assertEquals(2.66, forecast.getWindSpeed(0), 0);
+        assertEquals(236.407, forecast.getDegrees(0), 0);
+    }
+
+    @Test
+    public void incompleteSlotsAreDropped() throws IOException {
+        HourlyForecast forecast = parse("{\"list\":[{\"dt\":1457179200},"
+                + "{\"weather\":[{\"id\":800}]}," + SLOT + "]}");
+        assertEquals(1, forecast.getCount());
+        assertEquals(741, forecast.getWeatherId(0));
+    }
+
+    @Test(expected = IOException.class)
+    public void errorCodeFails() throws IOException {
+        parse("{\"cod\":\"404\",\"message\":\"city not found\"}");
+    }
+
+    private static HourlyForecast parse(String json) throws IOException {
+        return HourlyForecast.parse(new JsonReader(new StringReader(json)));
+    }
+}
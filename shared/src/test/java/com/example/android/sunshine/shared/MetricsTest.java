@@ -0,0 +1,125 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.shared;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class MetricsTest {
+
+    private static final int THREADS = 4;
+    private static final int RECORDS_PER_THREAD = 100000;
+
+    @Before
+    public void setUp() {
+        Metrics.reset();
+    }
+
+    @Test
+    public void metricsAreRegisteredOnce() {
+        assertSame(Metrics.counter("test.counter"), Metrics.counter("test.counter"));
+        assertSame(Metrics.timer("test.timer"), Metrics.timer("test.timer"));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void nameCannotChangeKind() {
+        Metrics.counter("test.kind");
+        Metrics.timer("test.kind");
+    }
+
+    @Test
+    public void counterCounts() {
+        Metrics.Counter counter = Metrics.counter("test.counter");
+        counter.inc();
+        counter.add(41);
+        assertEquals(42, counter.getCount());
+    }
+
+    @Test
+    public void histogramPercentilesAreBoundedByPowersOfTwo() {
+        Metrics.Histogram histogram = Metrics.histogram("test.histogram");
+        for (long value = 1; value <= 1000; value++) {
+            histogram.record(value);
+        }
+        assertEquals(1000, histogram.getCount());
+        assertEquals(500500, histogram.getSum());
+        assertEquals(1, histogram.getMin());
+        assertEquals(1000, histogram.getMax());
+
+        long p50 = histogram.getPercentile(50);
+        assertTrue("Error: p50 was " + p50, p50 >= 500 && p50 < 1000);
+        long p99 = histogram.getPercentile(99);
+        assertTrue("Error: p99 was " + p99, p99 >= 990 && p99 <= 1000);
+    }
+
+    @Test
+    public void emptyHistogramReadsZero() {
+        Metrics.Histogram histogram = Metrics.histogram("test.empty");
+        assertEquals(0, histogram.getMin());
+        assertEquals(0, histogram.getMax());
+        assertEquals(0, histogram.getPercentile(50));
+    }
+
+    @Test
+    public void concurrentRecordsAreNotLost() throws InterruptedException {
+        final Metrics.Histogram histogram = Metrics.histogram("test.concurrent");
+        final CountDownLatch start = new CountDownLatch(1);
+        Thread[] threads = new Thread[THREADS];
+        for (int t = 0; t < THREADS; t++) {
+            final long offset = t * RECORDS_PER_THREAD;
+            threads[t] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    for (long i = 1; i <= RECORDS_PER_THREAD; i++) {
+                        histogram.record(offset + i);
+                    }
+                }
+            });
+            threads[t].start();
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        long total = THREADS * (long) RECORDS_PER_THREAD;
+        assertEquals(total, histogram.getCount());
+        assertEquals(total * (total + 1) / 2, histogram.getSum());
+        assertEquals(1, histogram.getMin());
+        assertEquals(total, histogram.getMax());
+    }
+
+    @Test
+    public void dumpListsMetricsByName() {
+        Metrics.counter("test.b").inc();
+        Metrics.timer("test.a").record(3);
+        String dump = Metrics.dump();
+        int a = dump.indexOf("test.a count=1 min=3");
+        int b = dump.indexOf("test.b count=1");
+        assertTrue(dump, a >= 0 && b > a);
+    }
+}
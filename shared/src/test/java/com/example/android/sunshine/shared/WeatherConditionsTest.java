@@ -0,0 +1,130 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.shared;
+
+import org.junit.Test;
+
+import java.util.Locale;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class WeatherConditionsTest {
+
+    private static final String ART_PACK_FORMAT = "https://example.com/art_%s.png";
+
+    @Test
+    public void artMatchesRangeChainsForEveryId() {
+        String[] urls = WeatherConditions.formatArtUrls(ART_PACK_FORMAT);
+        for (int id = -1; id <= WeatherConditions.MAX_CONDITION_ID + 1; id++) {
+            String expected = legacyArtUrl(ART_PACK_FORMAT, id);
+            int art = WeatherConditions.getArt(id);
+            if (expected == null) {
+                assertEquals("Error: id " + id + " should have no art",
+                        WeatherConditions.ART_NONE, art);
+            } else {
+                assertEquals("Error: wrong art for id " + id, expected, urls[art]);
+            }
+        }
+    }
+
+    @Test
+    public void imageUrlMatchesRangeChainsForEveryId() {
+        for (int id = -1; id <= WeatherConditions.MAX_CONDITION_ID + 1; id++) {
+            assertEquals("Error: wrong image for id " + id,
+                    legacyImageUrl(id), WeatherConditions.getImageUrl(id));
+        }
+    }
+
+    @Test
+    public void outOfRangeIdsHaveNoMapping() {
+        assertEquals(WeatherConditions.ART_NONE, WeatherConditions.getArt(Integer.MIN_VALUE));
+        assertEquals(WeatherConditions.ART_NONE, WeatherConditions.getArt(Integer.MAX_VALUE));
+        assertNull(WeatherConditions.getImageUrl(1000));
+        assertNull(WeatherConditions.getMainName(-1));
+        assertNull(WeatherConditions.getMainName(1000));
+    }
+
+    @Test
+    public void mainNameMatchesTheGroupOfTheId() {
+        assertEquals("Thunderstorm", WeatherConditions.getMainName(211));
+        assertEquals("Drizzle", WeatherConditions.getMainName(321));
+        assertEquals("Rain", WeatherConditions.getMainName(511));
+        assertEquals("Snow", WeatherConditions.getMainName(600));
+        assertEquals("Mist", WeatherConditions.getMainName(701));
+        assertEquals("Dust", WeatherConditions.getMainName(761));
+        assertEquals("Tornado", WeatherConditions.getMainName(781));
+        assertEquals("Clear", WeatherConditions.getMainName(800));
+        assertEquals("Clouds", WeatherConditions.getMainName(804));
+        assertNull(WeatherConditions.getMainName(799));
+    }
+
+    // Utility.getArtUrlForWeatherCondition before the tables existed.
+    private static String legacyArtUrl(String formatArtUrl, int weatherId) {
+        if (weatherId >= 200 && weatherId <= 232) {
+            return String.format(Locale.US, formatArtUrl, "storm");
+        } else if (weatherId >= 300 && weatherId <= 321) {
+            return String.format(Locale.US, formatArtUrl, "light_rain");
+        } else if (weatherId >= 500 && weatherId <= 504) {
+            return String.format(Locale.US, formatArtUrl, "rain");
+        } else if (weatherId == 511) {
+            return String.format(Locale.US, formatArtUrl, "snow");
+        } else if (weatherId >= 520 && weatherId <= 531) {
+            return String.format(Locale.US, formatArtUrl, "rain");
+        } else if (weatherId >= 600 && weatherId <= 622) {
+            return String.format(Locale.US, formatArtUrl, "snow");
+        } else if (weatherId >= 701 && weatherId <= 761) {
+            return String.format(Locale.US, formatArtUrl, "fog");
+        } else if (weatherId == 761 || weatherId == 781) {
+            return String.format(Locale.US, formatArtUrl, "storm");
+        } else if (weatherId == 800) {
+            return String.format(Locale.US, formatArtUrl, "clear");
+        } else if (weatherId == 801) {
+            return String.format(Locale.US, formatArtUrl, "light_clouds");
+        } else if (weatherId >= 802 && weatherId <= 804) {
+            return String.format(Locale.US, formatArtUrl, "clouds");
+        }
+        return null;
+    }
+
+    // Utility.getImageUrlForWeatherCondition before the tables existed.
+    private static String legacyImageUrl(int weatherId) {
+        if (weatherId >= 200 && weatherId <= 232) {
+            return "http://upload.wikimedia.org/wikipedia/commons/2/28/Thunderstorm_in_Annemasse,_France.jpg";
+        } else if (weatherId >= 300 && weatherId <= 321) {
+            return "http://upload.wikimedia.org/wikipedia/commons/a/a0/Rain_on_leaf_504605006.jpg";
+        } else if (weatherId >= 500 && weatherId <= 504) {
+            return "http://upload.wikimedia.org/wikipedia/commons/6/6c/Rain-on-Thassos.jpg";
+        } else if (weatherId == 511) {
+            return "http://upload.wikimedia.org/wikipedia/commons/b/b8/Fresh_snow.JPG";
+        } else if (weatherId >= 520 && weatherId <= 531) {
+            return "http://upload.wikimedia.org/wikipedia/commons/6/6c/Rain-on-Thassos.jpg";
+        } else if (weatherId >= 600 && weatherId <= 622) {
+            return "http://upload.wikimedia.org/wikipedia/commons/b/b8/Fresh_snow.JPG";
+        } else if (weatherId >= 701 && weatherId <= 761) {
+            return "http://upload.wikimedia.org/wikipedia/commons/e/e6/Westminster_fog_-_London_-_UK.jpg";
+        } else if (weatherId == 761 || weatherId == 781) {
+            return "http://upload.wikimedia.org/wikipedia/commons/d/dc/Raised_dust_ahead_of_a_severe_thunderstorm_1.jpg";
+        } else if (weatherId == 800) {
+            return "http://upload.wikimedia.org/wikipedia/commons/7/7e/A_few_trees_and_the_sun_(6009964513).jpg";
+        } else if (weatherId == 801) {
+            return "http://upload.wikimedia.org/wikipedia/commons/e/e7/Cloudy_Blue_Sky_(5031259890).jpg";
+        } else if (weatherId >= 802 && weatherId <= 804) {
+            return "http://upload.wikimedia.org/wikipedia/commons/5/54/Cloudy_hills_in_Elis,_Greece_2.jpg";
+        }
+        return null;
+    }
+}
@@ -0,0 +1,58 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.shared;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class WeatherFormatTest {
+
+    // The app's format_temperature and format_wind_kmh strings
+    private static final String FORMAT_TEMPERATURE = "%1.0f\u00B0";
+    private static final String FORMAT_WIND_KMH = "%1$1.0f km/h %2$s";
+
+    @Test
+    public void temperatureIsConvertedUnlessMetric() {
+        assertEquals(21.5, WeatherFormat.toDisplayTemperature(21.5, true), 0);
+        assertEquals(70.7, WeatherFormat.toDisplayTemperature(21.5, false), 1e-9);
+        assertEquals("-40\u00B0", WeatherFormat.formatTemperature(FORMAT_TEMPERATURE, -40, false));
+        assertEquals("13\u00B0", WeatherFormat.formatTemperature(FORMAT_TEMPERATURE, 12.6, true));
+    }
+
+    @Test
+    public void windSpeedIsConvertedUnlessMetric() {
+        assertEquals(10f, WeatherFormat.toDisplayWindSpeed(10f, true), 0);
+        assertEquals(6.2137f, WeatherFormat.toDisplayWindSpeed(10f, false), 1e-4);
+        assertEquals("4 km/h W", WeatherFormat.formatWind(FORMAT_WIND_KMH, 4.1f, 250.5f, true));
+    }
+
+    @Test
+    public void compassPointsCoverTheirSectors() {
+        assertEquals("N", WeatherFormat.getCompassDirection(0f));
+        assertEquals("N", WeatherFormat.getCompassDirection(22.4f));
+        assertEquals("NE", WeatherFormat.getCompassDirection(22.5f));
+        assertEquals("E", WeatherFormat.getCompassDirection(67.5f));
+        assertEquals("SE", WeatherFormat.getCompassDirection(157.4f));
+        assertEquals("S", WeatherFormat.getCompassDirection(180f));
+        assertEquals("SW", WeatherFormat.getCompassDirection(202.5f));
+        assertEquals("W", WeatherFormat.getCompassDirection(292.4f));
+        assertEquals("NW", WeatherFormat.getCompassDirection(337.4f));
+        assertEquals("N", WeatherFormat.getCompassDirection(337.5f));
+        assertEquals("N", WeatherFormat.getCompassDirection(360f));
+        assertEquals("Unknown", WeatherFormat.getCompassDirection(Float.NaN));
+    }
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.shared;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class WeatherStorageTest {
+
+    @Test
+    public void measurementsAreStoredInHundredths() {
+        assertEquals(101325, WeatherStorage.scale(1013.25));
+        assertEquals(-425, WeatherStorage.scale(-4.25));
+        assertEquals(0, WeatherStorage.scale(0.004));
+        assertEquals("weather.max / 100.0",
+                WeatherStorage.buildDecodeExpression("weather." + WeatherStorage.COLUMN_MAX_TEMP));
+        assertEquals(1013.25, WeatherStorage.round(1013.254), 0);
+        assertEquals(-4.25, WeatherStorage.round(-4.254), 0);
+    }
+
+    @Test
+    public void insertBindsEveryStoredColumnInOrder() {
+        String[] columns = WeatherStorage.getInsertColumns();
+        assertEquals(WeatherStorage.COLUMN_DATE, columns[WeatherStorage.INSERT_INDEX_DATE]);
+        assertEquals(WeatherStorage.getScaledColumns().length,
+                columns.length - WeatherStorage.INSERT_INDEX_FIRST_SCALED);
+        for (int i = 0; i < columns.length; i++) {
+            String column = columns[i];
+            assertTrue("Error: " + column + " is not bound",
+                    WeatherStorage.SQL_INSERT.contains(column));
+        }
+        assertEquals(columns.length, WeatherStorage.SQL_INSERT.split("\\?", -1).length - 1);
+    }
+
+    @Test
+    public void createdTableHasEveryStoredColumn() {
+        for (String column : WeatherStorage.getInsertColumns()) {
+            assertTrue("Error: " + column + " is not created",
+                    WeatherStorage.SQL_CREATE_TABLE.contains(column + " INTEGER NOT NULL"));
+        }
+        assertTrue(WeatherStorage.SQL_CREATE_TABLE.contains(" REFERENCES "
+                + LocationStorage.TABLE_NAME + " (" + LocationStorage.COLUMN_ID + ")"));
+    }
+
+    @Test
+    public void clausesSeeColumnsAsTheyAreRead() {
+        String max = "(weather.max / 100.0)";
+        assertEquals(max + " > ? AND date >= ?",
+                WeatherStorage.buildDecodedClause("max > ? AND date >= ?"));
+        assertEquals("location.location_setting = ? ORDER BY " + max + " DESC, weather._id",
+                WeatherStorage.buildDecodedClause(
+                        "location.location_setting = ? ORDER BY weather.max DESC, weather._id"));
+        assertEquals("(" + WeatherStorage.buildDescriptionExpression("weather.weather_id")
+                        + ") = 'Clear'",
+                WeatherStorage.buildDecodedClause("SHORT_DESC = 'Clear'"));
+        assertNull(WeatherStorage.buildDecodedClause(null));
+    }
+
+    @Test
+    public void clausesKeepLiteralsCallsAndOtherColumns() {
+        String[] unchanged = {
+                "short_desc2 = 'min and max'",
+                "max(date, ?) > 0",
+                "hourly.wind > 2 AND min2 < 1e3",
+                "humidity_ratio = :humidity AND _id = @wind",
+                "\"weather\".\"date\" = ?"
+        };
+        for (String clause : unchanged) {
+            assertEquals(clause, WeatherStorage.buildDecodedClause(clause));
+        }
+        assertEquals("(weather.pressure / 100.0) < ?",
+                WeatherStorage.buildDecodedClause("\"pressure\" < ?"));
+    }
+
+    @Test
+    public void descriptionCoversEveryNamedId() {
+        String expression = WeatherStorage.buildDescriptionExpression("weather_id");
+        assertTrue(expression.startsWith("CASE WHEN weather_id BETWEEN 200 AND "));
+        assertTrue(expression.endsWith(" ELSE '' END"));
+        for (int id = 0; id <= WeatherConditions.MAX_CONDITION_ID; id++) {
+            String name = WeatherConditions.getMainName(id);
+            if (name != null) {
+                assertTrue("Error: no branch for " + name,
+                        expression.contains(" THEN '" + name + "'"));
+                assertEquals(name, WeatherStorage.getDescription(id));
+            } else {
+                assertEquals("", WeatherStorage.getDescription(id));
+            }
+        }
+    }
+}
@@ -40,6 +40,8 @@ import android.view.Gravity;
 import android.view.SurfaceHolder;
 import android.view.WindowInsets;
 
+import com.example.android.sunshine.shared.FrameTrace;
+import com.example.android.sunshine.shared.Metrics;
 import com.google.android.gms.common.ConnectionResult;
 import com.google.android.gms.common.api.GoogleApiClient;
 import com.google.android.gms.common.api.ResultCallback;
@@ -79,6 +81,25 @@ public class SunshineFace extends CanvasWatchFaceService {
     private static final long NORMAL_UPDATE_RATE_MS = 500;
     private static final long AMBIENT_UPDATE_RATE_MS = TimeUnit.MINUTES.toMillis(1);
 
+    private static final Metrics.Timer DRAW_TIMER = Metrics.timer("watch.draw");
+    private static final Metrics.Timer COLON_TIMER = Metrics.timer("watch.drawColon");
+
+    /** Whether the colon blinks, sent by the phone with the weather.  Else it stays shown. */
+    private static final String KEY_BLINK_COLON = "blink_colon";
+
+    /** Whether the phone shows Celsius, sent with the weather, which is always in Celsius. */
+    private static final String KEY_METRIC = "metric";
+
+    /**
+     * Frame tracing is off unless turned on, on the watch, with
+     * "adb shell setprop log.tag.FrameTrace DEBUG".  The trace is then sent to the phone each
+     * time the face is hidden, or sooner when it is full.
+     */
+    private static final String TRACE_TAG = "FrameTrace";
+    // Five minutes of interactive frames, and an hour of invalidate counts
+    private static final int TRACE_FRAMES = 600;
+    private static final int TRACE_MINUTES = 60;
+
     private GoogleApiClient mGoogleApiClient;
 
     @Override
@@ -97,14 +118,21 @@ public class SunshineFace extends CanvasWatchFaceService {
 
         static final int MSG_UPDATE_TIME = 0;
 
-        /** How often {@link #mUpdateTimeHandler} ticks in milliseconds. */
-        long mInteractiveUpdateRateMs = NORMAL_UPDATE_RATE_MS;
+        /** When {@link #mUpdateTimeHandler} ticks, and what each tick changes. */
+        final TickScheduler mTicks = new TickScheduler(NORMAL_UPDATE_RATE_MS);
 
         double weather_low, weather_high;
+        boolean weather_metric = true;
         String weather_location, weather_desc;
         int weather_id;
         Bitmap weather_icon;
 
+        /** Recent frames, while tracing is on, else null. */
+        FrameTrace mFrameTrace;
+
+        /** When the pending tick is due, or 0 if it was not scheduled for a given time. */
+        long mNextTickMs;
+
         /** Handler to update the time periodically in interactive mode. */
         final Handler mUpdateTimeHandler = new Handler() {
             @Override
@@ -114,13 +142,7 @@ public class SunshineFace extends CanvasWatchFaceService {
                         if (Log.isLoggable(TAG, Log.VERBOSE)) {
                             Log.v(TAG, "updating time");
                         }
-                        invalidate();
-                        if (shouldTimerBeRunning()) {
-                            long timeMs = System.currentTimeMillis();
-                            long delayMs =
-                                    mInteractiveUpdateRateMs - (timeMs % mInteractiveUpdateRateMs);
-                            mUpdateTimeHandler.sendEmptyMessageDelayed(MSG_UPDATE_TIME, delayMs);
-                        }
+                        handleUpdateTimeMessage();
                         break;
                 }
             }
@@ -130,6 +152,8 @@ public class SunshineFace extends CanvasWatchFaceService {
             @Override
             public void onReceive(Context context, Intent intent) {
                 mCalendar.setTimeZone(TimeZone.getDefault());
+                mDateFormat.setTimeZone(TimeZone.getDefault());
+                mTicks.reset();
             }
         };
 
@@ -150,6 +174,20 @@ public class SunshineFace extends CanvasWatchFaceService {
         boolean mAmbient;
 
         Calendar mCalendar;
+        SimpleDateFormat mDateFormat;
+
+        // Text of the last full frame, rebuilt when the minute or the date changes
+        String mHourString;
+        String mMinuteString;
+        String mAmPmString;
+        String mDateString;
+
+        // Where the colon was last drawn, redrawn alone on ticks that only blink it
+        final Rect mColonBounds = new Rect();
+        final Rect mDirtyBounds = new Rect();
+        final Paint.FontMetrics mColonMetrics = new Paint.FontMetrics();
+        float mColonX;
+        float mColonY;
 
         boolean mShouldDrawColons;
         float mYOffset;
@@ -203,7 +241,7 @@ public class SunshineFace extends CanvasWatchFaceService {
             mLocationPaint = createTextPaint(ContextCompat.getColor(getApplicationContext(), R.color.date_color));
 
             mCalendar = Calendar.getInstance();
-
+            mDateFormat = new SimpleDateFormat("EE, MMM d yyyy");
         }
 
         @Override
@@ -229,17 +267,32 @@ public class SunshineFace extends CanvasWatchFaceService {
             super.onVisibilityChanged(visible);
 
             if (visible) {
+                if (Log.isLoggable(TRACE_TAG, Log.DEBUG)) {
+                    if (mFrameTrace == null) {
+                        mFrameTrace = new FrameTrace(TRACE_FRAMES, TRACE_MINUTES);
+                    }
+                } else {
+                    mFrameTrace = null;
+                }
                 mGoogleApiClient.connect();
                 registerReceiver();
 
                 // Update time zone in case it changed while we weren't visible.
                 mCalendar.setTimeZone(TimeZone.getDefault());
+                mDateFormat.setTimeZone(TimeZone.getDefault());
+                // The time format may have changed as well
+                mTicks.reset();
             } else {
                 if (mGoogleApiClient != null && mGoogleApiClient.isConnected()) {
+                    sendFrameTrace();
                     Wearable.DataApi.removeListener(mGoogleApiClient, this);
                     mGoogleApiClient.disconnect();
                 }
                 unregisterReceiver();
+                if (BuildConfig.DEBUG) {
+                    // The watch runs in its own process, out of reach of the phone's provider
+                    Log.d(TAG, "Metrics:\n" + Metrics.dump());
+                }
             }
 
             // Whether the timer should be running depends on whether we're visible (as well as
@@ -294,6 +347,14 @@ public class SunshineFace extends CanvasWatchFaceService {
             mLowBitAmbient = properties.getBoolean(PROPERTY_LOW_BIT_AMBIENT, false);
         }
 
+        @Override
+        public void invalidate() {
+            if (mFrameTrace != null) {
+                mFrameTrace.onInvalidate(System.currentTimeMillis());
+            }
+            super.invalidate();
+        }
+
         @Override
         public void onTimeTick() {
             super.onTimeTick();
@@ -318,27 +379,25 @@ public class SunshineFace extends CanvasWatchFaceService {
 
         @Override
         public void onDraw(Canvas canvas, Rect bounds) {
+            long drawStart = DRAW_TIMER.start();
 
             long now = System.currentTimeMillis();
             mCalendar.setTimeInMillis(now);
-            boolean is24Hour = DateFormat.is24HourFormat(SunshineFace.this);
-            int hour = mCalendar.get(Calendar.HOUR);
-            mShouldDrawColons = (System.currentTimeMillis() % 1000) < 500;
+            int changed = mTicks.onFullFrame(now, mCalendar);
+            if (changed >= TickScheduler.TICK_MINUTE) {
+                updateTimeStrings();
+            }
+            if (changed == TickScheduler.TICK_DATE) {
+                mDateString = mDateFormat.format(mCalendar.getTime()).toUpperCase();
+            }
+            mShouldDrawColons = mTicks.isColonShown(now);
 
             // Draw the background.
             canvas.drawRect(0, 0, bounds.width(), bounds.height(), mBackgroundPaint);
 
-            String hourString;
-            if (is24Hour) {
-                hourString = String.format("%02d", mCalendar.get(Calendar.HOUR_OF_DAY));
-            } else {
-                if (hour == 0) {
-                    hour = 12;
-                }
-                hourString = String.valueOf(hour);
-            }
-            String minuteString = String.format("%02d", mCalendar.get(Calendar.MINUTE));
-            String amPmString = !is24Hour ? mCalendar.get(Calendar.AM_PM) == Calendar.PM ? mPmString : mAmString : "";
+            String hourString = mHourString;
+            String minuteString = mMinuteString;
+            String amPmString = mAmPmString;
 
             float measuredTime = (mHourPaint.measureText(hourString) + mColonWidth + mMinutePaint.measureText(minuteString) + mColonWidth + mAmPmPaint.measureText(amPmString));
             float x = bounds.centerX() - (measuredTime / 2);
@@ -350,8 +409,15 @@ public class SunshineFace extends CanvasWatchFaceService {
 
             // In ambient and mute modes, always draw the first colon. Otherwise, draw the
             // first colon for the first half of each second.
+            mColonX = x;
+            mColonY = y - 5;
+            mColonPaint.getFontMetrics(mColonMetrics);
+            mColonBounds.set((int) Math.floor(mColonX),
+                    (int) Math.floor(mColonY + mColonMetrics.ascent),
+                    (int) Math.ceil(mColonX + mColonWidth),
+                    (int) Math.ceil(mColonY + mColonMetrics.descent));
             if (isInAmbientMode() || mShouldDrawColons) {
-                canvas.drawText(COLON_STRING, x, y - 5, mColonPaint);
+                canvas.drawText(COLON_STRING, mColonX, mColonY, mColonPaint);
             }
             x += mColonWidth;
 
@@ -362,22 +428,21 @@ public class SunshineFace extends CanvasWatchFaceService {
             x += mMinutePaint.measureText(minuteString) + mColonWidth;
             canvas.drawText(amPmString, x, y, mAmPmPaint);
 
-            SimpleDateFormat dateFormat = new SimpleDateFormat("EE, MMM d yyyy");
-            String dateString = dateFormat.format(mCalendar.getTime());
+            String dateString = mDateString;
             float measuredDate = mDatePaint.measureText(dateString);
             x = bounds.centerX() - (measuredDate / 2);
             y += mLineHeight;
 
             // Draw date
-            canvas.drawText(dateString.toUpperCase(), x, y, mDatePaint);
+            canvas.drawText(dateString, x, y, mDatePaint);
             y += mHorizontalLinePadding;
 
             // Draw horizontal line
             canvas.drawLine(bounds.centerX() - mHorizontalLineWidth / 2, mYOffset + mLineHeight + mHorizontalLinePadding,
                     bounds.centerX() + mHorizontalLineWidth / 2, mYOffset + mLineHeight + mHorizontalLinePadding, mDatePaint);
 
-            String highString = String.valueOf(Math.round(weather_high)) + "°";
-            String lowString = String.valueOf(Math.round(weather_low)) + "°";
+            String highString = SunshineFaceUtils.formatTemperature(weather_high, weather_metric);
+            String lowString = SunshineFaceUtils.formatTemperature(weather_low, weather_metric);
 
             float measuredTemp = mMaxTempPaint.measureText(highString) + mColonWidth + mMinTempPaint.measureText(lowString);
             if (weather_icon != null)
@@ -406,6 +471,14 @@ public class SunshineFace extends CanvasWatchFaceService {
                 x = bounds.centerX() - (measuredLocation / 2);
                 canvas.drawText(weather_location, x, y, mLocationPaint);
             }
+            DRAW_TIMER.stop(drawStart);
+            if (mFrameTrace != null) {
+                mFrameTrace.onFrame(now, (System.nanoTime() - drawStart) / 1000);
+                // Send a full trace right away, rather than overwriting it while still visible
+                if (mFrameTrace.getFrameCount() == TRACE_FRAMES && mGoogleApiClient.isConnected()) {
+                    sendFrameTrace();
+                }
+            }
         }
 
         /**
@@ -414,6 +487,8 @@ public class SunshineFace extends CanvasWatchFaceService {
          */
         private void updateTimer() {
             mUpdateTimeHandler.removeMessages(MSG_UPDATE_TIME);
+            mColonBounds.setEmpty();
+            mNextTickMs = 0;
             if (shouldTimerBeRunning()) {
                 mUpdateTimeHandler.sendEmptyMessage(MSG_UPDATE_TIME);
             }
@@ -428,18 +503,104 @@ public class SunshineFace extends CanvasWatchFaceService {
         }
 
         /**
-         * Handle updating the time periodically in interactive mode.
+         * Handle updating the time periodically in interactive mode: redraws the colon alone when
+         * nothing else changed since the last frame, else the whole face.
          */
         private void handleUpdateTimeMessage() {
-            invalidate();
+            long now = System.currentTimeMillis();
+            if (mFrameTrace != null && mNextTickMs != 0) {
+                mFrameTrace.onTick(now - mNextTickMs);
+            }
+            mCalendar.setTimeInMillis(now);
+            if (mTicks.whatChanged(now, mCalendar) != TickScheduler.TICK_COLON
+                    || !drawColon(now)) {
+                invalidate();
+            }
+            mNextTickMs = 0;
             if (shouldTimerBeRunning()) {
                 long timeMs = System.currentTimeMillis();
-                long delayMs = mInteractiveUpdateRateMs
-                        - (timeMs % mInteractiveUpdateRateMs);
+                long delayMs = mTicks.delayUntilNextTick(timeMs);
+                mNextTickMs = timeMs + delayMs;
                 mUpdateTimeHandler.sendEmptyMessageDelayed(MSG_UPDATE_TIME, delayMs);
             }
         }
 
+        /**
+         * Redraws only the colon, shown or hidden, over the last full frame.
+         *
+         * @return false if it could not, and the whole face needs redrawing
+         */
+        private boolean drawColon(long now) {
+            if (mColonBounds.isEmpty()) {
+                return false;
+            }
+            SurfaceHolder holder = getSurfaceHolder();
+            mDirtyBounds.set(mColonBounds);
+            Canvas canvas = holder.lockCanvas(mDirtyBounds);
+            if (canvas == null) {
+                return false;
+            }
+            try {
+                if (!mDirtyBounds.equals(mColonBounds)) {
+                    // The surface did not keep the rest of the last frame: draw all of it
+                    onDraw(canvas, holder.getSurfaceFrame());
+                    return true;
+                }
+                long drawStart = COLON_TIMER.start();
+                mShouldDrawColons = mTicks.isColonShown(now);
+                canvas.drawRect(mColonBounds, mBackgroundPaint);
+                if (mShouldDrawColons) {
+                    canvas.drawText(COLON_STRING, mColonX, mColonY, mColonPaint);
+                }
+                COLON_TIMER.stop(drawStart);
+                if (mFrameTrace != null) {
+                    mFrameTrace.onFrame(now, (System.nanoTime() - drawStart) / 1000);
+                }
+            } finally {
+                holder.unlockCanvasAndPost(canvas);
+            }
+            return true;
+        }
+
+        /**
+         * Rebuilds the hour, minute and AM/PM text from {@link #mCalendar}, in the current time
+         * format.
+         */
+        private void updateTimeStrings() {
+            boolean is24Hour = DateFormat.is24HourFormat(SunshineFace.this);
+            if (is24Hour) {
+                mHourString = String.format("%02d", mCalendar.get(Calendar.HOUR_OF_DAY));
+            } else {
+                int hour = mCalendar.get(Calendar.HOUR);
+                if (hour == 0) {
+                    hour = 12;
+                }
+                mHourString = String.valueOf(hour);
+            }
+            mMinuteString = String.format("%02d", mCalendar.get(Calendar.MINUTE));
+            mAmPmString = !is24Hour ? mCalendar.get(Calendar.AM_PM) == Calendar.PM ? mPmString : mAmString : "";
+        }
+
+        /**
+         * Sends the frames traced so far to the phone, which reports them, and starts a new
+         * trace.
+         */
+        private void sendFrameTrace() {
+            if (mFrameTrace == null || mFrameTrace.getFrameCount() == 0) {
+                return;
+            }
+            PutDataMapRequest putDataMapRequest = PutDataMapRequest.create(FrameTrace.PATH);
+            DataMap map = putDataMapRequest.getDataMap();
+            map.putLong("time", System.currentTimeMillis());
+            map.putLongArray(FrameTrace.KEY_FRAME_TIMES, mFrameTrace.getFrameTimes());
+            map.putLongArray(FrameTrace.KEY_DRAW_MICROS, mFrameTrace.getDrawMicros());
+            map.putLongArray(FrameTrace.KEY_TICK_DRIFT, mFrameTrace.getTickDrift());
+            map.putLong(FrameTrace.KEY_FIRST_MINUTE, mFrameTrace.getFirstMinute());
+            map.putLongArray(FrameTrace.KEY_INVALIDATES, mFrameTrace.getInvalidates());
+            Wearable.DataApi.putDataItem(mGoogleApiClient, putDataMapRequest.asPutDataRequest());
+            mFrameTrace.clear();
+        }
+
         @Override // DataApi.DataListener
         public void onDataChanged(DataEventBuffer dataEvents) {
 
@@ -455,12 +616,20 @@ public class SunshineFace extends CanvasWatchFaceService {
                         weather_low = dataMap.getDouble(SunshineFaceUtils.COLUMN_MIN_TEMP);
                         weather_desc = dataMap.getString(SunshineFaceUtils.COLUMN_SHORT_DESC);
                         weather_id = dataMap.getInt(SunshineFaceUtils.COLUMN_WEATHER_ID);
+                        weather_metric = dataMap.getBoolean(KEY_METRIC, true);
+                        boolean blink = dataMap.getBoolean(KEY_BLINK_COLON, true);
+                        if (blink != mTicks.isBlinking()) {
+                            mTicks.setBlinking(blink);
+                            updateTimer();
+                        }
                         Drawable d = getResources().getDrawable(SunshineFaceUtils.getIconResourceForWeatherCondition(weather_id), getTheme());
                         if (d != null) {
                             Bitmap b = ((BitmapDrawable) d).getBitmap();
                             float width = (mHourPaint.getTextSize() / b.getHeight()) * b.getWidth();
                             weather_icon = Bitmap.createScaledBitmap(b, (int) width, (int) mHourPaint.getTextSize(), true);
                         }
+                        // Ticks that only blink the colon no longer redraw the weather
+                        invalidate();
 
                         Log.d(TAG, path + " " + dataMap.getLong("time") + " " + weather_location + " " + weather_high + " " + weather_low + " " + weather_desc + " " + weather_id);
                     }
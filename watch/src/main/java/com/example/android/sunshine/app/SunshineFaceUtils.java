@@ -1,5 +1,8 @@
 package com.example.android.sunshine.app;
 
+import com.example.android.sunshine.shared.WeatherConditions;
+import com.example.android.sunshine.shared.WeatherFormat;
+
 /**
  * Created by raffaelcavaliere on 2016-07-05.
  */
@@ -10,32 +13,31 @@ public class SunshineFaceUtils {
     public static final String COLUMN_MIN_TEMP = "min";
     public static final String COLUMN_MAX_TEMP = "max";
 
+    // Drawables for each WeatherConditions.ART_* kind.
+    private static final int[] ICON_RESOURCES = {
+            R.drawable.ic_storm,
+            R.drawable.ic_light_rain,
+            R.drawable.ic_rain,
+            R.drawable.ic_snow,
+            R.drawable.ic_fog,
+            R.drawable.ic_clear,
+            R.drawable.ic_light_clouds,
+            R.drawable.ic_cloudy
+    };
+
+    /**
+     * Formats a temperature as the phone's Utility.formatTemperature does, without the tenths.
+     *
+     * @param temperature in Celsius, as stored by the phone
+     * @param metric whether to show it in Celsius, else in Fahrenheit
+     */
+    public static String formatTemperature(double temperature, boolean metric) {
+        return String.valueOf(Math.round(WeatherFormat.toDisplayTemperature(temperature, metric)))
+                + "\u00B0";
+    }
+
     public static int getIconResourceForWeatherCondition(int weatherId) {
-        // Based on weather code data found at:
-        // http://bugs.openweathermap.org/projects/api/wiki/Weather_Condition_Codes
-        if (weatherId >= 200 && weatherId <= 232) {
-            return R.drawable.ic_storm;
-        } else if (weatherId >= 300 && weatherId <= 321) {
-            return R.drawable.ic_light_rain;
-        } else if (weatherId >= 500 && weatherId <= 504) {
-            return R.drawable.ic_rain;
-        } else if (weatherId == 511) {
-            return R.drawable.ic_snow;
-        } else if (weatherId >= 520 && weatherId <= 531) {
-            return R.drawable.ic_rain;
-        } else if (weatherId >= 600 && weatherId <= 622) {
-            return R.drawable.ic_snow;
-        } else if (weatherId >= 701 && weatherId <= 761) {
-            return R.drawable.ic_fog;
-        } else if (weatherId == 761 || weatherId == 781) {
-            return R.drawable.ic_storm;
-        } else if (weatherId == 800) {
-            return R.drawable.ic_clear;
-        } else if (weatherId == 801) {
-            return R.drawable.ic_light_clouds;
-        } else if (weatherId >= 802 && weatherId <= 804) {
-            return R.drawable.ic_cloudy;
-        }
-        return -1;
+        int art = WeatherConditions.getArt(weatherId);
+        return art == WeatherConditions.ART_NONE ? -1 : ICON_RESOURCES[art];
     }
 }
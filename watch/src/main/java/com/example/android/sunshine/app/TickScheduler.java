@@ -0,0 +1,109 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.app;
+
+import java.util.Calendar;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decides when the watch face's interactive timer ticks next, and what a tick changes on
+ * screen.  While the colon blinks, ticks fall on each half second and most of them only change
+ * the colon; otherwise they fall on each minute of the wall clock.
+ */
+final class TickScheduler {
+    /** Only the colon changes. */
+    static final int TICK_COLON = 0;
+    /** The time changes, and the colon. */
+    static final int TICK_MINUTE = 1;
+    /** The date changes, and everything above. */
+    static final int TICK_DATE = 2;
+
+    private static final long MINUTE_IN_MILLIS = TimeUnit.MINUTES.toMillis(1);
+
+    private final long mBlinkIntervalMs;
+    private boolean mBlinking = true;
+    // Minute since the epoch and day of the last full frame, -1 to force the next one
+    private long mDrawnMinute = -1;
+    private int mDrawnDay = -1;
+
+    /**
+     * @param blinkIntervalMs how long the colon stays shown, then hidden, while blinking
+     */
+    TickScheduler(long blinkIntervalMs) {
+        mBlinkIntervalMs = blinkIntervalMs;
+    }
+
+    boolean isBlinking() {
+        return mBlinking;
+    }
+
+    void setBlinking(boolean blinking) {
+        mBlinking = blinking;
+    }
+
+    /**
+     * @return whether the colon is shown at {@code nowMs}
+     */
+    boolean isColonShown(long nowMs) {
+        return !mBlinking || (nowMs % (2 * mBlinkIntervalMs)) < mBlinkIntervalMs;
+    }
+
+    /**
+     * @return the delay from {@code nowMs} to the next tick, on a blink or minute boundary
+     */
+    long delayUntilNextTick(long nowMs) {
+        // Time zones are offset by whole minutes, so minutes start at the same time everywhere
+        long period = mBlinking ? mBlinkIntervalMs : MINUTE_IN_MILLIS;
+        return period - (nowMs % period);
+    }
+
+    /**
+     * @param calendar set to {@code nowMs}
+     * @return what changed since the last full frame: one of the TICK_* values
+     */
+    int whatChanged(long nowMs, Calendar calendar) {
+        if (mDrawnDay != dayOf(calendar)) {
+            return TICK_DATE;
+        }
+        return nowMs / MINUTE_IN_MILLIS != mDrawnMinute ? TICK_MINUTE : TICK_COLON;
+    }
+
+    /**
+     * Records a full frame drawn at {@code nowMs}.
+     *
+     * @param calendar set to {@code nowMs}
+     * @return what changed since the previous full frame: one of the TICK_* values
+     */
+    int onFullFrame(long nowMs, Calendar calendar) {
+        int changed = whatChanged(nowMs, calendar);
+        mDrawnMinute = nowMs / MINUTE_IN_MILLIS;
+        mDrawnDay = dayOf(calendar);
+        return changed;
+    }
+
+    /**
+     * Makes the next frame a full one that rebuilds everything, after the time zone or the
+     * time format changed.
+     */
+    void reset() {
+        mDrawnMinute = -1;
+        mDrawnDay = -1;
+    }
+
+    private static int dayOf(Calendar calendar) {
+        return calendar.get(Calendar.YEAR) * 1000 + calendar.get(Calendar.DAY_OF_YEAR);
+    }
+}
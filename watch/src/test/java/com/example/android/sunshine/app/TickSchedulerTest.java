@@ -0,0 +1,108 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.app;
+
+import org.junit.Test;
+
+import java.util.Calendar;
+import java.util.TimeZone;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class TickSchedulerTest {
+
+    private static final long BLINK_INTERVAL_MS = 500;
+    private static final long MINUTE_MS = TimeUnit.MINUTES.toMillis(1);
+    private static final long DAY_MS = TimeUnit.DAYS.toMillis(1);
+    // March 5th, 2016 10:00 UTC
+    private static final long NOW_MS = 1457172000000L;
+
+    private final Calendar mCalendar = Calendar.getInstance(TimeZone.getTimeZone("UTC"));
+
+    @Test
+    public void blinkingTicksFallOnHalfSeconds() {
+        TickScheduler scheduler = new TickScheduler(BLINK_INTERVAL_MS);
+        assertEquals(BLINK_INTERVAL_MS, scheduler.delayUntilNextTick(NOW_MS));
+        assertEquals(250, scheduler.delayUntilNextTick(NOW_MS + 250));
+        assertEquals(1, scheduler.delayUntilNextTick(NOW_MS + 999));
+        for (long now = NOW_MS; now < NOW_MS + 2000; now += 37) {
+            assertEquals("Error: the tick after " + now + " is off the blink",
+                    0, (now + scheduler.delayUntilNextTick(now)) % BLINK_INTERVAL_MS);
+        }
+    }
+
+    @Test
+    public void steadyTicksFallOnMinutes() {
+        TickScheduler scheduler = new TickScheduler(BLINK_INTERVAL_MS);
+        scheduler.setBlinking(false);
+        assertEquals(MINUTE_MS, scheduler.delayUntilNextTick(NOW_MS));
+        assertEquals(MINUTE_MS - 12345, scheduler.delayUntilNextTick(NOW_MS + 12345));
+        assertEquals(1, scheduler.delayUntilNextTick(NOW_MS + MINUTE_MS - 1));
+    }
+
+    @Test
+    public void colonBlinksOnlyWhileBlinking() {
+        TickScheduler scheduler = new TickScheduler(BLINK_INTERVAL_MS);
+        assertTrue(scheduler.isColonShown(NOW_MS));
+        assertTrue(scheduler.isColonShown(NOW_MS + BLINK_INTERVAL_MS - 1));
+        assertFalse(scheduler.isColonShown(NOW_MS + BLINK_INTERVAL_MS));
+        assertTrue(scheduler.isColonShown(NOW_MS + 2 * BLINK_INTERVAL_MS));
+
+        scheduler.setBlinking(false);
+        assertTrue(scheduler.isColonShown(NOW_MS + BLINK_INTERVAL_MS));
+    }
+
+    @Test
+    public void ticksWithinTheMinuteOnlyRedrawTheColon() {
+        TickScheduler scheduler = new TickScheduler(BLINK_INTERVAL_MS);
+        assertEquals(TickScheduler.TICK_DATE, onFullFrame(scheduler, NOW_MS));
+        assertEquals(TickScheduler.TICK_COLON, whatChanged(scheduler, NOW_MS + BLINK_INTERVAL_MS));
+        assertEquals(TickScheduler.TICK_COLON, whatChanged(scheduler, NOW_MS + MINUTE_MS - 1));
+        assertEquals(TickScheduler.TICK_MINUTE, whatChanged(scheduler, NOW_MS + MINUTE_MS));
+
+        // Until a full frame is drawn, the minute stays changed
+        assertEquals(TickScheduler.TICK_MINUTE,
+                whatChanged(scheduler, NOW_MS + MINUTE_MS + BLINK_INTERVAL_MS));
+        assertEquals(TickScheduler.TICK_MINUTE, onFullFrame(scheduler, NOW_MS + MINUTE_MS));
+        assertEquals(TickScheduler.TICK_COLON,
+                whatChanged(scheduler, NOW_MS + MINUTE_MS + BLINK_INTERVAL_MS));
+    }
+
+    @Test
+    public void newDayAndResetRedrawTheDate() {
+        TickScheduler scheduler = new TickScheduler(BLINK_INTERVAL_MS);
+        onFullFrame(scheduler, NOW_MS);
+        assertEquals(TickScheduler.TICK_DATE, whatChanged(scheduler, NOW_MS + DAY_MS));
+
+        scheduler.reset();
+        assertEquals(TickScheduler.TICK_DATE, whatChanged(scheduler, NOW_MS));
+        assertEquals(TickScheduler.TICK_DATE, onFullFrame(scheduler, NOW_MS));
+        assertEquals(TickScheduler.TICK_COLON, whatChanged(scheduler, NOW_MS));
+    }
+
+    private int whatChanged(TickScheduler scheduler, long nowMs) {
+        mCalendar.setTimeInMillis(nowMs);
+        return scheduler.whatChanged(nowMs, mCalendar);
+    }
+
+    private int onFullFrame(TickScheduler scheduler, long nowMs) {
+        mCalendar.setTimeInMillis(nowMs);
+        return scheduler.onFullFrame(nowMs, mCalendar);
+    }
+}